@@ -0,0 +1,102 @@
+class BubbleSortLarge{
+    public static void main(String[] a){
+	System.out.println(new BBS().Start(5000));
+    }
+}
+
+
+// The BubbleSort program scaled up for benchmarks: the array is filled
+// with pseudo-random numbers and only a checksum of it is printed
+class BBS{
+    
+    int[] number ;
+    int size ;
+
+    // Invoke the Initialization, Sort and Checksum
+    // Methods
+    public int Start(int sz){
+	int aux01 ;
+	aux01 = this.Init(sz);
+	aux01 = this.Checksum();
+	System.out.println(99999);
+	aux01 = this.Sort();
+	aux01 = this.Checksum();
+	return 0 ;
+    }
+
+ 
+    // Sort array of integers using Bublesort method
+    public int Sort(){
+	int nt ;
+	int i ;
+	int aux02 ;
+	int aux04 ;
+	int aux05 ;
+	int aux06 ;
+	int aux07 ;
+	int j ;
+	int t ;
+	i = size - 1 ;
+	aux02 = 0 - 1 ;
+	while (aux02 < i) {
+	    j = 1 ;
+	    while (j < (i+1)){
+		aux07 = j - 1 ;
+		aux04 = number[aux07] ;
+		aux05 = number[j] ;
+		if (aux05 < aux04) {
+		    aux06 = j - 1 ;
+		    t = number[aux06] ;
+		    number[aux06] = number[j] ;
+		    number[j] = t;
+		}
+		else nt = 0 ;
+		j = j + 1 ;
+	    }
+	    i = i - 1 ;
+	}
+	return 0 ;
+    }
+
+    // Print a checksum of the array, then 1 if it is sorted and 0 if not
+    public int Checksum(){
+	int j ;
+	int sum ;
+	int aux01 ;
+	boolean sorted ;
+	j = 0 ;
+	sum = 0 ;
+	sorted = true ;
+	while (j < (size)) {
+	    sum = sum * 31 + number[j] ;
+	    if (0 < j) {
+		aux01 = j - 1 ;
+		if (number[j] < number[aux01]) sorted = false ;
+		else sorted = sorted ;
+	    }
+	    else sorted = sorted ;
+	    j = j + 1 ;
+	}
+	System.out.println(sum);
+	if (sorted) System.out.println(1);
+	else System.out.println(0);
+	return 0 ;
+    }
+    
+    // Initialize array of integers with a linear congruential generator
+    public int Init(int sz){
+	int j ;
+	int seed ;
+	size = sz ;
+	number = new int[sz] ;
+	j = 0 ;
+	seed = 12345 ;
+	while (j < sz) {
+	    seed = seed * 1103515245 + 12345 ;
+	    number[j] = seed ;
+	    j = j + 1 ;
+	}
+	return 0 ;	
+    }
+
+}
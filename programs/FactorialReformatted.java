@@ -0,0 +1,20 @@
+// Factorial.java laid out differently, which must not change its hashes
+class Factorial
+{
+	public static void main (String [] a)
+	{
+		System.out.println (new Fac () . ComputeFac (10)) ;
+	}
+}
+
+/* computes factorials recursively */
+class Fac
+{
+	public int ComputeFac (int num)
+	{
+		int num_aux;
+		if (num < 1) num_aux = 1; // the base case
+		else num_aux = num * (this.ComputeFac(num - 1));
+		return num_aux;
+	}
+}
@@ -0,0 +1,270 @@
+class LinkedListLarge{
+    public static void main(String[] a){
+	System.out.println(new LL().Start(2000));
+    }
+}
+
+class Element {
+    int Age ;          
+    int Salary ;
+    boolean Married ;
+
+    // Initialize some class variables
+    public boolean Init(int v_Age, int v_Salary, boolean v_Married){
+	Age = v_Age ;
+	Salary = v_Salary ;
+	Married = v_Married ;
+	return true ;
+    }
+
+    public int GetAge(){
+	return Age ;
+    }
+    
+    public int GetSalary(){
+	return Salary ;
+    }
+
+    public boolean GetMarried(){
+	return Married ;
+    }
+
+    // This method returns true if the object "other"
+    // has the same values for age, salary and 
+    public boolean Equal(Element other){
+	boolean ret_val ;
+	int aux01 ;
+	int aux02 ;
+	int nt ;
+	ret_val = true ;
+
+	aux01 = other.GetAge();
+	if (!this.Compare(aux01,Age)) ret_val = false ;
+	else { 
+	    aux02 = other.GetSalary();
+	    if (!this.Compare(aux02,Salary)) ret_val = false ;
+	    else 
+		if (Married) 
+		    if (!other.GetMarried()) ret_val = false;
+		    else nt = 0 ;
+		else
+		    if (other.GetMarried()) ret_val = false;
+		    else nt = 0 ;
+	}
+
+	return ret_val ;
+    }
+
+    // This method compares two integers and
+    // returns true if they are equal and false
+    // otherwise
+    public boolean Compare(int num1 , int num2){
+	boolean retval ;
+	int aux02 ;
+	retval = false ;
+	aux02 = num2 + 1 ;
+	if (num1 < num2) retval = false ;
+	else if (!(num1 < aux02)) retval = false ;
+	else retval = true ;
+	return retval ;
+    }
+
+}
+
+class List{
+    Element elem ;
+    List next ;
+    boolean end ;
+
+    // Initialize the node list as the last node
+    public boolean Init(){
+	end = true ;
+	return true ;
+    }
+
+    // Initialize the values of a new node
+    public boolean InitNew(Element v_elem, List v_next, boolean v_end){
+	end = v_end ;
+	elem = v_elem ;
+	next = v_next ;
+	return true ;
+    }
+    
+    // Insert a new node at the beginning of the list
+    public List Insert(Element new_elem){
+	boolean ret_val ;
+	List aux03 ;
+	List aux02 ;
+	aux03 = this ;
+	aux02 = new List();
+	ret_val = aux02.InitNew(new_elem,aux03,false);
+	return aux02 ;
+    }
+    
+    
+    // Update the the pointer to the next node
+    public boolean SetNext(List v_next){
+	next = v_next ;
+	return true ;
+    }
+    
+    // Delete an element e from the list
+    public List Delete(Element e){
+	List my_head ;
+	boolean ret_val ;
+	boolean aux05;
+	List aux01 ;
+	List prev ;
+	boolean var_end ;
+	Element var_elem ;
+	int aux04 ;
+	int nt ;
+
+
+	my_head = this ;
+	ret_val = false ;
+	aux04 = 0 - 1 ;
+	aux01 = this ;
+	prev = this ;
+	var_end = end;
+	var_elem = elem ;
+	while ((!var_end) && (!ret_val)){
+	    if (e.Equal(var_elem)){
+		ret_val = true ;
+		if (aux04 < 0) { 
+		    // delete first element
+		    my_head = aux01.GetNext() ;
+		} 
+		else{ // delete a non first element
+		    aux05 = prev.SetNext(aux01.GetNext());
+		    
+		}
+	    } else nt = 0 ;
+	    if (!ret_val){
+		prev = aux01 ;
+		aux01 = aux01.GetNext() ;
+		var_end = aux01.GetEnd();
+		var_elem = aux01.GetElem();
+		aux04 = 1 ; 
+	    } else nt = 0 ;
+	}
+	return my_head ;
+    }
+    
+    
+    // Search for an element e on the list
+    public int Search(Element e){
+	int int_ret_val ;
+	List aux01 ;
+	Element var_elem ;
+	boolean var_end ;
+	int nt ;
+
+	int_ret_val = 0 ;
+	aux01 = this ;
+	var_end = end;
+	var_elem = elem ;
+	while (!var_end){
+	    if (e.Equal(var_elem)){
+		int_ret_val = 1 ;
+	    }
+	    else nt = 0 ;
+	    aux01 = aux01.GetNext() ;
+	    var_end = aux01.GetEnd();
+	    var_elem = aux01.GetElem();
+	}
+	return int_ret_val ;
+    }
+    
+    public boolean GetEnd(){
+	return end ;
+    }
+    
+    public Element GetElem(){
+	return elem ;
+    }
+    
+    public List GetNext(){
+	return next ;
+    }
+    
+    
+    // Count the elements of the list
+    public int Length(){
+	List aux01 ;
+	int count ;
+	count = 0 ;
+	aux01 = this ;
+	while (!aux01.GetEnd()){
+	    count = count + 1 ;
+	    aux01 = aux01.GetNext() ;
+	}
+	return count ;
+    }
+
+    // Print the linked list
+    public boolean Print(){
+	List aux01 ;
+	boolean var_end ;
+	Element  var_elem ;
+
+	aux01 = this ;
+	var_end = end ;
+	var_elem = elem ;
+	while (!var_end){
+	    System.out.println(var_elem.GetAge());
+	    aux01 = aux01.GetNext() ;
+	    var_end = aux01.GetEnd();
+	    var_elem = aux01.GetElem();
+	}
+
+	return true ;
+    }
+}
+    
+
+// The LinkedList program scaled up for benchmarks: it builds a list of
+// sz elements, searches it for sz others, some of them equal to elements
+// of the list, deletes those, and only prints counts
+class LL{
+
+    public int Start(int sz){
+	List head ;
+	boolean aux01 ;
+	Element el ;
+	int i ;
+	int found ;
+
+	head = new List();
+	aux01 = head.Init();
+	i = 0 ;
+	while (i < sz){
+	    el = new Element();
+	    aux01 = el.Init(18 + this.Cycle(i * 7, 50), 30000 + this.Cycle(i * 13, 40) * 1000, this.Cycle(i, 3) < 1);
+	    head = head.Insert(el);
+	    i = i + 1 ;
+	}
+	System.out.println(head.Length());
+	found = 0 ;
+	i = 0 ;
+	while (i < sz){
+	    el = new Element();
+	    aux01 = el.Init(18 + this.Cycle(i * 11, 50), 30000 + this.Cycle(i * 17, 40) * 1000, this.Cycle(i, 2) < 1);
+	    found = found + head.Search(el);
+	    head = head.Delete(el);
+	    i = i + 1 ;
+	}
+	System.out.println(found);
+	System.out.println(head.Length());
+	return 0 ;
+    }
+
+    // x modulo n, for x not negative
+    public int Cycle(int x, int n){
+	int r ;
+	r = x ;
+	while (!(r < n)) r = r - n ;
+	return r ;
+    }
+
+}
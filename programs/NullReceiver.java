@@ -0,0 +1,39 @@
+class NullReceiver{
+    public static void main(String[] a){
+	System.out.println(new Caller().Start());
+    }
+}
+
+// A call on a null receiver evaluates its arguments before it fails, so
+// the program prints 42 and only then throws a NullPointerException. The
+// receiver is only null on the last iteration, by which time the loop and
+// Call have been run often enough to be compiled
+class Caller {
+    Caller none ;
+
+    public int Start(){
+	int i ;
+	Caller c ;
+	i = 0 ;
+	while (i < 20) {
+	    if (i < 19) c = this ;
+	    else c = none ;
+	    System.out.println(this.Call(c));
+	    i = i + 1 ;
+	}
+	return 0 ;
+    }
+
+    public int Call(Caller c){
+	return c.Take(this.Side(), this);
+    }
+
+    public int Side(){
+	System.out.println(42);
+	return 1 ;
+    }
+
+    public int Take(int x, Caller c){
+	return x ;
+    }
+}
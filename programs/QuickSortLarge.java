@@ -0,0 +1,104 @@
+class QuickSortLarge{
+    public static void main(String[] a){
+	System.out.println(new QS().Start(1000000));
+    }
+}
+
+
+// The QuickSort program scaled up for benchmarks: the array is filled
+// with pseudo-random numbers and only a checksum of it is printed. Sort
+// partitions around the last element without scanning past either end,
+// which random input would make the original do
+class QS{
+    
+    int[] number ;
+    int size ;
+
+    // Invoke the Initialization, Sort and Checksum
+    // Methods
+    public int Start(int sz){
+	int aux01 ;
+	aux01 = this.Init(sz);
+	aux01 = this.Checksum();
+	System.out.println(9999);
+	aux01 = size - 1 ;
+	aux01 = this.Sort(0,aux01);
+	aux01 = this.Checksum();
+	return 0 ;
+    }
+
+ 
+    // Sort array of integers using Quicksort method
+    public int Sort(int left, int right){
+	int v ;
+	int i ;
+	int j ;
+	int nt;
+	int t ;
+	if (left < right){
+	    v = number[right] ;
+	    i = left - 1 ;
+	    j = left ;
+	    while (j < right){
+		if (number[j] < v) {
+		    i = i + 1 ;
+		    t = number[i] ;
+		    number[i] = number[j] ;
+		    number[j] = t ;
+		}
+		else nt = 0 ;
+		j = j + 1 ;
+	    }
+	    i = i + 1 ;
+	    t = number[i] ;
+	    number[i] = number[right] ;
+	    number[right] = t ;
+	    nt = this.Sort(left,i-1);
+	    nt = this.Sort(i+1,right);
+	}
+	else nt = 0 ;
+	return 0 ;
+    }
+
+    // Print a checksum of the array, then 1 if it is sorted and 0 if not
+    public int Checksum(){
+	int j ;
+	int sum ;
+	int aux01 ;
+	boolean sorted ;
+	j = 0 ;
+	sum = 0 ;
+	sorted = true ;
+	while (j < (size)) {
+	    sum = sum * 31 + number[j] ;
+	    if (0 < j) {
+		aux01 = j - 1 ;
+		if (number[j] < number[aux01]) sorted = false ;
+		else sorted = sorted ;
+	    }
+	    else sorted = sorted ;
+	    j = j + 1 ;
+	}
+	System.out.println(sum);
+	if (sorted) System.out.println(1);
+	else System.out.println(0);
+	return 0 ;
+    }
+    
+    // Initialize array of integers with a linear congruential generator
+    public int Init(int sz){
+	int j ;
+	int seed ;
+	size = sz ;
+	number = new int[sz] ;
+	j = 0 ;
+	seed = 54321 ;
+	while (j < sz) {
+	    seed = seed * 1103515245 + 12345 ;
+	    number[j] = seed ;
+	    j = j + 1 ;
+	}
+	return 0 ;	
+    }
+
+}
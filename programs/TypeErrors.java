@@ -0,0 +1,47 @@
+class TypeErrors{
+    public static void main(String[] a){
+	System.out.println(new Shape().Area(true));
+    }
+}
+
+class Shape {
+    int sides ;
+
+    public int Area(int scale){
+	boolean done ;
+	done = scale ;
+	sides = scale + done ;
+	return this.Perimeter(scale) ;
+    }
+
+    public boolean Draw(int x){
+	int y ;
+	y = x + z ;
+	if (y)
+	    y = new Canvas().Width() ;
+	else
+	    y = 0 ;
+	return y ;
+    }
+}
+
+class Square extends Shape {
+    public int Draw(int x){
+	return x ;
+    }
+
+    public int Area(boolean scale){
+	int[] cells ;
+	cells = new int[scale] ;
+	return cells ;
+    }
+}
+
+class Loop extends Cycle {
+    public int Run(){
+	return 0 ;
+    }
+}
+
+class Cycle extends Loop {
+}
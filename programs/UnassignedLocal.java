@@ -0,0 +1,25 @@
+class UnassignedLocal{
+    public static void main(String[] a){
+	System.out.println(new Counter().Sum(5));
+    }
+}
+
+// Locals read before they are assigned, which Java rejects and MiniJava
+// reads as 0, false and null, so the program prints 0 and then 10
+class Counter {
+    public int Sum(int n){
+	int total ;
+	int i ;
+	boolean seen ;
+	Counter none ;
+	Counter other ;
+	other = none ;
+	if (seen) System.out.println(1);
+	else System.out.println(0);
+	while (i < n) {
+	    total = total + i ;
+	    i = i + 1 ;
+	}
+	return total ;
+    }
+}
@@ -0,0 +1,155 @@
+package analysis;
+
+import java.util.BitSet;
+
+/*
+ * 
+ * Solves a dataflow problem over the locals of a ControlFlowGraph, with one
+ * bit per local slot. Each block's transfer function is
+ * out = gen | (in & ~kill), where in is the meet of the facts flowing into
+ * the block: the outs of its predecessors for a forward problem, or of its
+ * successors for a backward one. The meet is union or intersection. The
+ * boundary block, the entry going forward or the exit going backward, starts
+ * from the given boundary facts instead.
+ * 
+ * Blocks are visited from a worklist ordered by reverse postorder in the
+ * direction of flow, so that a block is usually visited after the blocks it
+ * depends on, and a block is only put back on the list when the facts flowing
+ * into it change. Structured programs settle in a couple of passes per loop
+ * nesting level, each costing one word operation per 64 locals per edge.
+ * 
+ */
+
+public class BitVectorDataflow {
+	private final ControlFlowGraph cfg;
+	private final boolean forward, intersect;
+	private final int words;
+	private final long[] in, out;
+	
+	// gen, kill and boundary are packed as in ControlFlowGraph, and kill may be null
+	public BitVectorDataflow(ControlFlowGraph cfg, boolean forward, boolean intersect,
+			long[] gen, long[] kill, long[] boundary) {
+		this.cfg = cfg;
+		this.forward = forward;
+		this.intersect = intersect;
+		words = cfg.getWords();
+		
+		int blockCount = cfg.getBlockCount();
+		in = new long[blockCount * words];
+		out = new long[blockCount * words];
+		if (intersect) {
+			// start from the top of the lattice: everything holds
+			for (int b = 0; b < blockCount; b++)
+				BitVectors.setFirst(out, b * words, words, cfg.getLocalCount());
+		}
+		solve(gen, kill, boundary);
+	}
+	
+	public ControlFlowGraph getGraph() {
+		return cfg;
+	}
+	
+	// facts where flow enters a block: its start going forward, its end going backward
+	public long[] getIn() {
+		return in;
+	}
+	
+	// facts where flow leaves a block: its end going forward, its start going backward
+	public long[] getOut() {
+		return out;
+	}
+	
+	public boolean isIn(int block, int slot) {
+		return BitVectors.get(in, block * words, slot);
+	}
+	
+	public boolean isOut(int block, int slot) {
+		return BitVectors.get(out, block * words, slot);
+	}
+	
+	private void solve(long[] gen, long[] kill, long[] boundary) {
+		int boundaryBlock = forward ? ControlFlowGraph.ENTRY : ControlFlowGraph.EXIT;
+		int[] order = order(boundaryBlock);
+		int[] position = new int[cfg.getBlockCount()];
+		for (int i = 0; i < order.length; i++)
+			position[order[i]] = i;
+		
+		BitSet worklist = new BitSet(order.length);
+		worklist.set(0, order.length);
+		int next = 0;
+		while (!worklist.isEmpty()) {
+			// take the next block in order, wrapping around once the end is passed
+			next = worklist.nextSetBit(next);
+			if (next < 0)
+				next = worklist.nextSetBit(0);
+			worklist.clear(next);
+			int block = order[next];
+			int base = block * words;
+			
+			// meet the facts flowing in
+			int[] sources = forward ? cfg.getPredecessors(block) : cfg.getSuccessors(block);
+			if (block == boundaryBlock)
+				System.arraycopy(boundary, 0, in, base, words);
+			else {
+				for (int i = 0; i < words; i++) {
+					long facts = intersect && sources.length > 0 ? -1L : 0;
+					for (int source : sources) {
+						if (intersect)
+							facts &= out[source * words + i];
+						else
+							facts |= out[source * words + i];
+					}
+					in[base + i] = facts;
+				}
+			}
+			
+			// apply the transfer function, queueing the blocks flowed into if it changes anything
+			boolean changed = false;
+			for (int i = 0; i < words; i++) {
+				long facts = gen[base + i] | (kill == null ? in[base + i] : in[base + i] & ~kill[base + i]);
+				if (facts != out[base + i]) {
+					out[base + i] = facts;
+					changed = true;
+				}
+			}
+			if (changed) {
+				for (int target : forward ? cfg.getSuccessors(block) : cfg.getPredecessors(block))
+					worklist.set(position[target]);
+			}
+		}
+	}
+	
+	// blocks reachable from start in reverse postorder along the direction of flow
+	private int[] order(int start) {
+		int blockCount = cfg.getBlockCount();
+		int[] result = new int[blockCount];
+		int filled = blockCount;
+		boolean[] visited = new boolean[blockCount];
+		int[] stack = new int[blockCount], edge = new int[blockCount];
+		int depth = 0;
+		stack[0] = start;
+		visited[start] = true;
+		while (depth >= 0) {
+			int block = stack[depth];
+			int[] targets = forward ? cfg.getSuccessors(block) : cfg.getPredecessors(block);
+			if (edge[depth] < targets.length) {
+				int target = targets[edge[depth]++];
+				if (!visited[target]) {
+					visited[target] = true;
+					stack[++depth] = target;
+					edge[depth] = 0;
+				}
+			} else
+				result[--filled] = stack[depth--];
+		}
+		
+		// blocks that cannot be reached go last
+		int count = blockCount - filled;
+		System.arraycopy(result, filled, result, 0, count);
+		for (int b = 0; b < blockCount; b++) {
+			if (!visited[b])
+				result[count++] = b;
+		}
+		return result;
+	}
+}
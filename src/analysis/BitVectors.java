@@ -0,0 +1,35 @@
+package analysis;
+
+/*
+ * 
+ * Operations on bit vectors packed into long arrays. Several vectors of the
+ * same length share one array, so each operation takes the offset of the
+ * vector's first word, and the operations on whole vectors take its length
+ * in words.
+ * 
+ */
+
+public final class BitVectors {
+	
+	private BitVectors() {}
+	
+	public static boolean get(long[] bits, int offset, int index) {
+		return (bits[offset + (index >>> 6)] & (1L << index)) != 0;
+	}
+	
+	public static void set(long[] bits, int offset, int index) {
+		bits[offset + (index >>> 6)] |= 1L << index;
+	}
+	
+	public static void clear(long[] bits, int offset, int index) {
+		bits[offset + (index >>> 6)] &= ~(1L << index);
+	}
+	
+	// sets the first count bits of a vector and clears the rest
+	public static void setFirst(long[] bits, int offset, int words, int count) {
+		for (int i = 0; i < words; i++) {
+			int remaining = count - (i << 6);
+			bits[offset + i] = remaining >= 64 ? -1L : remaining <= 0 ? 0 : (1L << remaining) - 1;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ast.*;
+import symbol.*;
+import visitor.DepthFirstVisitor;
+
+/*
+ * 
+ * The control-flow graph of one method body, made of basic blocks. Each
+ * block holds a straight-line run of elements: Print, Assign and ArrayAssign
+ * statements, and the conditions of If and While statements, which end their
+ * blocks, and the method's return expression. Block 0 is the entry and block
+ * 1 the exit, which holds no elements.
+ * 
+ * For dataflow over locals, each element records the local slots it reads
+ * and the slot it assigns, and each block summarizes them as bit vectors of
+ * getWords() longs: the slots read before being assigned in the block, and
+ * the slots assigned in it. Bit vectors of all blocks are packed into one
+ * long array, block b's words starting at b * getWords().
+ * 
+ */
+
+public class ControlFlowGraph {
+	public final static int ENTRY = 0, EXIT = 1;
+	
+	private final SymbolTable table;
+	private final int localCount;
+	private final int words;
+	
+	private final List<BasicBlock> blocks = new ArrayList<BasicBlock>();
+	private int[][] successors, predecessors;
+	private long[] upwardUses; // slots read before any assignment in the block
+	private long[] assigned; // slots assigned in the block
+	
+	public ControlFlowGraph(SymbolTable table, MethodSymbol method) {
+		this.table = table;
+		localCount = method.getLocalCount();
+		words = (localCount + 63) >>> 6;
+		
+		int entry = newBlock(), exit = newBlock();
+		MethodDecl methodDecl = method.getDecl();
+		int last = addStatements(methodDecl.getStms(), entry);
+		addElement(last, methodDecl.getReturnExp(), -1);
+		addEdge(last, exit);
+		
+		freeze();
+	}
+	
+	public int getBlockCount() {
+		return blocks.size();
+	}
+	
+	public int getLocalCount() {
+		return localCount;
+	}
+	
+	// longs per bit vector
+	public int getWords() {
+		return words;
+	}
+	
+	public int[] getSuccessors(int block) {
+		return successors[block];
+	}
+	
+	public int[] getPredecessors(int block) {
+		return predecessors[block];
+	}
+	
+	public int getElementCount(int block) {
+		return blocks.get(block).elements.size();
+	}
+	
+	public Node getElement(int block, int index) {
+		return blocks.get(block).elements.get(index);
+	}
+	
+	// local slots read by an element, in evaluation order
+	public int[] getUses(int block, int index) {
+		return blocks.get(block).uses.get(index);
+	}
+	
+	// the IdentifierExp reading each slot returned by getUses(), or the ArrayAssign for its array
+	public Node[] getUseSites(int block, int index) {
+		return blocks.get(block).useSites.get(index);
+	}
+	
+	// local slot assigned by an element, or -1
+	public int getDef(int block, int index) {
+		return blocks.get(block).defs[index];
+	}
+	
+	public long[] getUpwardUses() {
+		return upwardUses;
+	}
+	
+	public long[] getAssigned() {
+		return assigned;
+	}
+	
+	// adds the statements to the graph starting in block, returning the block control ends in
+	private int addStatements(StatementList stms, int block) {
+		for (int i = 0; i < stms.size(); i++)
+			block = addStatement(stms.elementAt(i), block);
+		return block;
+	}
+	
+	private int addStatement(Statement stm, int block) {
+		if (stm == null)
+			return block;
+		
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				return addStatements(((Block) stm).getStms(), block);
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				addElement(block, ifStm.getCondExp(), -1);
+				int thenBlock = newBlock(), elseBlock = newBlock(), join = newBlock();
+				addEdge(block, thenBlock);
+				addEdge(block, elseBlock);
+				addEdge(addStatement(ifStm.getTrueStm(), thenBlock), join);
+				addEdge(addStatement(ifStm.getFalseStm(), elseBlock), join);
+				return join;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				int header = newBlock(), body = newBlock(), after = newBlock();
+				addEdge(block, header);
+				addElement(header, whileStm.getCondExp(), -1);
+				addEdge(header, body);
+				addEdge(header, after);
+				addEdge(addStatement(whileStm.getStm(), body), header);
+				return after;
+			
+			case NodeKind.ASSIGN:
+				addElement(block, stm, table.getLocalSlot(stm));
+				return block;
+			
+			default:
+				// Print and ArrayAssign only read locals
+				addElement(block, stm, -1);
+				return block;
+		}
+	}
+	
+	private int newBlock() {
+		blocks.add(new BasicBlock());
+		return blocks.size() - 1;
+	}
+	
+	private void addElement(int block, Node element, int def) {
+		if (element == null)
+			return;
+		UseCollector collector = new UseCollector();
+		element.accept(collector);
+		if (element.getKind() == NodeKind.ARRAY_ASSIGN)
+			collector.addUse(element); // the array is read, not assigned
+		blocks.get(block).add(element, collector.getSlots(), collector.getSites(), def);
+	}
+	
+	private void addEdge(int from, int to) {
+		BasicBlock block = blocks.get(from);
+		block.successors = Arrays.copyOf(block.successors, block.successors.length + 1);
+		block.successors[block.successors.length - 1] = to;
+	}
+	
+	// builds the predecessor lists and the block summaries
+	private void freeze() {
+		int count = blocks.size();
+		successors = new int[count][];
+		for (int b = 0; b < count; b++)
+			successors[b] = blocks.get(b).successors;
+		
+		int[] predecessorCounts = new int[count];
+		for (int[] list : successors) {
+			for (int to : list)
+				predecessorCounts[to]++;
+		}
+		predecessors = new int[count][];
+		for (int b = 0; b < count; b++)
+			predecessors[b] = new int[predecessorCounts[b]];
+		int[] filled = new int[count];
+		for (int b = 0; b < count; b++) {
+			for (int to : successors[b])
+				predecessors[to][filled[to]++] = b;
+		}
+		
+		upwardUses = new long[count * words];
+		assigned = new long[count * words];
+		for (int b = 0; b < count; b++) {
+			int base = b * words;
+			for (int i = 0; i < getElementCount(b); i++) {
+				for (int slot : getUses(b, i)) {
+					if (!BitVectors.get(assigned, base, slot))
+						BitVectors.set(upwardUses, base, slot);
+				}
+				if (getDef(b, i) >= 0)
+					BitVectors.set(assigned, base, getDef(b, i));
+			}
+		}
+	}
+	
+	// elements of a block under construction
+	private static class BasicBlock {
+		final List<Node> elements = new ArrayList<Node>();
+		final List<int[]> uses = new ArrayList<int[]>();
+		final List<Node[]> useSites = new ArrayList<Node[]>();
+		int[] defs = new int[4];
+		int[] successors = new int[0];
+		
+		void add(Node element, int[] slots, Node[] sites, int def) {
+			if (elements.size() == defs.length)
+				defs = Arrays.copyOf(defs, defs.length * 2);
+			defs[elements.size()] = def;
+			elements.add(element);
+			uses.add(slots);
+			useSites.add(sites);
+		}
+	}
+	
+	// collects the local slots read by an element
+	private class UseCollector extends DepthFirstVisitor {
+		private int[] slots = new int[4];
+		private Node[] sites = new Node[4];
+		private int count;
+		
+		@Override
+		public void visit(IdentifierExp exp) {
+			addUse(exp);
+		}
+		
+		void addUse(Node ref) {
+			int slot = table.getLocalSlot(ref);
+			if (slot < 0)
+				return;
+			if (count == slots.length) {
+				slots = Arrays.copyOf(slots, count * 2);
+				sites = Arrays.copyOf(sites, count * 2);
+			}
+			slots[count] = slot;
+			sites[count++] = ref;
+		}
+		
+		int[] getSlots() {
+			return Arrays.copyOf(slots, count);
+		}
+		
+		Node[] getSites() {
+			return Arrays.copyOf(sites, count);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.*;
+import symbol.*;
+
+/*
+ * 
+ * Finds the reads of locals that may happen before the local is assigned, as
+ * Java's definite assignment rules would. A local is definitely assigned
+ * where a block starts if it is assigned along every path from the entry, so
+ * this is a forward problem meeting by intersection, with the parameters
+ * assigned at the entry. Each block is then walked to report the reads of
+ * locals not yet assigned.
+ * 
+ */
+
+public class DefiniteAssignment {
+	private final SymbolTable table;
+	private final MethodSymbol method;
+	private final ControlFlowGraph cfg;
+	private final BitVectorDataflow dataflow;
+	
+	public DefiniteAssignment(SymbolTable table, MethodSymbol method) {
+		this(table, method, new ControlFlowGraph(table, method));
+	}
+	
+	public DefiniteAssignment(SymbolTable table, MethodSymbol method, ControlFlowGraph cfg) {
+		this.table = table;
+		this.method = method;
+		this.cfg = cfg;
+		
+		long[] boundary = new long[cfg.getWords()];
+		BitVectors.setFirst(boundary, 0, cfg.getWords(), method.getParamCount());
+		dataflow = new BitVectorDataflow(cfg, true, true, cfg.getAssigned(), null, boundary);
+	}
+	
+	public ControlFlowGraph getGraph() {
+		return cfg;
+	}
+	
+	// true if a local is definitely assigned where a block starts
+	public boolean isAssignedBefore(int block, int slot) {
+		return dataflow.isIn(block, slot);
+	}
+	
+	// an error for each read of a local that might not have been assigned yet
+	public List<Diagnostic> check() {
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+		int words = cfg.getWords();
+		long[] assigned = new long[words];
+		for (int b = 0; b < cfg.getBlockCount(); b++) {
+			System.arraycopy(dataflow.getIn(), b * words, assigned, 0, words);
+			for (int i = 0; i < cfg.getElementCount(b); i++) {
+				int[] uses = cfg.getUses(b, i);
+				for (int j = 0; j < uses.length; j++) {
+					if (!BitVectors.get(assigned, 0, uses[j])) {
+						String name = table.getNames().getName(method.getLocalName(uses[j]));
+						Node site = cfg.getUseSites(b, i)[j];
+						diagnostics.add(new Diagnostic(site.getPosition(), "Variable " + name
+								+ " might not have been initialized"));
+						BitVectors.set(assigned, 0, uses[j]); // report each local once per block
+					}
+				}
+				if (cfg.getDef(b, i) >= 0)
+					BitVectors.set(assigned, 0, cfg.getDef(b, i));
+			}
+		}
+		return diagnostics;
+	}
+}
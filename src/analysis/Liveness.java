@@ -0,0 +1,68 @@
+package analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import symbol.*;
+
+/*
+ * 
+ * Computes which locals are live, that is, may still be read before being
+ * assigned again. This is a backward problem meeting by union: a block
+ * generates the locals it reads before assigning them and kills the locals
+ * it assigns. Nothing is live at the exit, since locals die with the method.
+ * 
+ */
+
+public class Liveness {
+	private final ControlFlowGraph cfg;
+	private final BitVectorDataflow dataflow;
+	
+	public Liveness(SymbolTable table, MethodSymbol method) {
+		this(new ControlFlowGraph(table, method));
+	}
+	
+	public Liveness(ControlFlowGraph cfg) {
+		this.cfg = cfg;
+		dataflow = new BitVectorDataflow(cfg, false, false, cfg.getUpwardUses(), cfg.getAssigned(),
+				new long[cfg.getWords()]);
+	}
+	
+	public ControlFlowGraph getGraph() {
+		return cfg;
+	}
+	
+	public boolean isLiveIn(int block, int slot) {
+		return dataflow.isOut(block, slot);
+	}
+	
+	public boolean isLiveOut(int block, int slot) {
+		return dataflow.isIn(block, slot);
+	}
+	
+	// the assignments whose value is never read
+	public List<Node> findDeadStores() {
+		List<Node> dead = new ArrayList<Node>();
+		int words = cfg.getWords();
+		long[] live = new long[words];
+		for (int b = 0; b < cfg.getBlockCount(); b++) {
+			// walk the block backwards from the locals live at its end
+			System.arraycopy(dataflow.getIn(), b * words, live, 0, words);
+			int found = dead.size();
+			for (int i = cfg.getElementCount(b) - 1; i >= 0; i--) {
+				int def = cfg.getDef(b, i);
+				if (def >= 0) {
+					if (!BitVectors.get(live, 0, def))
+						dead.add(cfg.getElement(b, i));
+					BitVectors.clear(live, 0, def);
+				}
+				for (int slot : cfg.getUses(b, i))
+					BitVectors.set(live, 0, slot);
+			}
+			Collections.reverse(dead.subList(found, dead.size())); // back into source order
+		}
+		return dead;
+	}
+}
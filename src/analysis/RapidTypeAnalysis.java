@@ -0,0 +1,134 @@
+package analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ast.*;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.DepthFirstVisitor;
+
+/*
+ * 
+ * Finds the classes and methods a program can reach from its main class by
+ * rapid type analysis. Starting from the main statement, each reachable body
+ * is scanned once. A NewObject marks its class instantiated. A Call whose
+ * callee has static type C and resolves to the method in slot s may run the
+ * slot s method of any instantiated subclass of C, so that method is marked
+ * reachable for every such class, both those already instantiated and those
+ * instantiated later. Methods of classes that are never instantiated are
+ * never reached, however many call sites name them.
+ * 
+ * The analysis needs the call targets of a type checker that found no
+ * errors; calls it could not resolve are ignored.
+ * 
+ */
+
+public class RapidTypeAnalysis {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	
+	private final boolean[] instantiated; // by class index
+	private final List<ClassSymbol> instances = new ArrayList<ClassSymbol>();
+	private final Set<MethodSymbol> reachable = new HashSet<MethodSymbol>();
+	private final Set<MethodSymbol> called = new HashSet<MethodSymbol>(); // static targets of reachable calls
+	private final Deque<MethodSymbol> work = new ArrayDeque<MethodSymbol>();
+	
+	// virtual call sites seen so far, as static class index and method slot
+	private final Set<Long> calls = new HashSet<Long>();
+	private final List<ClassSymbol> callClasses = new ArrayList<ClassSymbol>();
+	private final List<Integer> callSlots = new ArrayList<Integer>();
+	
+	public RapidTypeAnalysis(SymbolTable table, TypeChecker checker) {
+		this.table = table;
+		this.checker = checker;
+		instantiated = new boolean[table.getClassCount()];
+	}
+	
+	public void analyze(Program prog) {
+		if (prog.getMainClass() != null && prog.getMainClass().getStm() != null)
+			prog.getMainClass().getStm().accept(new Scanner());
+		
+		while (!work.isEmpty())
+			work.pop().getDecl().accept(new Scanner());
+	}
+	
+	public boolean isInstantiated(ClassSymbol symbol) {
+		return instantiated[symbol.getIndex()];
+	}
+	
+	public boolean isReachable(MethodSymbol method) {
+		return reachable.contains(method);
+	}
+	
+	// true if a reachable call resolves to the method statically, whether or
+	// not it can run; such a method must stay declared for the call to check
+	public boolean isCalled(MethodSymbol method) {
+		return called.contains(method);
+	}
+	
+	public int getInstantiatedCount() {
+		return instances.size();
+	}
+	
+	public int getReachableCount() {
+		return reachable.size();
+	}
+	
+	private void instantiate(ClassSymbol symbol) {
+		if (instantiated[symbol.getIndex()])
+			return;
+		instantiated[symbol.getIndex()] = true;
+		instances.add(symbol);
+		
+		// calls seen before may now dispatch to this class
+		for (int i = 0; i < callClasses.size(); i++) {
+			if (symbol.isSubclassOf(callClasses.get(i)))
+				reach(symbol.getMethod(callSlots.get(i)));
+		}
+	}
+	
+	private void call(MethodSymbol target, ClassSymbol staticClass) {
+		long key = (long) staticClass.getIndex() << 32 | target.getSlot();
+		if (!calls.add(key))
+			return;
+		callClasses.add(staticClass);
+		callSlots.add(target.getSlot());
+		
+		for (ClassSymbol symbol : instances) {
+			if (symbol.isSubclassOf(staticClass))
+				reach(symbol.getMethod(target.getSlot()));
+		}
+	}
+	
+	private void reach(MethodSymbol method) {
+		if (reachable.add(method))
+			work.push(method);
+	}
+	
+	// marks the instantiations and calls of one body
+	private class Scanner extends DepthFirstVisitor {
+		
+		@Override
+		public void visit(NewObject newObject) {
+			ClassSymbol symbol = table.getNewClass(newObject);
+			if (symbol != null)
+				instantiate(symbol);
+		}
+		
+		@Override
+		public void visit(Call call) {
+			MethodSymbol target = checker.getTarget(call);
+			ClassSymbol staticClass = table.getClassOfType(checker.getType(call.getCallee()));
+			if (target != null && staticClass != null) {
+				called.add(target);
+				call(target, staticClass);
+			}
+			super.visit(call);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package analysis;
+
+import ast.*;
+
+/*
+ * 
+ * Computes a 64-bit structural hash for every node of an AST in a single
+ * bottom-up pass. A node's hash combines its kind, its own values (names and
+ * integer constants) and the hashes of its children in order, so two subtrees
+ * hash alike exactly when they have the same shape and contents, whatever
+ * their formatting, comments or source positions. Only fixed arithmetic on
+ * the tree's contents is used (never identity hash codes or String.hashCode),
+ * so hashes are stable across JVM runs and can be persisted. Hashes are kept
+ * in a side table, and the ones of interest to build tools are those of
+ * Program, ClassDecl and MethodDecl nodes.
+ * 
+ */
+
+public class StructuralHasher {
+	private final LongNodeTable hashes;
+	
+	// stands in for a child missing due to a syntax error
+	private final static long MISSING = 0x6A09E667F3BCC908L;
+	
+	public StructuralHasher(int nodeCount) {
+		hashes = new LongNodeTable(nodeCount, 0);
+	}
+	
+	// hash of a node computed by an earlier call to hash()
+	public long getHash(Node node) {
+		return hashes.get(node);
+	}
+	
+	// hashes a subtree, recording the hash of every node in it
+	public long hash(Node node) {
+		if (node == null)
+			return MISSING;
+		
+		long h = mix(node.getKind() + 1);
+		switch (node.getKind()) {
+			
+			case NodeKind.PROGRAM:
+				Program prog = (Program) node;
+				h = combine(h, hash(prog.getMainClass()));
+				h = combine(h, hash(prog.getClassDeclList()));
+				break;
+			
+			case NodeKind.MAIN_CLASS:
+				MainClass main = (MainClass) node;
+				h = combine(h, hash(main.getClassId()));
+				h = combine(h, hash(main.getArgId()));
+				h = combine(h, hash(main.getStm()));
+				break;
+			
+			case NodeKind.CLASS_DECL_SIMPLE:
+				ClassDeclSimple simpleClass = (ClassDeclSimple) node;
+				h = combine(h, hash(simpleClass.getClassId()));
+				h = combine(h, hash(simpleClass.getFields()));
+				h = combine(h, hash(simpleClass.getMethods()));
+				break;
+			
+			case NodeKind.CLASS_DECL_EXTENDS:
+				ClassDeclExtends extendsClass = (ClassDeclExtends) node;
+				h = combine(h, hash(extendsClass.getClassId()));
+				h = combine(h, hash(extendsClass.getSuperId()));
+				h = combine(h, hash(extendsClass.getFields()));
+				h = combine(h, hash(extendsClass.getMethods()));
+				break;
+			
+			case NodeKind.VAR_DECL:
+				VarDecl var = (VarDecl) node;
+				h = combine(h, hash(var.getType()));
+				h = combine(h, hash(var.getId()));
+				break;
+			
+			case NodeKind.METHOD_DECL:
+				MethodDecl method = (MethodDecl) node;
+				h = combine(h, hash(method.getReturnType()));
+				h = combine(h, hash(method.getId()));
+				h = combine(h, hash(method.getParams()));
+				h = combine(h, hash(method.getVars()));
+				h = combine(h, hash(method.getStms()));
+				h = combine(h, hash(method.getReturnExp()));
+				break;
+			
+			case NodeKind.FORMAL:
+				Formal param = (Formal) node;
+				h = combine(h, hash(param.getType()));
+				h = combine(h, hash(param.getId()));
+				break;
+			
+			case NodeKind.IDENTIFIER_TYPE:
+				h = combine(h, hash(((IdentifierType) node).getName()));
+				break;
+			
+			case NodeKind.BLOCK:
+				h = combine(h, hash(((Block) node).getStms()));
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) node;
+				h = combine(h, hash(ifStm.getCondExp()));
+				h = combine(h, hash(ifStm.getTrueStm()));
+				h = combine(h, hash(ifStm.getFalseStm()));
+				break;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) node;
+				h = combine(h, hash(whileStm.getCondExp()));
+				h = combine(h, hash(whileStm.getStm()));
+				break;
+			
+			case NodeKind.PRINT:
+				h = combine(h, hash(((Print) node).getExp()));
+				break;
+			
+			case NodeKind.ASSIGN:
+				Assign assignStm = (Assign) node;
+				h = combine(h, hash(assignStm.getId()));
+				h = combine(h, hash(assignStm.getValue()));
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign arrayAssignStm = (ArrayAssign) node;
+				h = combine(h, hash(arrayAssignStm.getId()));
+				h = combine(h, hash(arrayAssignStm.getIndex()));
+				h = combine(h, hash(arrayAssignStm.getValue()));
+				break;
+			
+			case NodeKind.AND:
+				And andExp = (And) node;
+				h = combine(h, hash(andExp.getLHS()));
+				h = combine(h, hash(andExp.getRHS()));
+				break;
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThanExp = (LessThan) node;
+				h = combine(h, hash(lessThanExp.getLHS()));
+				h = combine(h, hash(lessThanExp.getRHS()));
+				break;
+			
+			case NodeKind.PLUS:
+				Plus plusExp = (Plus) node;
+				h = combine(h, hash(plusExp.getLHS()));
+				h = combine(h, hash(plusExp.getRHS()));
+				break;
+			
+			case NodeKind.MINUS:
+				Minus minusExp = (Minus) node;
+				h = combine(h, hash(minusExp.getLHS()));
+				h = combine(h, hash(minusExp.getRHS()));
+				break;
+			
+			case NodeKind.TIMES:
+				Times timesExp = (Times) node;
+				h = combine(h, hash(timesExp.getLHS()));
+				h = combine(h, hash(timesExp.getRHS()));
+				break;
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup arrayLookup = (ArrayLookup) node;
+				h = combine(h, hash(arrayLookup.getArray()));
+				h = combine(h, hash(arrayLookup.getIndex()));
+				break;
+			
+			case NodeKind.ARRAY_LENGTH:
+				h = combine(h, hash(((ArrayLength) node).getArray()));
+				break;
+			
+			case NodeKind.CALL:
+				Call callExp = (Call) node;
+				h = combine(h, hash(callExp.getCallee()));
+				h = combine(h, hash(callExp.getMethodName()));
+				h = combine(h, hash(callExp.getArgs()));
+				break;
+			
+			case NodeKind.INTEGER_LITERAL:
+				h = combine(h, ((IntegerLiteral) node).getValue());
+				break;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				h = combine(h, hash(((IdentifierExp) node).getName()));
+				break;
+			
+			case NodeKind.NEW_ARRAY:
+				h = combine(h, hash(((NewArray) node).getArraySize()));
+				break;
+			
+			case NodeKind.NEW_OBJECT:
+				h = combine(h, hash(((NewObject) node).getId()));
+				break;
+			
+			case NodeKind.NOT:
+				h = combine(h, hash(((Not) node).getExp()));
+				break;
+			
+			case NodeKind.IDENTIFIER:
+				h = combine(h, hash(((Identifier) node).getName()));
+				break;
+			
+			default:
+				// the remaining types and literals are fully described by kind
+				break;
+				
+		}
+		
+		hashes.put(node, h);
+		return h;
+	}
+	
+	// lists hash their length first so adjacent lists cannot run together
+	private long hash(ClassDeclList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	private long hash(VarDeclList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	private long hash(MethodDeclList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	private long hash(FormalList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	private long hash(StatementList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	private long hash(ExpList list) {
+		if (list == null) return MISSING;
+		long h = mix(list.size());
+		for (int i = 0; i < list.size(); i++)
+			h = combine(h, hash(list.elementAt(i)));
+		return h;
+	}
+	
+	// 64-bit FNV-1a over the chars of a name
+	static long hash(String name) {
+		if (name == null) return MISSING;
+		long h = 0xCBF29CE484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			h ^= name.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return mix(h);
+	}
+	
+	// folds value into an order-dependent running hash
+	static long combine(long h, long value) {
+		return mix(h * 0x9E3779B97F4A7C15L + value);
+	}
+	
+	// finalizer of MurmurHash3, spreading every input bit over the result
+	static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -0,0 +1,203 @@
+package analysis;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import ast.*;
+import symbol.*;
+
+/*
+ * 
+ * Removes the classes and methods that rapid type analysis found to be
+ * unreachable, returning a smaller Program for later phases. A class is kept
+ * if it is instantiated, declares a reachable method, is extended by a kept
+ * class, or is named as a type by kept fields or methods. Kept classes keep
+ * all their fields but only their reachable methods, plus the methods that
+ * reachable calls resolve to statically but that never run because every
+ * instantiated class overrides them. Those keep their signature for the
+ * calls to check against, with a body that just returns a default value.
+ * 
+ * The original tree is left untouched. Kept classes and methods are shared
+ * with it, and the few nodes rebuilt with shorter method lists get ids from
+ * the given node count upwards, so side tables of the original tree remain
+ * valid for the nodes of the result.
+ * 
+ */
+
+public class TreeShaker {
+	private final SymbolTable table;
+	private final RapidTypeAnalysis rta;
+	private int nodeCount;
+	
+	private final boolean[] kept; // by class index
+	private final Deque<ClassSymbol> work = new ArrayDeque<ClassSymbol>();
+	private int removedClasses, removedMethods, stubbedMethods;
+	
+	public TreeShaker(SymbolTable table, RapidTypeAnalysis rta, int nodeCount) {
+		this.table = table;
+		this.rta = rta;
+		this.nodeCount = nodeCount;
+		kept = new boolean[table.getClassCount()];
+	}
+	
+	public Program shake(Program prog) {
+		// find the classes to keep
+		for (ClassSymbol symbol : table.getClasses()) {
+			if (symbol.getDecl().getKind() == NodeKind.MAIN_CLASS || rta.isInstantiated(symbol))
+				keep(symbol);
+			for (int slot = 0; slot < symbol.getMethodCount(); slot++) {
+				MethodSymbol method = symbol.getMethod(slot);
+				if (rta.isReachable(method) || rta.isCalled(method))
+					keep(method.getOwner());
+			}
+		}
+		while (!work.isEmpty())
+			keepReferenced(work.pop());
+		
+		// rebuild the class list without the rest
+		ClassDeclList classList = prog.getClassDeclList();
+		ClassDeclList shaken = new ClassDeclList();
+		for (int i = 0; i < classList.size(); i++) {
+			ClassDecl classDecl = classList.elementAt(i);
+			ClassSymbol symbol = classDecl == null ? null : table.getDeclaredClass(classDecl);
+			if (symbol != null && kept[symbol.getIndex()])
+				shaken.addElement(shakeMethods(classDecl));
+			else
+				removedClasses++;
+		}
+		
+		Program result = new Program(prog.getMainClass(), shaken);
+		return copied(result, prog);
+	}
+	
+	// number of node ids used by the original tree and the rebuilt nodes
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	public int getRemovedClassCount() {
+		return removedClasses;
+	}
+	
+	// methods removed from kept classes, not counting those of removed classes
+	public int getRemovedMethodCount() {
+		return removedMethods;
+	}
+	
+	// methods kept only for their signature
+	public int getStubbedMethodCount() {
+		return stubbedMethods;
+	}
+	
+	private void keep(ClassSymbol symbol) {
+		if (!kept[symbol.getIndex()]) {
+			kept[symbol.getIndex()] = true;
+			work.push(symbol);
+		}
+	}
+	
+	// keeps the superclass of a kept class and the classes its kept parts name
+	private void keepReferenced(ClassSymbol symbol) {
+		if (symbol.getSuperClass() != null)
+			keep(symbol.getSuperClass());
+		if (symbol.getDecl().getKind() == NodeKind.MAIN_CLASS)
+			return;
+		
+		ClassDecl classDecl = (ClassDecl) symbol.getDecl();
+		VarDeclList fields = classDecl.getFields();
+		for (int i = 0; i < fields.size(); i++) {
+			if (fields.elementAt(i) != null)
+				keepType(fields.elementAt(i).getType());
+		}
+		
+		MethodDeclList methods = classDecl.getMethods();
+		for (int i = 0; i < methods.size(); i++) {
+			MethodDecl methodDecl = methods.elementAt(i);
+			if (!isReachable(methodDecl) && !isCalled(methodDecl))
+				continue;
+			keepType(methodDecl.getReturnType());
+			for (int j = 0; j < methodDecl.getParams().size(); j++)
+				keepType(methodDecl.getParams().elementAt(j).getType());
+			if (isReachable(methodDecl)) {
+				for (int j = 0; j < methodDecl.getVars().size(); j++)
+					keepType(methodDecl.getVars().elementAt(j).getType());
+			}
+		}
+	}
+	
+	private void keepType(Type type) {
+		if (type != null && type.getKind() == NodeKind.IDENTIFIER_TYPE) {
+			ClassSymbol symbol = table.lookupClass(((IdentifierType) type).getName());
+			if (symbol != null)
+				keep(symbol);
+		}
+	}
+	
+	private boolean isReachable(MethodDecl methodDecl) {
+		MethodSymbol method = methodDecl == null ? null : table.getDeclaredMethod(methodDecl);
+		return method != null && rta.isReachable(method);
+	}
+	
+	private boolean isCalled(MethodDecl methodDecl) {
+		MethodSymbol method = methodDecl == null ? null : table.getDeclaredMethod(methodDecl);
+		return method != null && rta.isCalled(method);
+	}
+	
+	// the class itself if all its methods are reachable, or a copy without the others
+	private ClassDecl shakeMethods(ClassDecl classDecl) {
+		MethodDeclList methods = classDecl.getMethods();
+		MethodDeclList shaken = new MethodDeclList();
+		boolean changed = false;
+		for (int i = 0; i < methods.size(); i++) {
+			MethodDecl methodDecl = methods.elementAt(i);
+			if (isReachable(methodDecl))
+				shaken.addElement(methodDecl);
+			else if (isCalled(methodDecl)) {
+				shaken.addElement(stub(methodDecl));
+				stubbedMethods++;
+				changed = true;
+			} else {
+				removedMethods++;
+				changed = true;
+			}
+		}
+		if (!changed)
+			return classDecl;
+		
+		if (classDecl.getKind() == NodeKind.CLASS_DECL_EXTENDS) {
+			ClassDeclExtends extendsClass = (ClassDeclExtends) classDecl;
+			return copied(new ClassDeclExtends(extendsClass.getClassId(), extendsClass.getSuperId(),
+					extendsClass.getFields(), shaken), classDecl);
+		}
+		return copied(new ClassDeclSimple(classDecl.getClassId(), classDecl.getFields(), shaken), classDecl);
+	}
+	
+	// a method with the same signature that returns the default value of its type
+	private MethodDecl stub(MethodDecl methodDecl) {
+		Type returnType = methodDecl.getReturnType();
+		Exp returnExp;
+		switch (returnType == null ? NodeKind.INTEGER_TYPE : returnType.getKind()) {
+			case NodeKind.INT_ARRAY_TYPE:
+				returnExp = copied(new NewArray(copied(new IntegerLiteral(0), methodDecl)), methodDecl);
+				break;
+			case NodeKind.BOOLEAN_TYPE:
+				returnExp = copied(new False(), methodDecl);
+				break;
+			case NodeKind.IDENTIFIER_TYPE:
+				Identifier classId = copied(new Identifier(((IdentifierType) returnType).getName()), methodDecl);
+				returnExp = copied(new NewObject(classId), methodDecl);
+				break;
+			default:
+				returnExp = copied(new IntegerLiteral(0), methodDecl);
+		}
+		return copied(new MethodDecl(returnType, methodDecl.getId(), methodDecl.getParams(),
+				new VarDeclList(), new StatementList(), returnExp), methodDecl);
+	}
+	
+	// gives a rebuilt node a new id and the position of the node it replaces
+	private <T extends Node> T copied(T node, Node original) {
+		node.setNodeId(nodeCount++);
+		node.setPosition(original.getPosition());
+		return node;
+	}
+}
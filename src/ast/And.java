@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class And implements Exp {
+public final class And extends Exp {
 	private Exp lhs, rhs;
 	
 	public And(Exp lhs, Exp rhs) {
+		super(NodeKind.AND);
 		this.lhs = lhs;
 		this.rhs = rhs;
 	}
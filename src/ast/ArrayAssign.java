@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class ArrayAssign implements Statement {
+public final class ArrayAssign extends Statement {
 	private Identifier id;
 	private Exp index, value;
 	
 	public ArrayAssign(Identifier id, Exp index, Exp value) {
+		super(NodeKind.ARRAY_ASSIGN);
 		this.id = id;
 		this.index = index;
 		this.value = value;
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class ArrayLength implements Exp {
+public final class ArrayLength extends Exp {
 	private Exp array;
 	
 	public ArrayLength(Exp array) {
+		super(NodeKind.ARRAY_LENGTH);
 		this.array = array;
 	}
 	
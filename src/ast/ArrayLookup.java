@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class ArrayLookup implements Exp {
+public final class ArrayLookup extends Exp {
 	private Exp array, index;
 	
 	public ArrayLookup(Exp array, Exp index) {
+		super(NodeKind.ARRAY_LOOKUP);
 		this.array = array;
 		this.index = index;
 	}
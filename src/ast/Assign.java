@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class Assign implements Statement {
+public final class Assign extends Statement {
 	private Identifier id;
 	private Exp value;
 	
 	public Assign(Identifier id, Exp value) {
+		super(NodeKind.ASSIGN);
 		this.id = id;
 		this.value = value;
 	}
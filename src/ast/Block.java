@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Block implements Statement {
+public final class Block extends Statement {
 	private StatementList stms;
 	
 	public Block(StatementList stms) {
+		super(NodeKind.BLOCK);
 		this.stms = stms;
 	}
 	
@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class BooleanType implements Type {
+public final class BooleanType extends Type {
+	public BooleanType() {
+		super(NodeKind.BOOLEAN_TYPE);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
@@ -2,12 +2,13 @@ package ast;
 
 import visitor.Visitor;
 
-public class Call implements Exp {
+public final class Call extends Exp {
 	private Exp callee;
 	private Identifier methodName;
 	private ExpList args;
 	
 	public Call(Exp callee, Identifier methodName, ExpList args) {
+		super(NodeKind.CALL);
 		this.callee = callee;
 		this.methodName = methodName;
 		this.args = args;
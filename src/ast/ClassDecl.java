@@ -1,7 +1,13 @@
 package ast;
 
-import visitor.Visitor;
-
-public interface ClassDecl {
-	public void accept(Visitor v);
+public abstract sealed class ClassDecl extends Node permits ClassDeclExtends, ClassDeclSimple {
+	ClassDecl(int kind) {
+		super(kind);
+	}
+	
+	public abstract Identifier getClassId();
+	
+	public abstract VarDeclList getFields();
+	
+	public abstract MethodDeclList getMethods();
 }
@@ -2,13 +2,14 @@ package ast;
 
 import visitor.Visitor;
 
-public class ClassDeclExtends implements ClassDecl {
+public final class ClassDeclExtends extends ClassDecl {
 	private Identifier classId, superId;
 	private VarDeclList fields;
 	private MethodDeclList methods;
 	
 	public ClassDeclExtends(Identifier classId, Identifier superId, VarDeclList fields,
 			MethodDeclList methods) {
+		super(NodeKind.CLASS_DECL_EXTENDS);
 		
 		this.classId = classId;
 		this.superId = superId;
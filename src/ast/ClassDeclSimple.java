@@ -2,12 +2,13 @@ package ast;
 
 import visitor.Visitor;
 
-public class ClassDeclSimple implements ClassDecl {
+public final class ClassDeclSimple extends ClassDecl {
 	private Identifier classId;
 	private VarDeclList fields;
 	private MethodDeclList methods;
 	
 	public ClassDeclSimple(Identifier classId, VarDeclList fields, MethodDeclList methods) {
+		super(NodeKind.CLASS_DECL_SIMPLE);
 		this.classId = classId;
 		this.fields = fields;
 		this.methods = methods;
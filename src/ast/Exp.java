@@ -1,7 +1,9 @@
 package ast;
 
-import visitor.Visitor;
-
-public interface Exp {
-	public void accept(Visitor v);
+public abstract sealed class Exp extends Node permits And, ArrayLength, ArrayLookup, Call, False,
+		IdentifierExp, IntegerLiteral, LessThan, Minus, NewArray, NewObject, Not, Plus, This, Times,
+		True {
+	Exp(int kind) {
+		super(kind);
+	}
 }
@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class False implements Exp {
+public final class False extends Exp {
+	public False() {
+		super(NodeKind.FALSE);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
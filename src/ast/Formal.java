@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class Formal {
+public final class Formal extends Node {
 	private Type type;
 	private Identifier id;
 	
 	public Formal(Type type, Identifier id) {
+		super(NodeKind.FORMAL);
 		this.type = type;
 		this.id = id;
 	}
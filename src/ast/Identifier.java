@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Identifier {
+public final class Identifier extends Node {
 	private String name;
 	
 	public Identifier(String name) {
+		super(NodeKind.IDENTIFIER);
 		this.name = name;
 	}
 	
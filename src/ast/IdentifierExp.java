@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class IdentifierExp implements Exp {
+public final class IdentifierExp extends Exp {
 	private String name;
 	
 	public IdentifierExp(String name) {
+		super(NodeKind.IDENTIFIER_EXP);
 		this.name = name;
 	}
 	
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class IdentifierType implements Type {
+public final class IdentifierType extends Type {
 	private String name;
 	
 	public IdentifierType(String name) {
+		super(NodeKind.IDENTIFIER_TYPE);
 		this.name = name;
 	}
 	
@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class If implements Statement {
+public final class If extends Statement {
 	private Exp condExp;
 	private Statement trueStm, falseStm;
 	
 	public If(Exp condExp, Statement trueStm, Statement falseStm) {
+		super(NodeKind.IF);
 		this.condExp = condExp;
 		this.trueStm = trueStm;
 		this.falseStm = falseStm;
@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class IntArrayType implements Type {
+public final class IntArrayType extends Type {
+	public IntArrayType() {
+		super(NodeKind.INT_ARRAY_TYPE);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
@@ -0,0 +1,48 @@
+package ast;
+
+import java.util.Arrays;
+
+/*
+ * 
+ * A side table mapping AST nodes to unboxed ints, stored in an int array
+ * indexed by node id. Nodes without an entry map to the default value given
+ * when the table is created.
+ * 
+ */
+
+public class IntNodeTable {
+	private int[] values;
+	private final int defaultValue;
+	
+	public IntNodeTable(int capacity, int defaultValue) {
+		this.defaultValue = defaultValue;
+		values = new int[Math.max(capacity, 1)];
+		if (defaultValue != 0)
+			Arrays.fill(values, defaultValue);
+	}
+	
+	public int get(Node node) {
+		int id = NodeTable.idOf(node);
+		return id < values.length ? values[id] : defaultValue;
+	}
+	
+	public void put(Node node, int value) {
+		put(NodeTable.idOf(node), value);
+	}
+	
+	// puts a value by node id, for callers that saved the ids of nodes rather than the nodes
+	public void put(int id, int value) {
+		if (id >= values.length) {
+			int length = values.length;
+			values = Arrays.copyOf(values, NodeTable.grownLength(length, id));
+			if (defaultValue != 0)
+				Arrays.fill(values, length, values.length, defaultValue);
+		}
+		values[id] = value;
+	}
+	
+	// adds delta to a node's value, e.g. for profile counters
+	public void add(Node node, int delta) {
+		put(node, get(node) + delta);
+	}
+}
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class IntegerLiteral implements Exp {
+public final class IntegerLiteral extends Exp {
 	private int value;
 	
 	public IntegerLiteral(int value) {
+		super(NodeKind.INTEGER_LITERAL);
 		this.value = value;
 	}
 	
@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class IntegerType implements Type {
+public final class IntegerType extends Type {
+	public IntegerType() {
+		super(NodeKind.INTEGER_TYPE);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class LessThan implements Exp {
+public final class LessThan extends Exp {
 	private Exp lhs, rhs;
 	
 	public LessThan(Exp lhs, Exp rhs) {
+		super(NodeKind.LESS_THAN);
 		this.lhs = lhs;
 		this.rhs = rhs;
 	}
@@ -0,0 +1,44 @@
+package ast;
+
+import java.util.Arrays;
+
+/*
+ * 
+ * A side table mapping AST nodes to unboxed longs, stored in a long array
+ * indexed by node id. Nodes without an entry map to the default value given
+ * when the table is created.
+ * 
+ */
+
+public class LongNodeTable {
+	private long[] values;
+	private final long defaultValue;
+	
+	public LongNodeTable(int capacity, long defaultValue) {
+		this.defaultValue = defaultValue;
+		values = new long[Math.max(capacity, 1)];
+		if (defaultValue != 0)
+			Arrays.fill(values, defaultValue);
+	}
+	
+	public long get(Node node) {
+		int id = NodeTable.idOf(node);
+		return id < values.length ? values[id] : defaultValue;
+	}
+	
+	public void put(Node node, long value) {
+		int id = NodeTable.idOf(node);
+		if (id >= values.length) {
+			int length = values.length;
+			values = Arrays.copyOf(values, NodeTable.grownLength(length, id));
+			if (defaultValue != 0)
+				Arrays.fill(values, length, values.length, defaultValue);
+		}
+		values[id] = value;
+	}
+	
+	// adds delta to a node's value, e.g. for profile counters
+	public void add(Node node, long delta) {
+		put(node, get(node) + delta);
+	}
+}
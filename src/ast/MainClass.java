@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class MainClass {
+public final class MainClass extends Node {
 	private Identifier classId, argId;
 	private Statement stm;
 	
 	public MainClass(Identifier classId, Identifier argId, Statement stm) {
+		super(NodeKind.MAIN_CLASS);
 		this.classId = classId;
 		this.argId = argId;
 		this.stm = stm;
@@ -2,7 +2,7 @@ package ast;
 
 import visitor.Visitor;
 
-public class MethodDecl {
+public final class MethodDecl extends Node {
 	private Type returnType;
 	private Identifier id;
 	private FormalList params;
@@ -12,6 +12,7 @@ public class MethodDecl {
 	
 	public MethodDecl(Type returnType, Identifier id, FormalList params,
 			VarDeclList vars, StatementList stms, Exp returnExp) {
+		super(NodeKind.METHOD_DECL);
 		
 		this.returnType = returnType;
 		this.id = id;
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Minus implements Exp {
+public final class Minus extends Exp {
 	private Exp lhs, rhs;
 	
 	public Minus(Exp lhs, Exp rhs) {
+		super(NodeKind.MINUS);
 		this.lhs = lhs;
 		this.rhs = rhs;
 	}
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class NewArray implements Exp {
+public final class NewArray extends Exp {
 	private Exp arraySize;
 	
 	public NewArray(Exp arraySize) {
+		super(NodeKind.NEW_ARRAY);
 		this.arraySize = arraySize;
 	}
 	
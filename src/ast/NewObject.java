@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class NewObject implements Exp {
+public final class NewObject extends Exp {
 	private Identifier id;
 	
 	public NewObject(Identifier id) {
+		super(NodeKind.NEW_OBJECT);
 		this.id = id;
 	}
 	
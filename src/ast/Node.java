@@ -0,0 +1,52 @@
+package ast;
+
+import visitor.Visitor;
+
+/*
+ * 
+ * Common base of every AST node. Each node carries a kind tag fixed at
+ * construction, so an analysis can dispatch with a switch on getKind()
+ * instead of the double dispatch of accept(Visitor). The hierarchy is sealed,
+ * with every concrete node class final, so such a switch sees every kind.
+ * 
+ * The parser also gives each node a dense id, counting up from 0 in the order
+ * nodes are built, so children always have smaller ids than their parents.
+ * Per-node data is kept in side tables indexed by this id (see NodeTable)
+ * rather than in fields of the nodes themselves. Nodes built outside the
+ * parser have an id of -1 until one is set. Likewise, each node records the
+ * span of source it was parsed from as a packed long (see Position).
+ * 
+ */
+
+public abstract sealed class Node permits ClassDecl, Exp, Formal, Identifier, MainClass, MethodDecl,
+		Program, Statement, Type, VarDecl {
+	private final int kind; // one of the NodeKind constants
+	private int nodeId = -1;
+	private long position = Position.NONE;
+	
+	Node(int kind) {
+		this.kind = kind;
+	}
+	
+	public final int getKind() {
+		return kind;
+	}
+	
+	public final int getNodeId() {
+		return nodeId;
+	}
+	
+	public final void setNodeId(int nodeId) {
+		this.nodeId = nodeId;
+	}
+	
+	public final long getPosition() {
+		return position;
+	}
+	
+	public final void setPosition(long position) {
+		this.position = position;
+	}
+	
+	public abstract void accept(Visitor v);
+}
@@ -0,0 +1,61 @@
+package ast;
+
+/*
+ * 
+ * A node kind tags the concrete class of an AST node. Kinds are dense int
+ * constants from 0 to COUNT - 1, so a switch on them compiles to a jump table
+ * and they can index tables directly. Constants are listed in the same order
+ * as the methods of visitor.Visitor.
+ * 
+ */
+
+public final class NodeKind {
+	// declarations
+	public final static int PROGRAM = 0;
+	public final static int MAIN_CLASS = 1;
+	public final static int CLASS_DECL_SIMPLE = 2;
+	public final static int CLASS_DECL_EXTENDS = 3;
+	public final static int VAR_DECL = 4;
+	public final static int METHOD_DECL = 5;
+	public final static int FORMAL = 6;
+	
+	// types
+	public final static int INT_ARRAY_TYPE = 7; // int []
+	public final static int BOOLEAN_TYPE = 8; // boolean
+	public final static int INTEGER_TYPE = 9; // int
+	public final static int IDENTIFIER_TYPE = 10; // id
+	
+	// statements
+	public final static int BLOCK = 11; // { Statement* }
+	public final static int IF = 12; // if ( Exp ) Statement else Statement
+	public final static int WHILE = 13; // while ( Exp ) Statement
+	public final static int PRINT = 14; // System.out.println ( Exp ) ;
+	public final static int ASSIGN = 15; // id = Exp ;
+	public final static int ARRAY_ASSIGN = 16; // id [ Exp ] = Exp ;
+	
+	// expressions
+	public final static int AND = 17; // &&
+	public final static int LESS_THAN = 18; // <
+	public final static int PLUS = 19; // +
+	public final static int MINUS = 20; // -
+	public final static int TIMES = 21; // *
+	public final static int ARRAY_LOOKUP = 22; // Exp [ Exp ]
+	public final static int ARRAY_LENGTH = 23; // Exp . length
+	public final static int CALL = 24; // Exp . id ( ExpList )
+	public final static int INTEGER_LITERAL = 25;
+	public final static int TRUE = 26;
+	public final static int FALSE = 27;
+	public final static int IDENTIFIER_EXP = 28;
+	public final static int THIS = 29;
+	public final static int NEW_ARRAY = 30; // new int [ Exp ]
+	public final static int NEW_OBJECT = 31; // new id ( )
+	public final static int NOT = 32; // ! Exp
+	
+	public final static int IDENTIFIER = 33;
+	
+	// number of distinct kinds
+	public final static int COUNT = 34;
+	
+	private NodeKind() {
+	}
+}
@@ -0,0 +1,64 @@
+package ast;
+
+import java.util.Arrays;
+
+/*
+ * 
+ * A side table mapping AST nodes to values of type T, stored in an array
+ * indexed by node id. Lookups are a bounds check and an array load, with no
+ * hashing. The table grows as needed, though sizing it with the parser's
+ * node count up front avoids any copying. A null value means no entry.
+ * 
+ */
+
+public class NodeTable<T> {
+	private Object[] values;
+	
+	public NodeTable() {
+		this(64);
+	}
+	
+	public NodeTable(int capacity) {
+		values = new Object[Math.max(capacity, 1)];
+	}
+	
+	@SuppressWarnings("unchecked")
+	public T get(Node node) {
+		int id = idOf(node);
+		return id < values.length ? (T) values[id] : null;
+	}
+	
+	public void put(Node node, T value) {
+		put(idOf(node), value);
+	}
+	
+	// puts a value by node id, for callers that saved the ids of nodes rather than the nodes
+	public void put(int id, T value) {
+		if (id >= values.length)
+			values = Arrays.copyOf(values, grownLength(values.length, id));
+		values[id] = value;
+	}
+	
+	public boolean contains(Node node) {
+		return get(node) != null;
+	}
+	
+	public void remove(Node node) {
+		int id = idOf(node);
+		if (id < values.length)
+			values[id] = null;
+	}
+	
+	// ids are only assigned by the parser, so reject nodes built elsewhere
+	static int idOf(Node node) {
+		int id = node.getNodeId();
+		if (id < 0)
+			throw new IllegalArgumentException("node " + node.getClass().getSimpleName() + " has no id");
+		return id;
+	}
+	
+	// new length for a table that must hold the given id
+	static int grownLength(int length, int id) {
+		return Math.max(length * 2, id + 1);
+	}
+}
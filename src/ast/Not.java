@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Not implements Exp {
+public final class Not extends Exp {
 	private Exp exp;
 	
 	public Not(Exp exp) {
+		super(NodeKind.NOT);
 		this.exp = exp;
 	}
 	
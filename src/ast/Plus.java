@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Plus implements Exp {
+public final class Plus extends Exp {
 	private Exp lhs, rhs;
 	
 	public Plus(Exp lhs, Exp rhs) {
+		super(NodeKind.PLUS);
 		this.lhs = lhs;
 		this.rhs = rhs;
 	}
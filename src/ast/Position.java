@@ -0,0 +1,30 @@
+package ast;
+
+/*
+ * 
+ * A source position packs the start and end character offsets of a node into
+ * a single long, so positions cost no extra object per node. The start is
+ * held in the high 32 bits and the end (one past the last char) in the low 32
+ * bits. parser.LineMap turns offsets back into line and column numbers.
+ * 
+ */
+
+public final class Position {
+	// position of nodes that were not built from source
+	public final static long NONE = -1L;
+	
+	private Position() {
+	}
+	
+	public static long make(int start, int end) {
+		return ((long) start << 32) | (end & 0xFFFFFFFFL);
+	}
+	
+	public static int getStart(long position) {
+		return (int) (position >>> 32);
+	}
+	
+	public static int getEnd(long position) {
+		return (int) position;
+	}
+}
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Print implements Statement {
+public final class Print extends Statement {
 	private Exp exp;
 	
 	public Print(Exp exp) {
+		super(NodeKind.PRINT);
 		this.exp = exp;
 	}
 	
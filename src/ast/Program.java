@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class Program {
+public final class Program extends Node {
 	private MainClass main;
 	private ClassDeclList classList;
 	
 	public Program(MainClass main, ClassDeclList classList) {
+		super(NodeKind.PROGRAM);
 		this.main = main;
 		this.classList = classList;
 	}
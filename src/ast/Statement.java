@@ -1,7 +1,8 @@
 package ast;
 
-import visitor.Visitor;
-
-public interface Statement {
-	public void accept(Visitor v);
+public abstract sealed class Statement extends Node permits ArrayAssign, Assign, Block, If, Print,
+		While {
+	Statement(int kind) {
+		super(kind);
+	}
 }
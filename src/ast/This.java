@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class This implements Exp {
+public final class This extends Exp {
+	public This() {
+		super(NodeKind.THIS);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
@@ -2,10 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class Times implements Exp {
+public final class Times extends Exp {
 	private Exp lhs, rhs;
 	
 	public Times(Exp lhs, Exp rhs) {
+		super(NodeKind.TIMES);
 		this.lhs = lhs;
 		this.rhs = rhs;
 	}
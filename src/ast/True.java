@@ -2,7 +2,11 @@ package ast;
 
 import visitor.Visitor;
 
-public class True implements Exp {
+public final class True extends Exp {
+	public True() {
+		super(NodeKind.TRUE);
+	}
+	
 	public void accept(Visitor v) {
 		v.visit(this);
 	}
@@ -1,7 +1,8 @@
 package ast;
 
-import visitor.Visitor;
-
-public interface Type {
-	public void accept(Visitor v);
+public abstract sealed class Type extends Node permits BooleanType, IdentifierType, IntArrayType,
+		IntegerType {
+	Type(int kind) {
+		super(kind);
+	}
 }
@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class VarDecl {
+public final class VarDecl extends Node {
 	private Type type;
 	private Identifier id;
 	
 	public VarDecl(Type type, Identifier id) {
+		super(NodeKind.VAR_DECL);
 		this.type = type;
 		this.id = id;
 	}
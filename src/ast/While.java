@@ -2,11 +2,12 @@ package ast;
 
 import visitor.Visitor;
 
-public class While implements Statement {
+public final class While extends Statement {
 	private Exp condExp;
 	private Statement stm;
 	
 	public While(Exp condExp, Statement stm) {
+		super(NodeKind.WHILE);
 		this.condExp = condExp;
 		this.stm = stm;
 	}
@@ -0,0 +1,8 @@
+package closure;
+
+import layout.Frame;
+
+// evaluates an argument in the caller's frame into a parameter of the callee's
+interface ArgClosure {
+	void pass(Frame caller, Frame callee);
+}
@@ -0,0 +1,457 @@
+package closure;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ast.*;
+import layout.Frame;
+import layout.Instance;
+import layout.LayoutEngine;
+import layout.RuntimeClass;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Compiles a program that type checked without errors into closures, one
+ * per statement and expression, each capturing the closures of its parts.
+ * Running a program is then closures calling closures, with no switch on
+ * node kinds and no visitor. Each closure takes the frame it runs in, so a
+ * method is compiled once however many times it is active.
+ * 
+ * Choices the tree-walker makes on every evaluation are made here, once,
+ * by picking among closures: whether a variable is a local or a field and
+ * an int or a reference, whether a Plus, Minus or LessThan has a local or
+ * literal operand it can read directly, and whether a call needs virtual
+ * dispatch at all. A call needs none when no subclass of the class it was
+ * resolved in overrides the method, and then it calls the one method
+ * directly after checking the receiver for null.
+ * 
+ */
+
+public class ClosureCompiler {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private PrintStream out;
+	private RuntimeClass[] classes;
+	private Map<MethodSymbol, CompiledMethod> methods;
+	
+	public ClosureCompiler(SymbolTable table, TypeChecker checker) {
+		this.table = table;
+		this.checker = checker;
+	}
+	
+	// compiles a program whose Print statements write to out
+	public ClosureProgram compile(Program prog, PrintStream out) {
+		this.out = out;
+		
+		// classes and their vtables, sharing one CompiledMethod per declared method
+		classes = new RuntimeClass[table.getClassCount()];
+		methods = new IdentityHashMap<MethodSymbol, CompiledMethod>();
+		Shape[] shapes = new LayoutEngine(table).shapes();
+		for (ClassSymbol symbol : table.getClasses()) {
+			RuntimeClass runtimeClass = new RuntimeClass(shapes[symbol.getIndex()], new CompiledMethod[symbol.getMethodCount()]);
+			for (int slot = 0; slot < symbol.getMethodCount(); slot++) {
+				MethodSymbol method = symbol.getMethod(slot);
+				CompiledMethod compiled = methods.get(method);
+				if (compiled == null) {
+					compiled = new CompiledMethod();
+					methods.put(method, compiled);
+				}
+				runtimeClass.vtable[slot] = compiled;
+			}
+			classes[symbol.getIndex()] = runtimeClass;
+		}
+		
+		// bodies, compiled once every method can be referred to
+		for (Map.Entry<MethodSymbol, CompiledMethod> entry : methods.entrySet()) {
+			MethodSymbol method = entry.getKey();
+			CompiledMethod compiled = entry.getValue();
+			MethodDecl decl = method.getDecl();
+			compiled.body = statements(decl.getStms(), method);
+			if (isRef(method.getReturnType()))
+				compiled.refResult = refExp(decl.getReturnExp(), method);
+			else
+				compiled.intResult = intExp(decl.getReturnExp(), method);
+		}
+		ClosureProgram program = new ClosureProgram(statement(prog.getMainClass().getStm(), null), out);
+		classes = null;
+		methods = null;
+		return program;
+	}
+	
+	// true if values of the type are kept in Object slots rather than int slots
+	private static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+	
+	private StmClosure statements(StatementList stms, MethodSymbol method) {
+		final StmClosure[] closures = new StmClosure[stms.size()];
+		for (int i = 0; i < closures.length; i++)
+			closures[i] = statement(stms.elementAt(i), method);
+		switch (closures.length) {
+			case 0:
+				return frame -> {};
+			case 1:
+				return closures[0];
+			case 2:
+				StmClosure first = closures[0], second = closures[1];
+				return frame -> {
+					first.run(frame);
+					second.run(frame);
+				};
+			default:
+				return frame -> {
+					for (StmClosure closure : closures)
+						closure.run(frame);
+				};
+		}
+	}
+	
+	// the statements of a method, or of the main class when method is null
+	private StmClosure statement(Statement stm, MethodSymbol method) {
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				return statements(((Block) stm).getStms(), method);
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				CondClosure ifCond = cond(ifStm.getCondExp(), method);
+				StmClosure thenStm = statement(ifStm.getTrueStm(), method);
+				StmClosure elseStm = statement(ifStm.getFalseStm(), method);
+				return frame -> {
+					if (ifCond.test(frame))
+						thenStm.run(frame);
+					else
+						elseStm.run(frame);
+				};
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				CondClosure whileCond = cond(whileStm.getCondExp(), method);
+				StmClosure body = statement(whileStm.getStm(), method);
+				return frame -> {
+					while (whileCond.test(frame))
+						body.run(frame);
+				};
+			
+			case NodeKind.PRINT:
+				IntClosure printed = intExp(((Print) stm).getExp(), method);
+				PrintStream out = this.out;
+				return frame -> out.println(printed.run(frame));
+			
+			case NodeKind.ASSIGN:
+				return assign((Assign) stm, method);
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign assign = (ArrayAssign) stm;
+				RefClosure array = variableRef(stm, method);
+				IntClosure index = intExp(assign.getIndex(), method);
+				IntClosure element = intExp(assign.getValue(), method);
+				return frame -> {
+					int[] values = (int[]) array.run(frame);
+					int i = index.run(frame);
+					values[i] = element.run(frame);
+				};
+			
+			default:
+				throw new IllegalArgumentException("not a statement: " + stm.getClass().getSimpleName());
+		}
+	}
+	
+	private StmClosure assign(Assign assign, MethodSymbol method) {
+		Exp value = assign.getValue();
+		int local = table.getLocalSlot(assign), field = table.getFieldSlot(assign);
+		if (local >= 0 && isRef(method.getLocalType(local))) {
+			RefClosure closure = refExp(value, method);
+			return frame -> frame.refs[local] = closure.run(frame);
+		}
+		if (local >= 0) {
+			// a local incremented by a constant, as loop counters are
+			int step = localPlusConstant(value, local, method);
+			if (step != 0)
+				return frame -> frame.ints[local] += step;
+			IntClosure closure = intExp(value, method);
+			return frame -> frame.ints[local] = closure.run(frame);
+		}
+		Shape shape = classes[method.getOwner().getIndex()].shape;
+		int index = shape.getIndex(field);
+		if (shape.isRef(field)) {
+			RefClosure closure = refExp(value, method);
+			return frame -> frame.self.refs[index] = closure.run(frame);
+		}
+		IntClosure closure = intExp(value, method);
+		return frame -> frame.self.ints[index] = closure.run(frame);
+	}
+	
+	// the constant c of a value local + c or local - c, or 0 if it is not one
+	private int localPlusConstant(Exp exp, int local, MethodSymbol method) {
+		if (exp.getKind() != NodeKind.PLUS && exp.getKind() != NodeKind.MINUS)
+			return 0;
+		Exp lhs = exp.getKind() == NodeKind.PLUS ? ((Plus) exp).getLHS() : ((Minus) exp).getLHS();
+		Exp rhs = exp.getKind() == NodeKind.PLUS ? ((Plus) exp).getRHS() : ((Minus) exp).getRHS();
+		if (intLocal(lhs, method) != local || rhs.getKind() != NodeKind.INTEGER_LITERAL)
+			return 0;
+		int constant = ((IntegerLiteral) rhs).getValue();
+		return exp.getKind() == NodeKind.PLUS ? constant : -constant;
+	}
+	
+	private IntClosure intExp(Exp exp, MethodSymbol method) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+			case NodeKind.LESS_THAN:
+			case NodeKind.NOT:
+				CondClosure cond = cond(exp, method);
+				return frame -> cond.test(frame) ? 1 : 0;
+			
+			case NodeKind.PLUS:
+				Plus plus = (Plus) exp;
+				return add(plus.getLHS(), plus.getRHS(), false, method);
+			
+			case NodeKind.MINUS:
+				Minus minus = (Minus) exp;
+				return add(minus.getLHS(), minus.getRHS(), true, method);
+			
+			case NodeKind.TIMES:
+				Times times = (Times) exp;
+				IntClosure lhs = intExp(times.getLHS(), method), rhs = intExp(times.getRHS(), method);
+				return frame -> lhs.run(frame) * rhs.run(frame);
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup lookup = (ArrayLookup) exp;
+				RefClosure array = refExp(lookup.getArray(), method);
+				int local = intLocal(lookup.getIndex(), method);
+				if (local >= 0)
+					return frame -> ((int[]) array.run(frame))[frame.ints[local]];
+				IntClosure index = intExp(lookup.getIndex(), method);
+				return frame -> {
+					int[] values = (int[]) array.run(frame);
+					return values[index.run(frame)];
+				};
+			
+			case NodeKind.ARRAY_LENGTH:
+				RefClosure lengthOf = refExp(((ArrayLength) exp).getArray(), method);
+				return frame -> ((int[]) lengthOf.run(frame)).length;
+			
+			case NodeKind.CALL:
+				return call((Call) exp, method)::callInt;
+			
+			case NodeKind.INTEGER_LITERAL:
+				int value = ((IntegerLiteral) exp).getValue();
+				return frame -> value;
+			
+			case NodeKind.TRUE:
+				return frame -> 1;
+			
+			case NodeKind.FALSE:
+				return frame -> 0;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				int slot = table.getLocalSlot(exp);
+				if (slot >= 0)
+					return frame -> frame.ints[slot];
+				int field = fieldIndex(exp, method);
+				return frame -> frame.self.ints[field];
+			
+			default:
+				throw new IllegalArgumentException("not an int or boolean expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	private RefClosure refExp(Exp exp, MethodSymbol method) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.CALL:
+				return call((Call) exp, method)::callRef;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return variableRef(exp, method);
+			
+			case NodeKind.THIS:
+				return frame -> frame.self;
+			
+			case NodeKind.NEW_ARRAY:
+				IntClosure size = intExp(((NewArray) exp).getArraySize(), method);
+				return frame -> new int[size.run(frame)];
+			
+			case NodeKind.NEW_OBJECT:
+				RuntimeClass runtimeClass = classes[table.getNewClass((NewObject) exp).getIndex()];
+				return frame -> new Instance(runtimeClass);
+			
+			default:
+				throw new IllegalArgumentException("not an array or object expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// a reference variable, or the array of an array assignment
+	private RefClosure variableRef(Node ref, MethodSymbol method) {
+		int local = table.getLocalSlot(ref);
+		if (local >= 0)
+			return frame -> frame.refs[local];
+		int field = fieldIndex(ref, method);
+		return frame -> frame.self.refs[field];
+	}
+	
+	// the index in its instances' int or Object array of the field a reference resolved to
+	private int fieldIndex(Node ref, MethodSymbol method) {
+		return classes[method.getOwner().getIndex()].shape.getIndex(table.getFieldSlot(ref));
+	}
+	
+	private CondClosure cond(Exp exp, MethodSymbol method) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				CondClosure lhs = cond(and.getLHS(), method), rhs = cond(and.getRHS(), method);
+				return frame -> lhs.test(frame) && rhs.test(frame);
+			
+			case NodeKind.LESS_THAN:
+				return lessThan((LessThan) exp, method);
+			
+			case NodeKind.NOT:
+				CondClosure negated = cond(((Not) exp).getExp(), method);
+				return frame -> !negated.test(frame);
+			
+			case NodeKind.TRUE:
+				return frame -> true;
+			
+			case NodeKind.FALSE:
+				return frame -> false;
+			
+			default:
+				IntClosure value = intExp(exp, method);
+				return frame -> value.run(frame) != 0;
+		}
+	}
+	
+	private CondClosure lessThan(LessThan lessThan, MethodSymbol method) {
+		Exp lhs = lessThan.getLHS(), rhs = lessThan.getRHS();
+		int lhsLocal = intLocal(lhs, method), rhsLocal = intLocal(rhs, method);
+		if (lhsLocal >= 0 && rhsLocal >= 0)
+			return frame -> frame.ints[lhsLocal] < frame.ints[rhsLocal];
+		if (lhsLocal >= 0 && rhs.getKind() == NodeKind.INTEGER_LITERAL) {
+			int constant = ((IntegerLiteral) rhs).getValue();
+			return frame -> frame.ints[lhsLocal] < constant;
+		}
+		if (rhsLocal >= 0 && lhs.getKind() == NodeKind.INTEGER_LITERAL) {
+			int constant = ((IntegerLiteral) lhs).getValue();
+			return frame -> constant < frame.ints[rhsLocal];
+		}
+		IntClosure lhsValue = intExp(lhs, method), rhsValue = intExp(rhs, method);
+		return frame -> lhsValue.run(frame) < rhsValue.run(frame);
+	}
+	
+	// lhs + rhs, or lhs - rhs if negate is set
+	private IntClosure add(Exp lhs, Exp rhs, boolean negate, MethodSymbol method) {
+		int local = intLocal(lhs, method);
+		if (local >= 0 && rhs.getKind() == NodeKind.INTEGER_LITERAL) {
+			int constant = negate ? -((IntegerLiteral) rhs).getValue() : ((IntegerLiteral) rhs).getValue();
+			return frame -> frame.ints[local] + constant;
+		}
+		IntClosure lhsValue = intExp(lhs, method), rhsValue = intExp(rhs, method);
+		if (negate)
+			return frame -> lhsValue.run(frame) - rhsValue.run(frame);
+		return frame -> lhsValue.run(frame) + rhsValue.run(frame);
+	}
+	
+	// the slot of an expression reading an int or boolean local, or -1
+	private int intLocal(Exp exp, MethodSymbol method) {
+		if (exp.getKind() != NodeKind.IDENTIFIER_EXP)
+			return -1;
+		int local = table.getLocalSlot(exp);
+		return local >= 0 && !isRef(method.getLocalType(local)) ? local : -1;
+	}
+	
+	private CallSite call(Call call, MethodSymbol method) {
+		MethodSymbol target = checker.getTarget(call);
+		RefClosure receiver = refExp(call.getCallee(), method);
+		ExpList args = call.getArgs();
+		ArgClosure[] passes = new ArgClosure[args.size()];
+		for (int i = 0; i < passes.length; i++) {
+			int param = i;
+			if (isRef(target.getParamType(i))) {
+				RefClosure arg = refExp(args.elementAt(i), method);
+				passes[i] = (caller, callee) -> callee.refs[param] = arg.run(caller);
+			} else {
+				IntClosure arg = intExp(args.elementAt(i), method);
+				passes[i] = (caller, callee) -> callee.ints[param] = arg.run(caller);
+			}
+		}
+		int frameLocals = 0;
+		boolean frameRefs = false;
+		for (MethodSymbol implementation : table.getImplementations(target)) {
+			frameLocals = Math.max(frameLocals, implementation.getLocalCount());
+			for (int local = 0; local < implementation.getLocalCount(); local++)
+				frameRefs |= isRef(implementation.getLocalType(local));
+		}
+		return new CallSite(receiver, passes, target.getSlot(), isOverridden(target) ? null : methods.get(target),
+				frameLocals, frameRefs);
+	}
+	
+	// true if a subclass of the class a method was resolved in overrides it
+	private boolean isOverridden(MethodSymbol method) {
+		for (ClassSymbol symbol : table.getClasses()) {
+			if (symbol.getMethodCount() > method.getSlot() && symbol.getMethod(method.getSlot()) != method) {
+				for (ClassSymbol c = symbol.getSuperClass(); c != null; c = c.getSuperClass()) {
+					if (c == method.getOwner())
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	// a call, dispatched through the vtable unless its target is known, whose frames have room for the
+	// locals of any method it can dispatch to
+	private static class CallSite {
+		private final RefClosure receiver;
+		private final ArgClosure[] args;
+		private final int vtableSlot;
+		private final CompiledMethod target;
+		private final int frameLocals;
+		private final boolean frameRefs;
+		
+		CallSite(RefClosure receiver, ArgClosure[] args, int vtableSlot, CompiledMethod target, int frameLocals,
+				boolean frameRefs) {
+			this.receiver = receiver;
+			this.args = args;
+			this.vtableSlot = vtableSlot;
+			this.target = target;
+			this.frameLocals = frameLocals;
+			this.frameRefs = frameRefs;
+		}
+		
+		int callInt(Frame caller) {
+			Frame frame = enter(caller);
+			CompiledMethod method = dispatch(frame.self);
+			method.body.run(frame);
+			return method.intResult.run(frame);
+		}
+		
+		Object callRef(Frame caller) {
+			Frame frame = enter(caller);
+			CompiledMethod method = dispatch(frame.self);
+			method.body.run(frame);
+			return method.refResult.run(frame);
+		}
+		
+		// as in Java, a null receiver only fails once the arguments are evaluated, and it fails on reading
+		// its class even when the target is known, as in the other engines
+		private CompiledMethod dispatch(Instance self) {
+			RuntimeClass runtimeClass = self.runtimeClass;
+			return target != null ? target : (CompiledMethod) runtimeClass.vtable[vtableSlot];
+		}
+		
+		// a frame holding the receiver with the arguments evaluated into its parameters
+		private Frame enter(Frame caller) {
+			Frame frame = new Frame((Instance) receiver.run(caller), frameLocals, frameRefs);
+			for (ArgClosure arg : args)
+				arg.pass(caller, frame);
+			return frame;
+		}
+	}
+}
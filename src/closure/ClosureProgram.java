@@ -0,0 +1,30 @@
+package closure;
+
+import java.io.PrintStream;
+
+import interp.InterpreterError;
+import layout.Frame;
+
+// a compiled program, which may be run any number of times
+public final class ClosureProgram {
+	private final StmClosure main;
+	private final PrintStream out;
+	
+	ClosureProgram(StmClosure main, PrintStream out) {
+		this.main = main;
+		this.out = out;
+	}
+	
+	// runs the main class's statement
+	public void run() {
+		try {
+			main.run(new Frame(null, 0, false));
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new InterpreterError(e.toString(), e);
+		} catch (StackOverflowError e) {
+			throw new InterpreterError(e.toString(), e);
+		} finally {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package closure;
+
+// a method's closures, set once compiled
+final class CompiledMethod {
+	StmClosure body;
+	IntClosure intResult; // for methods returning an int or boolean
+	RefClosure refResult; // for the others
+}
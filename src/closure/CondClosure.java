@@ -0,0 +1,8 @@
+package closure;
+
+import layout.Frame;
+
+// the value of a boolean expression tested as a condition
+interface CondClosure {
+	boolean test(Frame frame);
+}
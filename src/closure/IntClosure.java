@@ -0,0 +1,8 @@
+package closure;
+
+import layout.Frame;
+
+// the value of an int or boolean expression, booleans as 0 and 1
+interface IntClosure {
+	int run(Frame frame);
+}
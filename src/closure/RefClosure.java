@@ -0,0 +1,8 @@
+package closure;
+
+import layout.Frame;
+
+// the value of an int array or object expression
+interface RefClosure {
+	Object run(Frame frame);
+}
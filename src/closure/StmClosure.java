@@ -0,0 +1,8 @@
+package closure;
+
+import layout.Frame;
+
+// a statement
+interface StmClosure {
+	void run(Frame frame);
+}
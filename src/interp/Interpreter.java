@@ -0,0 +1,334 @@
+package interp;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ast.*;
+import layout.Instance;
+import layout.LayoutEngine;
+import layout.RuntimeClass;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * A tree-walking interpreter for programs that type checked without errors.
+ * Before running, a resolution pass visits every body once and reduces what
+ * each variable reference, assignment, call and NewObject resolved to an int
+ * per node id: the local slot or field index of a variable along with
+ * whether it holds a reference, the method a call resolved to, and the class
+ * index of a NewObject. Evaluating a node then reads one array element and
+ * never looks up a name.
+ * 
+ * Ints and booleans, as 0 and 1, are never boxed. A frame keeps locals in an
+ * int array and an Object array both indexed by local slot, an instance keeps
+ * fields in the int and Object arrays of its class's Shape, and each
+ * expression is evaluated by evalInt() or evalRef() according to its static
+ * type. Int arrays are Java int arrays, so the JVM checks their bounds.
+ * 
+ */
+
+public class Interpreter {
+	private final Program prog;
+	private final PrintStream out;
+	private final int[] operands; // by node id
+	private final RuntimeClass[] classes; // by class index
+	private final Map<MethodSymbol, Method> methods;
+	private final Method[] targets; // of calls, by operand
+	
+	// flags below the slot in the operand of a variable reference or assignment
+	private final static int FIELD = 1, REF = 2, FLAG_BITS = 2;
+	
+	public Interpreter(Program prog, SymbolTable table, TypeChecker checker, int nodeCount, PrintStream out) {
+		this.prog = prog;
+		this.out = out;
+		operands = new int[nodeCount];
+		
+		// classes and their vtables, sharing one Method per declared method
+		classes = new RuntimeClass[table.getClassCount()];
+		Shape[] shapes = new LayoutEngine(table).shapes();
+		methods = new IdentityHashMap<MethodSymbol, Method>();
+		for (ClassSymbol classSymbol : table.getClasses()) {
+			Method[] vtable = new Method[classSymbol.getMethodCount()];
+			for (int slot = 0; slot < vtable.length; slot++) {
+				MethodSymbol symbol = classSymbol.getMethod(slot);
+				Method method = methods.get(symbol);
+				if (method == null) {
+					method = new Method(symbol, table);
+					methods.put(symbol, method);
+				}
+				vtable[slot] = method;
+			}
+			classes[classSymbol.getIndex()] = new RuntimeClass(shapes[classSymbol.getIndex()], vtable);
+		}
+		
+		targets = methods.values().toArray(new Method[methods.size()]);
+		for (int i = 0; i < targets.length; i++)
+			targets[i].index = i;
+		for (ClassSymbol symbol : table.getClasses())
+			resolve(symbol, table, checker);
+	}
+	
+	// runs the main class's statement
+	public void run() {
+		try {
+			execute(prog.getMainClass().getStm(), new Frame(null, 0, false));
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new InterpreterError(e.toString(), e);
+		} catch (StackOverflowError e) {
+			throw new InterpreterError(e.toString(), e);
+		} finally {
+			out.flush();
+		}
+	}
+	
+	// records the operands of every node of a class that needs one
+	private void resolve(ClassSymbol symbol, SymbolTable table, TypeChecker checker) {
+		TreeIndex index = new TreeIndex(symbol.getDecl());
+		MethodSymbol method = null;
+		for (int i = 0; i < index.size(); i++) {
+			Node node = index.getNode(i);
+			switch (index.getKind(i)) {
+				
+				case NodeKind.METHOD_DECL:
+					method = table.getDeclaredMethod((MethodDecl) node);
+					break;
+				
+				case NodeKind.IDENTIFIER_EXP:
+				case NodeKind.ASSIGN:
+				case NodeKind.ARRAY_ASSIGN:
+					int local = table.getLocalSlot(node), field = table.getFieldSlot(node);
+					if (local >= 0)
+						operands[node.getNodeId()] = variable(local, 0, method.getLocalType(local));
+					else if (field >= 0)
+						operands[node.getNodeId()] = variable(classes[symbol.getIndex()].shape.getIndex(field), FIELD,
+								symbol.getFieldType(field));
+					break;
+				
+				case NodeKind.CALL:
+					operands[node.getNodeId()] = methods.get(checker.getTarget((Call) node)).index;
+					break;
+				
+				case NodeKind.NEW_OBJECT:
+					operands[node.getNodeId()] = table.getNewClass((NewObject) node).getIndex();
+					break;
+			}
+		}
+	}
+	
+	private static int variable(int slot, int flags, int type) {
+		return slot << FLAG_BITS | flags | (isRef(type) ? REF : 0);
+	}
+	
+	// true if values of the type are kept in Object slots rather than int slots
+	private static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+	
+	private void execute(StatementList stms, Frame frame) {
+		for (int i = 0; i < stms.size(); i++)
+			execute(stms.elementAt(i), frame);
+	}
+	
+	private void execute(Statement stm, Frame frame) {
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				execute(((Block) stm).getStms(), frame);
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				execute(evalInt(ifStm.getCondExp(), frame) != 0 ? ifStm.getTrueStm() : ifStm.getFalseStm(), frame);
+				break;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				while (evalInt(whileStm.getCondExp(), frame) != 0)
+					execute(whileStm.getStm(), frame);
+				break;
+			
+			case NodeKind.PRINT:
+				out.println(evalInt(((Print) stm).getExp(), frame));
+				break;
+			
+			case NodeKind.ASSIGN:
+				int operand = operands[stm.getNodeId()];
+				Exp value = ((Assign) stm).getValue();
+				if ((operand & REF) != 0)
+					storeRef(operand, evalRef(value, frame), frame);
+				else
+					storeInt(operand, evalInt(value, frame), frame);
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign assign = (ArrayAssign) stm;
+				int[] array = (int[]) loadRef(operands[stm.getNodeId()], frame);
+				int index = evalInt(assign.getIndex(), frame);
+				array[index] = evalInt(assign.getValue(), frame);
+				break;
+		}
+	}
+	
+	// evaluates an int or boolean expression
+	private int evalInt(Exp exp, Frame frame) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				return evalInt(and.getLHS(), frame) == 0 ? 0 : evalInt(and.getRHS(), frame);
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThan = (LessThan) exp;
+				return evalInt(lessThan.getLHS(), frame) < evalInt(lessThan.getRHS(), frame) ? 1 : 0;
+			
+			case NodeKind.PLUS:
+				Plus plus = (Plus) exp;
+				return evalInt(plus.getLHS(), frame) + evalInt(plus.getRHS(), frame);
+			
+			case NodeKind.MINUS:
+				Minus minus = (Minus) exp;
+				return evalInt(minus.getLHS(), frame) - evalInt(minus.getRHS(), frame);
+			
+			case NodeKind.TIMES:
+				Times times = (Times) exp;
+				return evalInt(times.getLHS(), frame) * evalInt(times.getRHS(), frame);
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup lookup = (ArrayLookup) exp;
+				int[] array = (int[]) evalRef(lookup.getArray(), frame);
+				return array[evalInt(lookup.getIndex(), frame)];
+			
+			case NodeKind.ARRAY_LENGTH:
+				return ((int[]) evalRef(((ArrayLength) exp).getArray(), frame)).length;
+			
+			case NodeKind.CALL:
+				Frame callee = enter((Call) exp, frame);
+				return evalInt(callee.method.decl.getReturnExp(), callee);
+			
+			case NodeKind.INTEGER_LITERAL:
+				return ((IntegerLiteral) exp).getValue();
+			
+			case NodeKind.TRUE:
+				return 1;
+			
+			case NodeKind.FALSE:
+				return 0;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return loadInt(operands[exp.getNodeId()], frame);
+			
+			case NodeKind.NOT:
+				return evalInt(((Not) exp).getExp(), frame) ^ 1;
+			
+			default:
+				throw new IllegalArgumentException("not an int or boolean expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// evaluates an int array or object expression
+	private Object evalRef(Exp exp, Frame frame) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.CALL:
+				Frame callee = enter((Call) exp, frame);
+				return evalRef(callee.method.decl.getReturnExp(), callee);
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return loadRef(operands[exp.getNodeId()], frame);
+			
+			case NodeKind.THIS:
+				return frame.self;
+			
+			case NodeKind.NEW_ARRAY:
+				return new int[evalInt(((NewArray) exp).getArraySize(), frame)];
+			
+			case NodeKind.NEW_OBJECT:
+				return new Instance(classes[operands[exp.getNodeId()]]);
+			
+			default:
+				throw new IllegalArgumentException("not an array or object expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// evaluates a call's receiver and arguments and runs the body of the method it dispatches to,
+	// returning the frame to evaluate the method's return expression in
+	private Frame enter(Call call, Frame caller) {
+		Instance receiver = (Instance) evalRef(call.getCallee(), caller);
+		Method target = targets[operands[call.getNodeId()]];
+		Frame frame = new Frame(receiver, target.frameLocals, target.frameRefs);
+		ExpList args = call.getArgs();
+		for (int i = 0; i < args.size(); i++) {
+			if (target.refParams[i])
+				frame.refs[i] = evalRef(args.elementAt(i), caller);
+			else
+				frame.ints[i] = evalInt(args.elementAt(i), caller);
+		}
+		
+		// as in Java, a null receiver only fails once the arguments are evaluated
+		Method method = (Method) receiver.runtimeClass.vtable[target.slot];
+		frame.method = method;
+		execute(method.decl.getStms(), frame);
+		return frame;
+	}
+	
+	private static int loadInt(int operand, Frame frame) {
+		int[] slots = (operand & FIELD) != 0 ? frame.self.ints : frame.ints;
+		return slots[operand >> FLAG_BITS];
+	}
+	
+	private static Object loadRef(int operand, Frame frame) {
+		Object[] slots = (operand & FIELD) != 0 ? frame.self.refs : frame.refs;
+		return slots[operand >> FLAG_BITS];
+	}
+	
+	private static void storeInt(int operand, int value, Frame frame) {
+		int[] slots = (operand & FIELD) != 0 ? frame.self.ints : frame.ints;
+		slots[operand >> FLAG_BITS] = value;
+	}
+	
+	private static void storeRef(int operand, Object value, Frame frame) {
+		Object[] slots = (operand & FIELD) != 0 ? frame.self.refs : frame.refs;
+		slots[operand >> FLAG_BITS] = value;
+	}
+	
+	// a method's body, and for calls resolved to it its vtable slot, the kinds of its parameters and a
+	// frame size that fits any method they can dispatch to
+	private static class Method {
+		final MethodDecl decl;
+		final int slot;
+		final boolean[] refParams;
+		final int frameLocals;
+		final boolean frameRefs;
+		int index; // in targets
+		
+		Method(MethodSymbol symbol, SymbolTable table) {
+			decl = symbol.getDecl();
+			slot = symbol.getSlot();
+			refParams = new boolean[symbol.getParamCount()];
+			for (int i = 0; i < refParams.length; i++)
+				refParams[i] = isRef(symbol.getParamType(i));
+			int locals = 0;
+			boolean refs = false;
+			for (MethodSymbol implementation : table.getImplementations(symbol)) {
+				locals = Math.max(locals, implementation.getLocalCount());
+				for (int local = 0; local < implementation.getLocalCount(); local++)
+					refs |= isRef(implementation.getLocalType(local));
+			}
+			frameLocals = locals;
+			frameRefs = refs;
+		}
+	}
+	
+	// the locals of one activation of a method, and the method
+	private static class Frame extends layout.Frame {
+		Method method;
+		
+		Frame(Instance self, int localCount, boolean hasRefLocals) {
+			super(self, localCount, hasRefLocals);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package interp;
+
+/*
+ * 
+ * A run-time error of an interpreted program, such as dereferencing null or
+ * indexing an array out of bounds. The message is what the JVM would report
+ * for the same error.
+ * 
+ */
+
+public class InterpreterError extends RuntimeException {
+	private final static long serialVersionUID = 1L;
+	
+	public InterpreterError(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,438 @@
+package jvm;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ast.*;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Compiles a program that type checked without errors to JVM class files,
+ * one per class, in the default package. The main class gets a static main
+ * method running its statement, and every other class a constructor and a
+ * public virtual method per method declaration. Ints, booleans and int arrays
+ * map to the JVM's int, boolean and int[], and Print to println(int) on
+ * System.out.
+ * 
+ * A method that overrides one returning a superclass of its own return type
+ * is given the descriptor of the method it overrides, so the JVM sees it as
+ * an override. Every method in a vtable slot thus shares the descriptor of
+ * the first method in that slot, and a call whose target returns a narrower
+ * type than that casts the result.
+ * 
+ * With invokedynamic, each call is instead an invokedynamic site linked to an
+ * InlineCache, taking the receiver as its first argument. Such classes need
+ * InlineCache at run time, which InMemoryRunner provides.
+ * 
+ * When output is captured, the main class instead gets a static PrintStream
+ * field named OUT_FIELD, which Print writes to and whoever runs the classes
+ * sets first. Its name cannot clash with a MiniJava identifier.
+ * 
+ */
+
+public class BytecodeCompiler {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final Names names;
+	private final boolean captureOutput;
+	private boolean stackMaps = true;
+	private boolean invokeDynamic;
+	
+	public final static String OUT_FIELD = "$out";
+	
+	private final static String OBJECT = "java/lang/Object";
+	private final static String PRINT_STREAM = "Ljava/io/PrintStream;";
+	private final static String INLINE_CACHE = InlineCache.class.getName().replace('.', '/');
+	
+	public BytecodeCompiler(SymbolTable table, TypeChecker checker) {
+		this(table, checker, false);
+	}
+	
+	// a compiler whose Print statements write to the main class's OUT_FIELD if captureOutput is set
+	public BytecodeCompiler(SymbolTable table, TypeChecker checker, boolean captureOutput) {
+		this.table = table;
+		this.checker = checker;
+		this.captureOutput = captureOutput;
+		names = table.getNames();
+	}
+	
+	// gives methods stack maps, or writes version 49 class files without them for comparison
+	public void setStackMaps(boolean stackMaps) {
+		this.stackMaps = stackMaps;
+	}
+	
+	// compiles calls to invokedynamic sites with inline caches instead of to invokevirtual
+	public void setInvokeDynamic(boolean invokeDynamic) {
+		this.invokeDynamic = invokeDynamic;
+	}
+	
+	// compiles every class of a program, returning class files by class name
+	public Map<String, byte[]> compile(Program prog) {
+		Map<String, byte[]> classFiles = new LinkedHashMap<String, byte[]>();
+		for (ClassSymbol symbol : table.getClasses())
+			classFiles.put(className(symbol), compileClass(symbol).toByteArray());
+		return classFiles;
+	}
+	
+	// compiles a program into a directory, with a class file per class
+	public void write(Program prog, File dir) throws IOException {
+		dir.mkdirs();
+		for (Map.Entry<String, byte[]> classFile : compile(prog).entrySet()) {
+			OutputStream out = new FileOutputStream(new File(dir, classFile.getKey() + ".class"));
+			try {
+				out.write(classFile.getValue());
+			} finally {
+				out.close();
+			}
+		}
+	}
+	
+	private ClassFile compileClass(ClassSymbol symbol) {
+		String name = className(symbol);
+		if (symbol.getDecl().getKind() == NodeKind.MAIN_CLASS) {
+			ClassFile classFile = new ClassFile(Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, OBJECT);
+			classFile.setStackMaps(stackMaps);
+			if (captureOutput)
+				classFile.addField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, OUT_FIELD, PRINT_STREAM);
+			Code code = classFile.addMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main",
+					"([Ljava/lang/String;)V", 1);
+			new MethodCompiler(classFile, symbol, null, code).statement(((MainClass) symbol.getDecl()).getStm());
+			code.op(Opcodes.RETURN);
+			return classFile;
+		}
+		
+		ClassSymbol superClass = symbol.getSuperClass();
+		String superName = superClass == null ? OBJECT : className(superClass);
+		ClassFile classFile = new ClassFile(Opcodes.ACC_SUPER, name, superName);
+		classFile.setStackMaps(stackMaps);
+		
+		// the class's own fields follow the inherited ones
+		int inherited = superClass == null ? 0 : superClass.getFieldCount();
+		for (int slot = inherited; slot < symbol.getFieldCount(); slot++)
+			classFile.addField(0, names.getName(symbol.getFieldName(slot)), descriptor(symbol.getFieldType(slot)));
+		
+		// constructor
+		Code init = classFile.addMethod(0, "<init>", "()V", 1);
+		init.local(Opcodes.ALOAD, 0);
+		init.invoke(Opcodes.INVOKESPECIAL, superName, "<init>", "()V");
+		init.op(Opcodes.RETURN);
+		
+		// the methods the class declares, in vtable order
+		for (int slot = 0; slot < symbol.getMethodCount(); slot++) {
+			MethodSymbol method = symbol.getMethod(slot);
+			if (method.getOwner() != symbol)
+				continue;
+			Code code = classFile.addMethod(Opcodes.ACC_PUBLIC, names.getName(method.getNameId()),
+					methodDescriptor(method), 1 + method.getLocalCount());
+			
+			// MiniJava reads a local assigned on no path as 0 or null, and the verifier needs it assigned
+			for (int local = method.getParamCount(); local < method.getLocalCount(); local++) {
+				boolean ref = isRef(method.getLocalType(local));
+				code.declareLocal(local + 1, descriptor(method.getLocalType(local)));
+				if (ref)
+					code.op(Opcodes.ACONST_NULL);
+				else
+					code.pushInt(0);
+				code.local(ref ? Opcodes.ASTORE : Opcodes.ISTORE, local + 1);
+			}
+			MethodCompiler compiler = new MethodCompiler(classFile, symbol, method, code);
+			MethodDecl decl = method.getDecl();
+			compiler.statements(decl.getStms());
+			compiler.value(decl.getReturnExp());
+			code.op(isRef(method.getReturnType()) ? Opcodes.ARETURN : Opcodes.IRETURN);
+		}
+		return classFile;
+	}
+	
+	private String className(ClassSymbol symbol) {
+		return names.getName(symbol.getNameId());
+	}
+	
+	private String descriptor(int type) {
+		switch (type) {
+			case Types.INT:
+				return "I";
+			case Types.BOOLEAN:
+				return "Z";
+			case Types.INT_ARRAY:
+				return "[I";
+			default:
+				return "L" + className(table.getClassOfType(type)) + ";";
+		}
+	}
+	
+	// descriptor of the first method in the vtable slot of a method
+	private String methodDescriptor(MethodSymbol method) {
+		MethodSymbol root = rootOf(method);
+		StringBuilder descriptor = new StringBuilder("(");
+		for (int i = 0; i < root.getParamCount(); i++)
+			descriptor.append(descriptor(root.getParamType(i)));
+		return descriptor.append(')').append(descriptor(root.getReturnType())).toString();
+	}
+	
+	private static MethodSymbol rootOf(MethodSymbol method) {
+		ClassSymbol owner = method.getOwner();
+		while (owner.getSuperClass() != null && owner.getSuperClass().getMethodCount() > method.getSlot())
+			owner = owner.getSuperClass();
+		return owner.getMethod(method.getSlot());
+	}
+	
+	// class declaring the field in a slot of the given class
+	private static ClassSymbol fieldOwner(ClassSymbol symbol, int slot) {
+		while (symbol.getSuperClass() != null && symbol.getSuperClass().getFieldCount() > slot)
+			symbol = symbol.getSuperClass();
+		return symbol;
+	}
+	
+	private static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+	
+	/*
+	 * 
+	 * Compiles the statements and expressions of one method, or of the main
+	 * class's statement when method is null. Local slot s is JVM local s + 1,
+	 * after this.
+	 * 
+	 */
+	
+	private class MethodCompiler {
+		private final ClassFile classFile;
+		private final ClassSymbol owner;
+		private final MethodSymbol method;
+		private final Code code;
+		
+		MethodCompiler(ClassFile classFile, ClassSymbol owner, MethodSymbol method, Code code) {
+			this.classFile = classFile;
+			this.owner = owner;
+			this.method = method;
+			this.code = code;
+		}
+		
+		void statements(StatementList stms) {
+			for (int i = 0; i < stms.size(); i++)
+				statement(stms.elementAt(i));
+		}
+		
+		void statement(Statement stm) {
+			switch (stm.getKind()) {
+				
+				case NodeKind.BLOCK:
+					statements(((Block) stm).getStms());
+					break;
+				
+				case NodeKind.IF:
+					If ifStm = (If) stm;
+					Label elseLabel = new Label(), end = new Label();
+					branch(ifStm.getCondExp(), elseLabel, false);
+					statement(ifStm.getTrueStm());
+					code.jump(Opcodes.GOTO, end);
+					code.mark(elseLabel);
+					statement(ifStm.getFalseStm());
+					code.mark(end);
+					break;
+				
+				case NodeKind.WHILE:
+					While whileStm = (While) stm;
+					Label top = new Label(), exit = new Label();
+					code.mark(top);
+					branch(whileStm.getCondExp(), exit, false);
+					statement(whileStm.getStm());
+					code.jump(Opcodes.GOTO, top);
+					code.mark(exit);
+					break;
+				
+				case NodeKind.PRINT:
+					if (captureOutput)
+						code.field(Opcodes.GETSTATIC, className(table.getClass(0)), OUT_FIELD, PRINT_STREAM);
+					else
+						code.field(Opcodes.GETSTATIC, "java/lang/System", "out", PRINT_STREAM);
+					value(((Print) stm).getExp());
+					code.invoke(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V");
+					break;
+				
+				case NodeKind.ASSIGN:
+					int field = table.getFieldSlot(stm);
+					if (field >= 0) {
+						code.local(Opcodes.ALOAD, 0);
+						value(((Assign) stm).getValue());
+						fieldAccess(Opcodes.PUTFIELD, field);
+					} else {
+						int local = table.getLocalSlot(stm);
+						value(((Assign) stm).getValue());
+						code.local(isRef(method.getLocalType(local)) ? Opcodes.ASTORE : Opcodes.ISTORE, local + 1);
+					}
+					break;
+				
+				case NodeKind.ARRAY_ASSIGN:
+					ArrayAssign assign = (ArrayAssign) stm;
+					variable(stm);
+					value(assign.getIndex());
+					value(assign.getValue());
+					code.op(Opcodes.IASTORE);
+					break;
+			}
+		}
+		
+		// pushes the value of an expression
+		void value(Exp exp) {
+			switch (exp.getKind()) {
+				
+				case NodeKind.AND:
+				case NodeKind.LESS_THAN:
+					Label isFalse = new Label(), end = new Label();
+					branch(exp, isFalse, false);
+					code.pushInt(1);
+					code.jump(Opcodes.GOTO, end);
+					code.mark(isFalse);
+					code.pushInt(0);
+					code.mark(end);
+					break;
+				
+				case NodeKind.PLUS:
+					binary(((Plus) exp).getLHS(), ((Plus) exp).getRHS(), Opcodes.IADD);
+					break;
+				
+				case NodeKind.MINUS:
+					binary(((Minus) exp).getLHS(), ((Minus) exp).getRHS(), Opcodes.ISUB);
+					break;
+				
+				case NodeKind.TIMES:
+					binary(((Times) exp).getLHS(), ((Times) exp).getRHS(), Opcodes.IMUL);
+					break;
+				
+				case NodeKind.ARRAY_LOOKUP:
+					binary(((ArrayLookup) exp).getArray(), ((ArrayLookup) exp).getIndex(), Opcodes.IALOAD);
+					break;
+				
+				case NodeKind.ARRAY_LENGTH:
+					value(((ArrayLength) exp).getArray());
+					code.op(Opcodes.ARRAYLENGTH);
+					break;
+				
+				case NodeKind.CALL:
+					call((Call) exp);
+					break;
+				
+				case NodeKind.INTEGER_LITERAL:
+					code.pushInt(((IntegerLiteral) exp).getValue());
+					break;
+				
+				case NodeKind.TRUE:
+					code.pushInt(1);
+					break;
+				
+				case NodeKind.FALSE:
+					code.pushInt(0);
+					break;
+				
+				case NodeKind.IDENTIFIER_EXP:
+					variable(exp);
+					break;
+				
+				case NodeKind.THIS:
+					code.local(Opcodes.ALOAD, 0);
+					break;
+				
+				case NodeKind.NEW_ARRAY:
+					value(((NewArray) exp).getArraySize());
+					code.newArray(Opcodes.T_INT);
+					break;
+				
+				case NodeKind.NEW_OBJECT:
+					String name = className(table.getNewClass((NewObject) exp));
+					code.type(Opcodes.NEW, name);
+					code.op(Opcodes.DUP);
+					code.invoke(Opcodes.INVOKESPECIAL, name, "<init>", "()V");
+					break;
+				
+				case NodeKind.NOT:
+					value(((Not) exp).getExp());
+					code.pushInt(1);
+					code.op(Opcodes.IXOR);
+					break;
+			}
+		}
+		
+		// jumps to target if a boolean expression is jumpIf, and falls through otherwise
+		void branch(Exp exp, Label target, boolean jumpIf) {
+			switch (exp.getKind()) {
+				
+				case NodeKind.AND:
+					And and = (And) exp;
+					if (jumpIf) {
+						Label skip = new Label();
+						branch(and.getLHS(), skip, false);
+						branch(and.getRHS(), target, true);
+						code.mark(skip);
+					} else {
+						branch(and.getLHS(), target, false);
+						branch(and.getRHS(), target, false);
+					}
+					break;
+				
+				case NodeKind.LESS_THAN:
+					LessThan lessThan = (LessThan) exp;
+					value(lessThan.getLHS());
+					value(lessThan.getRHS());
+					code.jump(jumpIf ? Opcodes.IF_ICMPLT : Opcodes.IF_ICMPGE, target);
+					break;
+				
+				case NodeKind.NOT:
+					branch(((Not) exp).getExp(), target, !jumpIf);
+					break;
+				
+				default:
+					value(exp);
+					code.jump(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, target);
+			}
+		}
+		
+		private void binary(Exp lhs, Exp rhs, int opcode) {
+			value(lhs);
+			value(rhs);
+			code.op(opcode);
+		}
+		
+		private void call(Call call) {
+			MethodSymbol target = checker.getTarget(call);
+			value(call.getCallee());
+			ExpList args = call.getArgs();
+			for (int i = 0; i < args.size(); i++)
+				value(args.elementAt(i));
+			String owner = className(target.getOwner()), name = names.getName(target.getNameId());
+			if (invokeDynamic) {
+				int bootstrap = classFile.addBootstrapMethod(INLINE_CACHE, "bootstrap", InlineCache.BOOTSTRAP_DESCRIPTOR);
+				code.invokeDynamic(bootstrap, name, "(L" + owner + ";" + methodDescriptor(target).substring(1));
+			} else
+				code.invoke(Opcodes.INVOKEVIRTUAL, owner, name, methodDescriptor(target));
+			
+			// the descriptor may return a superclass of what the target returns
+			if (target.getReturnType() != rootOf(target).getReturnType())
+				code.type(Opcodes.CHECKCAST, className(table.getClassOfType(target.getReturnType())));
+		}
+		
+		// pushes the value of the variable a reference or array assignment resolved to
+		private void variable(Node ref) {
+			int field = table.getFieldSlot(ref);
+			if (field >= 0) {
+				code.local(Opcodes.ALOAD, 0);
+				fieldAccess(Opcodes.GETFIELD, field);
+			} else {
+				int local = table.getLocalSlot(ref);
+				code.local(isRef(method.getLocalType(local)) ? Opcodes.ALOAD : Opcodes.ILOAD, local + 1);
+			}
+		}
+		
+		private void fieldAccess(int opcode, int slot) {
+			code.field(opcode, className(fieldOwner(owner, slot)), names.getName(owner.getFieldName(slot)),
+					descriptor(owner.getFieldType(slot)));
+		}
+	}
+}
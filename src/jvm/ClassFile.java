@@ -0,0 +1,130 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 
+ * Writes one class file. Fields and methods are added in the order they
+ * should appear, each method with a Code that its body is assembled into,
+ * and toByteArray() lays out the result. Class files are version 52, and
+ * each method carries the StackMapTable its Code recorded, so the JVM checks
+ * branch targets against the frames given instead of inferring them.
+ * 
+ * Without stack maps, class files are version 49, the last that the JVM
+ * verifies by inferring the types at branch targets itself, which is slower.
+ * 
+ */
+
+public class ClassFile {
+	public final static int MAJOR_VERSION = 52, INFERENCE_MAJOR_VERSION = 49;
+	
+	private final ConstantPool pool = new ConstantPool();
+	private final String name;
+	private final int access, thisClass, superClass;
+	private boolean stackMaps = true;
+	private final List<int[]> fields = new ArrayList<int[]>(); // access, name and descriptor indices
+	private final List<int[]> methods = new ArrayList<int[]>(); // likewise
+	private final List<Code> codes = new ArrayList<Code>();
+	private final List<Integer> bootstrapMethods = new ArrayList<Integer>(); // method handle indices
+	
+	private final static int MAGIC = 0xCAFEBABE;
+	
+	// a class by internal name, such as java/lang/Object
+	public ClassFile(int access, String name, String superName) {
+		this.name = name;
+		this.access = access;
+		thisClass = pool.classRef(name);
+		superClass = pool.classRef(superName);
+	}
+	
+	public void addField(int access, String name, String descriptor) {
+		fields.add(new int[] { access, pool.utf8(name), pool.utf8(descriptor) });
+	}
+	
+	// writes stack maps, or a version 49 class file without them
+	public void setStackMaps(boolean stackMaps) {
+		this.stackMaps = stackMaps;
+	}
+	
+	// adds a method, returning the Code to assemble its body into
+	public Code addMethod(int access, String name, String descriptor, int maxLocals) {
+		methods.add(new int[] { access, pool.utf8(name), pool.utf8(descriptor) });
+		Code code = new Code(pool, this.name, access, name, descriptor, maxLocals);
+		codes.add(code);
+		return code;
+	}
+	
+	// adds a bootstrap method for invokedynamic call sites, returning its index
+	public int addBootstrapMethod(String owner, String name, String descriptor) {
+		int handle = pool.staticMethodHandle(owner, name, descriptor);
+		int index = bootstrapMethods.indexOf(handle);
+		if (index < 0) {
+			index = bootstrapMethods.size();
+			bootstrapMethods.add(handle);
+		}
+		return index;
+	}
+	
+	public byte[] toByteArray() {
+		int codeName = pool.utf8("Code");
+		int bootstrapName = bootstrapMethods.isEmpty() ? 0 : pool.utf8("BootstrapMethods");
+		if (stackMaps) {
+			for (Code code : codes)
+				code.finish();
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0); // minor version
+			out.writeShort(stackMaps ? MAJOR_VERSION : INFERENCE_MAJOR_VERSION);
+			pool.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0); // interfaces
+			
+			out.writeShort(fields.size());
+			for (int[] field : fields) {
+				writeMember(out, field);
+				out.writeShort(0); // attributes
+			}
+			
+			out.writeShort(methods.size());
+			for (int i = 0; i < methods.size(); i++) {
+				writeMember(out, methods.get(i));
+				Code code = codes.get(i);
+				out.writeShort(1);
+				out.writeShort(codeName);
+				out.writeInt(code.getAttributeLength());
+				code.writeTo(out);
+			}
+			
+			if (bootstrapName == 0)
+				out.writeShort(0); // attributes
+			else {
+				out.writeShort(1);
+				out.writeShort(bootstrapName);
+				out.writeInt(2 + 4 * bootstrapMethods.size());
+				out.writeShort(bootstrapMethods.size());
+				for (int handle : bootstrapMethods) {
+					out.writeShort(handle);
+					out.writeShort(0); // static arguments
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by a ByteArrayOutputStream
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static void writeMember(DataOutputStream out, int[] member) throws IOException {
+		out.writeShort(member[0]);
+		out.writeShort(member[1]);
+		out.writeShort(member[2]);
+	}
+}
@@ -0,0 +1,475 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * 
+ * An assembler for the code of one method. Each instruction is emitted by a
+ * method that also applies its effect to a model of the frame: the
+ * verification type of each operand stack entry, and which locals have been
+ * assigned. So the maximum stack depth is known when the last instruction is
+ * in, and marking a label records the frame the verifier should expect there.
+ * 
+ * The types come from descriptors and from the declared types of the locals,
+ * never from loading classes. A local holds its declared type once it is
+ * assigned on every path to a point, and is unusable (top) before, so a
+ * method may only read locals that are definitely assigned. MiniJava does
+ * not require that, so BytecodeCompiler assigns every local that is not a
+ * parameter at the start of its method. After an unconditional jump or a
+ * return the code is unreachable until the next label is marked, whose
+ * frame is that of the jumps to it.
+ * 
+ */
+
+public class Code {
+	// verification types: the low byte is the tag of the StackMapTable entry,
+	// and the bits above it the constant pool index or offset it carries
+	final static int TOP = 0, INTEGER = 1, NULL = 5, UNINITIALIZED_THIS = 6, OBJECT = 7, UNINITIALIZED = 8;
+	
+	private final ConstantPool pool;
+	private final int thisType;
+	private final int maxLocals;
+	private byte[] code = new byte[64];
+	private int length;
+	
+	// the frame after the last instruction
+	private final int[] localTypes; // declared types
+	private boolean[] assigned;
+	private int[] stack = new int[8];
+	private int stackDepth, maxStack; // stackDepth is -1 where the code is unreachable
+	
+	// the frames recorded at labels, by offset, after the implicit one on entry
+	private final int[] initialLocals;
+	private int[] frameOffsets = new int[8];
+	private int[][] frameLocals = new int[8][], frameStacks = new int[8][];
+	private int frameCount;
+	private byte[] stackMapTable;
+	
+	Code(ConstantPool pool, String className, int access, String name, String descriptor, int maxLocals) {
+		this.pool = pool;
+		this.maxLocals = maxLocals;
+		thisType = classType(className);
+		localTypes = new int[maxLocals];
+		assigned = new boolean[maxLocals];
+		
+		// the receiver and parameters are assigned on entry
+		int slot = 0;
+		if ((access & Opcodes.ACC_STATIC) == 0)
+			setParam(slot++, name.equals("<init>") ? UNINITIALIZED_THIS : thisType);
+		for (int i = 1; descriptor.charAt(i) != ')'; i = next(descriptor, i))
+			setParam(slot++, typeOf(descriptor, i));
+		initialLocals = frameLocals();
+	}
+	
+	// gives a local that is not a parameter its declared type
+	public void declareLocal(int slot, String descriptor) {
+		localTypes[slot] = typeOf(descriptor, 0);
+	}
+	
+	// emits an instruction without operands
+	public void op(int opcode) {
+		emit(opcode);
+		switch (opcode) {
+			case Opcodes.ACONST_NULL:
+				push(NULL);
+				break;
+			case Opcodes.DUP:
+				push(stack[stackDepth - 1]);
+				break;
+			case Opcodes.ARRAYLENGTH:
+				pop(1);
+				push(INTEGER);
+				break;
+			case Opcodes.IALOAD:
+			case Opcodes.IADD:
+			case Opcodes.ISUB:
+			case Opcodes.IMUL:
+			case Opcodes.IXOR:
+				pop(2);
+				push(INTEGER);
+				break;
+			case Opcodes.AALOAD:
+				// the element type is not tracked, so a CHECKCAST should follow
+				pop(2);
+				push(classType("java/lang/Object"));
+				break;
+			case Opcodes.POP:
+				pop(1);
+				break;
+			case Opcodes.IASTORE:
+			case Opcodes.AASTORE:
+				pop(3);
+				break;
+			case Opcodes.IRETURN:
+			case Opcodes.ARETURN:
+			case Opcodes.RETURN:
+				stackDepth = -1;
+				break;
+			default:
+				throw new IllegalArgumentException("opcode " + opcode + " needs operands");
+		}
+	}
+	
+	// pushes an int constant with the shortest instruction for it
+	public void pushInt(int value) {
+		if (value >= -1 && value <= 5)
+			emit(Opcodes.ICONST_0 + value);
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			emit(Opcodes.BIPUSH);
+			emit(value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			emit(Opcodes.SIPUSH);
+			emitShort(value);
+		} else {
+			int index = pool.integer(value);
+			if (index <= 0xFF) {
+				emit(Opcodes.LDC);
+				emit(index);
+			} else {
+				emit(Opcodes.LDC_W);
+				emitShort(index);
+			}
+		}
+		push(INTEGER);
+	}
+	
+	// emits ILOAD, ALOAD, ISTORE or ASTORE of a local
+	public void local(int opcode, int slot) {
+		if (slot <= 3) {
+			int base = opcode == Opcodes.ILOAD ? Opcodes.ILOAD_0 : opcode == Opcodes.ALOAD ? Opcodes.ALOAD_0
+					: opcode == Opcodes.ISTORE ? Opcodes.ISTORE_0 : Opcodes.ASTORE_0;
+			emit(base + slot);
+		} else if (slot <= 0xFF) {
+			emit(opcode);
+			emit(slot);
+		} else {
+			emit(Opcodes.WIDE);
+			emit(opcode);
+			emitShort(slot);
+		}
+		if (opcode == Opcodes.ILOAD || opcode == Opcodes.ALOAD)
+			push(localTypes[slot]);
+		else {
+			pop(1);
+			assigned[slot] = true;
+		}
+	}
+	
+	// emits GETSTATIC, GETFIELD or PUTFIELD
+	public void field(int opcode, String owner, String name, String descriptor) {
+		emit(opcode);
+		emitShort(pool.fieldRef(owner, name, descriptor));
+		if (opcode == Opcodes.PUTFIELD)
+			pop(2);
+		else {
+			if (opcode == Opcodes.GETFIELD)
+				pop(1);
+			push(typeOf(descriptor, 0));
+		}
+	}
+	
+	// emits INVOKEVIRTUAL or INVOKESPECIAL
+	public void invoke(int opcode, String owner, String name, String descriptor) {
+		emit(opcode);
+		emitShort(pool.methodRef(owner, name, descriptor));
+		int i = 1;
+		while (descriptor.charAt(i) != ')') {
+			i = next(descriptor, i);
+			pop(1);
+		}
+		int receiver = stack[--stackDepth];
+		if (name.equals("<init>"))
+			initialize(receiver, receiver == UNINITIALIZED_THIS ? thisType : classType(owner));
+		if (descriptor.charAt(i + 1) != 'V')
+			push(typeOf(descriptor, i + 1));
+	}
+	
+	// emits INVOKEDYNAMIC of a call site linked by the class's bootstrap method of the given index
+	public void invokeDynamic(int bootstrap, String name, String descriptor) {
+		emit(Opcodes.INVOKEDYNAMIC);
+		emitShort(pool.invokeDynamic(bootstrap, name, descriptor));
+		emitShort(0);
+		int i = 1;
+		while (descriptor.charAt(i) != ')') {
+			i = next(descriptor, i);
+			pop(1);
+		}
+		if (descriptor.charAt(i + 1) != 'V')
+			push(typeOf(descriptor, i + 1));
+	}
+	
+	// emits NEW or CHECKCAST of a class
+	public void type(int opcode, String className) {
+		int offset = length;
+		emit(opcode);
+		emitShort(pool.classRef(className));
+		if (opcode == Opcodes.NEW)
+			push(offset << 8 | UNINITIALIZED);
+		else {
+			pop(1);
+			push(classType(className));
+		}
+	}
+	
+	// emits NEWARRAY of the given array type code
+	public void newArray(int arrayType) {
+		emit(Opcodes.NEWARRAY);
+		emit(arrayType);
+		pop(1);
+		push(classType("[I"));
+	}
+	
+	// emits a conditional jump or GOTO to a label
+	public void jump(int opcode, Label label) {
+		int instruction = length;
+		emit(opcode);
+		if (opcode == Opcodes.IF_ICMPLT || opcode == Opcodes.IF_ICMPGE)
+			pop(2);
+		else if (opcode != Opcodes.GOTO)
+			pop(1);
+		if (label.position >= 0)
+			emitShort(offset(instruction, label.position));
+		else {
+			label.addFixup(instruction, length);
+			emitShort(0);
+		}
+		mergeInto(label);
+		if (opcode == Opcodes.GOTO)
+			stackDepth = -1;
+	}
+	
+	// fixes a label at the current position, which the next instruction will be at
+	public void mark(Label label) {
+		label.position = length;
+		for (int i = 0; i < label.fixupCount; i += 2) {
+			int operand = label.fixups[i + 1];
+			int offset = offset(label.fixups[i], length);
+			code[operand] = (byte) (offset >> 8);
+			code[operand + 1] = (byte) offset;
+		}
+		label.fixupCount = 0;
+		
+		// the frame here is what holds on every edge into it
+		if (stackDepth >= 0)
+			mergeInto(label);
+		if (label.stack == null) {
+			// only reached by jumps still to come, which can only be back from a loop
+			// body that left the stack as it found it and assigned more locals
+			label.stack = new int[0];
+			label.assigned = assigned.clone();
+		}
+		stackDepth = label.stack.length;
+		System.arraycopy(label.stack, 0, stack, 0, stackDepth);
+		assigned = label.assigned.clone();
+		recordFrame();
+	}
+	
+	public int getStackDepth() {
+		return stackDepth;
+	}
+	
+	// encodes the StackMapTable, adding its name to the constant pool before the pool is written
+	void finish() {
+		if (frameCount == 0 || stackMapTable != null)
+			return;
+		pool.utf8("StackMapTable");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(frameCount);
+			int[] previous = initialLocals;
+			int previousOffset = -1;
+			for (int f = 0; f < frameCount; f++) {
+				writeFrame(out, frameOffsets[f] - previousOffset - 1, previous, frameLocals[f], frameStacks[f]);
+				previous = frameLocals[f];
+				previousOffset = frameOffsets[f];
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by a ByteArrayOutputStream
+		}
+		stackMapTable = bytes.toByteArray();
+	}
+	
+	// writes the Code attribute, without its name and length
+	void writeTo(DataOutputStream out) throws IOException {
+		if (length > 0xFFFF)
+			throw new IllegalStateException("method body is " + length + " bytes, over the limit of 65535");
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(length);
+		out.write(code, 0, length);
+		out.writeShort(0); // exception table
+		if (stackMapTable == null)
+			out.writeShort(0); // attributes
+		else {
+			out.writeShort(1);
+			out.writeShort(pool.utf8("StackMapTable"));
+			out.writeInt(stackMapTable.length);
+			out.write(stackMapTable);
+		}
+	}
+	
+	// bytes taken by writeTo()
+	int getAttributeLength() {
+		return 12 + length + (stackMapTable == null ? 0 : 6 + stackMapTable.length);
+	}
+	
+	private void setParam(int slot, int type) {
+		localTypes[slot] = type;
+		assigned[slot] = true;
+	}
+	
+	// narrows a label's frame to what also holds on the current edge into it
+	private void mergeInto(Label label) {
+		if (label.stack == null) {
+			label.stack = Arrays.copyOf(stack, stackDepth);
+			label.assigned = assigned.clone();
+		} else {
+			for (int slot = 0; slot < maxLocals; slot++)
+				label.assigned[slot] &= assigned[slot];
+		}
+	}
+	
+	// records the current frame for the current offset, replacing one recorded there before,
+	// which the current frame holds for too since it came from marking a label on top of it
+	private void recordFrame() {
+		if (frameCount > 0 && frameOffsets[frameCount - 1] == length)
+			frameCount--;
+		if (frameCount == frameOffsets.length) {
+			frameOffsets = Arrays.copyOf(frameOffsets, frameCount * 2);
+			frameLocals = Arrays.copyOf(frameLocals, frameCount * 2);
+			frameStacks = Arrays.copyOf(frameStacks, frameCount * 2);
+		}
+		frameOffsets[frameCount] = length;
+		frameLocals[frameCount] = frameLocals();
+		frameStacks[frameCount++] = Arrays.copyOf(stack, stackDepth);
+	}
+	
+	// types of the locals, up to the last one that is assigned
+	private int[] frameLocals() {
+		int count = maxLocals;
+		while (count > 0 && !assigned[count - 1])
+			count--;
+		int[] types = new int[count];
+		for (int slot = 0; slot < count; slot++)
+			types[slot] = assigned[slot] ? localTypes[slot] : TOP;
+		return types;
+	}
+	
+	// writes a frame in the most compact form it fits
+	private void writeFrame(DataOutputStream out, int delta, int[] previous, int[] locals, int[] stack)
+			throws IOException {
+		int common = 0;
+		while (common < previous.length && common < locals.length && previous[common] == locals[common])
+			common++;
+		boolean sameLocals = common == previous.length && common == locals.length;
+		
+		if (sameLocals && stack.length == 0) {
+			if (delta < 64)
+				out.writeByte(delta); // same_frame
+			else {
+				out.writeByte(251); // same_frame_extended
+				out.writeShort(delta);
+			}
+		} else if (sameLocals && stack.length == 1) {
+			if (delta < 64)
+				out.writeByte(64 + delta); // same_locals_1_stack_item_frame
+			else {
+				out.writeByte(247); // same_locals_1_stack_item_frame_extended
+				out.writeShort(delta);
+			}
+			writeType(out, stack[0]);
+		} else if (stack.length == 0 && common == locals.length && previous.length - common <= 3) {
+			out.writeByte(251 - (previous.length - common)); // chop_frame
+			out.writeShort(delta);
+		} else if (stack.length == 0 && common == previous.length && locals.length - common <= 3) {
+			out.writeByte(251 + (locals.length - common)); // append_frame
+			out.writeShort(delta);
+			for (int i = common; i < locals.length; i++)
+				writeType(out, locals[i]);
+		} else {
+			out.writeByte(255); // full_frame
+			out.writeShort(delta);
+			out.writeShort(locals.length);
+			for (int type : locals)
+				writeType(out, type);
+			out.writeShort(stack.length);
+			for (int type : stack)
+				writeType(out, type);
+		}
+	}
+	
+	private static void writeType(DataOutputStream out, int type) throws IOException {
+		out.writeByte(type & 0xFF);
+		if ((type & 0xFF) == OBJECT || (type & 0xFF) == UNINITIALIZED)
+			out.writeShort(type >>> 8);
+	}
+	
+	// replaces an uninitialized type on the stack and in the locals once its constructor has run
+	private void initialize(int uninitialized, int type) {
+		for (int i = 0; i < stackDepth; i++) {
+			if (stack[i] == uninitialized)
+				stack[i] = type;
+		}
+		for (int slot = 0; slot < maxLocals; slot++) {
+			if (localTypes[slot] == uninitialized)
+				localTypes[slot] = type;
+		}
+	}
+	
+	private int classType(String className) {
+		return pool.classRef(className) << 8 | OBJECT;
+	}
+	
+	// type of the value of the field type starting at index i of a descriptor
+	private int typeOf(String descriptor, int i) {
+		switch (descriptor.charAt(i)) {
+			case 'I':
+			case 'Z':
+				return INTEGER;
+			case '[':
+				return classType(descriptor.substring(i, next(descriptor, i)));
+			default:
+				return classType(descriptor.substring(i + 1, descriptor.indexOf(';', i)));
+		}
+	}
+	
+	// index just past the field type starting at index i of a descriptor
+	private static int next(String descriptor, int i) {
+		while (descriptor.charAt(i) == '[')
+			i++;
+		return descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+	}
+	
+	private void push(int type) {
+		if (stackDepth == stack.length)
+			stack = Arrays.copyOf(stack, stackDepth * 2);
+		stack[stackDepth++] = type;
+		maxStack = Math.max(maxStack, stackDepth);
+	}
+	
+	private void pop(int count) {
+		stackDepth -= count;
+	}
+	
+	private void emit(int b) {
+		if (length == code.length)
+			code = Arrays.copyOf(code, length * 2);
+		code[length++] = (byte) b;
+	}
+	
+	private void emitShort(int s) {
+		emit(s >> 8);
+		emit(s);
+	}
+	
+	private static int offset(int from, int to) {
+		int offset = to - from;
+		if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE)
+			throw new IllegalStateException("jump of " + offset + " bytes is out of range");
+		return offset;
+	}
+}
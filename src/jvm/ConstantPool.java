@@ -0,0 +1,153 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * 
+ * The constant pool of a class file under construction. Each kind of entry
+ * is added through its own method, which returns the index of an equal entry
+ * if there already is one, so a class refers to each name, class and member
+ * once however often its code uses them.
+ * 
+ */
+
+class ConstantPool {
+	private final static int UTF8 = 1, INTEGER = 3, CLASS = 7, FIELDREF = 9, METHODREF = 10,
+			NAME_AND_TYPE = 12, METHOD_HANDLE = 15, INVOKE_DYNAMIC = 18;
+	
+	// reference kind of a method handle to a static method
+	final static int REF_INVOKE_STATIC = 6;
+	
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(bytes);
+	private final Map<String, Integer> indices = new HashMap<String, Integer>();
+	private int count = 1; // entry 0 is unused
+	
+	int utf8(String value) {
+		Integer index = indices.get("U" + value);
+		if (index != null)
+			return index;
+		try {
+			out.writeByte(UTF8);
+			out.writeUTF(value); // the class file format also uses modified UTF-8
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by a ByteArrayOutputStream
+		}
+		return add("U" + value);
+	}
+	
+	int integer(int value) {
+		Integer index = indices.get("I" + value);
+		if (index != null)
+			return index;
+		write(INTEGER, value >>> 16, value & 0xFFFF);
+		return add("I" + value);
+	}
+	
+	// a class by internal name, such as java/lang/Object
+	int classRef(String name) {
+		Integer index = indices.get("C" + name);
+		if (index != null)
+			return index;
+		int nameIndex = utf8(name);
+		write(CLASS, nameIndex);
+		return add("C" + name);
+	}
+	
+	int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(FIELDREF, owner, name, descriptor);
+	}
+	
+	int methodRef(String owner, String name, String descriptor) {
+		return memberRef(METHODREF, owner, name, descriptor);
+	}
+	
+	// a handle to a static method, such as a bootstrap method
+	int staticMethodHandle(String owner, String name, String descriptor) {
+		int method = methodRef(owner, name, descriptor);
+		Integer index = indices.get("H" + method);
+		if (index != null)
+			return index;
+		try {
+			out.writeByte(METHOD_HANDLE);
+			out.writeByte(REF_INVOKE_STATIC);
+			out.writeShort(method);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return add("H" + method);
+	}
+	
+	// a call site of the given name and type, linked by a bootstrap method by its index in the class
+	int invokeDynamic(int bootstrap, String name, String descriptor) {
+		String key = "D" + bootstrap + ":" + name + ":" + descriptor;
+		Integer index = indices.get(key);
+		if (index != null)
+			return index;
+		int nameAndType = nameAndType(name, descriptor);
+		write(INVOKE_DYNAMIC, bootstrap, nameAndType);
+		return add(key);
+	}
+	
+	// number of entries, counting the unused entry 0
+	int getCount() {
+		return count;
+	}
+	
+	void writeTo(DataOutputStream stream) throws IOException {
+		stream.writeShort(count);
+		bytes.writeTo(stream);
+	}
+	
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = tag + owner + "." + name + ":" + descriptor;
+		Integer index = indices.get(key);
+		if (index != null)
+			return index;
+		int classIndex = classRef(owner);
+		int nameAndType = nameAndType(name, descriptor);
+		write(tag, classIndex, nameAndType);
+		return add(key);
+	}
+	
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + ":" + descriptor;
+		Integer index = indices.get(key);
+		if (index != null)
+			return index;
+		int nameIndex = utf8(name), descriptorIndex = utf8(descriptor);
+		write(NAME_AND_TYPE, nameIndex, descriptorIndex);
+		return add(key);
+	}
+	
+	// writes an entry of a tag and two 16-bit halves
+	private void write(int tag, int high, int low) {
+		try {
+			out.writeByte(tag);
+			out.writeShort(high);
+			out.writeShort(low);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private void write(int tag, int index) {
+		try {
+			out.writeByte(tag);
+			out.writeShort(index);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private int add(String key) {
+		if (count > 0xFFFF)
+			throw new IllegalStateException("too many constants in one class");
+		indices.put(key, count);
+		return count++;
+	}
+}
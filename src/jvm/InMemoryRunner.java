@@ -0,0 +1,94 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 
+ * Runs programs compiled with output captured (see BytecodeCompiler) in this
+ * JVM, without touching the disk. Each run defines the program's classes in a
+ * class loader of its own, which only finds them and, through the platform
+ * class loader, the classes of java.base. So programs are isolated from each
+ * other and from the compiler, and once a run returns nothing refers to its
+ * loader, which lets the JVM unload its classes and keeps metaspace from
+ * growing under sustained load. The one class outside java.base that
+ * programs may use is InlineCache, which bootstraps their invokedynamic
+ * call sites.
+ * 
+ * The classes are not hidden classes: MiniJava classes refer to each other
+ * by name, in superclasses and descriptors, and the JVM cannot resolve a
+ * hidden class by name.
+ * 
+ */
+
+public class InMemoryRunner {
+	// runs a program's main class, returning what it printed
+	public static String run(Map<String, byte[]> classFiles, String mainClass) {
+		Class<?> main;
+		try {
+			main = Class.forName(mainClass, true, new ProgramLoader(classFiles));
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("no class file for " + mainClass, e);
+		}
+		return run(main);
+	}
+	
+	// runs a main class already loaded, which may be run again and again
+	public static String run(Class<?> main) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, false);
+		try {
+			main.getField(BytecodeCompiler.OUT_FIELD).set(null, out);
+			Method entry = main.getMethod("main", String[].class);
+			entry.invoke(null, (Object) new String[0]);
+		} catch (InvocationTargetException e) {
+			out.flush();
+			throw new ProgramException(e.getCause(), bytes.toString());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("not a program compiled with output captured: " + e, e);
+		}
+		out.flush();
+		return bytes.toString();
+	}
+	
+	// defines and initializes, and so verifies, every class of a program in a loader of its own
+	public static List<Class<?>> load(Map<String, byte[]> classFiles) {
+		ProgramLoader loader = new ProgramLoader(classFiles);
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		try {
+			for (String name : classFiles.keySet())
+				classes.add(Class.forName(name, true, loader));
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e); // every name has its class file
+		}
+		return classes;
+	}
+	
+	// a loader defining the classes of one program
+	private static class ProgramLoader extends ClassLoader {
+		private final Map<String, byte[]> classFiles;
+		
+		ProgramLoader(Map<String, byte[]> classFiles) {
+			super(ClassLoader.getPlatformClassLoader());
+			this.classFiles = new HashMap<String, byte[]>(classFiles);
+		}
+		
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			// each class is defined once, so its bytes are no longer needed
+			byte[] classFile = classFiles.remove(name);
+			if (classFile == null) {
+				if (name.equals(InlineCache.class.getName()))
+					return InlineCache.class;
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
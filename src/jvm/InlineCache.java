@@ -0,0 +1,89 @@
+package jvm;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+/*
+ * 
+ * An invokedynamic call site that caches the methods a call dispatches to.
+ * The site starts out unlinked. Each receiver class it has not seen yet
+ * misses: the miss looks up the method that class runs and puts a test of
+ * the receiver's exact class in front of the site's target, which calls that
+ * method directly if the test passes and falls through to the tests before
+ * it otherwise. So the site is monomorphic after one class and polymorphic
+ * after up to MAX_CLASSES, and the JIT can inline each cached method behind
+ * its class check. A site that sees more classes than that is megamorphic
+ * and turns into a plain virtual call, dispatched through the vtable.
+ * 
+ * Call sites take the receiver as their first argument, typed as the class
+ * declaring the method called, and have the descriptor of the method.
+ * 
+ */
+
+public class InlineCache extends MutableCallSite {
+	public final static int MAX_CLASSES = 4;
+	
+	// descriptor of bootstrap()
+	public final static String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+			+ "Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;";
+	
+	private final static MethodHandle MISS, IS_CLASS;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MISS = lookup.findVirtual(InlineCache.class, "miss", MethodType.methodType(Object.class, Object[].class));
+			IS_CLASS = lookup.findStatic(InlineCache.class, "isClass",
+					MethodType.methodType(boolean.class, Class.class, Object.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private final MethodHandles.Lookup lookup;
+	private final String name;
+	private int classCount; // classes cached, or MAX_CLASSES + 1 once megamorphic
+	
+	private InlineCache(MethodHandles.Lookup lookup, String name, MethodType type) {
+		super(type);
+		this.lookup = lookup;
+		this.name = name;
+		setTarget(MISS.bindTo(this).asCollector(Object[].class, type.parameterCount()).asType(type));
+	}
+	
+	// links a call site of a compiled program
+	public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type) {
+		return new InlineCache(lookup, name, type);
+	}
+	
+	public boolean isMegamorphic() {
+		return classCount > MAX_CLASSES;
+	}
+	
+	// caches the method the receiver's class runs, then calls it
+	private Object miss(Object[] args) throws Throwable {
+		MethodType type = type();
+		MethodType methodType = type.dropParameterTypes(0, 1);
+		Class<?> receiverClass = args[0].getClass(); // throws, as invokevirtual would, on null
+		MethodHandle method = lookup.findVirtual(receiverClass, name, methodType).asType(type);
+		
+		if (classCount < MAX_CLASSES) {
+			MethodHandle test = MethodHandles.insertArguments(IS_CLASS, 0, receiverClass)
+					.asType(MethodType.methodType(boolean.class, type.parameterType(0)));
+			test = MethodHandles.dropArguments(test, 1, methodType.parameterList());
+			setTarget(MethodHandles.guardWithTest(test, method, getTarget()));
+			classCount++;
+		} else if (classCount == MAX_CLASSES) {
+			setTarget(lookup.findVirtual(type.parameterType(0), name, methodType));
+			classCount++;
+		}
+		return method.invokeWithArguments(args);
+	}
+	
+	private static boolean isClass(Class<?> expected, Object receiver) {
+		return receiver.getClass() == expected;
+	}
+}
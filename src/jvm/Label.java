@@ -0,0 +1,30 @@
+package jvm;
+
+import java.util.Arrays;
+
+/*
+ * 
+ * A position in a method's code that jumps can target before it is known.
+ * Code.mark() fixes the position and patches the jumps emitted so far; later
+ * jumps use it directly. A label also collects the frame that holds on every
+ * edge into it: the operand stack types, which are the same on each, and
+ * the locals assigned on all of them.
+ * 
+ */
+
+public class Label {
+	int position = -1; // offset in the code, once marked
+	int[] stack; // types on the operand stack at the label, once an edge into it is seen
+	boolean[] assigned; // locals assigned on every edge seen
+	
+	// offsets of the jump instructions waiting for the position, and of their operands
+	int[] fixups = new int[4];
+	int fixupCount;
+	
+	void addFixup(int instruction, int operand) {
+		if (fixupCount + 2 > fixups.length)
+			fixups = Arrays.copyOf(fixups, fixups.length * 2);
+		fixups[fixupCount++] = instruction;
+		fixups[fixupCount++] = operand;
+	}
+}
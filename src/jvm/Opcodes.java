@@ -0,0 +1,78 @@
+package jvm;
+
+/*
+ * 
+ * The JVM opcodes, access flags and array type codes the bytecode compiler
+ * uses, as defined by the Java Virtual Machine Specification, chapters 4
+ * and 6.
+ * 
+ */
+
+public final class Opcodes {
+	// access flags
+	public final static int ACC_PUBLIC = 0x0001;
+	public final static int ACC_STATIC = 0x0008;
+	public final static int ACC_SUPER = 0x0020;
+	
+	// constants
+	public final static int ACONST_NULL = 1;
+	public final static int ICONST_M1 = 2;
+	public final static int ICONST_0 = 3;
+	public final static int ICONST_1 = 4;
+	public final static int ICONST_5 = 8;
+	public final static int BIPUSH = 16;
+	public final static int SIPUSH = 17;
+	public final static int LDC = 18;
+	public final static int LDC_W = 19;
+	
+	// locals
+	public final static int ILOAD = 21;
+	public final static int ALOAD = 25;
+	public final static int ILOAD_0 = 26;
+	public final static int ALOAD_0 = 42;
+	public final static int ISTORE = 54;
+	public final static int ASTORE = 58;
+	public final static int ISTORE_0 = 59;
+	public final static int ASTORE_0 = 75;
+	public final static int WIDE = 196;
+	
+	// arrays
+	public final static int IALOAD = 46;
+	public final static int AALOAD = 50;
+	public final static int IASTORE = 79;
+	public final static int AASTORE = 83;
+	public final static int NEWARRAY = 188;
+	public final static int ARRAYLENGTH = 190;
+	public final static int T_INT = 10; // array type code of int[] for NEWARRAY
+	
+	// stack and arithmetic
+	public final static int POP = 87;
+	public final static int DUP = 89;
+	public final static int IADD = 96;
+	public final static int ISUB = 100;
+	public final static int IMUL = 104;
+	public final static int IXOR = 130;
+	
+	// control
+	public final static int IFEQ = 153;
+	public final static int IFNE = 154;
+	public final static int IF_ICMPLT = 161;
+	public final static int IF_ICMPGE = 162;
+	public final static int GOTO = 167;
+	public final static int IRETURN = 172;
+	public final static int ARETURN = 176;
+	public final static int RETURN = 177;
+	
+	// objects
+	public final static int GETSTATIC = 178;
+	public final static int GETFIELD = 180;
+	public final static int PUTFIELD = 181;
+	public final static int INVOKEVIRTUAL = 182;
+	public final static int INVOKESPECIAL = 183;
+	public final static int INVOKEDYNAMIC = 186;
+	public final static int NEW = 187;
+	public final static int CHECKCAST = 192;
+	
+	private Opcodes() {
+	}
+}
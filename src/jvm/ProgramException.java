@@ -0,0 +1,23 @@
+package jvm;
+
+/*
+ * 
+ * An exception thrown by a program run in memory, such as an index out of
+ * bounds, along with what the program printed before it.
+ * 
+ */
+
+public class ProgramException extends RuntimeException {
+	private final String output;
+	
+	private final static long serialVersionUID = 1L;
+	
+	public ProgramException(Throwable cause, String output) {
+		super(cause.toString(), cause);
+		this.output = output;
+	}
+	
+	public String getOutput() {
+		return output;
+	}
+}
@@ -0,0 +1,70 @@
+package layout;
+
+import symbol.ClassSymbol;
+import symbol.MethodSymbol;
+
+/*
+ * 
+ * The memory layout of the instances of one class, and its vtable. Field
+ * offsets are in bytes from the start of an object and are indexed by the
+ * field slots of the symbol table, so a field resolved to a slot is read at a
+ * fixed offset. A subclass's layout starts with its superclass's, so an
+ * inherited field sits at the same offset in every subclass. The vtable holds
+ * the method to run for each method slot, so a call resolved to a method is
+ * dispatched by loading vtable[method.getSlot()] from the receiver's class.
+ * 
+ */
+
+public class ClassLayout {
+	private final ClassSymbol symbol;
+	private final ClassLayout superLayout;
+	private final int[] fieldOffsets;
+	private final int fieldsEnd; // first byte past the last field
+	private final int instanceSize;
+	private final MethodSymbol[] vtable;
+	
+	ClassLayout(ClassSymbol symbol, ClassLayout superLayout, int[] fieldOffsets, int fieldsEnd,
+			int instanceSize, MethodSymbol[] vtable) {
+		this.symbol = symbol;
+		this.superLayout = superLayout;
+		this.fieldOffsets = fieldOffsets;
+		this.fieldsEnd = fieldsEnd;
+		this.instanceSize = instanceSize;
+		this.vtable = vtable;
+	}
+	
+	public ClassSymbol getSymbol() {
+		return symbol;
+	}
+	
+	public ClassLayout getSuperLayout() {
+		return superLayout;
+	}
+	
+	public int getFieldCount() {
+		return fieldOffsets.length;
+	}
+	
+	// byte offset of the field in the given slot
+	public int getFieldOffset(int slot) {
+		return fieldOffsets[slot];
+	}
+	
+	int getFieldsEnd() {
+		return fieldsEnd;
+	}
+	
+	// bytes taken by an instance, header included
+	public int getInstanceSize() {
+		return instanceSize;
+	}
+	
+	public int getVtableLength() {
+		return vtable.length;
+	}
+	
+	// method run by a call to the method in the given slot
+	public MethodSymbol getVtableEntry(int slot) {
+		return vtable[slot];
+	}
+}
@@ -0,0 +1,22 @@
+package layout;
+
+/*
+ * 
+ * The locals of one activation of a method, by local slot, and its
+ * receiver, kept as an Instance keeps fields: ints and booleans in one
+ * array and references in the other. A runtime that needs more in its
+ * frames, such as the method they activate, extends this class.
+ * 
+ */
+
+public class Frame {
+	public final Instance self;
+	public final int[] ints;
+	public final Object[] refs;
+	
+	public Frame(Instance self, int localCount, boolean hasRefLocals) {
+		this.self = self;
+		ints = localCount == 0 ? Instance.NO_INTS : new int[localCount];
+		refs = hasRefLocals ? new Object[localCount] : Instance.NO_REFS;
+	}
+}
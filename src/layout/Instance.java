@@ -0,0 +1,25 @@
+package layout;
+
+/*
+ * 
+ * An object of one of the runtimes running on the JVM, with its fields as
+ * its class's shape places them. A kind of field the class has none of
+ * gets a shared empty array, so neither array is ever null.
+ * 
+ */
+
+public final class Instance {
+	final static int[] NO_INTS = new int[0];
+	final static Object[] NO_REFS = new Object[0];
+	
+	public final RuntimeClass runtimeClass;
+	public final int[] ints;
+	public final Object[] refs;
+	
+	public Instance(RuntimeClass runtimeClass) {
+		this.runtimeClass = runtimeClass;
+		Shape shape = runtimeClass.shape;
+		ints = shape.getIntFieldCount() == 0 ? NO_INTS : new int[shape.getIntFieldCount()];
+		refs = shape.getRefFieldCount() == 0 ? NO_REFS : new Object[shape.getRefFieldCount()];
+	}
+}
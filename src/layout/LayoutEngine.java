@@ -0,0 +1,100 @@
+package layout;
+
+import symbol.*;
+
+/*
+ * 
+ * Lays out every class of a symbol table, superclasses first. Objects start
+ * with a header word pointing at the class's vtable. Inherited fields keep
+ * their offsets, and the class's own fields follow them, largest first so
+ * that each is aligned to its size with as little padding as possible. The
+ * instance size is rounded up to a multiple of the word size.
+ * 
+ * Sizes are those of a 64-bit target: ints take 4 bytes, booleans 1, and
+ * references (objects and int arrays) a full word.
+ * 
+ * It also gives the Shape of every class, the layout the runtimes running
+ * on the JVM give their instances.
+ * 
+ */
+
+public class LayoutEngine {
+	public final static int WORD_SIZE = 8;
+	public final static int HEADER_SIZE = WORD_SIZE; // vtable pointer
+	
+	private final SymbolTable table;
+	private final ClassLayout[] layouts;
+	
+	public LayoutEngine(SymbolTable table) {
+		this.table = table;
+		layouts = new ClassLayout[table.getClassCount()];
+	}
+	
+	// lays out all classes, returning their layouts by class index
+	public ClassLayout[] layOut() {
+		for (int i = 0; i < layouts.length; i++)
+			layOut(table.getClass(i));
+		return layouts;
+	}
+	
+	public ClassLayout getLayout(ClassSymbol symbol) {
+		return layOut(symbol);
+	}
+	
+	// the shapes of all classes by class index
+	public Shape[] shapes() {
+		Shape[] shapes = new Shape[table.getClassCount()];
+		for (int i = 0; i < shapes.length; i++)
+			shapes[i] = new Shape(table.getClass(i));
+		return shapes;
+	}
+	
+	private ClassLayout layOut(ClassSymbol symbol) {
+		ClassLayout layout = layouts[symbol.getIndex()];
+		if (layout != null)
+			return layout;
+		
+		// the symbol table has already broken any extends cycle
+		ClassSymbol superClass = symbol.getSuperClass();
+		ClassLayout superLayout = superClass == null ? null : layOut(superClass);
+		int inherited = superClass == null ? 0 : superClass.getFieldCount();
+		int offset = superLayout == null ? HEADER_SIZE : superLayout.getFieldsEnd();
+		
+		int[] offsets = new int[symbol.getFieldCount()];
+		for (int slot = 0; slot < inherited; slot++)
+			offsets[slot] = superLayout.getFieldOffset(slot);
+		
+		// own fields by decreasing size, each aligned to its size
+		for (int size = WORD_SIZE; size >= 1; size /= 2) {
+			for (int slot = inherited; slot < offsets.length; slot++) {
+				if (sizeOf(symbol.getFieldType(slot)) != size)
+					continue;
+				offset = (offset + size - 1) / size * size;
+				offsets[slot] = offset;
+				offset += size;
+			}
+		}
+		int instanceSize = (offset + WORD_SIZE - 1) / WORD_SIZE * WORD_SIZE;
+		
+		// the symbol table keeps overriding methods in the slots they override
+		MethodSymbol[] vtable = new MethodSymbol[symbol.getMethodCount()];
+		for (int slot = 0; slot < vtable.length; slot++)
+			vtable[slot] = symbol.getMethod(slot);
+		
+		layout = new ClassLayout(symbol, superLayout, offsets, offset, instanceSize, vtable);
+		layouts[symbol.getIndex()] = layout;
+		return layout;
+	}
+	
+	// bytes taken by a field of the given type
+	public static int sizeOf(int type) {
+		switch (type) {
+			case Types.INT:
+				return 4;
+			case Types.BOOLEAN:
+				return 1;
+			default:
+				return WORD_SIZE; // references, and fields of unresolved type
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package layout;
+
+/*
+ * 
+ * A class as the runtimes running on the JVM see it: the shape of its
+ * instances and its vtable, by method slot. What a vtable holds is up to
+ * each runtime, which makes the array with the element type it runs
+ * methods with and casts what it looks up. Subclasses share the entries of
+ * the methods they inherit.
+ * 
+ */
+
+public final class RuntimeClass {
+	public final Shape shape;
+	public final Object[] vtable;
+	
+	public RuntimeClass(Shape shape, Object[] vtable) {
+		this.shape = shape;
+		this.vtable = vtable;
+	}
+}
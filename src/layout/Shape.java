@@ -0,0 +1,55 @@
+package layout;
+
+import symbol.ClassSymbol;
+import symbol.Types;
+
+/*
+ * 
+ * How the interpreters and VMs keep the fields of a class's instances: ints
+ * and booleans in an int array, and int arrays and objects in an Object
+ * array, each only as long as the fields of its kind. A field slot maps to
+ * its index in the array for its kind. Fields are numbered within each kind
+ * in slot order, and a subclass's slots start with its superclass's, so an
+ * inherited field has the same index in every subclass and a field access
+ * resolved in the declaring class works on instances of its subclasses.
+ * 
+ */
+
+public final class Shape {
+	private final int[] indices; // by field slot
+	private final boolean[] refFields; // likewise
+	private final int intFieldCount, refFieldCount;
+	
+	Shape(ClassSymbol symbol) {
+		indices = new int[symbol.getFieldCount()];
+		refFields = new boolean[indices.length];
+		int ints = 0, refs = 0;
+		for (int slot = 0; slot < indices.length; slot++) {
+			int type = symbol.getFieldType(slot);
+			refFields[slot] = type != Types.INT && type != Types.BOOLEAN;
+			indices[slot] = refFields[slot] ? refs++ : ints++;
+		}
+		intFieldCount = ints;
+		refFieldCount = refs;
+	}
+	
+	// length of an instance's int array
+	public int getIntFieldCount() {
+		return intFieldCount;
+	}
+	
+	// length of an instance's Object array
+	public int getRefFieldCount() {
+		return refFieldCount;
+	}
+	
+	// index of the field in the given slot within the array of its kind
+	public int getIndex(int slot) {
+		return indices[slot];
+	}
+	
+	// true if the field in the given slot is kept in the Object array
+	public boolean isRef(int slot) {
+		return refFields[slot];
+	}
+}
@@ -0,0 +1,272 @@
+package nodes;
+
+import ast.NodeKind;
+import layout.Frame;
+import nodes.VariableNodes.ReadIntLocal;
+
+/*
+ * 
+ * Literals and the int and boolean operators. Plus, Minus and LessThan start
+ * out uninitialized, and the first time one runs it replaces itself with a
+ * node for the shape of its operands: an int local and a literal, or two int
+ * locals, are read straight from the frame rather than through child nodes,
+ * which is what most loop counters and loop conditions come down to.
+ * Anything else gets the general node.
+ * 
+ */
+
+final class ArithmeticNodes {
+	private ArithmeticNodes() {}
+	
+	static final class IntLiteral extends ExpNode {
+		final int value;
+		
+		IntLiteral(int value) {
+			this.value = value;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return value;
+		}
+	}
+	
+	// a binary operator with its operands in child nodes
+	abstract static class BinaryNode extends ExpNode {
+		ExpNode lhs, rhs;
+		
+		BinaryNode(ExpNode lhs, ExpNode rhs) {
+			this.lhs = adopt(lhs);
+			this.rhs = adopt(rhs);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == lhs)
+				lhs = (ExpNode) replacement;
+			else
+				rhs = (ExpNode) replacement;
+		}
+	}
+	
+	// a Plus, Minus or LessThan that has not run yet
+	static final class UninitializedBinary extends BinaryNode {
+		private final int kind;
+		
+		UninitializedBinary(int kind, ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+			this.kind = kind;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return specialize().executeInt(frame);
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return specialize().executeBoolean(frame);
+		}
+		
+		private ExpNode specialize() {
+			boolean lhsLocal = lhs instanceof ReadIntLocal, rhsLocal = rhs instanceof ReadIntLocal;
+			boolean lhsLiteral = lhs instanceof IntLiteral, rhsLiteral = rhs instanceof IntLiteral;
+			switch (kind) {
+				
+				case NodeKind.PLUS:
+					if (lhsLocal && rhsLiteral)
+						return replace(new AddLocalConstant(slot(lhs), value(rhs)));
+					if (lhsLiteral && rhsLocal)
+						return replace(new AddLocalConstant(slot(rhs), value(lhs)));
+					return replace(new PlusNode(lhs, rhs));
+				
+				case NodeKind.MINUS:
+					if (lhsLocal && rhsLiteral)
+						return replace(new AddLocalConstant(slot(lhs), -value(rhs)));
+					return replace(new MinusNode(lhs, rhs));
+				
+				default:
+					if (lhsLocal && rhsLocal)
+						return replace(new LessThanLocals(slot(lhs), slot(rhs)));
+					if (lhsLocal && rhsLiteral)
+						return replace(new LessThanLocalConstant(slot(lhs), value(rhs)));
+					if (lhsLiteral && rhsLocal)
+						return replace(new LessThanConstantLocal(value(lhs), slot(rhs)));
+					return replace(new LessThanNode(lhs, rhs));
+			}
+		}
+		
+		private static int slot(ExpNode local) {
+			return ((ReadIntLocal) local).slot;
+		}
+		
+		private static int value(ExpNode literal) {
+			return ((IntLiteral) literal).value;
+		}
+	}
+	
+	static final class PlusNode extends BinaryNode {
+		
+		PlusNode(ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return lhs.executeInt(frame) + rhs.executeInt(frame);
+		}
+	}
+	
+	static final class MinusNode extends BinaryNode {
+		
+		MinusNode(ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return lhs.executeInt(frame) - rhs.executeInt(frame);
+		}
+	}
+	
+	static final class TimesNode extends BinaryNode {
+		
+		TimesNode(ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return lhs.executeInt(frame) * rhs.executeInt(frame);
+		}
+	}
+	
+	// local + constant, and local - constant with the constant negated
+	static final class AddLocalConstant extends ExpNode {
+		private final int slot, constant;
+		
+		AddLocalConstant(int slot, int constant) {
+			this.slot = slot;
+			this.constant = constant;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return frame.ints[slot] + constant;
+		}
+	}
+	
+	static final class LessThanNode extends BinaryNode {
+		
+		LessThanNode(ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return executeBoolean(frame) ? 1 : 0;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return lhs.executeInt(frame) < rhs.executeInt(frame);
+		}
+	}
+	
+	static final class LessThanLocals extends ExpNode {
+		private final int lhs, rhs;
+		
+		LessThanLocals(int lhs, int rhs) {
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return executeBoolean(frame) ? 1 : 0;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return frame.ints[lhs] < frame.ints[rhs];
+		}
+	}
+	
+	static final class LessThanLocalConstant extends ExpNode {
+		private final int slot, constant;
+		
+		LessThanLocalConstant(int slot, int constant) {
+			this.slot = slot;
+			this.constant = constant;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return executeBoolean(frame) ? 1 : 0;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return frame.ints[slot] < constant;
+		}
+	}
+	
+	static final class LessThanConstantLocal extends ExpNode {
+		private final int constant, slot;
+		
+		LessThanConstantLocal(int constant, int slot) {
+			this.constant = constant;
+			this.slot = slot;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return executeBoolean(frame) ? 1 : 0;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return constant < frame.ints[slot];
+		}
+	}
+	
+	static final class AndNode extends BinaryNode {
+		
+		AndNode(ExpNode lhs, ExpNode rhs) {
+			super(lhs, rhs);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return executeBoolean(frame) ? 1 : 0;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return lhs.executeBoolean(frame) && rhs.executeBoolean(frame);
+		}
+	}
+	
+	static final class NotNode extends ExpNode {
+		private ExpNode exp;
+		
+		NotNode(ExpNode exp) {
+			this.exp = adopt(exp);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return exp.executeBoolean(frame) ? 0 : 1;
+		}
+		
+		@Override
+		boolean executeBoolean(Frame frame) {
+			return !exp.executeBoolean(frame);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			exp = (ExpNode) replacement;
+		}
+	}
+}
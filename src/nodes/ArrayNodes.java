@@ -0,0 +1,131 @@
+package nodes;
+
+import layout.Frame;
+
+/*
+ * 
+ * Array expressions and assignments. A lookup starts out assuming its index
+ * is in bounds, which it checks itself, and the first index found out of
+ * bounds rewrites it to a lookup leaving the check to the JVM, which throws
+ * the ArrayIndexOutOfBoundsException. The JVM checks every access anyway,
+ * so this mostly keeps the failing path out of the common one, where the
+ * JIT can drop its own check as implied by the node's.
+ * 
+ */
+
+final class ArrayNodes {
+	private ArrayNodes() {}
+	
+	// the parent of a lookup's operands
+	abstract static class LookupNode extends ExpNode {
+		ExpNode array, index;
+		
+		LookupNode(ExpNode array, ExpNode index) {
+			this.array = adopt(array);
+			this.index = adopt(index);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == array)
+				array = (ExpNode) replacement;
+			else
+				index = (ExpNode) replacement;
+		}
+	}
+	
+	static final class InBoundsLookup extends LookupNode {
+		
+		InBoundsLookup(ExpNode array, ExpNode index) {
+			super(array, index);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			int[] values = (int[]) array.executeRef(frame);
+			int i = index.executeInt(frame);
+			if (i >= 0 && i < values.length)
+				return values[i];
+			return replace(new CheckedLookup(array, index)).lookup(values, i);
+		}
+	}
+	
+	static final class CheckedLookup extends LookupNode {
+		
+		CheckedLookup(ExpNode array, ExpNode index) {
+			super(array, index);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return lookup((int[]) array.executeRef(frame), index.executeInt(frame));
+		}
+		
+		int lookup(int[] values, int i) {
+			return values[i];
+		}
+	}
+	
+	static final class LengthNode extends ExpNode {
+		private ExpNode array;
+		
+		LengthNode(ExpNode array) {
+			this.array = adopt(array);
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return ((int[]) array.executeRef(frame)).length;
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			array = (ExpNode) replacement;
+		}
+	}
+	
+	static final class NewArrayNode extends ExpNode {
+		private ExpNode size;
+		
+		NewArrayNode(ExpNode size) {
+			this.size = adopt(size);
+		}
+		
+		@Override
+		Object executeRef(Frame frame) {
+			return new int[size.executeInt(frame)];
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			size = (ExpNode) replacement;
+		}
+	}
+	
+	static final class ArrayAssignNode extends StmNode {
+		private ExpNode array, index, value;
+		
+		ArrayAssignNode(ExpNode array, ExpNode index, ExpNode value) {
+			this.array = adopt(array);
+			this.index = adopt(index);
+			this.value = adopt(value);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			int[] values = (int[]) array.executeRef(frame);
+			int i = index.executeInt(frame);
+			values[i] = value.executeInt(frame);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == array)
+				array = (ExpNode) replacement;
+			else if (child == index)
+				index = (ExpNode) replacement;
+			else
+				value = (ExpNode) replacement;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package nodes;
+
+import java.io.PrintStream;
+
+import layout.Frame;
+
+// statements that only run other nodes
+final class ControlNodes {
+	private ControlNodes() {}
+	
+	static final class BlockNode extends StmNode {
+		private final StmNode[] stms;
+		
+		BlockNode(StmNode[] stms) {
+			this.stms = stms;
+			for (StmNode stm : stms)
+				adopt(stm);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			for (StmNode stm : stms)
+				stm.execute(frame);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			for (int i = 0; i < stms.length; i++) {
+				if (stms[i] == child)
+					stms[i] = (StmNode) replacement;
+			}
+		}
+	}
+	
+	static final class IfNode extends StmNode {
+		private ExpNode cond;
+		private StmNode thenStm, elseStm;
+		
+		IfNode(ExpNode cond, StmNode thenStm, StmNode elseStm) {
+			this.cond = adopt(cond);
+			this.thenStm = adopt(thenStm);
+			this.elseStm = adopt(elseStm);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			if (cond.executeBoolean(frame))
+				thenStm.execute(frame);
+			else
+				elseStm.execute(frame);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == cond)
+				cond = (ExpNode) replacement;
+			else if (child == thenStm)
+				thenStm = (StmNode) replacement;
+			else
+				elseStm = (StmNode) replacement;
+		}
+	}
+	
+	static final class WhileNode extends StmNode {
+		private ExpNode cond;
+		private StmNode body;
+		
+		WhileNode(ExpNode cond, StmNode body) {
+			this.cond = adopt(cond);
+			this.body = adopt(body);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			while (cond.executeBoolean(frame))
+				body.execute(frame);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == cond)
+				cond = (ExpNode) replacement;
+			else
+				body = (StmNode) replacement;
+		}
+	}
+	
+	static final class PrintNode extends StmNode {
+		private final PrintStream out;
+		private ExpNode exp;
+		
+		PrintNode(PrintStream out, ExpNode exp) {
+			this.out = out;
+			this.exp = adopt(exp);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			out.println(exp.executeInt(frame));
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			exp = (ExpNode) replacement;
+		}
+	}
+}
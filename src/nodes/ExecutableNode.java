@@ -0,0 +1,33 @@
+package nodes;
+
+/*
+ * 
+ * The base of every node of the executable tree. A node may replace itself
+ * in its parent while running, typically with a version specialized to what
+ * it has seen so far, and the parent runs the replacement from then on.
+ * Parents hold their children in plain fields, so each parent knows how to
+ * swap one of them out.
+ * 
+ */
+
+abstract class ExecutableNode {
+	ExecutableNode parent;
+	
+	// makes this node the parent of a child, returning the child
+	<T extends ExecutableNode> T adopt(T child) {
+		child.parent = this;
+		return child;
+	}
+	
+	// puts a replacement in this node's place in its parent, returning the replacement
+	<T extends ExecutableNode> T replace(T replacement) {
+		parent.replaceChild(this, replacement);
+		replacement.parent = parent;
+		return replacement;
+	}
+	
+	// points the field holding a child at its replacement
+	void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+		throw new IllegalStateException(getClass().getSimpleName() + " has no child to replace");
+	}
+}
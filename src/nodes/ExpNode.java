@@ -0,0 +1,28 @@
+package nodes;
+
+import layout.Frame;
+
+/*
+ * 
+ * An expression node. Every expression has a static type, so it is executed
+ * either as an int, which booleans are as 0 and 1, or as a reference to an
+ * int array or an Instance, and values are never boxed. Conditions are
+ * executed as Java booleans, which comparisons produce without going
+ * through 0 and 1.
+ * 
+ */
+
+abstract class ExpNode extends ExecutableNode {
+	
+	int executeInt(Frame frame) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " is not an int or boolean expression");
+	}
+	
+	Object executeRef(Frame frame) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " is not an array or object expression");
+	}
+	
+	boolean executeBoolean(Frame frame) {
+		return executeInt(frame) != 0;
+	}
+}
@@ -0,0 +1,41 @@
+package nodes;
+
+import layout.Frame;
+
+/*
+ * 
+ * The root of a method's tree: its statements and its return expression.
+ * Calls take the kinds of the arguments from the statically resolved
+ * target, which every override shares, and make frames with room for the
+ * locals of any method they can dispatch to.
+ * 
+ */
+
+final class MethodNode extends ExecutableNode {
+	private StmNode body;
+	private ExpNode returnExp;
+	
+	// sets the tree once built, which may call back into this method
+	void setTree(StmNode body, ExpNode returnExp) {
+		this.body = adopt(body);
+		this.returnExp = adopt(returnExp);
+	}
+	
+	int callInt(Frame frame) {
+		body.execute(frame);
+		return returnExp.executeInt(frame);
+	}
+	
+	Object callRef(Frame frame) {
+		body.execute(frame);
+		return returnExp.executeRef(frame);
+	}
+	
+	@Override
+	void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+		if (child == body)
+			body = (StmNode) replacement;
+		else
+			returnExp = (ExpNode) replacement;
+	}
+}
@@ -0,0 +1,178 @@
+package nodes;
+
+import java.io.PrintStream;
+
+import ast.*;
+import layout.RuntimeClass;
+import layout.Shape;
+import nodes.ArithmeticNodes.*;
+import nodes.ArrayNodes.*;
+import nodes.ControlNodes.*;
+import nodes.ObjectNodes.*;
+import nodes.VariableNodes.*;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Builds the executable tree of each body from its ast nodes. Variables are
+ * resolved to local slots or field indices and calls to vtable slots here,
+ * once, so the tree never looks up a name. Nodes that specialize themselves
+ * are built in their initial state.
+ * 
+ */
+
+class NodeBuilder {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final PrintStream out;
+	private final RuntimeClass[] classes;
+	
+	NodeBuilder(SymbolTable table, TypeChecker checker, PrintStream out, RuntimeClass[] classes) {
+		this.table = table;
+		this.checker = checker;
+		this.out = out;
+		this.classes = classes;
+	}
+	
+	// the tree of a method's body, or of the main class's statement when method is null
+	StmNode statement(Statement stm, MethodSymbol method) {
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				return block(((Block) stm).getStms(), method);
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				return new IfNode(exp(ifStm.getCondExp(), method), statement(ifStm.getTrueStm(), method),
+						statement(ifStm.getFalseStm(), method));
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				return new WhileNode(exp(whileStm.getCondExp(), method), statement(whileStm.getStm(), method));
+			
+			case NodeKind.PRINT:
+				return new PrintNode(out, exp(((Print) stm).getExp(), method));
+			
+			case NodeKind.ASSIGN:
+				ExpNode value = exp(((Assign) stm).getValue(), method);
+				int local = table.getLocalSlot(stm);
+				if (local >= 0)
+					return isRef(method.getLocalType(local)) ? new WriteRefLocal(local, value) : new WriteIntLocal(local, value);
+				Shape shape = classes[method.getOwner().getIndex()].shape;
+				int field = table.getFieldSlot(stm);
+				return shape.isRef(field) ? new WriteRefField(shape.getIndex(field), value)
+						: new WriteIntField(shape.getIndex(field), value);
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign assign = (ArrayAssign) stm;
+				return new ArrayAssignNode(variable(stm, method), exp(assign.getIndex(), method),
+						exp(assign.getValue(), method));
+			
+			default:
+				throw new IllegalArgumentException("not a statement: " + stm.getClass().getSimpleName());
+		}
+	}
+	
+	BlockNode block(StatementList stms, MethodSymbol method) {
+		StmNode[] nodes = new StmNode[stms.size()];
+		for (int i = 0; i < nodes.length; i++)
+			nodes[i] = statement(stms.elementAt(i), method);
+		return new BlockNode(nodes);
+	}
+	
+	ExpNode exp(Exp exp, MethodSymbol method) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				return new AndNode(exp(and.getLHS(), method), exp(and.getRHS(), method));
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThan = (LessThan) exp;
+				return new UninitializedBinary(NodeKind.LESS_THAN, exp(lessThan.getLHS(), method),
+						exp(lessThan.getRHS(), method));
+			
+			case NodeKind.PLUS:
+				Plus plus = (Plus) exp;
+				return new UninitializedBinary(NodeKind.PLUS, exp(plus.getLHS(), method), exp(plus.getRHS(), method));
+			
+			case NodeKind.MINUS:
+				Minus minus = (Minus) exp;
+				return new UninitializedBinary(NodeKind.MINUS, exp(minus.getLHS(), method), exp(minus.getRHS(), method));
+			
+			case NodeKind.TIMES:
+				Times times = (Times) exp;
+				return new TimesNode(exp(times.getLHS(), method), exp(times.getRHS(), method));
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup lookup = (ArrayLookup) exp;
+				return new InBoundsLookup(exp(lookup.getArray(), method), exp(lookup.getIndex(), method));
+			
+			case NodeKind.ARRAY_LENGTH:
+				return new LengthNode(exp(((ArrayLength) exp).getArray(), method));
+			
+			case NodeKind.CALL:
+				Call call = (Call) exp;
+				MethodSymbol target = checker.getTarget(call);
+				ExpList args = call.getArgs();
+				ExpNode[] argNodes = new ExpNode[args.size()];
+				boolean[] refArgs = new boolean[argNodes.length];
+				for (int i = 0; i < argNodes.length; i++) {
+					argNodes[i] = exp(args.elementAt(i), method);
+					refArgs[i] = isRef(target.getParamType(i));
+				}
+				int frameLocals = 0;
+				boolean frameRefs = false;
+				for (MethodSymbol implementation : table.getImplementations(target)) {
+					frameLocals = Math.max(frameLocals, implementation.getLocalCount());
+					for (int local = 0; local < implementation.getLocalCount(); local++)
+						frameRefs |= isRef(implementation.getLocalType(local));
+				}
+				return new CallNode(exp(call.getCallee(), method), argNodes, refArgs, target.getSlot(), frameLocals,
+						frameRefs);
+			
+			case NodeKind.INTEGER_LITERAL:
+				return new IntLiteral(((IntegerLiteral) exp).getValue());
+			
+			case NodeKind.TRUE:
+				return new IntLiteral(1);
+			
+			case NodeKind.FALSE:
+				return new IntLiteral(0);
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return variable(exp, method);
+			
+			case NodeKind.THIS:
+				return new ThisNode();
+			
+			case NodeKind.NEW_ARRAY:
+				return new NewArrayNode(exp(((NewArray) exp).getArraySize(), method));
+			
+			case NodeKind.NEW_OBJECT:
+				return new NewObjectNode(classes[table.getNewClass((NewObject) exp).getIndex()]);
+			
+			case NodeKind.NOT:
+				return new NotNode(exp(((Not) exp).getExp(), method));
+			
+			default:
+				throw new IllegalArgumentException("not an expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// a read of the variable a reference or array assignment resolved to
+	private ExpNode variable(Node ref, MethodSymbol method) {
+		int local = table.getLocalSlot(ref);
+		if (local >= 0)
+			return isRef(method.getLocalType(local)) ? new ReadRefLocal(local) : new ReadIntLocal(local);
+		Shape shape = classes[method.getOwner().getIndex()].shape;
+		int field = table.getFieldSlot(ref);
+		return shape.isRef(field) ? new ReadRefField(shape.getIndex(field)) : new ReadIntField(shape.getIndex(field));
+	}
+	
+	// true if values of the type are kept in Object slots rather than int slots
+	static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+}
@@ -0,0 +1,81 @@
+package nodes;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ast.*;
+import interp.InterpreterError;
+import layout.Frame;
+import layout.LayoutEngine;
+import layout.RuntimeClass;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * An interpreter for programs that type checked without errors, running a
+ * tree of executable nodes built from the ast. Each node executes itself
+ * through a virtual call rather than through a switch on its kind, and some
+ * rewrite themselves as they run into versions specialized to what they
+ * have seen: calls cache the classes of their receivers and the methods
+ * they dispatch to, Plus, Minus and LessThan read local and literal
+ * operands directly, and array lookups assume their index is in bounds
+ * until it is not.
+ * 
+ * The tree is built once and keeps its specializations, so running the
+ * same interpreter again starts from where the last run left off. Objects
+ * and frames keep ints and references in separate arrays by slot, as in the
+ * tree-walking interpreter.
+ * 
+ */
+
+public class NodeInterpreter {
+	private final PrintStream out;
+	private final StmNode main;
+	
+	public NodeInterpreter(Program prog, SymbolTable table, TypeChecker checker, PrintStream out) {
+		this.out = out;
+		
+		// classes and their vtables, sharing one MethodNode per declared method
+		RuntimeClass[] classes = new RuntimeClass[table.getClassCount()];
+		Shape[] shapes = new LayoutEngine(table).shapes();
+		for (ClassSymbol symbol : table.getClasses())
+			classes[symbol.getIndex()] = new RuntimeClass(shapes[symbol.getIndex()], new MethodNode[symbol.getMethodCount()]);
+		Map<MethodSymbol, MethodNode> methods = new IdentityHashMap<MethodSymbol, MethodNode>();
+		for (ClassSymbol symbol : table.getClasses()) {
+			for (int slot = 0; slot < symbol.getMethodCount(); slot++) {
+				MethodSymbol method = symbol.getMethod(slot);
+				MethodNode node = methods.get(method);
+				if (node == null) {
+					node = new MethodNode();
+					methods.put(method, node);
+				}
+				classes[symbol.getIndex()].vtable[slot] = node;
+			}
+		}
+		
+		// trees, built once every class can be referred to
+		NodeBuilder builder = new NodeBuilder(table, checker, out, classes);
+		for (Map.Entry<MethodSymbol, MethodNode> entry : methods.entrySet()) {
+			MethodDecl decl = entry.getKey().getDecl();
+			entry.getValue().setTree(builder.block(decl.getStms(), entry.getKey()),
+					builder.exp(decl.getReturnExp(), entry.getKey()));
+		}
+		main = builder.statement(prog.getMainClass().getStm(), null);
+	}
+	
+	// runs the main class's statement
+	public void run() {
+		try {
+			main.execute(new Frame(null, 0, false));
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new InterpreterError(e.toString(), e);
+		} catch (StackOverflowError e) {
+			throw new InterpreterError(e.toString(), e);
+		} finally {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package nodes;
+
+import layout.Frame;
+import layout.Instance;
+import layout.RuntimeClass;
+
+/*
+ * 
+ * This, NewObject and calls. A call finds the method to run through a
+ * chain of dispatch nodes, which starts out as a single uninitialized node.
+ * Each receiver class the call has not seen before adds a node to the chain
+ * that checks for exactly that class and holds the method it dispatches
+ * to, so a call site seeing one or a few classes finds its target with
+ * reference comparisons. A site that sees more than MAX_CACHED classes
+ * replaces the whole chain with a vtable lookup.
+ * 
+ */
+
+final class ObjectNodes {
+	final static int MAX_CACHED = 4;
+	
+	private ObjectNodes() {}
+	
+	static final class ThisNode extends ExpNode {
+		
+		@Override
+		Object executeRef(Frame frame) {
+			return frame.self;
+		}
+	}
+	
+	static final class NewObjectNode extends ExpNode {
+		private final RuntimeClass runtimeClass;
+		
+		NewObjectNode(RuntimeClass runtimeClass) {
+			this.runtimeClass = runtimeClass;
+		}
+		
+		@Override
+		Object executeRef(Frame frame) {
+			return new Instance(runtimeClass);
+		}
+	}
+	
+	static final class CallNode extends ExpNode {
+		private ExpNode receiver;
+		private final ExpNode[] args;
+		private final boolean[] refArgs;
+		private final int frameLocals;
+		private final boolean frameRefs;
+		private DispatchNode dispatch;
+		
+		// a call whose frames have room for the locals of any method it can dispatch to
+		CallNode(ExpNode receiver, ExpNode[] args, boolean[] refArgs, int vtableSlot, int frameLocals, boolean frameRefs) {
+			this.receiver = adopt(receiver);
+			this.args = args;
+			for (ExpNode arg : args)
+				adopt(arg);
+			this.refArgs = refArgs;
+			this.frameLocals = frameLocals;
+			this.frameRefs = frameRefs;
+			dispatch = adopt(new UninitializedDispatch(vtableSlot, 0));
+		}
+		
+		// as in Java, a null receiver only fails once the arguments are evaluated
+		@Override
+		int executeInt(Frame frame) {
+			Frame callee = enter(frame);
+			return dispatch.execute(callee.self.runtimeClass).callInt(callee);
+		}
+		
+		@Override
+		Object executeRef(Frame frame) {
+			Frame callee = enter(frame);
+			return dispatch.execute(callee.self.runtimeClass).callRef(callee);
+		}
+		
+		// a frame holding the receiver with the arguments evaluated into its parameters
+		private Frame enter(Frame caller) {
+			Frame frame = new Frame((Instance) receiver.executeRef(caller), frameLocals, frameRefs);
+			for (int i = 0; i < args.length; i++) {
+				if (refArgs[i])
+					frame.refs[i] = args[i].executeRef(caller);
+				else
+					frame.ints[i] = args[i].executeInt(caller);
+			}
+			return frame;
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			if (child == receiver)
+				receiver = (ExpNode) replacement;
+			else if (child == dispatch)
+				dispatch = (DispatchNode) replacement;
+			else {
+				for (int i = 0; i < args.length; i++) {
+					if (args[i] == child)
+						args[i] = (ExpNode) replacement;
+				}
+			}
+		}
+	}
+	
+	// finds the method a call runs for a receiver class
+	abstract static class DispatchNode extends ExecutableNode {
+		abstract MethodNode execute(RuntimeClass runtimeClass);
+	}
+	
+	// the end of a chain, reached by classes not cached yet
+	static final class UninitializedDispatch extends DispatchNode {
+		private final int vtableSlot, depth;
+		
+		UninitializedDispatch(int vtableSlot, int depth) {
+			this.vtableSlot = vtableSlot;
+			this.depth = depth;
+		}
+		
+		@Override
+		MethodNode execute(RuntimeClass runtimeClass) {
+			MethodNode target = (MethodNode) runtimeClass.vtable[vtableSlot];
+			if (depth < MAX_CACHED)
+				replace(new CachedDispatch(runtimeClass, target, new UninitializedDispatch(vtableSlot, depth + 1)));
+			else {
+				// too many classes: the chain's first node gives way to a vtable lookup
+				ExecutableNode first = this;
+				while (first.parent instanceof DispatchNode)
+					first = first.parent;
+				first.replace(new MegamorphicDispatch(vtableSlot));
+			}
+			return target;
+		}
+	}
+	
+	static final class CachedDispatch extends DispatchNode {
+		private final RuntimeClass cachedClass;
+		private final MethodNode target;
+		private DispatchNode next;
+		
+		CachedDispatch(RuntimeClass cachedClass, MethodNode target, DispatchNode next) {
+			this.cachedClass = cachedClass;
+			this.target = target;
+			this.next = adopt(next);
+		}
+		
+		@Override
+		MethodNode execute(RuntimeClass runtimeClass) {
+			if (runtimeClass == cachedClass)
+				return target;
+			return next.execute(runtimeClass);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			next = (DispatchNode) replacement;
+		}
+	}
+	
+	static final class MegamorphicDispatch extends DispatchNode {
+		private final int vtableSlot;
+		
+		MegamorphicDispatch(int vtableSlot) {
+			this.vtableSlot = vtableSlot;
+		}
+		
+		@Override
+		MethodNode execute(RuntimeClass runtimeClass) {
+			return (MethodNode) runtimeClass.vtable[vtableSlot];
+		}
+	}
+}
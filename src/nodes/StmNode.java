@@ -0,0 +1,8 @@
+package nodes;
+
+import layout.Frame;
+
+// a statement node
+abstract class StmNode extends ExecutableNode {
+	abstract void execute(Frame frame);
+}
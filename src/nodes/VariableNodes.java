@@ -0,0 +1,124 @@
+package nodes;
+
+import layout.Frame;
+
+// reads and assignments of locals and fields, resolved to their local slots and field indices when built
+final class VariableNodes {
+	private VariableNodes() {}
+	
+	static final class ReadIntLocal extends ExpNode {
+		final int slot;
+		
+		ReadIntLocal(int slot) {
+			this.slot = slot;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return frame.ints[slot];
+		}
+	}
+	
+	static final class ReadRefLocal extends ExpNode {
+		private final int slot;
+		
+		ReadRefLocal(int slot) {
+			this.slot = slot;
+		}
+		
+		@Override
+		Object executeRef(Frame frame) {
+			return frame.refs[slot];
+		}
+	}
+	
+	static final class ReadIntField extends ExpNode {
+		private final int slot;
+		
+		ReadIntField(int slot) {
+			this.slot = slot;
+		}
+		
+		@Override
+		int executeInt(Frame frame) {
+			return frame.self.ints[slot];
+		}
+	}
+	
+	static final class ReadRefField extends ExpNode {
+		private final int slot;
+		
+		ReadRefField(int slot) {
+			this.slot = slot;
+		}
+		
+		@Override
+		Object executeRef(Frame frame) {
+			return frame.self.refs[slot];
+		}
+	}
+	
+	// the parent of an assignment's value
+	abstract static class WriteNode extends StmNode {
+		final int slot;
+		ExpNode value;
+		
+		WriteNode(int slot, ExpNode value) {
+			this.slot = slot;
+			this.value = adopt(value);
+		}
+		
+		@Override
+		void replaceChild(ExecutableNode child, ExecutableNode replacement) {
+			value = (ExpNode) replacement;
+		}
+	}
+	
+	static final class WriteIntLocal extends WriteNode {
+		
+		WriteIntLocal(int slot, ExpNode value) {
+			super(slot, value);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			frame.ints[slot] = value.executeInt(frame);
+		}
+	}
+	
+	static final class WriteRefLocal extends WriteNode {
+		
+		WriteRefLocal(int slot, ExpNode value) {
+			super(slot, value);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			frame.refs[slot] = value.executeRef(frame);
+		}
+	}
+	
+	static final class WriteIntField extends WriteNode {
+		
+		WriteIntField(int slot, ExpNode value) {
+			super(slot, value);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			frame.self.ints[slot] = value.executeInt(frame);
+		}
+	}
+	
+	static final class WriteRefField extends WriteNode {
+		
+		WriteRefField(int slot, ExpNode value) {
+			super(slot, value);
+		}
+		
+		@Override
+		void execute(Frame frame) {
+			frame.self.refs[slot] = value.executeRef(frame);
+		}
+	}
+}
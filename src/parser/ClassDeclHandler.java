@@ -0,0 +1,18 @@
+package parser;
+
+import ast.ClassDecl;
+import ast.MainClass;
+
+/*
+ * 
+ * Receives the classes of a program one at a time from
+ * Parser.parseProgram(ClassDeclHandler), each as soon as it has been parsed.
+ * The parser keeps no reference to a class once it has been handed over, so
+ * a handler that drops it lets it be collected.
+ * 
+ */
+
+public interface ClassDeclHandler {
+	public void handleMainClass(MainClass main);
+	public void handleClassDecl(ClassDecl classDecl);
+}
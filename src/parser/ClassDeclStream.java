@@ -0,0 +1,138 @@
+package parser;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+import ast.ClassDecl;
+import ast.MainClass;
+import ast.Position;
+
+/*
+ * 
+ * Runs a parser on a background thread and publishes the classes it parses
+ * into a bounded queue, so a consumer (a checker, code generator, printer,
+ * etc.) can process each class while the next ones are being parsed. The
+ * parser blocks whenever the queue is full, which bounds the number of
+ * parsed classes held in memory at any time. A stream has one consumer.
+ * 
+ * Each call to next() also lets the parser's line map forget the lines
+ * before the class it returns, so the consumer can still describe positions
+ * in that class but not in the ones before it.
+ * 
+ * A consumer that stops before the end closes the stream, which interrupts
+ * the parser, whether it is blocked on the full queue or still parsing,
+ * and drops the classes already queued. The parser gives up at the next
+ * class it would publish, so it does not stay blocked on the queue for the
+ * life of the program.
+ * 
+ */
+
+public class ClassDeclStream implements AutoCloseable {
+	private final BlockingQueue<Object> queue;
+	private final LineMap lineMap;
+	private final Thread producer;
+	private volatile Throwable failure; // thrown by the parser, if anything
+	private volatile boolean closed;
+	private MainClass main; // only touched by the consuming thread
+	
+	// marks the end of the program in the queue
+	private final static Object END = new Object();
+	
+	public ClassDeclStream(final Parser parser, int capacity) {
+		queue = new ArrayBlockingQueue<Object>(capacity);
+		lineMap = parser.getLineMap();
+		
+		producer = new Thread(() -> {
+			try {
+				try {
+					parser.parseProgram(new ClassDeclHandler() {
+						@Override
+						public void handleMainClass(MainClass main) {
+							publish(main);
+						}
+						
+						@Override
+						public void handleClassDecl(ClassDecl classDecl) {
+							publish(classDecl);
+						}
+					});
+				} catch (CancellationException e) {
+					throw e;
+				} catch (RuntimeException | Error e) {
+					failure = e;
+				}
+				publish(END);
+			} catch (CancellationException e) {
+				// closed, so nothing more is taken
+			}
+		}, "ClassDeclStream");
+		
+		producer.setDaemon(true);
+		producer.start();
+	}
+	
+	// blocks until the main class has been parsed
+	public MainClass getMainClass() throws InterruptedException {
+		if (main == null) {
+			Object item = take();
+			if (item == END)
+				return null;
+			main = (MainClass) item;
+		}
+		
+		return main;
+	}
+	
+	// blocks until the next class has been parsed; null once all have been
+	public ClassDecl next() throws InterruptedException {
+		// the main class always comes first in the queue
+		if (getMainClass() == null)
+			return null;
+		
+		Object item = take();
+		if (item == END)
+			return null;
+		
+		ClassDecl classDecl = (ClassDecl) item;
+		lineMap.discardBefore(Position.getStart(classDecl.getPosition()));
+		return classDecl;
+	}
+	
+	// stops the parser and drops what it parsed; next() returns null from then on
+	@Override
+	public void close() {
+		closed = true;
+		producer.interrupt();
+		queue.clear();
+	}
+	
+	// takes the next item, rethrowing anything that stopped the parser early
+	private Object take() throws InterruptedException {
+		if (closed)
+			return END;
+		Object item = queue.take();
+		if (item == END) {
+			queue.put(END); // keep returning the end on later calls
+			
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+		}
+		return item;
+	}
+	
+	// queues an item for the consumer, abandoning the parse once the stream is closed
+	private void publish(Object item) {
+		try {
+			if (!closed) {
+				queue.put(item);
+				return;
+			}
+		} catch (InterruptedException e) {
+			// closed while waiting for room
+		}
+		throw new CancellationException("the stream was closed");
+	}
+}
@@ -14,7 +14,10 @@ import java.util.Map;
  * is returned with a type of UNKNOWN. A token of type EOF is returned by the
  * lexer when the character stream has been entirely consumed. The lexer also
  * records the semantic values for token types ID (idVal) and INT_CONST 
- * (intVal). Line and column numbers are calculated and stored with each token.
+ * (intVal). Line and column numbers are calculated and stored with each token,
+ * along with the token's character offsets in the stream. The line breaks
+ * seen along the way are recorded in a LineMap, which maps offsets back to
+ * the same line and column numbers.
  * 
  */
 
@@ -24,7 +27,12 @@ public class Lexer {
 	private int intVal; // semantic value for INT_CONST token types
 	private int nextChar;
 	private int lineNum = 1, colNum = 1; // current line and column numbers
+	private int readCount; // number of chars read from the stream
+	private int tokenStart; // offset of the first char of the current token
+	private LineMap lineMap = new LineMap();
 	private Token next; // used by peek()
+	private String nextIdVal; // semantic values of the peeked token
+	private int nextIntVal;
 	
 	// hash tables for fast lookup
 	private final static Map<String, TokenType> reservedWords;
@@ -80,22 +88,41 @@ public class Lexer {
 		return intVal;
 	}
 	
+	// offsets and line numbers of the input read so far
+	public LineMap getLineMap() {
+		return lineMap;
+	}
+	
 	// handles I/O for char stream
 	private int getChar() {
 		try {
-			return stream.read();
+			int c = stream.read();
+			if (c != -1)
+				readCount++;
+			return c;
 		} catch (IOException e) {
 			System.err.println("IOException occured in Lexer::getChar()");
 			return -1;
 		}
 	}
 	
+	// offset of nextChar in the stream
+	private int offset() {
+		return (nextChar == -1) ? readCount : readCount - 1;
+	}
+	
+	// creates a token that started at tokenStart and ends before nextChar
+	private Token newToken(TokenType type, int col) {
+		return new Token(type, lineNum, col, tokenStart, offset());
+	}
+	
 	// detect and skip possible '\n', '\r' and '\rn' line breaks
 	private boolean skipNewline() {
 		if (nextChar == '\n') {
 			lineNum++;
 			colNum = 1;
 			nextChar = getChar();
+			lineMap.addLine(offset());
 			
 			return true;
 		}
@@ -108,6 +135,7 @@ public class Lexer {
 			// skip over next char if '\n'
 			if (nextChar == '\n')
 				nextChar = getChar();
+			lineMap.addLine(offset());
 			
 			return true;
 		}
@@ -119,8 +147,16 @@ public class Lexer {
 	// return the next token without "consuming" it
 	public Token peek() {
 		// advance token only if its been reset by getToken()
-		if (next == null)
+		// keep the semantic values of the current token until next is consumed
+		if (next == null) {
+			String currentIdVal = idVal;
+			int currentIntVal = intVal;
 			next = getToken();
+			nextIdVal = idVal;
+			nextIntVal = intVal;
+			idVal = currentIdVal;
+			intVal = currentIntVal;
+		}
 		
 		return next;
 	}
@@ -131,6 +167,8 @@ public class Lexer {
 		if (next != null) {
 			Token token = next;
 			next = null; // allow peek to call for next token
+			idVal = nextIdVal;
+			intVal = nextIntVal;
 			return token;
 		}
 		
@@ -143,10 +181,14 @@ public class Lexer {
 			}
 			
 			// offset colNum for tab chars
-			if (nextChar == '\t')
+			if (nextChar == '\t') {
 				colNum += 3;
+				lineMap.addTab(offset());
+			}
 		}
 		
+		tokenStart = offset();
+		
 		// identifier or reserved word ([a-zA-Z][a-zA-Z0-9_]*)
 		if (Character.isLetter(nextChar)) {
 			// create new idVal starting with first char of identifier
@@ -164,10 +206,10 @@ public class Lexer {
 			// check if identifier is a reserved word
 			TokenType type = reservedWords.get(idVal);
 			if (type != null)
-				return new Token(type, lineNum, colNum - idVal.length());
+				return newToken(type, colNum - idVal.length());
 			
 			// token is an identifier
-			return new Token(TokenType.ID, lineNum, colNum - idVal.length());
+			return newToken(TokenType.ID, colNum - idVal.length());
 		}
 		
 		// integer literal ([0-9]+)
@@ -187,7 +229,7 @@ public class Lexer {
 			// convert string representation to integer value
 			intVal = Integer.parseInt(numString);
 			
-			return new Token(TokenType.INT_CONST, lineNum, colNum - numString.length());
+			return newToken(TokenType.INT_CONST, colNum - numString.length());
 		}
 		
 		// check for start of comment
@@ -255,12 +297,12 @@ public class Lexer {
 			}
 			
 			// neither single-line nor multi-line comment
-			return new Token(TokenType.UNKNOWN, lineNum, colNum - 1);
+			return newToken(TokenType.UNKNOWN, colNum - 1);
 		}
 		
 		// EOF reached
 		if (nextChar == -1)
-			return new Token(TokenType.EOF, lineNum, colNum);
+			return newToken(TokenType.EOF, colNum);
 		
 		// check for binops
 		switch (nextChar) {
@@ -271,30 +313,31 @@ public class Lexer {
 				
 				// check if next char is '&' to match '&&' binop
 				if (nextChar == '&') {
+					colNum++;
 					nextChar = getChar();
-					return new Token(TokenType.AND, lineNum, colNum - 2);
+					return newToken(TokenType.AND, colNum - 2);
 				} else
-					return new Token(TokenType.UNKNOWN, lineNum, colNum - 1);
+					return newToken(TokenType.UNKNOWN, colNum - 1);
 				
 			case '<':
 				colNum++;
 				nextChar = getChar();
-				return new Token(TokenType.LT, lineNum, colNum - 1);
+				return newToken(TokenType.LT, colNum - 1);
 				
 			case '+':
 				colNum++;
 				nextChar = getChar();
-				return new Token(TokenType.PLUS, lineNum, colNum - 1);
+				return newToken(TokenType.PLUS, colNum - 1);
 				
 			case '-':
 				colNum++;
 				nextChar = getChar();
-				return new Token(TokenType.MINUS, lineNum, colNum - 1);
+				return newToken(TokenType.MINUS, colNum - 1);
 				
 			case '*':
 				colNum++;
 				nextChar = getChar();
-				return new Token(TokenType.TIMES, lineNum, colNum - 1);
+				return newToken(TokenType.TIMES, colNum - 1);
 		}
 		
 		// check for punctuation
@@ -304,9 +347,9 @@ public class Lexer {
 		
 		// found punctuation token
 		if (type != null)
-			return new Token(type, lineNum, colNum - 1);
+			return newToken(type, colNum - 1);
 		
 		// token type is unknown
-		return new Token(TokenType.UNKNOWN, lineNum, colNum - 1);
+		return newToken(TokenType.UNKNOWN, colNum - 1);
 	}
 }
@@ -0,0 +1,112 @@
+package parser;
+
+import java.util.Arrays;
+
+import ast.Position;
+
+/*
+ * 
+ * A line map records where each line of an input file starts, so character
+ * offsets (such as those packed into AST node positions) can be turned back
+ * into line and column numbers on demand. It also records where the lexer
+ * widened a tab, so the columns computed here match the ones on tokens.
+ * Lookups are binary searches over int arrays.
+ * 
+ * When a file is parsed as a stream, discardBefore() drops the lines that
+ * precede the classes still in use, which keeps the map from growing with
+ * the size of the file. Since the lexer may then run on another thread than
+ * the one doing lookups, all methods are synchronized.
+ * 
+ */
+
+public class LineMap {
+	private int[] lineStarts = new int[64]; // offset of the first char of each line
+	private int lineCount = 1; // line 1 starts at offset 0
+	private int firstLine = 1; // line number of lineStarts[0]
+	private int[] tabs = new int[16]; // offsets where columns jump ahead
+	private int tabCount;
+	
+	private final static int TAB_WIDTH = 4; // as counted by the lexer
+	
+	// called by the lexer at the start of each new line
+	synchronized void addLine(int offset) {
+		if (lineCount == lineStarts.length)
+			lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+		lineStarts[lineCount++] = offset;
+	}
+	
+	// called by the lexer when it counts the tab at offset as a full tab stop
+	synchronized void addTab(int offset) {
+		if (tabCount == tabs.length)
+			tabs = Arrays.copyOf(tabs, tabCount * 2);
+		tabs[tabCount++] = offset;
+	}
+	
+	// forgets the lines before the one holding offset
+	public synchronized void discardBefore(int offset) {
+		int line = findLine(offset);
+		
+		// shift the remaining lines and tabs down to the front
+		lineCount -= line;
+		System.arraycopy(lineStarts, line, lineStarts, 0, lineCount);
+		firstLine += line;
+		
+		int tab = countTabs(lineStarts[0]);
+		tabCount -= tab;
+		System.arraycopy(tabs, tab, tabs, 0, tabCount);
+	}
+	
+	// number of lines seen so far
+	public synchronized int getLineCount() {
+		return firstLine + lineCount - 1;
+	}
+	
+	// line number (starting at 1) of the char at offset
+	public synchronized int getLineNum(int offset) {
+		return firstLine + findLine(offset);
+	}
+	
+	// column number (starting at 1) of the char at offset
+	public synchronized int getColNum(int offset) {
+		int lineStart = lineStarts[findLine(offset)];
+		int widened = countTabs(offset) - countTabs(lineStart);
+		return offset - lineStart + 1 + widened * (TAB_WIDTH - 1);
+	}
+	
+	// describes a node position as "line L, column C"
+	public String describe(long position) {
+		int start = Position.getStart(position);
+		return "line " + getLineNum(start) + ", column " + getColNum(start);
+	}
+	
+	// index of the last line starting at or before offset
+	private int findLine(int offset) {
+		if (offset < lineStarts[0])
+			throw new IllegalArgumentException("offset " + offset + " precedes the lines kept");
+		
+		int low = 0, high = lineCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (lineStarts[mid] <= offset)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		
+		return low;
+	}
+	
+	// number of widened tabs before offset
+	private int countTabs(int offset) {
+		int low = 0, high = tabCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (tabs[mid] < offset)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		
+		return low;
+	}
+}
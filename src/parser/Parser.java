@@ -23,6 +23,14 @@ public class Parser {
 	private Token token;
 	private Exp objectMethodCall; // used for parsing exps with dot operator
 	private int errors;
+	private int nodeCount; // next node id to hand out
+	private int lastEnd; // end offset of the last token eaten
+	private int methodStart; // offset the current method or main class began at
+	private long tokenHash; // hash of the tokens taken since then and of where they are
+	private LongNodeTable tokenHashes; // kept by parseProgram() only
+	private int classStart; // offset the current class began at
+	private long classHash; // hash of the tokens taken since then and of where they are
+	private LongNodeTable classHashes; // kept by parseProgram() only
 	private Token errorToken;
 	
 	// hash table for operator precedence levels
@@ -47,7 +55,8 @@ public class Parser {
 	// verifies current token type and grabs next token or reports error
 	private boolean eat(TokenType type) {
 		if (token.getType() == type) {
-			token = lexer.getToken();
+			lastEnd = token.getEndOffset();
+			advance();
 			return true;
 		} else {
 			error(type);
@@ -55,6 +64,18 @@ public class Parser {
 		}
 	}
 	
+	// moves on to the next token, folding the current one into tokenHash and classHash
+	private void advance() {
+		long code = token.getType().ordinal();
+		if (token.getType() == TokenType.ID)
+			code = code * 31 + lexer.getIdVal().hashCode();
+		else if (token.getType() == TokenType.INT_CONST)
+			code = code * 31 + lexer.getIntVal();
+		tokenHash = (tokenHash ^ (code * 31 + token.getOffset() - methodStart)) * 0x100000001B3L;
+		classHash = (classHash ^ (code * 31 + token.getOffset() - classStart)) * 0x100000001B3L;
+		token = lexer.getToken();
+	}
+	
 	// skip tokens until match in follow set for error recovery
 	private void skipTo(TokenType... follow) {
 		while (token.getType() != TokenType.EOF) {
@@ -62,7 +83,7 @@ public class Parser {
 				if (token.getType() == skip)
 					return;
 			}
-			token = lexer.getToken();
+			advance();
 		}
 	}
 	
@@ -86,9 +107,61 @@ public class Parser {
 		return errors;
 	}
 	
+	// number of node ids handed out, i.e. the size needed by side tables
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	
+	// fingerprints of the MainClass and MethodDecl nodes parsed so far: a hash
+	// of the tokens each was parsed from and of their offsets from its start,
+	// which changes whenever the text of that class or method does, other
+	// than whitespace around it, so that positions within it stay put while
+	// the fingerprint does. A streaming parse keeps none, so this is null
+	// after one.
+	public LongNodeTable getTokenHashes() {
+		return tokenHashes;
+	}
+	
+	// fingerprints of the MainClass and ClassDecl nodes parsed so far: a hash
+	// of the tokens each was parsed from and of their offsets from the start
+	// of the class, which changes whenever the class's text does, other than
+	// whitespace around it. Classes with the same fingerprint parse to the
+	// same tree, with node ids and positions that differ by a fixed amount.
+	// A streaming parse keeps none, so this is null after one.
+	public LongNodeTable getClassHashes() {
+		return classHashes;
+	}
+	
+	// offsets and line numbers of the input parsed so far
+	public LineMap getLineMap() {
+		return lexer.getLineMap();
+	}
+	
+	// gives a newly built node the next dense id
+	private <T extends Node> T number(T node) {
+		node.setNodeId(nodeCount++);
+		return node;
+	}
+	
+	// numbers a newly built node and records its source position, running
+	// from start to the end of the last token eaten
+	private <T extends Node> T finish(T node, int start) {
+		node.setPosition(Position.make(start, lastEnd));
+		return number(node);
+	}
+	
+	// start offset of a node that has been parsed, or of the current token
+	// if the node is missing due to a syntax error
+	private int startOf(Node node) {
+		if (node == null)
+			return token.getOffset();
+		return Position.getStart(node.getPosition());
+	}
+	
 	// a helper method for parsing an identifier
 	private Identifier parseIdentifier() {
 		Identifier id = null;
+		int start = token.getOffset();
 		
 		// grab ID value if token type is ID
 		if (token.getType() == TokenType.ID)
@@ -96,23 +169,44 @@ public class Parser {
 		
 		eat(TokenType.ID);
 		
-		return id;
+		return (id != null) ? finish(id, start) : null;
 	}
 	
 	// top-level parsing method: MainClass ClassDecl*
 	public Program parseProgram() {
+		int start = token.getOffset();
+		tokenHashes = new LongNodeTable(64, 0);
+		classHashes = new LongNodeTable(64, 0);
 		MainClass main = parseMainClass();
 		
 		ClassDeclList classList = new ClassDeclList();
 		while (token.getType() != TokenType.EOF)
 			classList.addElement(parseClassDecl());
 		
-		return new Program(main, classList);
+		return finish(new Program(main, classList), start);
+	}
+	
+	/*
+	 * Streaming alternative to parseProgram() that hands each class to handler
+	 * as soon as it is parsed instead of building a Program, so memory use
+	 * does not grow with the number of classes. The nodes of each class have
+	 * consecutive ids, ending with the id of the class itself.
+	 */
+	public void parseProgram(ClassDeclHandler handler) {
+		handler.handleMainClass(parseMainClass());
+		
+		while (token.getType() != TokenType.EOF)
+			handler.handleClassDecl(parseClassDecl());
 	}
 	
 	// Class w/ main method:
 	// class id { public static void main ( String [] id ) { Statement } }
 	private MainClass parseMainClass() {
+		int start = token.getOffset();
+		methodStart = start;
+		tokenHash = 0;
+		startClass(start);
+		
 		if (!eat(TokenType.CLASS))
 			skipTo(TokenType.ID, TokenType.LBRACE, TokenType.RBRACE);
 		
@@ -169,7 +263,12 @@ public class Parser {
 		if (!eat(TokenType.RBRACE))
 			skipTo(TokenType.CLASS);
 		
-		return new MainClass(className, argName, stm);
+		MainClass main = finish(new MainClass(className, argName, stm), start);
+		if (tokenHashes != null) {
+			tokenHashes.put(main, tokenHash);
+			classHashes.put(main, classHash);
+		}
+		return main;
 	}
 	
 	/*
@@ -178,6 +277,8 @@ public class Parser {
 	 * class id extends id { VarDecl* MethodDecl* }
 	 */
 	private ClassDecl parseClassDecl() {
+		int start = token.getOffset();
+		startClass(start);
 		eat(TokenType.CLASS);
 		
 		Identifier className = parseIdentifier();
@@ -204,7 +305,7 @@ public class Parser {
 			}
 			if (!eat(TokenType.RBRACE)) skipTo(TokenType.CLASS);
 			
-			return new ClassDeclExtends(className, superName, fields, methods);
+			return finishClass(new ClassDeclExtends(className, superName, fields, methods), start);
 			
 		} else {
 			if (!eat(TokenType.LBRACE))
@@ -220,12 +321,26 @@ public class Parser {
 			}
 			if (!eat(TokenType.RBRACE)) skipTo(TokenType.CLASS);
 			
-			return new ClassDeclSimple(className, fields, methods);
+			return finishClass(new ClassDeclSimple(className, fields, methods), start);
 			
 		}
 	}
 	
+	private void startClass(int start) {
+		classStart = start;
+		classHash = 0;
+	}
+	
+	private ClassDecl finishClass(ClassDecl classDecl, int start) {
+		finish(classDecl, start);
+		if (classHashes != null)
+			classHashes.put(classDecl, classHash);
+		return classDecl;
+	}
+	
 	private Statement parseStatement() {
+		int start = token.getOffset();
+		
 		// Statement block: { Statement* }
 		if (token.getType() == TokenType.LBRACE) {
 			eat(TokenType.LBRACE);
@@ -238,7 +353,7 @@ public class Parser {
 			if (!eat(TokenType.RBRACE)) 
 				skipTo(TokenType.RBRACE, TokenType.SEMI);
 			
-			return new Block(stms);
+			return finish(new Block(stms), start);
 		}
 		
 		// If statement: if ( Exp ) Statement else Statement
@@ -262,7 +377,7 @@ public class Parser {
 			
 			Statement falseStm = parseStatement();
 			
-			return new If(condExp, trueStm, falseStm);
+			return finish(new If(condExp, trueStm, falseStm), start);
 		}
 		
 		// While statement: while ( Exp ) Statement
@@ -281,13 +396,15 @@ public class Parser {
 			// parse looping statement
 			Statement loopStm = parseStatement();
 			
-			return new While(condExp, loopStm);
+			return finish(new While(condExp, loopStm), start);
 		}
 		
 		// Identifier statement
 		if (token.getType() == TokenType.ID) {
+			// only numbered below once it is known to be kept in the tree
 			Identifier id = new Identifier(lexer.getIdVal());
 			eat(TokenType.ID);
+			id.setPosition(Position.make(start, lastEnd));
 			
 			// Parse potential print statement: System.out.println ( Exp ) ;
 			if (id.getName().equals("System") && token.getType() == TokenType.DOT) {
@@ -322,7 +439,7 @@ public class Parser {
 				
 				eat(TokenType.SEMI);
 				
-				return new Print(printExp);
+				return finish(new Print(printExp), start);
 			}
 			
 			// Assignment statement: id = Exp ;
@@ -331,7 +448,7 @@ public class Parser {
 				Exp value = parseExp();
 				eat(TokenType.SEMI);
 				
-				return new Assign(id, value);
+				return finish(new Assign(number(id), value), start);
 			}
 			
 			// Array value assignment statement: id [ Exp ] = Exp ;
@@ -348,13 +465,13 @@ public class Parser {
 				Exp value = parseExp();
 				eat(TokenType.SEMI);
 				
-				return new ArrayAssign(id, index, value);
+				return finish(new ArrayAssign(number(id), index, value), start);
 			}
 		}
 		
 		// statement type unknown
 		eat(TokenType.STATEMENT);
-		token = lexer.getToken();
+		advance();
 		return null;
 	}
 	
@@ -366,23 +483,27 @@ public class Parser {
 	
 	// parse exp before any binop
 	private Exp parsePrimaryExp() {
+		int start = token.getOffset();
+		
 		switch (token.getType()) {
 			
 			case INT_CONST:
 				int value = lexer.getIntVal();
 				eat(TokenType.INT_CONST);
-				return new IntegerLiteral(value);
+				return finish(new IntegerLiteral(value), start);
 			
 			case TRUE:
 				eat(TokenType.TRUE);
-				return new True();
+				return finish(new True(), start);
 			
 			case FALSE:
 				eat(TokenType.FALSE);
-				return new False();
+				return finish(new False(), start);
 			
 			case ID:
-				Identifier id = parseIdentifier();
+				String name = lexer.getIdVal();
+				eat(TokenType.ID);
+				long namePosition = Position.make(start, lastEnd);
 				
 				// the dot operator preceded current exp
 				if (objectMethodCall != null) {
@@ -391,9 +512,12 @@ public class Parser {
 					objectMethodCall = null;
 					
 					// check if its an array length lookup or an object method call
-					if (id.getName().equals("length"))
-						return new ArrayLength(obj);
+					if (name.equals("length"))
+						return finish(new ArrayLength(obj), startOf(obj));
 					else {
+						Identifier methodName = new Identifier(name);
+						methodName.setPosition(namePosition);
+						
 						if (!eat(TokenType.LPAREN))
 							skipTo(TokenType.RPAREN);
 						
@@ -409,20 +533,23 @@ public class Parser {
 						}
 						eat(TokenType.RPAREN);
 						
-						return new Call(obj, id, args);
+						return finish(new Call(obj, number(methodName), args), startOf(obj));
 					}
 				}
 				
 				// if not preceded by dot operator, it is a simple id exp
-				return new IdentifierExp(id.getName());
+				return finish(new IdentifierExp(name), start);
 			
 			case THIS:
 				eat(TokenType.THIS);
-				return new This();
+				return finish(new This(), start);
 			
 			case BANG:
 				eat(TokenType.BANG);
-				return new Not(parseExp());
+				
+				// ! binds tighter than every binop but the postfix . and [
+				Exp operand = parseBinopRHS(binopLevels.get(TokenType.DOT), parsePrimaryExp());
+				return finish(new Not(operand), start);
 			
 			case LPAREN:
 				eat(TokenType.LPAREN);
@@ -439,18 +566,18 @@ public class Parser {
 					eat(TokenType.LBRACKET);
 					Exp arraySize = parseExp();
 					eat(TokenType.RBRACKET);
-					return new NewArray(arraySize);
+					return finish(new NewArray(arraySize), start);
 				} else {
 					Identifier objectType = parseIdentifier();
 					eat(TokenType.LPAREN);
 					eat(TokenType.RPAREN);
-					return new NewObject(objectType);
+					return finish(new NewObject(objectType), start);
 				}
 			
 			default:
 				// unrecognizable expression
 				eat(TokenType.EXPRESSION);
-				token = lexer.getToken();
+				advance();
 				return null;
 				
 		}
@@ -489,23 +616,23 @@ public class Parser {
 			// build AST for exp
 			switch (binop) {
 				case AND:
-					lhs = new And(lhs, rhs);
+					lhs = finish(new And(lhs, rhs), startOf(lhs));
 					break;
 				case LT:
-					lhs = new LessThan(lhs, rhs);
+					lhs = finish(new LessThan(lhs, rhs), startOf(lhs));
 					break;
 				case PLUS:
-					lhs = new Plus(lhs, rhs);
+					lhs = finish(new Plus(lhs, rhs), startOf(lhs));
 					break;
 				case MINUS:
-					lhs = new Minus(lhs, rhs);
+					lhs = finish(new Minus(lhs, rhs), startOf(lhs));
 					break;
 				case TIMES:
-					lhs = new Times(lhs, rhs);
+					lhs = finish(new Times(lhs, rhs), startOf(lhs));
 					break;
 				case LBRACKET:
-					lhs = new ArrayLookup(lhs, rhs);
 					eat(TokenType.RBRACKET);
+					lhs = finish(new ArrayLookup(lhs, rhs), startOf(lhs));
 					break;
 				case DOT:
 					lhs = rhs;
@@ -519,15 +646,20 @@ public class Parser {
 	
 	// Variable declaration: Type id ;
 	private VarDecl parseVarDecl() {
+		int start = token.getOffset();
 		Type type = parseType();
 		Identifier id = parseIdentifier();
 		eat(TokenType.SEMI);
 		
-		return new VarDecl(type, id);
+		return finish(new VarDecl(type, id), start);
 	}
 	
 	// Method declaration: public Type id ( FormalList ) { VarDecl* Statement* return Exp ; }
 	private MethodDecl parseMethodDecl() {
+		int start = token.getOffset();
+		methodStart = start;
+		tokenHash = 0;
+		
 		if (!eat(TokenType.PUBLIC))
 			skipTo(TokenType.INT, TokenType.BOOLEAN, TokenType.ID, TokenType.
 					LPAREN, TokenType.RPAREN, TokenType.LBRACE, TokenType.RBRACE);
@@ -595,7 +727,10 @@ public class Parser {
 		
 		eat(TokenType.RBRACE);
 		
-		return new MethodDecl(returnType, methodName, params, vars, stms, returnExp);
+		MethodDecl method = finish(new MethodDecl(returnType, methodName, params, vars, stms, returnExp), start);
+		if (tokenHashes != null)
+			tokenHashes.put(method, tokenHash);
+		return method;
 	}
 	
 	/*
@@ -606,6 +741,8 @@ public class Parser {
 	 * id (IdentifierType)
 	 */
 	private Type parseType() {
+		int start = token.getOffset();
+		
 		switch (token.getType()) {
 			
 			case INT:
@@ -617,7 +754,7 @@ public class Parser {
 					
 					if (token.getType() == TokenType.RBRACKET) {
 						eat(TokenType.RBRACKET);
-						return new IntArrayType();
+						return finish(new IntArrayType(), start);
 					}
 					
 					// invalid integer type declaration
@@ -625,16 +762,16 @@ public class Parser {
 					return null;
 				}
 				
-				return new IntegerType();
+				return finish(new IntegerType(), start);
 		
 			case BOOLEAN:
 				eat(TokenType.BOOLEAN);
-				return new BooleanType();
+				return finish(new BooleanType(), start);
 				
 			case ID:
 				String id = lexer.getIdVal();
 				eat(TokenType.ID);
-				return new IdentifierType(id);
+				return finish(new IdentifierType(id), start);
 			
 			default:
 				// unknown type
@@ -646,9 +783,10 @@ public class Parser {
 	
 	// Formal method parameter: Type id
 	private Formal parseFormal() {
+		int start = token.getOffset();
 		Type type = parseType();
 		Identifier id = parseIdentifier();
 		
-		return new Formal(type, id);
+		return finish(new Formal(type, id), start);
 	}
 }
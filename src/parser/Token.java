@@ -3,20 +3,25 @@ package parser;
 /*
  * 
  * A token has a type as well as line and column numbers for error reporting
- * during the syntax and semantic analysis phase of compilation. Tokens with
- * the types ID or INT_CONST will have an associating lexeme (semantic value)
- * that is recorded by the lexer.
+ * during the syntax and semantic analysis phase of compilation. It also spans
+ * a range of character offsets in the input, which the parser uses to record
+ * the source positions of AST nodes. Tokens with the types ID or INT_CONST
+ * will have an associating lexeme (semantic value) that is recorded by the
+ * lexer.
  * 
  */
 
 public class Token {
 	private TokenType type;
 	private int lineNum, colNum; // for error reporting
+	private int offset, endOffset; // first char and one past the last char
 	
-	public Token(TokenType type, int lineNum, int colNum) {
+	public Token(TokenType type, int lineNum, int colNum, int offset, int endOffset) {
 		this.type = type;
 		this.lineNum = lineNum;
 		this.colNum = colNum;
+		this.offset = offset;
+		this.endOffset = endOffset;
 	}
 	
 	public TokenType getType() {
@@ -30,4 +35,12 @@ public class Token {
 	public int getColNum() {
 		return colNum;
 	}
+	
+	public int getOffset() {
+		return offset;
+	}
+	
+	public int getEndOffset() {
+		return endOffset;
+	}
 }
@@ -0,0 +1,107 @@
+package semant;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * 
+ * Records which parts of a program depend on which declarations, so that a
+ * change to a declaration can be traced to everything it may affect. Nodes
+ * are named by strings built from source names rather than by AST nodes or
+ * symbols, so the graph outlives the tree it was built from and can be
+ * compared against the next version of the program:
+ * 
+ *   class C        whether C is declared, and what it extends
+ *   fields C       the fields declared in C
+ *   signature C.m  the signature of m as declared in C, or its absence
+ *   method C.m     the body of m in C (or of main in the main class)
+ * 
+ * An edge from a to b means a depends on b. Edges are kept in both
+ * directions, so dependents are found without scanning the graph.
+ * 
+ */
+
+public class DependencyGraph {
+	private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+	private final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+	
+	public static String classNode(String className) {
+		return "class " + className;
+	}
+	
+	public static String fieldsNode(String className) {
+		return "fields " + className;
+	}
+	
+	public static String signatureNode(String className, String methodName) {
+		return "signature " + className + "." + methodName;
+	}
+	
+	public static String methodNode(String className, String methodName) {
+		return "method " + className + "." + methodName;
+	}
+	
+	// name of the class a node belongs to
+	public static String className(String node) {
+		String name = node.substring(node.indexOf(' ') + 1);
+		if (node.startsWith("signature ") || node.startsWith("method "))
+			name = name.substring(0, name.lastIndexOf('.'));
+		return name;
+	}
+	
+	public void addDependency(String from, String to) {
+		edges(dependencies, from).add(to);
+		edges(dependents, to).add(from);
+	}
+	
+	// removes the edges out of a node, e.g. before recording them again
+	public void removeDependencies(String from) {
+		Set<String> targets = dependencies.remove(from);
+		if (targets == null)
+			return;
+		for (String to : targets) {
+			Set<String> sources = dependents.get(to);
+			sources.remove(from);
+			if (sources.isEmpty())
+				dependents.remove(to);
+		}
+	}
+	
+	public Set<String> getDependencies(String from) {
+		Set<String> targets = dependencies.get(from);
+		return targets == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(targets);
+	}
+	
+	public Set<String> getDependents(String to) {
+		Set<String> sources = dependents.get(to);
+		return sources == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(sources);
+	}
+	
+	// the given nodes and every node depending on them, directly or not
+	public Set<String> collectDependents(Collection<String> changed) {
+		Set<String> affected = new HashSet<String>(changed);
+		Deque<String> work = new ArrayDeque<String>(changed);
+		while (!work.isEmpty()) {
+			for (String source : getDependents(work.pop())) {
+				if (affected.add(source))
+					work.push(source);
+			}
+		}
+		return affected;
+	}
+	
+	private static Set<String> edges(Map<String, Set<String>> map, String node) {
+		Set<String> set = map.get(node);
+		if (set == null) {
+			set = new HashSet<String>();
+			map.put(node, set);
+		}
+		return set;
+	}
+}
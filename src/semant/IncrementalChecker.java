@@ -0,0 +1,338 @@
+package semant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import analysis.StructuralHasher;
+import ast.*;
+import symbol.*;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * Type checks successive versions of a program, re-checking only the bodies
+ * an edit may have affected. Each check compares every node of the
+ * dependency graph with the last version: class headers by the name they
+ * extend, field lists and method signatures by a hash of their types and
+ * names, and bodies by a fingerprint. A body is re-checked if it changed or
+ * depends, directly or through other declarations, on something that
+ * changed. The diagnostics of every other body are carried over, moved along
+ * with the method if code above it grew or shrank. That is only right while
+ * everything in the body keeps its offset from the body's start, so a body
+ * fingerprint covers those offsets too, and a body with only its layout
+ * changed is re-checked.
+ * 
+ * Body fingerprints are best taken from Parser.getTokenHashes(), which costs
+ * the parser next to nothing. Without them, bodies are hashed here with a
+ * StructuralHasher, which visits the whole program on every check, along
+ * with the offsets of their nodes, which it leaves out. Either way,
+ * declaring classes still visits every declaration, while resolving and
+ * checking bodies scales with the reach of the edit.
+ * 
+ */
+
+public class IncrementalChecker {
+	private final DependencyGraph graph = new DependencyGraph();
+	private Map<String, ClassState> classes = new HashMap<String, ClassState>();
+	private int checkedCount, bodyCount;
+	
+	// checks a program, fingerprinting its bodies with a StructuralHasher
+	public List<Diagnostic> check(Program prog, int nodeCount) {
+		return check(prog, nodeCount, null);
+	}
+	
+	// checks a program whose bodies have the given fingerprints
+	public List<Diagnostic> check(Program prog, int nodeCount, LongNodeTable fingerprints) {
+		SymbolTableBuilder builder = new SymbolTableBuilder(nodeCount);
+		SymbolTable table = builder.declare(prog);
+		StructuralHasher hasher = fingerprints == null ? new StructuralHasher(nodeCount) : null;
+		
+		// compare each declaration and body with the last version
+		Map<String, ClassState> previous = classes;
+		classes = new HashMap<String, ClassState>();
+		Set<String> changed = new HashSet<String>();
+		List<BodyState> bodies = new ArrayList<BodyState>();
+		
+		for (ClassSymbol symbol : table.getClasses()) {
+			String name = table.getNames().getName(symbol.getNameId());
+			ClassState state = previous.remove(name);
+			if (state == null)
+				state = new ClassState(name);
+			classes.put(name, state);
+			
+			Node decl = symbol.getDecl();
+			if (decl.getKind() == NodeKind.MAIN_CLASS) {
+				updateClass(state, "main", 0, changed);
+				Map<String, BodyState> previousMethods = state.methods;
+				state.methods = new HashMap<String, BodyState>();
+				BodyState body = takeBody(state, previousMethods, "main", decl, null, bodies);
+				updateBody(body, fingerprints != null ? fingerprints.get(decl) : fingerprint(hasher, decl), changed);
+				for (BodyState gone : previousMethods.values())
+					forget(gone, changed);
+			} else
+				compareClass(state, (ClassDecl) decl, table, fingerprints, hasher, changed, bodies);
+		}
+		
+		// classes that are gone
+		for (ClassState state : previous.values()) {
+			forget(state.classNode, changed);
+			forget(state.fieldsNode, changed);
+			for (BodyState body : state.methods.values())
+				forget(body, changed);
+		}
+		
+		// re-check changed bodies and the bodies depending on anything changed
+		Set<String> affected = graph.collectDependents(changed);
+		IntNodeTable types = new IntNodeTable(nodeCount, Types.ERROR);
+		NodeTable<MethodSymbol> targets = new NodeTable<MethodSymbol>(nodeCount);
+		checkedCount = 0;
+		for (BodyState body : bodies) {
+			if (body.diagnostics != null && !affected.contains(body.methodNode))
+				continue;
+			
+			Set<String> dependencies = new HashSet<String>();
+			List<Diagnostic> found = new ArrayList<Diagnostic>();
+			MethodChecker checker;
+			if (body.method == null) {
+				found.addAll(builder.resolveMain((MainClass) body.decl));
+				checker = new MethodChecker(table, null, null, types, targets);
+				checker.recordDependencies(dependencies);
+				checker.checkMain((MainClass) body.decl);
+			} else {
+				found.addAll(builder.resolveMethod(body.method));
+				checker = new MethodChecker(table, body.method.getOwner(), body.method, types, targets);
+				checker.recordDependencies(dependencies);
+				checker.checkMethod((MethodDecl) body.decl);
+			}
+			found.addAll(checker.getDiagnostics());
+			
+			graph.removeDependencies(body.methodNode);
+			for (String dependency : dependencies)
+				graph.addDependency(body.methodNode, dependency);
+			body.diagnostics = found;
+			body.start = Position.getStart(body.decl.getPosition());
+			checkedCount++;
+		}
+		bodyCount = bodies.size();
+		
+		// declaration errors plus the errors of every body, moved to where the body is now
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		for (BodyState body : bodies) {
+			int shift = Position.getStart(body.decl.getPosition()) - body.start;
+			for (Diagnostic diagnostic : body.diagnostics)
+				diagnostics.add(shift == 0 ? diagnostic : moved(diagnostic, shift));
+			body.start += shift;
+			body.diagnostics = shift == 0 ? body.diagnostics : movedAll(body.diagnostics, shift);
+			body.decl = null;
+			body.method = null;
+		}
+		Collections.sort(diagnostics);
+		return diagnostics;
+	}
+	
+	// number of bodies resolved and checked by the last check()
+	public int getCheckedCount() {
+		return checkedCount;
+	}
+	
+	// number of bodies in the program given to the last check()
+	public int getBodyCount() {
+		return bodyCount;
+	}
+	
+	public DependencyGraph getGraph() {
+		return graph;
+	}
+	
+	private void compareClass(ClassState state, ClassDecl classDecl, SymbolTable table,
+			LongNodeTable fingerprints, StructuralHasher hasher, Set<String> changed, List<BodyState> bodies) {
+		// class header and fields
+		String superName = null;
+		if (classDecl.getKind() == NodeKind.CLASS_DECL_EXTENDS
+				&& ((ClassDeclExtends) classDecl).getSuperId() != null)
+			superName = ((ClassDeclExtends) classDecl).getSuperId().getName();
+		String header = superName == null ? "" : "extends " + superName;
+		
+		long fields = 0;
+		VarDeclList vars = classDecl.getFields();
+		for (int i = 0; i < vars.size(); i++) {
+			VarDecl var = vars.elementAt(i);
+			if (var != null)
+				fields = mix(mix(fields, typeCode(var.getType())), nameCode(var.getId()));
+		}
+		
+		if (updateClass(state, header, fields, changed)) {
+			// rebuild the edges out of the header and fields
+			graph.removeDependencies(state.classNode);
+			if (superName != null)
+				graph.addDependency(state.classNode, DependencyGraph.classNode(superName));
+			graph.removeDependencies(state.fieldsNode);
+			for (int i = 0; i < vars.size(); i++) {
+				if (vars.elementAt(i) != null)
+					dependOnType(state.fieldsNode, vars.elementAt(i).getType());
+			}
+		}
+		
+		// methods declared by this class
+		Map<String, BodyState> previous = state.methods;
+		state.methods = new HashMap<String, BodyState>();
+		MethodDeclList methodDecls = classDecl.getMethods();
+		for (int i = 0; i < methodDecls.size(); i++) {
+			MethodDecl methodDecl = methodDecls.elementAt(i);
+			MethodSymbol method = methodDecl == null ? null : table.getDeclaredMethod(methodDecl);
+			if (method == null)
+				continue;
+			BodyState body = takeBody(state, previous, methodDecl.getId().getName(), methodDecl, method, bodies);
+			
+			// signature
+			long signature = typeCode(methodDecl.getReturnType());
+			FormalList params = methodDecl.getParams();
+			for (int j = 0; j < params.size(); j++)
+				signature = mix(signature, typeCode(params.elementAt(j).getType()));
+			if (body.fresh || signature != body.signature) {
+				body.signature = signature;
+				changed.add(body.signatureNode);
+				graph.removeDependencies(body.signatureNode);
+				dependOnType(body.signatureNode, methodDecl.getReturnType());
+				for (int j = 0; j < params.size(); j++)
+					dependOnType(body.signatureNode, params.elementAt(j).getType());
+			}
+			
+			updateBody(body, fingerprints != null ? fingerprints.get(methodDecl) : fingerprint(hasher, methodDecl),
+					changed);
+		}
+		
+		// methods that are gone
+		for (BodyState body : previous.values())
+			forget(body, changed);
+	}
+	
+	// updates a class's header and fields, returning true if either changed
+	private boolean updateClass(ClassState state, String header, long fields, Set<String> changed) {
+		boolean headerChanged = !header.equals(state.header);
+		boolean fieldsChanged = state.header == null || fields != state.fields;
+		if (headerChanged)
+			changed.add(state.classNode);
+		if (fieldsChanged)
+			changed.add(state.fieldsNode);
+		state.header = header;
+		state.fields = fields;
+		return headerChanged || fieldsChanged;
+	}
+	
+	// the state of a method from the last check, or a new one, for the current version
+	private BodyState takeBody(ClassState state, Map<String, BodyState> previous, String methodName,
+			Node decl, MethodSymbol method, List<BodyState> bodies) {
+		BodyState body = previous.remove(methodName);
+		if (body == null)
+			body = new BodyState(state.name, methodName);
+		body.decl = decl;
+		body.method = method;
+		state.methods.put(methodName, body);
+		bodies.add(body);
+		return body;
+	}
+	
+	private void updateBody(BodyState body, long fingerprint, Set<String> changed) {
+		if (body.fresh || fingerprint != body.fingerprint) {
+			body.fingerprint = fingerprint;
+			changed.add(body.methodNode);
+		}
+		body.fresh = false;
+	}
+	
+	// the structural hash of a body mixed with the offsets of its nodes from its start
+	private static long fingerprint(StructuralHasher hasher, Node decl) {
+		long h = hasher.hash(decl);
+		int start = Position.getStart(decl.getPosition());
+		TreeIndex index = new TreeIndex(decl);
+		for (int i = 0; i < index.size(); i++) {
+			long position = index.getNode(i).getPosition();
+			h = mix(mix(h, Position.getStart(position) - start), Position.getEnd(position) - start);
+		}
+		return h;
+	}
+	
+	private void forget(BodyState body, Set<String> changed) {
+		forget(body.signatureNode, changed);
+		forget(body.methodNode, changed);
+	}
+	
+	private void forget(String node, Set<String> changed) {
+		graph.removeDependencies(node);
+		changed.add(node);
+	}
+	
+	private void dependOnType(String node, Type type) {
+		if (type != null && type.getKind() == NodeKind.IDENTIFIER_TYPE)
+			graph.addDependency(node, DependencyGraph.classNode(((IdentifierType) type).getName()));
+	}
+	
+	private static long typeCode(Type type) {
+		if (type == null)
+			return -1;
+		if (type.getKind() == NodeKind.IDENTIFIER_TYPE)
+			return ((IdentifierType) type).getName().hashCode() * 31L + type.getKind();
+		return type.getKind();
+	}
+	
+	private static long nameCode(Identifier id) {
+		return id == null ? -1 : id.getName().hashCode();
+	}
+	
+	private static long mix(long h, long v) {
+		return (h ^ v) * 0x100000001B3L + 0x9E3779B97F4A7C15L;
+	}
+	
+	private static Diagnostic moved(Diagnostic diagnostic, int shift) {
+		long position = diagnostic.getPosition();
+		if (position == Position.NONE)
+			return diagnostic;
+		return new Diagnostic(Position.make(Position.getStart(position) + shift,
+				Position.getEnd(position) + shift), diagnostic.getMessage());
+	}
+	
+	private static List<Diagnostic> movedAll(List<Diagnostic> diagnostics, int shift) {
+		List<Diagnostic> result = new ArrayList<Diagnostic>(diagnostics.size());
+		for (Diagnostic diagnostic : diagnostics)
+			result.add(moved(diagnostic, shift));
+		return result;
+	}
+	
+	// what the last check saw of a class
+	private static class ClassState {
+		final String name, classNode, fieldsNode;
+		String header; // null until first checked
+		long fields;
+		Map<String, BodyState> methods = new HashMap<String, BodyState>();
+		
+		ClassState(String name) {
+			this.name = name;
+			classNode = DependencyGraph.classNode(name);
+			fieldsNode = DependencyGraph.fieldsNode(name);
+		}
+	}
+	
+	// what the last check saw of a method, and the errors found in its body
+	private static class BodyState {
+		final String signatureNode, methodNode;
+		boolean fresh = true;
+		long signature, fingerprint;
+		int start; // offset the body started at when last checked
+		List<Diagnostic> diagnostics; // null until first checked
+		
+		// the current version's nodes, during a check
+		Node decl;
+		MethodSymbol method;
+		
+		BodyState(String className, String methodName) {
+			signatureNode = DependencyGraph.signatureNode(className, methodName);
+			methodNode = DependencyGraph.methodNode(className, methodName);
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package semant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import ast.*;
+import symbol.*;
+
+/*
+ * 
+ * Type checks the statements of one method body, or of the main class when
+ * the method is null. Checkers of different methods share nothing they
+ * write to except the node tables, and there each checker only writes the
+ * entries of nodes in its own body, so any number of them can run at once.
+ * 
+ */
+
+class MethodChecker {
+	private final SymbolTable table;
+	private final ClassSymbol owner;
+	private final MethodSymbol method;
+	private final IntNodeTable types; // type of each expression
+	private final NodeTable<MethodSymbol> targets; // method called by each Call
+	private final List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+	private Set<String> dependencies; // declarations the result depends on, if recorded
+	
+	MethodChecker(SymbolTable table, ClassSymbol owner, MethodSymbol method,
+			IntNodeTable types, NodeTable<MethodSymbol> targets) {
+		this.table = table;
+		this.owner = owner;
+		this.method = method;
+		this.types = types;
+		this.targets = targets;
+	}
+	
+	List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+	
+	// makes the checker add the dependency graph nodes of what it looks at to the set
+	void recordDependencies(Set<String> dependencies) {
+		this.dependencies = dependencies;
+	}
+	
+	void checkMain(MainClass main) {
+		checkStatement(main.getStm());
+	}
+	
+	void checkMethod(MethodDecl methodDecl) {
+		if (dependencies != null) {
+			// fields are resolved along the owner's extends chain
+			for (ClassSymbol c = owner; c != null; c = c.getSuperClass()) {
+				dependOnClass(c.getNameId());
+				dependencies.add(DependencyGraph.fieldsNode(table.getNames().getName(c.getNameId())));
+			}
+			
+			// classes named by the signature and locals, even if undeclared
+			dependOnType(methodDecl.getReturnType());
+			for (int i = 0; i < methodDecl.getParams().size(); i++)
+				dependOnType(methodDecl.getParams().elementAt(i).getType());
+			for (int i = 0; i < methodDecl.getVars().size(); i++)
+				dependOnType(methodDecl.getVars().elementAt(i).getType());
+		}
+		
+		StatementList stms = methodDecl.getStms();
+		for (int i = 0; i < stms.size(); i++)
+			checkStatement(stms.elementAt(i));
+		expect(methodDecl.getReturnExp(), method.getReturnType());
+	}
+	
+	private void checkStatement(Statement stm) {
+		if (stm == null)
+			return;
+		
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				StatementList stms = ((Block) stm).getStms();
+				for (int i = 0; i < stms.size(); i++)
+					checkStatement(stms.elementAt(i));
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				expect(ifStm.getCondExp(), Types.BOOLEAN);
+				checkStatement(ifStm.getTrueStm());
+				checkStatement(ifStm.getFalseStm());
+				break;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				expect(whileStm.getCondExp(), Types.BOOLEAN);
+				checkStatement(whileStm.getStm());
+				break;
+			
+			case NodeKind.PRINT:
+				expect(((Print) stm).getExp(), Types.INT);
+				break;
+			
+			case NodeKind.ASSIGN:
+				Assign assign = (Assign) stm;
+				expect(assign.getValue(), variableType(assign));
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign arrayAssign = (ArrayAssign) stm;
+				int arrayType = variableType(arrayAssign);
+				if (!table.isAssignable(arrayType, Types.INT_ARRAY))
+					mismatch(arrayAssign, arrayType, Types.INT_ARRAY);
+				expect(arrayAssign.getIndex(), Types.INT);
+				expect(arrayAssign.getValue(), Types.INT);
+				break;
+		}
+	}
+	
+	// type checks an expression, recording and returning its type
+	private int checkExp(Exp exp) {
+		if (exp == null)
+			return Types.ERROR;
+		
+		int type;
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				expect(and.getLHS(), Types.BOOLEAN);
+				expect(and.getRHS(), Types.BOOLEAN);
+				type = Types.BOOLEAN;
+				break;
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThan = (LessThan) exp;
+				expect(lessThan.getLHS(), Types.INT);
+				expect(lessThan.getRHS(), Types.INT);
+				type = Types.BOOLEAN;
+				break;
+			
+			case NodeKind.PLUS:
+				Plus plus = (Plus) exp;
+				expect(plus.getLHS(), Types.INT);
+				expect(plus.getRHS(), Types.INT);
+				type = Types.INT;
+				break;
+			
+			case NodeKind.MINUS:
+				Minus minus = (Minus) exp;
+				expect(minus.getLHS(), Types.INT);
+				expect(minus.getRHS(), Types.INT);
+				type = Types.INT;
+				break;
+			
+			case NodeKind.TIMES:
+				Times times = (Times) exp;
+				expect(times.getLHS(), Types.INT);
+				expect(times.getRHS(), Types.INT);
+				type = Types.INT;
+				break;
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup lookup = (ArrayLookup) exp;
+				expect(lookup.getArray(), Types.INT_ARRAY);
+				expect(lookup.getIndex(), Types.INT);
+				type = Types.INT;
+				break;
+			
+			case NodeKind.ARRAY_LENGTH:
+				expect(((ArrayLength) exp).getArray(), Types.INT_ARRAY);
+				type = Types.INT;
+				break;
+			
+			case NodeKind.CALL:
+				type = checkCall((Call) exp);
+				break;
+			
+			case NodeKind.INTEGER_LITERAL:
+				type = Types.INT;
+				break;
+			
+			case NodeKind.TRUE:
+			case NodeKind.FALSE:
+				type = Types.BOOLEAN;
+				break;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				type = variableType(exp);
+				break;
+			
+			case NodeKind.THIS:
+				if (owner == null) {
+					error(exp, "Cannot use this in the main class");
+					type = Types.ERROR;
+				} else
+					type = owner.getType();
+				break;
+			
+			case NodeKind.NEW_ARRAY:
+				expect(((NewArray) exp).getArraySize(), Types.INT);
+				type = Types.INT_ARRAY;
+				break;
+			
+			case NodeKind.NEW_OBJECT:
+				if (dependencies != null && ((NewObject) exp).getId() != null)
+					dependencies.add(DependencyGraph.classNode(((NewObject) exp).getId().getName()));
+				ClassSymbol newClass = table.getNewClass((NewObject) exp);
+				type = newClass == null ? Types.ERROR : newClass.getType();
+				break;
+			
+			case NodeKind.NOT:
+				expect(((Not) exp).getExp(), Types.BOOLEAN);
+				type = Types.BOOLEAN;
+				break;
+			
+			default:
+				type = Types.ERROR;
+		}
+		
+		if (dependencies != null && Types.isClass(type))
+			dependOnClass(table.getClassOfType(type).getNameId());
+		types.put(exp, type);
+		return type;
+	}
+	
+	private int checkCall(Call call) {
+		int calleeType = checkExp(call.getCallee());
+		ExpList args = call.getArgs();
+		
+		// resolve the method in the class of the callee
+		MethodSymbol target = null;
+		if (Types.isClass(calleeType) && call.getMethodName() != null) {
+			String name = call.getMethodName().getName();
+			ClassSymbol calleeClass = table.getClassOfType(calleeType);
+			target = calleeClass.lookupMethod(table.getNames().lookup(name));
+			
+			// the lookup depends on each class searched for the method
+			if (dependencies != null) {
+				for (ClassSymbol c = calleeClass; c != null; c = c.getSuperClass()) {
+					dependencies.add(DependencyGraph.signatureNode(table.getNames().getName(c.getNameId()), name));
+					if (target != null && target.getOwner() == c)
+						break;
+				}
+			}
+			
+			if (target == null)
+				error(call.getMethodName(), "Undeclared method " + name + " in class "
+						+ table.typeName(calleeType));
+			else if (target.getParamCount() != args.size()) {
+				error(call.getMethodName(), "Method " + name + " expects " + target.getParamCount()
+						+ " arguments but was given " + args.size());
+				target = null;
+			}
+		} else if (calleeType != Types.ERROR)
+			error(call, "Cannot call a method on " + table.typeName(calleeType));
+		
+		// check the arguments even if the call could not be resolved
+		for (int i = 0; i < args.size(); i++) {
+			if (target != null)
+				expect(args.elementAt(i), target.getParamType(i));
+			else
+				checkExp(args.elementAt(i));
+		}
+		
+		if (target == null)
+			return Types.ERROR;
+		targets.put(call, target);
+		return target.getReturnType();
+	}
+	
+	// type of the variable read or assigned by a node, as resolved by the symbol table
+	private int variableType(Node ref) {
+		int slot = table.getLocalSlot(ref);
+		if (slot >= 0)
+			return method.getLocalType(slot);
+		slot = table.getFieldSlot(ref);
+		if (slot >= 0)
+			return owner.getFieldType(slot);
+		return Types.ERROR;
+	}
+	
+	private void dependOnClass(int nameId) {
+		dependencies.add(DependencyGraph.classNode(table.getNames().getName(nameId)));
+	}
+	
+	private void dependOnType(Type type) {
+		if (type != null && type.getKind() == NodeKind.IDENTIFIER_TYPE)
+			dependencies.add(DependencyGraph.classNode(((IdentifierType) type).getName()));
+	}
+	
+	private void expect(Exp exp, int expected) {
+		int type = checkExp(exp);
+		if (exp != null && !table.isAssignable(type, expected))
+			mismatch(exp, type, expected);
+	}
+	
+	private void mismatch(Node node, int found, int expected) {
+		error(node, "Incompatible types: found " + table.typeName(found)
+				+ ", expected " + table.typeName(expected));
+	}
+	
+	private void error(Node node, String message) {
+		diagnostics.add(new Diagnostic(node.getPosition(), message));
+	}
+}
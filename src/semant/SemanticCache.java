@@ -0,0 +1,619 @@
+package semant;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import ast.*;
+import symbol.*;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * Type checks a program class by class, keeping the results for each class
+ * in a file so later builds, in this process or another, can load them
+ * instead of checking the class again. A class's entry holds what resolving
+ * and checking its bodies produced: the local or field slot of each variable
+ * reference, the class of each NewObject, the type of each expression, the
+ * target of each Call, and the errors found.
+ * 
+ * Entries are keyed by the hash the parser takes of each class's tokens and
+ * their offsets (Parser.getClassHashes()). An entry is only used if the
+ * signature hash of every class its bodies looked at is still the one it was
+ * checked against. A class's signature hash covers what checking another
+ * class can see of it: its header, its fields and method signatures, whether
+ * the classes they name are declared, and its superclass's signature hash.
+ * So an entry is reused exactly when checking the class again would look at
+ * the same declarations and reach the same results.
+ * 
+ * A class with the same key parses to the same tree with its node ids and
+ * positions shifted by a fixed amount, so entries refer to nodes by id and to
+ * positions by offset, both relative to the start of the class, and to other
+ * classes by name. Names are kept once for the whole file and looked up
+ * once per build. Loading an entry is then a run of table writes that never
+ * visits the tree. All entries live in one file, read in one go and replaced
+ * by renaming a new file over it, so an interrupted build never leaves a
+ * broken cache behind. The file ends with a CRC-32 of the rest, and one that
+ * cannot be read or does not match it counts as empty. An entry that still
+ * fails to decode is a miss: what it restored of its class is forgotten and
+ * the class checked again.
+ * 
+ */
+
+public class SemanticCache {
+	private final File file;
+	private SymbolTable table;
+	private IntNodeTable types;
+	private NodeTable<MethodSymbol> targets;
+	private long[] signatures; // by class index
+	private int loadedCount, checkedCount;
+	
+	// strings the entries refer to, shared by all entries in the file
+	private List<String> strings;
+	private Map<String, Integer> stringIndex;
+	private int[] nameIds; // the interned name of each string, looked up once per check
+	
+	private final static int MAGIC = 0x4D4A5343, VERSION = 2;
+	
+	// signature hash of a class that is not declared
+	private final static long ABSENT = 0x3C6EF372FE94F82BL;
+	
+	// stands in for a name not looked up yet
+	private final static int UNKNOWN = -2;
+	
+	public SemanticCache(File file) {
+		this.file = file;
+	}
+	
+	// checks a program read by Parser.parseProgram(), loading the results of
+	// each class from the cache if it can, and updates the cache
+	public List<Diagnostic> check(Program prog, int nodeCount, LongNodeTable classHashes) {
+		SymbolTableBuilder builder = new SymbolTableBuilder(nodeCount);
+		table = builder.declare(prog);
+		types = new IntNodeTable(nodeCount, Types.ERROR);
+		targets = new NodeTable<MethodSymbol>(nodeCount);
+		signatures = new long[table.getClassCount()];
+		for (ClassSymbol symbol : table.getClasses())
+			signature(symbol);
+		
+		Map<Long, Entry> entries = read();
+		Map<Long, Entry> kept = new LinkedHashMap<Long, Entry>();
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		loadedCount = checkedCount = 0;
+		for (ClassSymbol symbol : table.getClasses()) {
+			Node decl = symbol.getDecl();
+			long hash = classHashes.get(decl);
+			Entry entry = entries.remove(hash);
+			
+			List<Diagnostic> found = null;
+			if (entry != null) {
+				try {
+					found = load(entry, decl, builder);
+				} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+					forget(decl, builder); // a damaged entry, which may have restored part of the class
+				}
+			}
+			if (found != null) {
+				kept.put(hash, entry);
+				loadedCount++;
+			} else {
+				Set<String> dependencies = new HashSet<String>();
+				found = checkClass(symbol, builder, dependencies);
+				entry = store(decl, dependencies, found);
+				if (entry != null)
+					kept.put(hash, entry);
+				checkedCount++;
+			}
+			diagnostics.addAll(found);
+		}
+		
+		// rewrite the file if anything was checked or some entry is no longer needed
+		if (checkedCount > 0 || !entries.isEmpty())
+			write(kept);
+		Collections.sort(diagnostics);
+		return diagnostics;
+	}
+	
+	// symbol table of the program given to the last check()
+	public SymbolTable getTable() {
+		return table;
+	}
+	
+	// static type of an expression, or Types.ERROR
+	public int getType(Exp exp) {
+		return types.get(exp);
+	}
+	
+	// method a call resolves to in the static type of its callee, or null
+	public MethodSymbol getTarget(Call call) {
+		return targets.get(call);
+	}
+	
+	// number of classes whose results the last check() loaded from the cache
+	public int getLoadedCount() {
+		return loadedCount;
+	}
+	
+	// number of classes the last check() resolved and checked
+	public int getCheckedCount() {
+		return checkedCount;
+	}
+	
+	// resolves and checks the bodies of a class, adding what they depend on to the set
+	private List<Diagnostic> checkClass(ClassSymbol symbol, SymbolTableBuilder builder, Set<String> dependencies) {
+		List<Diagnostic> found = new ArrayList<Diagnostic>();
+		Node decl = symbol.getDecl();
+		if (decl.getKind() == NodeKind.MAIN_CLASS) {
+			found.addAll(builder.resolveMain((MainClass) decl));
+			MethodChecker checker = new MethodChecker(table, null, null, types, targets);
+			checker.recordDependencies(dependencies);
+			checker.checkMain((MainClass) decl);
+			found.addAll(checker.getDiagnostics());
+		} else {
+			MethodDeclList methods = ((ClassDecl) decl).getMethods();
+			for (int i = 0; i < methods.size(); i++) {
+				MethodDecl methodDecl = methods.elementAt(i);
+				MethodSymbol method = methodDecl == null ? null : table.getDeclaredMethod(methodDecl);
+				if (method == null || method.getOwner() != symbol)
+					continue;
+				found.addAll(builder.resolveMethod(method));
+				MethodChecker checker = new MethodChecker(table, symbol, method, types, targets);
+				checker.recordDependencies(dependencies);
+				checker.checkMethod(methodDecl);
+				found.addAll(checker.getDiagnostics());
+			}
+		}
+		return found;
+	}
+	
+	// encodes the results of the class just checked, or returns null if its
+	// name is missing, since the name's id is where the class's ids start
+	private Entry store(Node decl, Set<String> dependencies, List<Diagnostic> found) {
+		Identifier classId = classIdOf(decl);
+		if (classId == null)
+			return null;
+		int base = classId.getNodeId();
+		int start = Position.getStart(decl.getPosition());
+		
+		// the entry numbers the strings it uses from 0
+		LocalStrings local = new LocalStrings();
+		Set<Integer> classes = new HashSet<Integer>(); // names of the classes depended on
+		for (String dependency : dependencies)
+			classes.add(local.index(string(DependencyGraph.className(dependency))));
+		
+		// the results recorded for each node of the class
+		TreeIndex index = new TreeIndex(decl);
+		List<int[]> typeEntries = new ArrayList<int[]>();
+		List<int[]> localEntries = new ArrayList<int[]>();
+		List<int[]> fieldEntries = new ArrayList<int[]>();
+		List<int[]> newEntries = new ArrayList<int[]>();
+		List<int[]> targetEntries = new ArrayList<int[]>();
+		for (int i = 0; i < index.size(); i++) {
+			Node node = index.getNode(i);
+			int id = node.getNodeId() - base;
+			int type = types.get(node);
+			if (Types.isClass(type))
+				type = Types.classType(classString(table.getClassOfType(type), local, classes));
+			if (type != Types.ERROR)
+				typeEntries.add(new int[] { id, type });
+			if (table.getLocalSlot(node) >= 0)
+				localEntries.add(new int[] { id, table.getLocalSlot(node) });
+			if (table.getFieldSlot(node) >= 0)
+				fieldEntries.add(new int[] { id, table.getFieldSlot(node) });
+			if (node.getKind() == NodeKind.NEW_OBJECT && table.getNewClass((NewObject) node) != null)
+				newEntries.add(new int[] { id, classString(table.getNewClass((NewObject) node), local, classes) });
+			MethodSymbol target = targets.get(node);
+			if (target != null)
+				targetEntries.add(new int[] { id, classString(target.getOwner(), local, classes),
+						local.index(string(table.getNames().getName(target.getNameId()))) });
+		}
+		
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			writeVarint(out, decl.getNodeId() - base);
+			writeVarint(out, classes.size());
+			for (int string : classes) {
+				writeVarint(out, string);
+				out.writeLong(signatureOf(strings.get(local.get(string))));
+			}
+			
+			writeEntries(out, typeEntries);
+			writeEntries(out, localEntries);
+			writeEntries(out, fieldEntries);
+			writeEntries(out, newEntries);
+			writeEntries(out, targetEntries);
+			
+			writeVarint(out, found.size());
+			for (Diagnostic diagnostic : found) {
+				long position = diagnostic.getPosition();
+				out.writeBoolean(position != Position.NONE);
+				if (position != Position.NONE) {
+					writeVarint(out, Position.getStart(position) - start);
+					writeVarint(out, Position.getEnd(position) - start);
+				}
+				writeString(out, diagnostic.getMessage());
+			}
+			out.close();
+			return new Entry(local.toArray(), ByteBuffer.wrap(bytes.toByteArray()));
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // not thrown by a ByteArrayOutputStream
+		}
+	}
+	
+	// restores a class's results from its entry, returning the errors found in
+	// it, or null if the entry is out of date
+	private List<Diagnostic> load(Entry entry, Node decl, SymbolTableBuilder builder) {
+		Identifier classId = classIdOf(decl);
+		if (classId == null)
+			return null;
+		ByteBuffer in = entry.body.duplicate();
+		int base = classId.getNodeId(), last = decl.getNodeId();
+		if (readVarint(in) != decl.getNodeId() - base)
+			return null;
+		
+		// every class depended on must look as it did when the entry was stored
+		int[] strings = entry.strings;
+		ClassSymbol[] classes = new ClassSymbol[strings.length];
+		for (int i = readVarint(in); i > 0; i--) {
+			int string = readVarint(in);
+			ClassSymbol symbol = table.lookupClass(nameId(strings[string]));
+			if (in.getLong() != (symbol == null ? ABSENT : signatures[symbol.getIndex()]))
+				return null;
+			classes[string] = symbol;
+		}
+		
+		int id = base;
+		for (int i = readVarint(in); i > 0; i--) {
+			id = nextId(in, id, base, last);
+			int type = readVarint(in);
+			types.put(id, Types.isClass(type) ? classes[Types.classIndex(type)].getType() : type);
+		}
+		id = base;
+		for (int i = readVarint(in); i > 0; i--) {
+			id = nextId(in, id, base, last);
+			builder.restoreLocalSlot(id, readVarint(in));
+		}
+		id = base;
+		for (int i = readVarint(in); i > 0; i--) {
+			id = nextId(in, id, base, last);
+			builder.restoreFieldSlot(id, readVarint(in));
+		}
+		id = base;
+		for (int i = readVarint(in); i > 0; i--) {
+			id = nextId(in, id, base, last);
+			builder.restoreNewClass(id, classes[readVarint(in)]);
+		}
+		id = base;
+		for (int i = readVarint(in); i > 0; i--) {
+			id = nextId(in, id, base, last);
+			ClassSymbol owner = classes[readVarint(in)];
+			targets.put(id, owner.lookupMethod(nameId(strings[readVarint(in)])));
+		}
+		
+		int start = Position.getStart(decl.getPosition());
+		List<Diagnostic> found = new ArrayList<Diagnostic>();
+		for (int i = readVarint(in); i > 0; i--) {
+			long position = Position.NONE;
+			if (in.get() != 0) {
+				int from = start + readVarint(in);
+				position = Position.make(from, start + readVarint(in));
+			}
+			found.add(new Diagnostic(position, readString(in)));
+		}
+		return found;
+	}
+	
+	// clears what a class's nodes, from its name's id to its own, were given by loading it
+	private void forget(Node decl, SymbolTableBuilder builder) {
+		for (int id = classIdOf(decl).getNodeId(); id <= decl.getNodeId(); id++) {
+			types.put(id, Types.ERROR);
+			targets.put(id, null);
+			builder.restoreLocalSlot(id, -1);
+			builder.restoreFieldSlot(id, -1);
+			builder.restoreNewClass(id, null);
+		}
+	}
+	
+	// the entries in the file, by class hash, or none if it cannot be read
+	private Map<Long, Entry> read() {
+		Map<Long, Entry> entries = new HashMap<Long, Entry>();
+		strings = new ArrayList<String>();
+		stringIndex = new HashMap<String, Integer>();
+		if (file.isFile()) {
+			try {
+				byte[] bytes = Files.readAllBytes(file.toPath());
+				ByteBuffer in = ByteBuffer.wrap(bytes, 0, Math.max(bytes.length - 4, 0)).slice();
+				CRC32 crc = new CRC32();
+				crc.update(bytes, 0, in.limit());
+				if (bytes.length >= 4 && (int) crc.getValue() == ByteBuffer.wrap(bytes, in.limit(), 4).getInt()
+						&& in.getInt() == MAGIC && in.getInt() == VERSION) {
+					for (int i = in.getInt(); i > 0; i--)
+						string(readString(in));
+					for (int i = in.getInt(); i > 0; i--) {
+						long hash = in.getLong();
+						int[] used = new int[in.getInt()];
+						for (int j = 0; j < used.length; j++) {
+							used[j] = in.getInt();
+							if (used[j] < 0 || used[j] >= strings.size())
+								throw new BufferUnderflowException();
+						}
+						int length = in.getInt();
+						if (length < 0 || length > in.remaining())
+							throw new BufferUnderflowException();
+						ByteBuffer body = in.slice();
+						body.limit(length);
+						entries.put(hash, new Entry(used, body));
+						in.position(in.position() + length);
+					}
+				}
+			} catch (IOException e) {
+				entries.clear();
+			} catch (BufferUnderflowException e) {
+				entries.clear(); // cut short
+			}
+		}
+		
+		nameIds = new int[Math.max(strings.size(), 16)];
+		Arrays.fill(nameIds, UNKNOWN);
+		return entries;
+	}
+	
+	// replaces the file with one holding the given entries and the strings they use
+	private void write(Map<Long, Entry> entries) {
+		int[] renumbered = new int[strings.size()];
+		Arrays.fill(renumbered, -1);
+		List<String> used = new ArrayList<String>();
+		for (Entry entry : entries.values()) {
+			for (int string : entry.strings) {
+				if (renumbered[string] < 0) {
+					renumbered[string] = used.size();
+					used.add(strings.get(string));
+				}
+			}
+		}
+		
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			CRC32 crc = new CRC32();
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new CheckedOutputStream(new FileOutputStream(temp), crc)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(used.size());
+				for (String string : used)
+					writeString(out, string);
+				out.writeInt(entries.size());
+				for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+					out.writeLong(entry.getKey());
+					int[] strings = entry.getValue().strings;
+					out.writeInt(strings.length);
+					for (int string : strings)
+						out.writeInt(renumbered[string]);
+					ByteBuffer body = entry.getValue().body;
+					out.writeInt(body.remaining());
+					out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+				}
+				out.flush();
+				out.writeInt((int) crc.getValue());
+			} finally {
+				out.close();
+			}
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.err.println("Could not write " + file + ": " + e.getMessage());
+			temp.delete();
+		}
+	}
+	
+	private static Identifier classIdOf(Node decl) {
+		return decl.getKind() == NodeKind.MAIN_CLASS ? ((MainClass) decl).getClassId()
+				: ((ClassDecl) decl).getClassId();
+	}
+	
+	// index of a string in the shared table, adding it if new
+	private int string(String string) {
+		Integer index = stringIndex.get(string);
+		if (index == null) {
+			index = strings.size();
+			strings.add(string);
+			stringIndex.put(string, index);
+		}
+		return index;
+	}
+	
+	// interned name of a shared string, or -1 if no declaration has that name
+	private int nameId(int string) {
+		if (string >= nameIds.length) {
+			int length = nameIds.length;
+			nameIds = Arrays.copyOf(nameIds, Math.max(length * 2, string + 1));
+			Arrays.fill(nameIds, length, nameIds.length, UNKNOWN);
+		}
+		if (nameIds[string] == UNKNOWN)
+			nameIds[string] = table.getNames().lookup(strings.get(string));
+		return nameIds[string];
+	}
+	
+	// the entry's index of a class's name, which the entry then depends on
+	private int classString(ClassSymbol symbol, LocalStrings local, Set<Integer> classes) {
+		int index = local.index(string(table.getNames().getName(symbol.getNameId())));
+		classes.add(index);
+		return index;
+	}
+	
+	private long signatureOf(String className) {
+		ClassSymbol symbol = table.lookupClass(className);
+		return symbol == null ? ABSENT : signatures[symbol.getIndex()];
+	}
+	
+	// writes entries of a node id and values, sorted by id, as variable-length
+	// gaps between ids and values
+	private static void writeEntries(DataOutputStream out, List<int[]> entries) throws IOException {
+		Collections.sort(entries, (a, b) -> Integer.compare(a[0], b[0]));
+		writeVarint(out, entries.size());
+		int id = 0;
+		for (int[] entry : entries) {
+			writeVarint(out, entry[0] - id);
+			id = entry[0];
+			for (int i = 1; i < entry.length; i++)
+				writeVarint(out, entry[i]);
+		}
+	}
+	
+	// seven bits per byte, low bits first, with the top bit set on all but the last
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+	
+	// the node id an entry's gap from the last one leads to, which must be in the class
+	private static int nextId(ByteBuffer in, int id, int base, int last) {
+		id += readVarint(in);
+		Objects.checkIndex(id - base, last - base + 1);
+		return id;
+	}
+	
+	private static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+	}
+	
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return string;
+	}
+	
+	// computes the signature hash of a class after those of its superclasses
+	private long signature(ClassSymbol symbol) {
+		int index = symbol.getIndex();
+		if (signatures[index] != 0)
+			return signatures[index];
+		
+		Node decl = symbol.getDecl();
+		long h;
+		if (decl.getKind() == NodeKind.MAIN_CLASS)
+			h = mix(decl.getKind(), nameCode(((MainClass) decl).getClassId()));
+		else {
+			ClassDecl classDecl = (ClassDecl) decl;
+			h = mix(decl.getKind(), nameCode(classDecl.getClassId()));
+			if (classDecl.getKind() == NodeKind.CLASS_DECL_EXTENDS)
+				h = mix(h, nameCode(((ClassDeclExtends) classDecl).getSuperId()));
+			h = mix(h, symbol.getSuperClass() == null ? ABSENT : signature(symbol.getSuperClass()));
+			
+			VarDeclList fields = classDecl.getFields();
+			for (int i = 0; i < fields.size(); i++) {
+				VarDecl field = fields.elementAt(i);
+				if (field != null)
+					h = mix(mix(h, typeCode(field.getType())), nameCode(field.getId()));
+			}
+			MethodDeclList methods = classDecl.getMethods();
+			for (int i = 0; i < methods.size(); i++) {
+				MethodDecl method = methods.elementAt(i);
+				if (method == null)
+					continue;
+				h = mix(mix(h, nameCode(method.getId())), typeCode(method.getReturnType()));
+				FormalList params = method.getParams();
+				for (int j = 0; j < params.size(); j++)
+					h = mix(h, params.elementAt(j) == null ? -1 : typeCode(params.elementAt(j).getType()));
+			}
+		}
+		
+		if (h == 0)
+			h = 1; // 0 marks a hash not computed yet
+		signatures[index] = h;
+		return h;
+	}
+	
+	// a type, and whether the class it names is declared
+	private long typeCode(Type type) {
+		if (type == null)
+			return -1;
+		if (type.getKind() != NodeKind.IDENTIFIER_TYPE)
+			return type.getKind();
+		String name = ((IdentifierType) type).getName();
+		return mix(name.hashCode() * 31L + type.getKind(), table.lookupClass(name) == null ? 0 : 1);
+	}
+	
+	private static long nameCode(Identifier id) {
+		return id == null ? -1 : id.getName().hashCode();
+	}
+	
+	private static long mix(long h, long v) {
+		return (h ^ v) * 0x100000001B3L + 0x9E3779B97F4A7C15L;
+	}
+	
+	// the results of checking a class, as stored in the file
+	private static class Entry {
+		final int[] strings; // shared index of each string the body refers to
+		final ByteBuffer body;
+		
+		Entry(int[] strings, ByteBuffer body) {
+			this.strings = strings;
+			this.body = body;
+		}
+	}
+	
+	// numbers the shared strings an entry uses from 0, in order of first use
+	private static class LocalStrings {
+		private final Map<Integer, Integer> indices = new HashMap<Integer, Integer>();
+		private int[] strings = new int[8];
+		
+		int index(int string) {
+			Integer index = indices.get(string);
+			if (index == null) {
+				index = indices.size();
+				if (index == strings.length)
+					strings = Arrays.copyOf(strings, index * 2);
+				strings[index] = string;
+				indices.put(string, index);
+			}
+			return index;
+		}
+		
+		int get(int index) {
+			return strings[index];
+		}
+		
+		int[] toArray() {
+			return Arrays.copyOf(strings, indices.size());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package semant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ast.*;
+import symbol.*;
+
+/*
+ * 
+ * Type checks the statements and expressions of a program whose symbol table
+ * has been built. The symbol table already holds every class and method
+ * signature, so each method body can be checked on its own, and check() with
+ * a ForkJoinPool checks them in parallel. Each body collects its own
+ * diagnostics, which are merged and sorted by position at the end, so the
+ * output is the same whatever the pool size or scheduling.
+ * 
+ * Along the way the checker records the type of every expression and the
+ * method each Call resolves to statically.
+ * 
+ */
+
+public class TypeChecker {
+	private final SymbolTable table;
+	private final IntNodeTable types;
+	private final NodeTable<MethodSymbol> targets;
+	private List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+	
+	// bodies checked by a task before it stops splitting its range
+	private final static int BATCH_SIZE = 8;
+	
+	public TypeChecker(SymbolTable table, int nodeCount) {
+		this.table = table;
+		
+		// sized up front, so workers never grow the tables as they write to them
+		types = new IntNodeTable(nodeCount, Types.ERROR);
+		targets = new NodeTable<MethodSymbol>(nodeCount);
+	}
+	
+	// checks all bodies on the calling thread
+	public List<Diagnostic> check(Program prog) {
+		return check(prog, null);
+	}
+	
+	// checks the bodies on the given pool, or on the calling thread if it is null
+	public List<Diagnostic> check(Program prog, ForkJoinPool pool) {
+		List<Body> bodies = collectBodies(prog);
+		if (pool == null) {
+			for (Body body : bodies)
+				checkBody(body);
+		} else
+			pool.invoke(new CheckTask(bodies, 0, bodies.size()));
+		
+		// merge in a fixed order
+		diagnostics = new ArrayList<Diagnostic>();
+		for (Body body : bodies)
+			diagnostics.addAll(body.diagnostics);
+		Collections.sort(diagnostics);
+		return diagnostics;
+	}
+	
+	// errors found by the last check(), sorted by position
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+	
+	// static type of an expression, or Types.ERROR
+	public int getType(Exp exp) {
+		return types.get(exp);
+	}
+	
+	// method a call resolves to in the static type of its callee, or null
+	public MethodSymbol getTarget(Call call) {
+		return targets.get(call);
+	}
+	
+	private List<Body> collectBodies(Program prog) {
+		List<Body> bodies = new ArrayList<Body>();
+		if (prog.getMainClass() != null)
+			bodies.add(new Body(prog.getMainClass(), null));
+		
+		ClassDeclList classList = prog.getClassDeclList();
+		for (int i = 0; i < classList.size(); i++) {
+			ClassDecl classDecl = classList.elementAt(i);
+			if (classDecl == null)
+				continue;
+			
+			// bodies of classes or methods left out of the table are not checked
+			MethodDeclList methods = classDecl.getMethods();
+			for (int j = 0; j < methods.size(); j++) {
+				MethodDecl methodDecl = methods.elementAt(j);
+				if (methodDecl == null)
+					continue;
+				MethodSymbol method = table.getDeclaredMethod(methodDecl);
+				if (method != null && method.getOwner().getDecl() == classDecl)
+					bodies.add(new Body(methodDecl, method));
+			}
+		}
+		return bodies;
+	}
+	
+	private void checkBody(Body body) {
+		if (body.method == null) {
+			MethodChecker checker = new MethodChecker(table, null, null, types, targets);
+			checker.checkMain((MainClass) body.decl);
+			body.diagnostics = checker.getDiagnostics();
+		} else {
+			MethodChecker checker = new MethodChecker(table, body.method.getOwner(), body.method,
+					types, targets);
+			checker.checkMethod((MethodDecl) body.decl);
+			body.diagnostics = checker.getDiagnostics();
+		}
+	}
+	
+	// a method body, or the main class's statement, with the errors found in it
+	private static class Body {
+		final Node decl;
+		final MethodSymbol method;
+		List<Diagnostic> diagnostics;
+		
+		Body(Node decl, MethodSymbol method) {
+			this.decl = decl;
+			this.method = method;
+		}
+	}
+	
+	// checks a range of bodies, splitting it in halves while it is large
+	private class CheckTask extends RecursiveAction {
+		private final static long serialVersionUID = 1L;
+		
+		private final List<Body> bodies;
+		private final int from, to;
+		
+		CheckTask(List<Body> bodies, int from, int to) {
+			this.bodies = bodies;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH_SIZE) {
+				for (int i = from; i < to; i++)
+					checkBody(bodies.get(i));
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new CheckTask(bodies, from, mid), new CheckTask(bodies, mid, to));
+			}
+		}
+	}
+}
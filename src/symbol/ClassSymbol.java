@@ -0,0 +1,143 @@
+package symbol;
+
+import java.util.Arrays;
+
+import ast.Node;
+
+/*
+ * 
+ * A class together with everything it inherits. Fields and methods are
+ * flattened along the extends chain into slot arrays: inherited members keep
+ * the slots they have in the superclass and the class's own members follow,
+ * so a field slot is also an offset into an object's fields and a method slot
+ * is an index into a vtable. Lookups by interned name go through a hash map
+ * to the slot, so they take the same time however deep the hierarchy is.
+ * 
+ */
+
+public class ClassSymbol {
+	private final int index;
+	private final int nameId;
+	private final Node decl; // MainClass or ClassDecl
+	
+	private ClassSymbol superClass;
+	private ClassSymbol[] ancestors; // from the root class down to this one
+	
+	private int[] fieldNames = new int[0];
+	private int[] fieldTypes = new int[0];
+	private int fieldCount;
+	private IntIntMap fieldSlots = new IntIntMap(0);
+	
+	private MethodSymbol[] methods = new MethodSymbol[0];
+	private int methodCount;
+	private IntIntMap methodSlots = new IntIntMap(0);
+	
+	ClassSymbol(int index, int nameId, Node decl) {
+		this.index = index;
+		this.nameId = nameId;
+		this.decl = decl;
+		ancestors = new ClassSymbol[] { this };
+	}
+	
+	// index of the class in its symbol table, from 0
+	public int getIndex() {
+		return index;
+	}
+	
+	public int getNameId() {
+		return nameId;
+	}
+	
+	public Node getDecl() {
+		return decl;
+	}
+	
+	public int getType() {
+		return Types.classType(index);
+	}
+	
+	public ClassSymbol getSuperClass() {
+		return superClass;
+	}
+	
+	// true if this class is other or inherits from it
+	public boolean isSubclassOf(ClassSymbol other) {
+		int depth = other.ancestors.length - 1;
+		return depth < ancestors.length && ancestors[depth] == other;
+	}
+	
+	public int getFieldCount() {
+		return fieldCount;
+	}
+	
+	public int getFieldName(int slot) {
+		return fieldNames[slot];
+	}
+	
+	public int getFieldType(int slot) {
+		return fieldTypes[slot];
+	}
+	
+	// slot of the field visible under the given name, or -1
+	public int lookupField(int nameId) {
+		return fieldSlots.get(nameId);
+	}
+	
+	public int getMethodCount() {
+		return methodCount;
+	}
+	
+	public MethodSymbol getMethod(int slot) {
+		return methods[slot];
+	}
+	
+	// method called under the given name, inherited or not, or null
+	public MethodSymbol lookupMethod(int nameId) {
+		int slot = methodSlots.get(nameId);
+		return slot < 0 ? null : methods[slot];
+	}
+	
+	// starts the flattened members off as a copy of the superclass's
+	void inherit(ClassSymbol superClass, int ownFields, int ownMethods) {
+		this.superClass = superClass;
+		if (superClass != null) {
+			ancestors = Arrays.copyOf(superClass.ancestors, superClass.ancestors.length + 1);
+			ancestors[ancestors.length - 1] = this;
+			
+			fieldCount = superClass.fieldCount;
+			fieldNames = Arrays.copyOf(superClass.fieldNames, fieldCount + ownFields);
+			fieldTypes = Arrays.copyOf(superClass.fieldTypes, fieldCount + ownFields);
+			fieldSlots = new IntIntMap(superClass.fieldSlots, ownFields);
+			
+			methodCount = superClass.methodCount;
+			methods = Arrays.copyOf(superClass.methods, methodCount + ownMethods);
+			methodSlots = new IntIntMap(superClass.methodSlots, ownMethods);
+		} else {
+			fieldNames = new int[ownFields];
+			fieldTypes = new int[ownFields];
+			fieldSlots = new IntIntMap(ownFields);
+			methods = new MethodSymbol[ownMethods];
+			methodSlots = new IntIntMap(ownMethods);
+		}
+	}
+	
+	// adds a field, hiding any inherited one of the same name
+	int addField(int nameId, int type) {
+		int slot = fieldCount++;
+		fieldNames[slot] = nameId;
+		fieldTypes[slot] = type;
+		fieldSlots.put(nameId, slot);
+		return slot;
+	}
+	
+	// adds a method in a new slot, or in the slot of the one it overrides
+	void addMethod(MethodSymbol method) {
+		int slot = methodSlots.get(method.getNameId());
+		if (slot < 0) {
+			slot = methodCount++;
+			methodSlots.put(method.getNameId(), slot);
+		}
+		method.setSlot(slot);
+		methods[slot] = method;
+	}
+}
@@ -0,0 +1,50 @@
+package symbol;
+
+import ast.Position;
+import parser.LineMap;
+
+/*
+ * 
+ * A semantic error found at a node. Diagnostics order by source position
+ * and then by message, so errors found by different passes or threads can
+ * be merged into the same output every run.
+ * 
+ */
+
+public class Diagnostic implements Comparable<Diagnostic> {
+	private final long position;
+	private final String message;
+	
+	public Diagnostic(long position, String message) {
+		this.position = position;
+		this.message = message;
+	}
+	
+	public long getPosition() {
+		return position;
+	}
+	
+	public String getMessage() {
+		return message;
+	}
+	
+	// formats the diagnostic the way the parser reports syntax errors
+	public String format(LineMap lineMap) {
+		if (position == Position.NONE || lineMap == null)
+			return "ERROR: " + message;
+		return "ERROR: " + message + " at " + lineMap.describe(position);
+	}
+	
+	@Override
+	public int compareTo(Diagnostic other) {
+		int start = Position.getStart(position), otherStart = Position.getStart(other.position);
+		if (start != otherStart)
+			return start < otherStart ? -1 : 1;
+		return message.compareTo(other.message);
+	}
+	
+	@Override
+	public String toString() {
+		return "ERROR: " + message;
+	}
+}
@@ -0,0 +1,92 @@
+package symbol;
+
+import java.util.Arrays;
+
+/*
+ * 
+ * An open-addressing hash map from non-negative int keys to int values. The
+ * scopes of the symbol table use it to map interned names to slots, so a
+ * lookup probes a flat int array with no boxing. A missing key maps to -1.
+ * 
+ */
+
+class IntIntMap {
+	private int[] keys;
+	private int[] values;
+	private int size;
+	
+	private final static int EMPTY = -1;
+	
+	IntIntMap(int expected) {
+		int capacity = 4;
+		while (capacity < expected * 2)
+			capacity <<= 1;
+		keys = new int[capacity];
+		values = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+	
+	// copy of another map, sized to take extra more keys without growing
+	IntIntMap(IntIntMap other, int extra) {
+		this(other.size + extra);
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.keys[i] != EMPTY)
+				put(other.keys[i], other.values[i]);
+		}
+	}
+	
+	int get(int key) {
+		if (key < 0)
+			return -1;
+		
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			if (keys[i] == key)
+				return values[i];
+			if (keys[i] == EMPTY)
+				return -1;
+		}
+	}
+	
+	// maps key to value, returning the value it replaced or -1
+	int put(int key, int value) {
+		if ((size + 1) * 2 > keys.length)
+			grow();
+		
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				int old = values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return -1;
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	private void grow() {
+		int[] oldKeys = keys, oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY)
+				put(oldKeys[i], oldValues[i]);
+		}
+	}
+	
+	// ids are dense, so spread them before masking
+	private static int hash(int key) {
+		return key * 0x9E3779B9 >>> 7 ^ key;
+	}
+}
@@ -0,0 +1,106 @@
+package symbol;
+
+import java.util.Arrays;
+
+import ast.MethodDecl;
+
+/*
+ * 
+ * A method's signature and local scope. Parameters take local slots 0 to
+ * getParamCount() - 1 in order, and local variables follow them, so an
+ * interpreter can keep a frame's locals in an array indexed by slot. The
+ * method's own slot is its index in the vtable of its class.
+ * 
+ */
+
+public class MethodSymbol {
+	private final ClassSymbol owner;
+	private final int nameId;
+	private final MethodDecl decl;
+	private final int returnType;
+	private final int paramCount;
+	private int slot = -1;
+	
+	private int[] localNames;
+	private int[] localTypes;
+	private int localCount;
+	private final IntIntMap localSlots;
+	
+	MethodSymbol(ClassSymbol owner, int nameId, MethodDecl decl, int returnType,
+			int paramCount, int varCount) {
+		this.owner = owner;
+		this.nameId = nameId;
+		this.decl = decl;
+		this.returnType = returnType;
+		this.paramCount = paramCount;
+		localNames = new int[paramCount + varCount];
+		localTypes = new int[paramCount + varCount];
+		localSlots = new IntIntMap(paramCount + varCount);
+	}
+	
+	// class declaring the method
+	public ClassSymbol getOwner() {
+		return owner;
+	}
+	
+	public int getNameId() {
+		return nameId;
+	}
+	
+	public MethodDecl getDecl() {
+		return decl;
+	}
+	
+	public int getReturnType() {
+		return returnType;
+	}
+	
+	public int getSlot() {
+		return slot;
+	}
+	
+	public int getParamCount() {
+		return paramCount;
+	}
+	
+	public int getParamType(int index) {
+		return localTypes[index];
+	}
+	
+	public int getLocalCount() {
+		return localCount;
+	}
+	
+	public int getLocalName(int slot) {
+		return localNames[slot];
+	}
+	
+	public int getLocalType(int slot) {
+		return localTypes[slot];
+	}
+	
+	// slot of the parameter or local variable of the given name, or -1
+	public int lookupLocal(int nameId) {
+		return localSlots.get(nameId);
+	}
+	
+	// true if both methods take the same parameter types
+	public boolean sameParams(MethodSymbol other) {
+		return paramCount == other.paramCount
+				&& Arrays.equals(localTypes, 0, paramCount, other.localTypes, 0, paramCount);
+	}
+	
+	void setSlot(int slot) {
+		this.slot = slot;
+	}
+	
+	// adds a parameter or local, returning false if the name is taken
+	boolean addLocal(int nameId, int type) {
+		if (localSlots.get(nameId) >= 0)
+			return false;
+		localNames[localCount] = nameId;
+		localTypes[localCount] = type;
+		localSlots.put(nameId, localCount++);
+		return true;
+	}
+}
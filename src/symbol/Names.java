@@ -0,0 +1,44 @@
+package symbol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 
+ * Interns identifier names as dense int ids, starting at 0. Each distinct
+ * name is hashed once while the symbol table is built, after which scopes
+ * are keyed by id and names are compared as ints.
+ * 
+ */
+
+public class Names {
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+	
+	// id of the given name, assigning the next free id if it is new
+	public int intern(String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+		}
+		return id;
+	}
+	
+	// id of the given name, or -1 if it was never interned
+	public int lookup(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+	
+	public String getName(int id) {
+		return names.get(id);
+	}
+	
+	public int size() {
+		return names.size();
+	}
+}
@@ -0,0 +1,181 @@
+package symbol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+
+/*
+ * 
+ * The result of SymbolTableBuilder: every class of a program with its
+ * flattened members, plus side tables recording what the names in the AST
+ * resolved to. Classes are numbered from 0 in declaration order, starting
+ * with the main class. Side tables are indexed by node id, so looking up a
+ * node's declaration never hashes.
+ * 
+ */
+
+public class SymbolTable {
+	private final Names names;
+	private final List<ClassSymbol> classes = new ArrayList<ClassSymbol>();
+	private final IntIntMap classIndex = new IntIntMap(16);
+	
+	private final NodeTable<ClassSymbol> declaredClasses; // MainClass and ClassDecl nodes
+	private final NodeTable<MethodSymbol> declaredMethods; // MethodDecl nodes
+	private final IntNodeTable types; // Type nodes
+	private final IntNodeTable localSlots; // IdentifierExp, Assign and ArrayAssign nodes
+	private final IntNodeTable fieldSlots; // likewise
+	private final NodeTable<ClassSymbol> newClasses; // NewObject nodes
+	
+	SymbolTable(Names names, int nodeCount) {
+		this.names = names;
+		declaredClasses = new NodeTable<ClassSymbol>(nodeCount);
+		declaredMethods = new NodeTable<MethodSymbol>(nodeCount);
+		types = new IntNodeTable(nodeCount, Types.ERROR);
+		localSlots = new IntNodeTable(nodeCount, -1);
+		fieldSlots = new IntNodeTable(nodeCount, -1);
+		newClasses = new NodeTable<ClassSymbol>(nodeCount);
+	}
+	
+	public Names getNames() {
+		return names;
+	}
+	
+	public int getClassCount() {
+		return classes.size();
+	}
+	
+	public ClassSymbol getClass(int index) {
+		return classes.get(index);
+	}
+	
+	public List<ClassSymbol> getClasses() {
+		return Collections.unmodifiableList(classes);
+	}
+	
+	// class of the given interned name, or null
+	public ClassSymbol lookupClass(int nameId) {
+		if (nameId < 0)
+			return null;
+		int index = classIndex.get(nameId);
+		return index < 0 ? null : classes.get(index);
+	}
+	
+	public ClassSymbol lookupClass(String name) {
+		return lookupClass(names.lookup(name));
+	}
+	
+	// class declared by a MainClass or ClassDecl node
+	public ClassSymbol getDeclaredClass(Node decl) {
+		return declaredClasses.get(decl);
+	}
+	
+	public MethodSymbol getDeclaredMethod(MethodDecl decl) {
+		return declaredMethods.get(decl);
+	}
+	
+	// resolved type of a Type node, or Types.ERROR
+	public int getType(Type type) {
+		return types.get(type);
+	}
+	
+	// class instantiated by a NewObject node, or null
+	public ClassSymbol getNewClass(NewObject newObject) {
+		return newClasses.get(newObject);
+	}
+	
+	// local slot a variable reference resolved to, or -1
+	public int getLocalSlot(Node ref) {
+		return localSlots.get(ref);
+	}
+	
+	// field slot a variable reference resolved to, or -1
+	public int getFieldSlot(Node ref) {
+		return fieldSlots.get(ref);
+	}
+	
+	public ClassSymbol getClassOfType(int type) {
+		return Types.isClass(type) ? classes.get(Types.classIndex(type)) : null;
+	}
+	
+	// source name of a resolved type, for error messages
+	public String typeName(int type) {
+		switch (type) {
+			case Types.ERROR:
+				return "<error>";
+			case Types.INT:
+				return "int";
+			case Types.BOOLEAN:
+				return "boolean";
+			case Types.INT_ARRAY:
+				return "int[]";
+			default:
+				return names.getName(getClassOfType(type).getNameId());
+		}
+	}
+	
+	// the methods a call resolved to the given method can run: it and those overriding it in subclasses
+	public List<MethodSymbol> getImplementations(MethodSymbol method) {
+		List<MethodSymbol> implementations = new ArrayList<MethodSymbol>();
+		implementations.add(method);
+		for (ClassSymbol symbol : classes) {
+			if (symbol.isSubclassOf(method.getOwner())) {
+				MethodSymbol implementation = symbol.getMethod(method.getSlot());
+				if (!implementations.contains(implementation))
+					implementations.add(implementation);
+			}
+		}
+		return implementations;
+	}
+	
+	// true if a value of type from can be used where type to is expected
+	public boolean isAssignable(int from, int to) {
+		if (from == to || from == Types.ERROR || to == Types.ERROR)
+			return true;
+		if (!Types.isClass(from) || !Types.isClass(to))
+			return false;
+		return getClassOfType(from).isSubclassOf(getClassOfType(to));
+	}
+	
+	ClassSymbol addClass(int nameId, Node decl) {
+		ClassSymbol symbol = new ClassSymbol(classes.size(), nameId, decl);
+		classes.add(symbol);
+		classIndex.put(nameId, symbol.getIndex());
+		declaredClasses.put(decl, symbol);
+		return symbol;
+	}
+	
+	void setDeclaredMethod(MethodDecl decl, MethodSymbol method) {
+		declaredMethods.put(decl, method);
+	}
+	
+	void setType(Type type, int resolved) {
+		types.put(type, resolved);
+	}
+	
+	void setNewClass(NewObject newObject, ClassSymbol symbol) {
+		newClasses.put(newObject, symbol);
+	}
+	
+	void setLocalSlot(Node ref, int slot) {
+		localSlots.put(ref, slot);
+	}
+	
+	void setFieldSlot(Node ref, int slot) {
+		fieldSlots.put(ref, slot);
+	}
+	
+	// setters by node id, for restoring a body resolved in an earlier build
+	void setLocalSlot(int nodeId, int slot) {
+		localSlots.put(nodeId, slot);
+	}
+	
+	void setFieldSlot(int nodeId, int slot) {
+		fieldSlots.put(nodeId, slot);
+	}
+	
+	void setNewClass(int nodeId, ClassSymbol symbol) {
+		newClasses.put(nodeId, symbol);
+	}
+}
@@ -0,0 +1,315 @@
+package symbol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.*;
+import visitor.DepthFirstVisitor;
+
+/*
+ * 
+ * Builds the symbol table of a program in three passes. The first declares
+ * every class, so classes may be used before they are declared. The second
+ * flattens each class after its superclass, resolving the types of fields,
+ * methods, parameters and locals as it goes. The third walks the method
+ * bodies and resolves each variable reference to a local or field slot and
+ * each NewObject to its class. Every pass touches each declaration or node a
+ * constant number of times, apart from copying inherited members, so the
+ * build time grows linearly with the program. declare() runs only the first
+ * two passes, for callers that resolve bodies one at a time.
+ * 
+ * Errors are collected as diagnostics rather than printed, and the build
+ * carries on past them: a name that cannot be resolved gets the ERROR type
+ * or no slot, and an extends cycle is broken where it is found.
+ * 
+ */
+
+public class SymbolTableBuilder {
+	private final Names names = new Names();
+	private final SymbolTable table;
+	private final List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+	
+	private final List<ClassDecl> classDecls = new ArrayList<ClassDecl>(); // those declared
+	private int[] states; // flattening state of each class
+	
+	private final static int UNVISITED = 0, FLATTENING = 1, FLATTENED = 2;
+	
+	public SymbolTableBuilder(int nodeCount) {
+		table = new SymbolTable(names, nodeCount);
+	}
+	
+	public SymbolTable build(Program prog) {
+		declare(prog);
+		
+		// resolve names in statements and expressions
+		if (prog.getMainClass() != null)
+			diagnostics.addAll(resolveMain(prog.getMainClass()));
+		for (ClassDecl classDecl : classDecls) {
+			MethodDeclList methods = classDecl.getMethods();
+			for (int i = 0; i < methods.size(); i++) {
+				MethodSymbol method = table.getDeclaredMethod(methods.elementAt(i));
+				if (method != null)
+					diagnostics.addAll(resolveMethod(method));
+			}
+		}
+		
+		return table;
+	}
+	
+	// runs the first two passes only, leaving bodies to be resolved one at a time
+	public SymbolTable declare(Program prog) {
+		// declare all classes
+		MainClass main = prog.getMainClass();
+		if (main != null && main.getClassId() != null)
+			declareClass(main.getClassId(), main);
+		
+		ClassDeclList classList = prog.getClassDeclList();
+		for (int i = 0; i < classList.size(); i++) {
+			ClassDecl classDecl = classList.elementAt(i);
+			if (classDecl != null && classDecl.getClassId() != null
+					&& declareClass(classDecl.getClassId(), classDecl) != null)
+				classDecls.add(classDecl);
+		}
+		
+		// flatten members along extends chains
+		states = new int[table.getClassCount()];
+		for (int i = 0; i < table.getClassCount(); i++)
+			flatten(table.getClass(i));
+		
+		return table;
+	}
+	
+	// resolves the main class's statement, returning the errors found in it
+	public List<Diagnostic> resolveMain(MainClass main) {
+		Resolver resolver = new Resolver(null, null);
+		if (main.getStm() != null)
+			main.getStm().accept(resolver);
+		return resolver.found;
+	}
+	
+	// resolves the body of a declared method, returning the errors found in it
+	public List<Diagnostic> resolveMethod(MethodSymbol method) {
+		Resolver resolver = new Resolver(method.getOwner(), method);
+		method.getDecl().accept(resolver);
+		return resolver.found;
+	}
+	
+	// record what the node of the given id resolved to in an earlier build,
+	// in place of resolving its body again
+	public void restoreLocalSlot(int nodeId, int slot) {
+		table.setLocalSlot(nodeId, slot);
+	}
+	
+	public void restoreFieldSlot(int nodeId, int slot) {
+		table.setFieldSlot(nodeId, slot);
+	}
+	
+	public void restoreNewClass(int nodeId, ClassSymbol symbol) {
+		table.setNewClass(nodeId, symbol);
+	}
+	
+	// errors found by build() or declare(), in the order they were found
+	public List<Diagnostic> getDiagnostics() {
+		return diagnostics;
+	}
+	
+	private ClassSymbol declareClass(Identifier id, Node decl) {
+		int nameId = names.intern(id.getName());
+		if (table.lookupClass(nameId) != null) {
+			error(id, "Duplicate class " + id.getName());
+			return null;
+		}
+		return table.addClass(nameId, decl);
+	}
+	
+	private void flatten(ClassSymbol symbol) {
+		int index = symbol.getIndex();
+		if (states[index] != UNVISITED)
+			return;
+		states[index] = FLATTENING;
+		
+		// the main class has no members
+		if (symbol.getDecl().getKind() == NodeKind.MAIN_CLASS) {
+			states[index] = FLATTENED;
+			return;
+		}
+		
+		ClassDecl classDecl = (ClassDecl) symbol.getDecl();
+		VarDeclList fields = classDecl.getFields();
+		MethodDeclList methods = classDecl.getMethods();
+		
+		// find and flatten the superclass first
+		ClassSymbol superClass = null;
+		if (classDecl.getKind() == NodeKind.CLASS_DECL_EXTENDS) {
+			Identifier superId = ((ClassDeclExtends) classDecl).getSuperId();
+			if (superId != null) {
+				superClass = table.lookupClass(names.lookup(superId.getName()));
+				if (superClass == null)
+					error(superId, "Undeclared class " + superId.getName());
+				else if (states[superClass.getIndex()] == FLATTENING) {
+					error(superId, "Cyclic inheritance involving " + superId.getName());
+					superClass = null;
+				} else
+					flatten(superClass);
+			}
+		}
+		symbol.inherit(superClass, fields.size(), methods.size());
+		
+		// add the class's own fields
+		int inheritedFields = superClass == null ? 0 : superClass.getFieldCount();
+		for (int i = 0; i < fields.size(); i++) {
+			VarDecl field = fields.elementAt(i);
+			if (field == null || field.getId() == null)
+				continue;
+			int nameId = names.intern(field.getId().getName());
+			if (symbol.lookupField(nameId) >= inheritedFields)
+				error(field.getId(), "Duplicate field " + field.getId().getName());
+			else
+				symbol.addField(nameId, resolve(field.getType()));
+		}
+		
+		// add the class's own methods, overriding inherited ones
+		for (int i = 0; i < methods.size(); i++) {
+			MethodDecl methodDecl = methods.elementAt(i);
+			if (methodDecl == null || methodDecl.getId() == null)
+				continue;
+			MethodSymbol method = declareMethod(symbol, methodDecl);
+			MethodSymbol other = symbol.lookupMethod(method.getNameId());
+			
+			if (other != null && other.getOwner() == symbol)
+				error(methodDecl.getId(), "Duplicate method " + methodDecl.getId().getName());
+			else {
+				if (other != null && (!method.sameParams(other)
+						|| !table.isAssignable(method.getReturnType(), other.getReturnType())))
+					error(methodDecl.getId(), "Method " + methodDecl.getId().getName()
+							+ " overrides a method with a different signature");
+				symbol.addMethod(method);
+				table.setDeclaredMethod(methodDecl, method);
+			}
+		}
+		
+		states[index] = FLATTENED;
+	}
+	
+	private MethodSymbol declareMethod(ClassSymbol owner, MethodDecl methodDecl) {
+		FormalList params = methodDecl.getParams();
+		VarDeclList vars = methodDecl.getVars();
+		MethodSymbol method = new MethodSymbol(owner, names.intern(methodDecl.getId().getName()),
+				methodDecl, resolve(methodDecl.getReturnType()), params.size(), vars.size());
+		
+		for (int i = 0; i < params.size(); i++) {
+			Formal param = params.elementAt(i);
+			declareLocal(method, param.getId(), resolve(param.getType()));
+		}
+		for (int i = 0; i < vars.size(); i++) {
+			VarDecl var = vars.elementAt(i);
+			declareLocal(method, var.getId(), resolve(var.getType()));
+		}
+		return method;
+	}
+	
+	private void declareLocal(MethodSymbol method, Identifier id, int type) {
+		if (id != null && !method.addLocal(names.intern(id.getName()), type))
+			error(id, "Duplicate variable " + id.getName());
+	}
+	
+	// resolves a Type node, recording the result in the table
+	private int resolve(Type type) {
+		if (type == null)
+			return Types.ERROR;
+		
+		int resolved;
+		switch (type.getKind()) {
+			case NodeKind.INT_ARRAY_TYPE:
+				resolved = Types.INT_ARRAY;
+				break;
+			case NodeKind.BOOLEAN_TYPE:
+				resolved = Types.BOOLEAN;
+				break;
+			case NodeKind.INTEGER_TYPE:
+				resolved = Types.INT;
+				break;
+			default:
+				String name = ((IdentifierType) type).getName();
+				ClassSymbol symbol = table.lookupClass(names.lookup(name));
+				if (symbol == null) {
+					error(type, "Undeclared class " + name);
+					resolved = Types.ERROR;
+				} else
+					resolved = symbol.getType();
+		}
+		table.setType(type, resolved);
+		return resolved;
+	}
+	
+	private void error(Node node, String message) {
+		diagnostics.add(new Diagnostic(node.getPosition(), message));
+	}
+	
+	/*
+	 * 
+	 * Resolves the variable references and object creations in one method
+	 * body, or in the main class's statement when method is null.
+	 * 
+	 */
+	
+	private class Resolver extends DepthFirstVisitor {
+		private final ClassSymbol owner;
+		private final MethodSymbol method;
+		private final List<Diagnostic> found = new ArrayList<Diagnostic>();
+		
+		Resolver(ClassSymbol owner, MethodSymbol method) {
+			this.owner = owner;
+			this.method = method;
+		}
+		
+		@Override
+		public void visit(Assign assign) {
+			if (assign.getId() != null)
+				resolveVariable(assign, assign.getId().getName());
+			super.visit(assign);
+		}
+		
+		@Override
+		public void visit(ArrayAssign assign) {
+			if (assign.getId() != null)
+				resolveVariable(assign, assign.getId().getName());
+			super.visit(assign);
+		}
+		
+		@Override
+		public void visit(IdentifierExp exp) {
+			resolveVariable(exp, exp.getName());
+		}
+		
+		@Override
+		public void visit(NewObject newObject) {
+			if (newObject.getId() == null)
+				return;
+			String name = newObject.getId().getName();
+			ClassSymbol symbol = table.lookupClass(names.lookup(name));
+			if (symbol == null)
+				found.add(new Diagnostic(newObject.getId().getPosition(), "Undeclared class " + name));
+			else
+				table.setNewClass(newObject, symbol);
+		}
+		
+		// locals and parameters hide fields
+		private void resolveVariable(Node ref, String name) {
+			int nameId = names.lookup(name);
+			if (nameId >= 0 && method != null) {
+				int slot = method.lookupLocal(nameId);
+				if (slot >= 0) {
+					table.setLocalSlot(ref, slot);
+					return;
+				}
+				slot = owner.lookupField(nameId);
+				if (slot >= 0) {
+					table.setFieldSlot(ref, slot);
+					return;
+				}
+			}
+			found.add(new Diagnostic(ref.getPosition(), "Undeclared variable " + name));
+		}
+	}
+}
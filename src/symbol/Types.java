@@ -0,0 +1,34 @@
+package symbol;
+
+/*
+ * 
+ * Resolved types are plain ints, so they can be stored in int arrays and
+ * compared with ==. The primitive types have fixed codes, and the type of a
+ * class is offset from them by the class's index in the symbol table. ERROR
+ * is the type of anything that could not be resolved, and is accepted
+ * wherever a type is expected so one mistake is only reported once.
+ * 
+ */
+
+public final class Types {
+	public final static int ERROR = 0;
+	public final static int INT = 1;
+	public final static int BOOLEAN = 2;
+	public final static int INT_ARRAY = 3;
+	
+	private final static int FIRST_CLASS = 4;
+	
+	private Types() {}
+	
+	public static int classType(int classIndex) {
+		return FIRST_CLASS + classIndex;
+	}
+	
+	public static boolean isClass(int type) {
+		return type >= FIRST_CLASS;
+	}
+	
+	public static int classIndex(int type) {
+		return type - FIRST_CLASS;
+	}
+}
@@ -0,0 +1,331 @@
+package tier;
+
+import java.io.PrintStream;
+
+import ast.*;
+import layout.Instance;
+import layout.RuntimeClass;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * The first tier: a tree-walker like interp.Interpreter, resolving each
+ * variable, call and NewObject per node id before running, and starting at
+ * once. It differs in running on the engine's frames, objects and
+ * methods, so that it can hand calls to compiled bodies and take calls from
+ * them, and in counting the back-edges of each loop. A loop whose
+ * count reaches the engine's threshold gets its method compiled and, with
+ * on-stack replacement, is compiled on its own: once that is done the
+ * interpreter hands the frame to the compiled loop at the next back-edge,
+ * or when the loop is next entered, and carries on after the loop with the
+ * locals the compiled loop left in the frame.
+ * 
+ * In tracing mode a hot loop is first recorded instead: while recorder is
+ * set, which is only during the iterations being recorded, every If, And
+ * and call reports what it did to it. A loop within them runs with the
+ * recorder unset, as does a call too deep to inline, and a trace once
+ * compiled is moved to just as a compiled loop is. A call that is recorded
+ * is interpreted even if its method has been compiled, so that what it
+ * does is recorded too.
+ * 
+ */
+
+final class BaselineInterpreter {
+	private final TieredEngine engine;
+	private final PrintStream out;
+	private final RuntimeClass[] classes;
+	private final int[] operands; // by node id
+	private final TieredMethod[] targets; // of calls, by node id
+	private final int[] backEdges; // by node id of While
+	private final TraceRecorder[] recorders; // likewise, for the loops being recorded
+	private TraceRecorder recorder; // of the iteration being recorded, if any
+	
+	// flags below the slot in the operand of a variable reference or assignment
+	private final static int FIELD = 1, REF = 2, FLAG_BITS = 2;
+	
+	BaselineInterpreter(TieredEngine engine, SymbolTable table, TypeChecker checker, int nodeCount) {
+		this.engine = engine;
+		out = engine.out;
+		classes = engine.classes;
+		operands = new int[nodeCount];
+		targets = new TieredMethod[nodeCount];
+		backEdges = new int[nodeCount];
+		recorders = new TraceRecorder[nodeCount];
+		for (ClassSymbol symbol : table.getClasses())
+			resolve(symbol, table, checker);
+	}
+	
+	// records the operands of every node of a class that needs one
+	private void resolve(ClassSymbol symbol, SymbolTable table, TypeChecker checker) {
+		TreeIndex index = new TreeIndex(symbol.getDecl());
+		MethodSymbol method = null;
+		for (int i = 0; i < index.size(); i++) {
+			Node node = index.getNode(i);
+			switch (index.getKind(i)) {
+				
+				case NodeKind.METHOD_DECL:
+					method = table.getDeclaredMethod((MethodDecl) node);
+					break;
+				
+				case NodeKind.IDENTIFIER_EXP:
+				case NodeKind.ASSIGN:
+				case NodeKind.ARRAY_ASSIGN:
+					int local = table.getLocalSlot(node), field = table.getFieldSlot(node);
+					if (local >= 0)
+						operands[node.getNodeId()] = variable(local, 0, method.getLocalType(local));
+					else if (field >= 0)
+						operands[node.getNodeId()] = variable(classes[symbol.getIndex()].shape.getIndex(field), FIELD,
+								symbol.getFieldType(field));
+					break;
+				
+				case NodeKind.CALL:
+					MethodSymbol target = checker.getTarget((Call) node);
+					targets[node.getNodeId()] = (TieredMethod) classes[target.getOwner().getIndex()].vtable[target.getSlot()];
+					break;
+				
+				case NodeKind.NEW_OBJECT:
+					operands[node.getNodeId()] = table.getNewClass((NewObject) node).getIndex();
+					break;
+			}
+		}
+	}
+	
+	private static int variable(int slot, int flags, int type) {
+		return slot << FLAG_BITS | flags | (TieredMethod.isRef(type) ? REF : 0);
+	}
+	
+	// runs the body of a method returning an int or boolean in a frame holding its arguments
+	int runInt(TieredMethod method, Frame frame) {
+		execute(method.decl.getStms(), frame);
+		return evalInt(method.decl.getReturnExp(), frame);
+	}
+	
+	Object runRef(TieredMethod method, Frame frame) {
+		execute(method.decl.getStms(), frame);
+		return evalRef(method.decl.getReturnExp(), frame);
+	}
+	
+	void execute(StatementList stms, Frame frame) {
+		for (int i = 0; i < stms.size(); i++)
+			execute(stms.elementAt(i), frame);
+	}
+	
+	void execute(Statement stm, Frame frame) {
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				execute(((Block) stm).getStms(), frame);
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				boolean taken = evalInt(ifStm.getCondExp(), frame) != 0;
+				if (recorder != null)
+					recorder.branch(ifStm, taken);
+				execute(taken ? ifStm.getTrueStm() : ifStm.getFalseStm(), frame);
+				break;
+			
+			case NodeKind.WHILE:
+				loop((While) stm, frame);
+				break;
+			
+			case NodeKind.PRINT:
+				out.println(evalInt(((Print) stm).getExp(), frame));
+				break;
+			
+			case NodeKind.ASSIGN:
+				int operand = operands[stm.getNodeId()];
+				Exp value = ((Assign) stm).getValue();
+				if ((operand & REF) != 0)
+					storeRef(operand, evalRef(value, frame), frame);
+				else
+					storeInt(operand, evalInt(value, frame), frame);
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign assign = (ArrayAssign) stm;
+				int[] array = (int[]) loadRef(operands[stm.getNodeId()], frame);
+				int index = evalInt(assign.getIndex(), frame);
+				array[index] = evalInt(assign.getValue(), frame);
+				break;
+		}
+	}
+	
+	// starts recording the iterations of a loop from the next one on
+	void startRecording(While loop) {
+		recorders[loop.getNodeId()] = new TraceRecorder();
+	}
+	
+	// forgets any recording under way, when a run starts
+	void resetRecording() {
+		recorder = null;
+	}
+	
+	// runs a loop, moving to its compiled version once there is one
+	private void loop(While whileStm, Frame frame) {
+		TraceRecorder outer = recorder;
+		TieredMethod method = frame.method;
+		int id = whileStm.getNodeId();
+		CompiledBody compiled = method == null ? null : engine.getLoop(id);
+		while (compiled == null) {
+			// iterations are not recorded within those of another recording, or of this one in a recursive call
+			TraceRecorder own = outer == null ? recorders[id] : null;
+			if (own != null)
+				own.startIteration();
+			recorder = own;
+			if (evalInt(whileStm.getCondExp(), frame) == 0)
+				break;
+			execute(whileStm.getStm(), frame);
+			if (own != null && (++own.iterations == TraceRecorder.ITERATIONS || own.abandoned)) {
+				recorders[id] = null;
+				compiled = engine.recorded(method, whileStm, own);
+			} else if (method != null && ++backEdges[id] >= engine.backEdgeThreshold)
+				compiled = engine.hotLoop(method, whileStm);
+		}
+		recorder = null;
+		if (compiled != null)
+			compiled.runLoop(frame);
+		recorder = outer;
+	}
+	
+	// evaluates an int or boolean expression
+	int evalInt(Exp exp, Frame frame) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				boolean lhs = evalInt(and.getLHS(), frame) != 0;
+				if (recorder != null)
+					recorder.branch(and, lhs);
+				return lhs ? evalInt(and.getRHS(), frame) : 0;
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThan = (LessThan) exp;
+				return evalInt(lessThan.getLHS(), frame) < evalInt(lessThan.getRHS(), frame) ? 1 : 0;
+			
+			case NodeKind.PLUS:
+				Plus plus = (Plus) exp;
+				return evalInt(plus.getLHS(), frame) + evalInt(plus.getRHS(), frame);
+			
+			case NodeKind.MINUS:
+				Minus minus = (Minus) exp;
+				return evalInt(minus.getLHS(), frame) - evalInt(minus.getRHS(), frame);
+			
+			case NodeKind.TIMES:
+				Times times = (Times) exp;
+				return evalInt(times.getLHS(), frame) * evalInt(times.getRHS(), frame);
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup lookup = (ArrayLookup) exp;
+				int[] array = (int[]) evalRef(lookup.getArray(), frame);
+				return array[evalInt(lookup.getIndex(), frame)];
+			
+			case NodeKind.ARRAY_LENGTH:
+				return ((int[]) evalRef(((ArrayLength) exp).getArray(), frame)).length;
+			
+			case NodeKind.CALL:
+				Frame callee = enter((Call) exp, frame);
+				if (recorder == null)
+					return callee.callInt();
+				TraceRecorder caller = recorder;
+				recorder = caller.enterCall((Call) exp) ? caller : null;
+				int result = recorder == null ? callee.callInt() : runInt(callee.method, callee);
+				caller.exitCall();
+				recorder = caller;
+				return result;
+			
+			case NodeKind.INTEGER_LITERAL:
+				return ((IntegerLiteral) exp).getValue();
+			
+			case NodeKind.TRUE:
+				return 1;
+			
+			case NodeKind.FALSE:
+				return 0;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return loadInt(operands[exp.getNodeId()], frame);
+			
+			case NodeKind.NOT:
+				return evalInt(((Not) exp).getExp(), frame) ^ 1;
+			
+			default:
+				throw new IllegalArgumentException("not an int or boolean expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// evaluates an int array or object expression
+	Object evalRef(Exp exp, Frame frame) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.CALL:
+				Frame callee = enter((Call) exp, frame);
+				if (recorder == null)
+					return callee.callRef();
+				TraceRecorder caller = recorder;
+				recorder = caller.enterCall((Call) exp) ? caller : null;
+				Object result = recorder == null ? callee.callRef() : runRef(callee.method, callee);
+				caller.exitCall();
+				recorder = caller;
+				return result;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				return loadRef(operands[exp.getNodeId()], frame);
+			
+			case NodeKind.THIS:
+				return frame.self;
+			
+			case NodeKind.NEW_ARRAY:
+				return new int[evalInt(((NewArray) exp).getArraySize(), frame)];
+			
+			case NodeKind.NEW_OBJECT:
+				return new Instance(classes[operands[exp.getNodeId()]]);
+			
+			default:
+				throw new IllegalArgumentException("not an array or object expression: " + exp.getClass().getSimpleName());
+		}
+	}
+	
+	// evaluates a call's receiver and arguments into a frame for the method it dispatches to
+	private Frame enter(Call call, Frame caller) {
+		Instance receiver = (Instance) evalRef(call.getCallee(), caller);
+		TieredMethod target = targets[call.getNodeId()];
+		Frame frame = new Frame(receiver, target.callLocals, target.callRefs);
+		ExpList args = call.getArgs();
+		for (int i = 0; i < args.size(); i++) {
+			if (target.refLocals[i])
+				frame.refs[i] = evalRef(args.elementAt(i), caller);
+			else
+				frame.ints[i] = evalInt(args.elementAt(i), caller);
+		}
+		
+		// as in Java, a null receiver only fails once the arguments are evaluated
+		TieredMethod method = (TieredMethod) receiver.runtimeClass.vtable[target.symbol.getSlot()];
+		if (recorder != null)
+			recorder.call(call, method);
+		frame.method = method;
+		return frame;
+	}
+	
+	private static int loadInt(int operand, Frame frame) {
+		int[] slots = (operand & FIELD) != 0 ? frame.self.ints : frame.ints;
+		return slots[operand >> FLAG_BITS];
+	}
+	
+	private static Object loadRef(int operand, Frame frame) {
+		Object[] slots = (operand & FIELD) != 0 ? frame.self.refs : frame.refs;
+		return slots[operand >> FLAG_BITS];
+	}
+	
+	private static void storeInt(int operand, int value, Frame frame) {
+		int[] slots = (operand & FIELD) != 0 ? frame.self.ints : frame.ints;
+		slots[operand >> FLAG_BITS] = value;
+	}
+	
+	private static void storeRef(int operand, Object value, Frame frame) {
+		Object[] slots = (operand & FIELD) != 0 ? frame.self.refs : frame.refs;
+		slots[operand >> FLAG_BITS] = value;
+	}
+}
@@ -0,0 +1,129 @@
+package tier;
+
+import ast.*;
+import jvm.ClassFile;
+import jvm.Code;
+import jvm.Opcodes;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * Compiles one method to a subclass of CompiledBody, the second tier. The
+ * generated class is in the default package and only uses the public
+ * members of the engine's runtime classes. Its entry, call(), takes the
+ * receiver and the arguments as JVM arguments and keeps every local in a
+ * JVM local: JVM local 0 is the body, 1 the receiver, and local slot s is
+ * JVM local s + 2. runInt() or runRef(), for interpreted callers, just pass
+ * the receiver and parameters in the frame they are given to call().
+ * Fields are elements of the receiver's int and Object arrays, objects are
+ * Instances, int arrays are int[], and a call pushes the receiver and the
+ * arguments and goes through an invokedynamic DispatchSite to the entry of
+ * the method the receiver's class has: the callee's call() once it is
+ * compiled and installed, so the JIT can inline one compiled body into
+ * another, and a frame for the interpreter until then.
+ * 
+ * For on-stack replacement a single While loop is compiled the same way to
+ * the runLoop() of a class of its own, with JVM local 1 the frame, 2 the
+ * receiver and local slot s JVM local s + 3. An interpreted activation of
+ * the method calls it part way through the loop, so it starts by loading
+ * every local the loop uses from the frame, and once the loop exits it
+ * stores the locals the loop assigns back, for the interpreter to carry on
+ * with.
+ * 
+ */
+
+final class BodyCompiler {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final Shape[] shapes;
+	
+	// JVM locals of the receiver and of local slot 0, after the body and the frame
+	final static int SELF_LOCAL = 2, FIRST_LOCAL = 3;
+	
+	// likewise in the entry, which has no frame
+	final static int ENTRY_SELF_LOCAL = 1, ENTRY_FIRST_LOCAL = 2;
+	
+	BodyCompiler(SymbolTable table, TypeChecker checker, Shape[] shapes) {
+		this.table = table;
+		this.checker = checker;
+		this.shapes = shapes;
+	}
+	
+	// a class file for a method's body, of the given class name
+	byte[] compile(MethodSymbol method, String className) {
+		ClassFile classFile = bodyClass(className);
+		Code code = classFile.addMethod(Opcodes.ACC_PUBLIC, MethodCompiler.ENTRY, MethodCompiler.entryDescriptor(method),
+				ENTRY_FIRST_LOCAL + method.getLocalCount());
+		MethodCompiler compiler = new MethodCompiler(table, checker, shapes, method, classFile, code, ENTRY_SELF_LOCAL,
+				ENTRY_FIRST_LOCAL);
+		compiler.initLocals();
+		MethodDecl decl = method.getDecl();
+		compiler.statements(decl.getStms());
+		compiler.value(decl.getReturnExp());
+		boolean refResult = TieredMethod.isRef(method.getReturnType());
+		code.op(refResult ? Opcodes.ARETURN : Opcodes.IRETURN);
+		
+		// runInt() or runRef() passes the receiver and parameters in the frame to the entry
+		String descriptor = "(L" + MethodCompiler.FRAME + ";)" + (refResult ? "L" + MethodCompiler.OBJECT + ";" : "I");
+		Code run = classFile.addMethod(Opcodes.ACC_PUBLIC, refResult ? "runRef" : "runInt", descriptor, 2);
+		MethodCompiler runner = new MethodCompiler(table, checker, shapes, method, classFile, run, SELF_LOCAL,
+				FIRST_LOCAL);
+		run.local(Opcodes.ALOAD, MethodCompiler.BODY_LOCAL);
+		run.local(Opcodes.ALOAD, MethodCompiler.FRAME_LOCAL);
+		run.field(Opcodes.GETFIELD, MethodCompiler.FRAME, "self", "L" + MethodCompiler.INSTANCE + ";");
+		for (int i = 0; i < method.getParamCount(); i++)
+			runner.pushLocal(i, MethodCompiler.FRAME_LOCAL);
+		run.invoke(Opcodes.INVOKEVIRTUAL, className, MethodCompiler.ENTRY, MethodCompiler.entryDescriptor(method));
+		run.op(refResult ? Opcodes.ARETURN : Opcodes.IRETURN);
+		return classFile.toByteArray();
+	}
+	
+	// a class file for one loop of a method, of the given class name
+	byte[] compileLoop(MethodSymbol method, While loop, String className) {
+		// the locals the loop reads or writes, and those it assigns
+		boolean[] used = new boolean[method.getLocalCount()], assigned = new boolean[method.getLocalCount()];
+		TreeIndex index = new TreeIndex(loop);
+		for (int i = 0; i < index.size(); i++) {
+			int kind = index.getKind(i);
+			if (kind == NodeKind.IDENTIFIER_EXP || kind == NodeKind.ASSIGN || kind == NodeKind.ARRAY_ASSIGN) {
+				int local = table.getLocalSlot(index.getNode(i));
+				if (local >= 0) {
+					used[local] = true;
+					assigned[local] |= kind == NodeKind.ASSIGN;
+				}
+			}
+		}
+		
+		ClassFile classFile = bodyClass(className);
+		Code code = classFile.addMethod(Opcodes.ACC_PUBLIC, "runLoop", "(L" + MethodCompiler.FRAME + ";)V",
+				FIRST_LOCAL + method.getLocalCount());
+		MethodCompiler compiler = new MethodCompiler(table, checker, shapes, method, classFile, code, SELF_LOCAL,
+				FIRST_LOCAL);
+		compiler.loadSelf();
+		for (int local = 0; local < used.length; local++) {
+			if (used[local])
+				compiler.loadLocal(local, MethodCompiler.FRAME_LOCAL);
+		}
+		compiler.statement(loop);
+		for (int local = 0; local < assigned.length; local++) {
+			if (assigned[local])
+				compiler.storeLocal(local, MethodCompiler.FRAME_LOCAL);
+		}
+		code.op(Opcodes.RETURN);
+		return classFile.toByteArray();
+	}
+	
+	// a subclass of CompiledBody with the constructor the engine calls
+	static ClassFile bodyClass(String className) {
+		ClassFile classFile = new ClassFile(Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, MethodCompiler.BODY);
+		Code init = classFile.addMethod(Opcodes.ACC_PUBLIC, "<init>", "(L" + MethodCompiler.ENGINE + ";)V", 2);
+		init.local(Opcodes.ALOAD, 0);
+		init.local(Opcodes.ALOAD, 1);
+		init.invoke(Opcodes.INVOKESPECIAL, MethodCompiler.BODY, "<init>", "(L" + MethodCompiler.ENGINE + ";)V");
+		init.op(Opcodes.RETURN);
+		return classFile;
+	}
+}
@@ -0,0 +1,78 @@
+package tier;
+
+import java.io.PrintStream;
+
+import ast.Exp;
+import ast.Node;
+import ast.Statement;
+import layout.Instance;
+import layout.RuntimeClass;
+
+/*
+ * 
+ * The superclass of the classes BodyCompiler and TraceCompiler generate,
+ * one per method, per loop compiled for on-stack replacement and per
+ * trace. A generated class overrides runInt() or runRef(), whichever suits
+ * the method's return type, or runLoop(), and calls back into the methods
+ * here for what needs the engine: making an object and printing, and for a
+ * trace checking its guards and leaving the trace for the interpreter, with
+ * the methods and ast nodes it was compiled against. Calls go through
+ * DispatchSite instead, to the public call() entry a method's class adds
+ * once compiled.
+ * 
+ */
+
+public abstract class CompiledBody {
+	private final PrintStream out;
+	private final RuntimeClass[] classes;
+	private final BaselineInterpreter interpreter;
+	TieredMethod[] targets; // the methods a trace inlines
+	Node[] exits; // what a trace leaves to the interpreter
+	
+	protected CompiledBody(TieredEngine engine) {
+		out = engine.out;
+		classes = engine.classes;
+		interpreter = engine.interpreter;
+	}
+	
+	// runs the method on a frame holding its receiver and arguments
+	public int runInt(Frame frame) {
+		throw new UnsupportedOperationException("the method returns a reference");
+	}
+	
+	public Object runRef(Frame frame) {
+		throw new UnsupportedOperationException("the method returns an int or boolean");
+	}
+	
+	// runs a loop to its end from the locals of an interpreted frame, leaving what it assigned there
+	public void runLoop(Frame frame) {
+		throw new UnsupportedOperationException("not a loop");
+	}
+	
+	public final Instance newInstance(int classIndex) {
+		return new Instance(classes[classIndex]);
+	}
+	
+	public final void print(int value) {
+		out.println(value);
+	}
+	
+	// true if a receiver's class has the given inlined method in a vtable slot
+	public final boolean dispatchesTo(Instance receiver, int slot, int target) {
+		return receiver.runtimeClass.vtable[slot] == targets[target];
+	}
+	
+	// a frame for an inlined method to leave to the interpreter from
+	public final Frame newFrame(Instance self, int target) {
+		return new Frame(self, targets[target]);
+	}
+	
+	// runs a statement of a trace's exits in the interpreter
+	public final void interpret(Frame frame, int exit) {
+		interpreter.execute((Statement) exits[exit], frame);
+	}
+	
+	public final int interpretInt(Frame frame, int exit) {
+		return interpreter.evalInt((Exp) exits[exit], frame);
+	}
+}
@@ -0,0 +1,105 @@
+package tier;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.Objects;
+
+import layout.Instance;
+
+/*
+ * 
+ * An invokedynamic call site of a compiled body, calling the method its
+ * receiver's class has in one vtable slot with the receiver and arguments
+ * on the JVM stack. Like jvm.InlineCache it starts out unlinked, and each
+ * method it has not dispatched to yet misses: the miss puts a test that the
+ * receiver's class has that method in the slot in front of the site's
+ * target, which then goes to the method's entry (TieredMethod.entry). So
+ * the JIT sees through the site to the callee's compiled body, and can
+ * inline it, once that is installed as the entry's target. A site that
+ * dispatches to more than MAX_METHODS methods is megamorphic, and looks the
+ * entry up in the vtable at each call. A call whose target no subclass
+ * overrides can only go to one method, so its site links straight to that
+ * method's entry on the first call and never tests the receiver's class:
+ * the fewer method handles there are between caller and callee, the less
+ * the JIT has to compile before the call gets fast.
+ * 
+ * The name of a site is SLOT, or ONLY for a call to a method that is never
+ * overridden, followed by the vtable slot, and its type is that of the
+ * entry, with the receiver first. Reading the receiver's class is what
+ * checks it for null, after the arguments are evaluated as in Java, and
+ * a site linked to one method checks it with Objects.requireNonNull().
+ * 
+ */
+
+public final class DispatchSite extends MutableCallSite {
+	public final static int MAX_METHODS = 4;
+	public final static String SLOT = "slot", ONLY = "only";
+	
+	// descriptor of bootstrap()
+	public final static String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+			+ "Ljava/lang/String;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;";
+	
+	private final static MethodHandle MISS, DISPATCHES_TO, INVOKER, CHECK;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MISS = lookup.findVirtual(DispatchSite.class, "miss", MethodType.methodType(Object.class, Object[].class));
+			DISPATCHES_TO = lookup.findStatic(DispatchSite.class, "dispatchesTo",
+					MethodType.methodType(boolean.class, int.class, TieredMethod.class, Instance.class));
+			INVOKER = lookup.findStatic(DispatchSite.class, "invoker",
+					MethodType.methodType(MethodHandle.class, int.class, Instance.class));
+			CHECK = lookup.findStatic(Objects.class, "requireNonNull", MethodType.methodType(Object.class, Object.class))
+					.asType(MethodType.methodType(Instance.class, Instance.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	private final int slot;
+	private final boolean only; // true if the call can only go to one method
+	private int methodCount; // methods cached, or MAX_METHODS + 1 once megamorphic
+	
+	private DispatchSite(int slot, boolean only, MethodType type) {
+		super(type);
+		this.slot = slot;
+		this.only = only;
+		setTarget(MISS.bindTo(this).asCollector(Object[].class, type.parameterCount()).asType(type));
+	}
+	
+	// links a call site of a compiled body
+	public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type) {
+		boolean only = name.startsWith(ONLY);
+		return new DispatchSite(Integer.parseInt(name.substring((only ? ONLY : SLOT).length())), only, type);
+	}
+	
+	// caches the method the receiver's class has in the slot, then calls it
+	private Object miss(Object[] args) throws Throwable {
+		MethodType type = type();
+		TieredMethod method = (TieredMethod) ((Instance) args[0]).runtimeClass.vtable[slot];
+		if (only)
+			setTarget(MethodHandles.filterArguments(method.invoker, 0, CHECK));
+		else if (methodCount < MAX_METHODS) {
+			MethodHandle test = MethodHandles.insertArguments(DISPATCHES_TO, 0, slot, method);
+			test = MethodHandles.dropArguments(test, 1, type.dropParameterTypes(0, 1).parameterList());
+			setTarget(MethodHandles.guardWithTest(test, method.invoker, getTarget()));
+			methodCount++;
+		} else if (methodCount == MAX_METHODS) {
+			MethodHandle invoker = MethodHandles.insertArguments(INVOKER, 0, slot);
+			setTarget(MethodHandles.foldArguments(MethodHandles.exactInvoker(type), invoker));
+			methodCount++;
+		}
+		return method.invoker.invokeWithArguments(args);
+	}
+	
+	private static boolean dispatchesTo(int slot, TieredMethod method, Instance receiver) {
+		return receiver.runtimeClass.vtable[slot] == method;
+	}
+	
+	private static MethodHandle invoker(int slot, Instance receiver) {
+		return ((TieredMethod) receiver.runtimeClass.vtable[slot]).invoker;
+	}
+}
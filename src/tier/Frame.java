@@ -0,0 +1,42 @@
+package tier;
+
+import layout.Instance;
+
+/*
+ * 
+ * The locals of one activation of a method, by local slot, its receiver and
+ * the method it activates, which is what this adds to layout.Frame.
+ * Interpreted code runs on the frame's arrays; a compiled body only reads
+ * its parameters from them and keeps its locals in JVM locals. The
+ * interpreter makes a call's frame large enough for any method the call
+ * can dispatch to, stores the arguments in it, and only then dispatches on
+ * the receiver, so that a null receiver fails after the arguments are
+ * evaluated as in Java. callInt() or callRef() then run whichever tier the
+ * method is in at the time. Compiled callers pass the arguments on the JVM
+ * stack instead (see DispatchSite), and only need a frame while the callee
+ * is interpreted.
+ * 
+ */
+
+public final class Frame extends layout.Frame {
+	TieredMethod method; // null for the main class's statement, and until a call dispatches
+	
+	Frame(Instance self, TieredMethod method) {
+		this(self, method == null ? 0 : method.localCount, method != null && method.hasRefLocals);
+		this.method = method;
+	}
+	
+	Frame(Instance self, int localCount, boolean hasRefLocals) {
+		super(self, localCount, hasRefLocals);
+	}
+	
+	// runs a method returning an int or boolean
+	public int callInt() {
+		return method.invokeInt(this);
+	}
+	
+	// runs a method returning an int array or object
+	public Object callRef() {
+		return method.invokeRef(this);
+	}
+}
@@ -0,0 +1,358 @@
+package tier;
+
+import ast.*;
+import jvm.ClassFile;
+import jvm.Code;
+import jvm.Label;
+import jvm.Opcodes;
+import layout.Instance;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Compiles the statements and expressions of one method into a Code, with
+ * the receiver and the locals in JVM locals from selfLocal and firstLocal
+ * on, for BodyCompiler and, one per inlined activation, TraceCompiler. How
+ * values are laid out is described in BodyCompiler.
+ * 
+ */
+
+class MethodCompiler {
+	final static String OBJECT = "java/lang/Object";
+	final static String BODY = CompiledBody.class.getName().replace('.', '/');
+	final static String ENGINE = TieredEngine.class.getName().replace('.', '/');
+	final static String FRAME = Frame.class.getName().replace('.', '/');
+	final static String INSTANCE = Instance.class.getName().replace('.', '/');
+	final static String DISPATCH_SITE = DispatchSite.class.getName().replace('.', '/');
+	
+	// the method of a compiled body taking the receiver and arguments on the JVM stack, for DispatchSite
+	final static String ENTRY = "call";
+	
+	// JVM locals of the body and of the frame a generated method is given
+	final static int BODY_LOCAL = 0, FRAME_LOCAL = 1;
+	
+	final SymbolTable table;
+	final TypeChecker checker;
+	final MethodSymbol method;
+	final ClassSymbol owner;
+	final Shape shape; // of the owner
+	final ClassFile classFile;
+	final Code code;
+	final int selfLocal, firstLocal; // JVM locals of the receiver and of local slot 0
+	
+	MethodCompiler(SymbolTable table, TypeChecker checker, Shape[] shapes, MethodSymbol method, ClassFile classFile,
+			Code code, int selfLocal, int firstLocal) {
+		this.table = table;
+		this.checker = checker;
+		this.method = method;
+		owner = method.getOwner();
+		shape = shapes[owner.getIndex()];
+		this.classFile = classFile;
+		this.code = code;
+		this.selfLocal = selfLocal;
+		this.firstLocal = firstLocal;
+	}
+	
+	// internal name of the class values of a type are, for a CHECKCAST
+	static String className(int type) {
+		return type == Types.INT_ARRAY ? "[I" : INSTANCE;
+	}
+	
+	static String descriptor(int type) {
+		switch (type) {
+			case Types.INT:
+			case Types.BOOLEAN:
+				return "I";
+			case Types.INT_ARRAY:
+				return "[I";
+			default:
+				return "L" + INSTANCE + ";";
+		}
+	}
+	
+	// descriptor of a method's entry: the receiver and the parameters, returning its result
+	static String entryDescriptor(MethodSymbol method) {
+		StringBuilder descriptor = new StringBuilder("(L" + INSTANCE + ";");
+		for (int i = 0; i < method.getParamCount(); i++)
+			descriptor.append(descriptor(method.getParamType(i)));
+		return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+	}
+	
+	// starts the locals other than the parameters, which the entry is given, at 0 or null
+	void initLocals() {
+		for (int local = method.getParamCount(); local < method.getLocalCount(); local++)
+			initLocal(local);
+	}
+	
+	// copies the receiver from the frame to its JVM local
+	void loadSelf() {
+		code.declareLocal(selfLocal, "L" + INSTANCE + ";");
+		code.local(Opcodes.ALOAD, FRAME_LOCAL);
+		code.field(Opcodes.GETFIELD, FRAME, "self", "L" + INSTANCE + ";");
+		code.local(Opcodes.ASTORE, selfLocal);
+	}
+	
+	// starts a local at 0 or null
+	void initLocal(int local) {
+		boolean ref = TieredMethod.isRef(method.getLocalType(local));
+		code.declareLocal(firstLocal + local, descriptor(method.getLocalType(local)));
+		if (ref)
+			code.op(Opcodes.ACONST_NULL);
+		else
+			code.pushInt(0);
+		code.local(ref ? Opcodes.ASTORE : Opcodes.ISTORE, firstLocal + local);
+	}
+	
+	// copies a local from the frame in a JVM local to its own JVM local
+	void loadLocal(int local, int frameLocal) {
+		int type = method.getLocalType(local);
+		code.declareLocal(firstLocal + local, descriptor(type));
+		pushLocal(local, frameLocal);
+		code.local(TieredMethod.isRef(type) ? Opcodes.ASTORE : Opcodes.ISTORE, firstLocal + local);
+	}
+	
+	// pushes a local of the frame in a JVM local
+	void pushLocal(int local, int frameLocal) {
+		int type = method.getLocalType(local);
+		code.local(Opcodes.ALOAD, frameLocal);
+		slotLoad(FRAME, TieredMethod.isRef(type), local, type);
+	}
+	
+	// copies a local from its JVM local back to the frame in a JVM local
+	void storeLocal(int local, int frameLocal) {
+		boolean ref = TieredMethod.isRef(method.getLocalType(local));
+		code.local(Opcodes.ALOAD, frameLocal);
+		code.field(Opcodes.GETFIELD, FRAME, ref ? "refs" : "ints", ref ? "[L" + OBJECT + ";" : "[I");
+		code.pushInt(local);
+		code.local(ref ? Opcodes.ALOAD : Opcodes.ILOAD, firstLocal + local);
+		code.op(ref ? Opcodes.AASTORE : Opcodes.IASTORE);
+	}
+	
+	void statements(StatementList stms) {
+		for (int i = 0; i < stms.size(); i++)
+			statement(stms.elementAt(i));
+	}
+	
+	void statement(Statement stm) {
+		switch (stm.getKind()) {
+			
+			case NodeKind.BLOCK:
+				statements(((Block) stm).getStms());
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) stm;
+				Label elseLabel = new Label(), end = new Label();
+				branch(ifStm.getCondExp(), elseLabel, false);
+				statement(ifStm.getTrueStm());
+				code.jump(Opcodes.GOTO, end);
+				code.mark(elseLabel);
+				statement(ifStm.getFalseStm());
+				code.mark(end);
+				break;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) stm;
+				Label top = new Label(), exit = new Label();
+				code.mark(top);
+				branch(whileStm.getCondExp(), exit, false);
+				statement(whileStm.getStm());
+				code.jump(Opcodes.GOTO, top);
+				code.mark(exit);
+				break;
+			
+			case NodeKind.PRINT:
+				code.local(Opcodes.ALOAD, BODY_LOCAL);
+				value(((Print) stm).getExp());
+				code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "print", "(I)V");
+				break;
+			
+			case NodeKind.ASSIGN:
+				int field = table.getFieldSlot(stm);
+				Exp assigned = ((Assign) stm).getValue();
+				if (field >= 0) {
+					boolean ref = shape.isRef(field);
+					code.local(Opcodes.ALOAD, selfLocal);
+					code.field(Opcodes.GETFIELD, INSTANCE, ref ? "refs" : "ints", ref ? "[L" + OBJECT + ";" : "[I");
+					code.pushInt(shape.getIndex(field));
+					value(assigned);
+					code.op(ref ? Opcodes.AASTORE : Opcodes.IASTORE);
+				} else {
+					int local = table.getLocalSlot(stm);
+					value(assigned);
+					code.local(TieredMethod.isRef(method.getLocalType(local)) ? Opcodes.ASTORE : Opcodes.ISTORE,
+							firstLocal + local);
+				}
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign assign = (ArrayAssign) stm;
+				variable(stm);
+				value(assign.getIndex());
+				value(assign.getValue());
+				code.op(Opcodes.IASTORE);
+				break;
+		}
+	}
+	
+	// pushes the value of an expression
+	void value(Exp exp) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+			case NodeKind.LESS_THAN:
+				Label isFalse = new Label(), end = new Label();
+				branch(exp, isFalse, false);
+				code.pushInt(1);
+				code.jump(Opcodes.GOTO, end);
+				code.mark(isFalse);
+				code.pushInt(0);
+				code.mark(end);
+				break;
+			
+			case NodeKind.PLUS:
+				binary(((Plus) exp).getLHS(), ((Plus) exp).getRHS(), Opcodes.IADD);
+				break;
+			
+			case NodeKind.MINUS:
+				binary(((Minus) exp).getLHS(), ((Minus) exp).getRHS(), Opcodes.ISUB);
+				break;
+			
+			case NodeKind.TIMES:
+				binary(((Times) exp).getLHS(), ((Times) exp).getRHS(), Opcodes.IMUL);
+				break;
+			
+			case NodeKind.ARRAY_LOOKUP:
+				binary(((ArrayLookup) exp).getArray(), ((ArrayLookup) exp).getIndex(), Opcodes.IALOAD);
+				break;
+			
+			case NodeKind.ARRAY_LENGTH:
+				value(((ArrayLength) exp).getArray());
+				code.op(Opcodes.ARRAYLENGTH);
+				break;
+			
+			case NodeKind.CALL:
+				call((Call) exp);
+				break;
+			
+			case NodeKind.INTEGER_LITERAL:
+				code.pushInt(((IntegerLiteral) exp).getValue());
+				break;
+			
+			case NodeKind.TRUE:
+				code.pushInt(1);
+				break;
+			
+			case NodeKind.FALSE:
+				code.pushInt(0);
+				break;
+			
+			case NodeKind.IDENTIFIER_EXP:
+				variable(exp);
+				break;
+			
+			case NodeKind.THIS:
+				code.local(Opcodes.ALOAD, selfLocal);
+				break;
+			
+			case NodeKind.NEW_ARRAY:
+				value(((NewArray) exp).getArraySize());
+				code.newArray(Opcodes.T_INT);
+				break;
+			
+			case NodeKind.NEW_OBJECT:
+				code.local(Opcodes.ALOAD, BODY_LOCAL);
+				code.pushInt(table.getNewClass((NewObject) exp).getIndex());
+				code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "newInstance", "(I)L" + INSTANCE + ";");
+				break;
+			
+			case NodeKind.NOT:
+				value(((Not) exp).getExp());
+				code.pushInt(1);
+				code.op(Opcodes.IXOR);
+				break;
+		}
+	}
+	
+	// jumps to target if a boolean expression is jumpIf, and falls through otherwise
+	void branch(Exp exp, Label target, boolean jumpIf) {
+		switch (exp.getKind()) {
+			
+			case NodeKind.AND:
+				And and = (And) exp;
+				if (jumpIf) {
+					Label skip = new Label();
+					branch(and.getLHS(), skip, false);
+					branch(and.getRHS(), target, true);
+					code.mark(skip);
+				} else {
+					branch(and.getLHS(), target, false);
+					branch(and.getRHS(), target, false);
+				}
+				break;
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThan = (LessThan) exp;
+				value(lessThan.getLHS());
+				value(lessThan.getRHS());
+				code.jump(jumpIf ? Opcodes.IF_ICMPLT : Opcodes.IF_ICMPGE, target);
+				break;
+			
+			case NodeKind.NOT:
+				branch(((Not) exp).getExp(), target, !jumpIf);
+				break;
+			
+			default:
+				value(exp);
+				code.jump(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, target);
+		}
+	}
+	
+	void binary(Exp lhs, Exp rhs, int opcode) {
+		value(lhs);
+		value(rhs);
+		code.op(opcode);
+	}
+	
+	// pushes the receiver and the arguments and dispatches on the receiver
+	void call(Call call) {
+		value(call.getCallee());
+		ExpList args = call.getArgs();
+		for (int i = 0; i < args.size(); i++)
+			value(args.elementAt(i));
+		dispatch(checker.getTarget(call));
+	}
+	
+	// calls the method the receiver's class has in the target's slot, with the receiver and arguments on the stack
+	void dispatch(MethodSymbol target) {
+		int bootstrap = classFile.addBootstrapMethod(DISPATCH_SITE, "bootstrap", DispatchSite.BOOTSTRAP_DESCRIPTOR);
+		String kind = table.getImplementations(target).size() == 1 ? DispatchSite.ONLY : DispatchSite.SLOT;
+		code.invokeDynamic(bootstrap, kind + target.getSlot(), entryDescriptor(target));
+	}
+	
+	// pushes the value of the variable a reference or array assignment resolved to
+	void variable(Node ref) {
+		int field = table.getFieldSlot(ref);
+		if (field >= 0) {
+			code.local(Opcodes.ALOAD, selfLocal);
+			slotLoad(INSTANCE, shape.isRef(field), shape.getIndex(field), owner.getFieldType(field));
+		} else {
+			int local = table.getLocalSlot(ref);
+			code.local(TieredMethod.isRef(method.getLocalType(local)) ? Opcodes.ALOAD : Opcodes.ILOAD,
+					firstLocal + local);
+		}
+	}
+	
+	// loads an element of the int or Object array of the Frame or Instance on the stack
+	void slotLoad(String holder, boolean ref, int slot, int type) {
+		code.field(Opcodes.GETFIELD, holder, ref ? "refs" : "ints", ref ? "[L" + OBJECT + ";" : "[I");
+		code.pushInt(slot);
+		if (ref) {
+			code.op(Opcodes.AALOAD);
+			code.type(Opcodes.CHECKCAST, className(type));
+		} else
+			code.op(Opcodes.IALOAD);
+	}
+}
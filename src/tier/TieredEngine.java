@@ -0,0 +1,293 @@
+package tier;
+
+import java.io.PrintStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import ast.*;
+import interp.InterpreterError;
+import layout.LayoutEngine;
+import layout.RuntimeClass;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Runs a program that type checked without errors in two tiers. Every
+ * method starts in the baseline interpreter, which needs nothing but a
+ * resolution pass before the program's first statement runs. A method
+ * that is invoked invocationThreshold times, or one of whose loops takes
+ * backEdgeThreshold back-edges, is compiled by BodyCompiler to a class of
+ * its own, and from then on its calls run that class's bytecode, which the
+ * JVM in turn compiles to machine code once it is hot.
+ * 
+ * That does nothing for a method invoked once that spends its time in a
+ * loop, so with on-stack replacement the hot loop itself is compiled too,
+ * to a class running just that loop from the state of an interpreted frame
+ * (see BaselineInterpreter). A loop's compiled version is shared by every
+ * activation of its method, and a loop in the main class's statement is
+ * never compiled, as that has no method.
+ * 
+ * Tracing mode is the other strategy for loops: a hot loop is recorded
+ * over a few iterations and compiled by TraceCompiler to a trace of the
+ * paths they took, with the calls on them inlined. The trace replaces the
+ * loop as a compiled loop does, and leaves what the recorded iterations did
+ * not do to the interpreter. Methods are still compiled whole where traces
+ * fall short: one whose recursive invocations cross the invocation
+ * threshold, as a quicksort spends its time in calls no trace covers, and
+ * one with a loop whose recording was abandoned, together with the loop.
+ * Only recursive invocations are counted, as compiling the methods hot
+ * loops call ahead of their traces slows the JVM down on the traces.
+ * 
+ * Compilation happens on a background thread, shared by all engines, so
+ * the program keeps running in the interpreter until the compiled body is
+ * installed. Without background compilation the program instead waits for
+ * each body, which makes runs repeatable. Generated classes are defined in
+ * a loader per engine whose parent is the loader of this package, so they
+ * can use the runtime classes and go away with the engine.
+ * 
+ */
+
+public class TieredEngine {
+	private final Program prog;
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final Shape[] shapes; // by class index
+	private final Names names;
+	final PrintStream out;
+	final RuntimeClass[] classes; // by class index
+	final BaselineInterpreter interpreter;
+	private final BodyCompiler compiler;
+	private final BodyLoader loader = new BodyLoader();
+	int invocationThreshold = INVOCATION_THRESHOLD, backEdgeThreshold = BACK_EDGE_THRESHOLD;
+	private boolean background = true, onStackReplacement = true;
+	boolean tracing;
+	private final AtomicReferenceArray<CompiledBody> loops; // by node id of While
+	private final boolean[] loopsQueued; // likewise
+	private final AtomicInteger compiledCount = new AtomicInteger(), loopCount = new AtomicInteger();
+	private final AtomicInteger traceCount = new AtomicInteger();
+	private final AtomicInteger failedCount = new AtomicInteger();
+	
+	public final static int INVOCATION_THRESHOLD = 1000, BACK_EDGE_THRESHOLD = 10000;
+	
+	private final static ExecutorService COMPILER = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "MiniJava compiler");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	public TieredEngine(Program prog, SymbolTable table, TypeChecker checker, int nodeCount, PrintStream out) {
+		this.prog = prog;
+		this.table = table;
+		this.checker = checker;
+		this.out = out;
+		names = table.getNames();
+		
+		// classes and their vtables, sharing one TieredMethod per declared method
+		classes = new RuntimeClass[table.getClassCount()];
+		Map<MethodSymbol, TieredMethod> methods = new IdentityHashMap<MethodSymbol, TieredMethod>();
+		shapes = new LayoutEngine(table).shapes();
+		for (ClassSymbol symbol : table.getClasses()) {
+			RuntimeClass runtimeClass = new RuntimeClass(shapes[symbol.getIndex()], new TieredMethod[symbol.getMethodCount()]);
+			for (int slot = 0; slot < symbol.getMethodCount(); slot++) {
+				MethodSymbol method = symbol.getMethod(slot);
+				TieredMethod tiered = methods.get(method);
+				if (tiered == null) {
+					tiered = new TieredMethod(this, table, method);
+					methods.put(method, tiered);
+				}
+				runtimeClass.vtable[slot] = tiered;
+			}
+			classes[symbol.getIndex()] = runtimeClass;
+		}
+		loops = new AtomicReferenceArray<CompiledBody>(nodeCount);
+		loopsQueued = new boolean[nodeCount];
+		interpreter = new BaselineInterpreter(this, table, checker, nodeCount);
+		compiler = new BodyCompiler(table, checker, shapes);
+	}
+	
+	// sets the invocations after which a method is compiled, at least 1
+	public void setInvocationThreshold(int invocationThreshold) {
+		this.invocationThreshold = invocationThreshold;
+	}
+	
+	// sets the loop back-edges after which a method is compiled, at least 1
+	public void setBackEdgeThreshold(int backEdgeThreshold) {
+		this.backEdgeThreshold = backEdgeThreshold;
+	}
+	
+	// compiles on the background thread, or on the running thread while the program waits
+	public void setBackgroundCompilation(boolean background) {
+		this.background = background;
+	}
+	
+	// compiles hot loops for the interpreted activations of their methods to move into
+	public void setOnStackReplacement(boolean onStackReplacement) {
+		this.onStackReplacement = onStackReplacement;
+	}
+	
+	// traces hot loops rather than compiling them whole, while hot recursive methods are still compiled
+	public void setTracing(boolean tracing) {
+		this.tracing = tracing;
+	}
+	
+	// methods compiled so far
+	public int getCompiledCount() {
+		return compiledCount.get();
+	}
+	
+	// loops compiled for on-stack replacement so far
+	public int getLoopCount() {
+		return loopCount.get();
+	}
+	
+	// traces compiled so far
+	public int getTraceCount() {
+		return traceCount.get();
+	}
+	
+	// methods, loops and traces that failed to compile, and so stayed interpreted
+	public int getFailedCount() {
+		return failedCount.get();
+	}
+	
+	// runs the main class's statement in the interpreter
+	public void run() {
+		try {
+			interpreter.resetRecording();
+			interpreter.execute(prog.getMainClass().getStm(), new Frame(null, null));
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new InterpreterError(e.toString(), e);
+		} catch (StackOverflowError e) {
+			throw new InterpreterError(e.toString(), e);
+		} finally {
+			out.flush();
+		}
+	}
+	
+	// compiles a method that crossed a threshold, once
+	void requestCompilation(TieredMethod method) {
+		method.queued = true;
+		if (background)
+			COMPILER.execute(() -> compile(method));
+		else
+			compile(method);
+	}
+	
+	// compiles the method of a loop that reached the back-edge threshold and, with on-stack replacement,
+	// the loop, returning the compiled loop once it is ready
+	CompiledBody hotLoop(TieredMethod method, While loop) {
+		int id = loop.getNodeId();
+		if (tracing) {
+			if (!loopsQueued[id]) {
+				loopsQueued[id] = true;
+				interpreter.startRecording(loop);
+			}
+			return loops.get(id);
+		}
+		if (!method.queued)
+			requestCompilation(method);
+		if (!onStackReplacement)
+			return null;
+		if (!loopsQueued[id]) {
+			loopsQueued[id] = true;
+			if (background)
+				COMPILER.execute(() -> compileLoop(method, loop));
+			else
+				compileLoop(method, loop);
+		}
+		return loops.get(id);
+	}
+	
+	// compiles the trace of a loop the interpreter finished recording or, if it gave up, the loop and its
+	// method as without tracing, returning the compiled loop once it is ready
+	CompiledBody recorded(TieredMethod method, While loop, TraceRecorder recorder) {
+		if (recorder.abandoned) {
+			if (!method.queued)
+				requestCompilation(method);
+			if (!onStackReplacement)
+				return null;
+			if (background)
+				COMPILER.execute(() -> compileLoop(method, loop));
+			else
+				compileLoop(method, loop);
+			return loops.get(loop.getNodeId());
+		}
+		if (background)
+			COMPILER.execute(() -> compileTrace(method, loop, recorder));
+		else
+			compileTrace(method, loop, recorder);
+		return loops.get(loop.getNodeId());
+	}
+	
+	// the compiled version of a loop, or null
+	CompiledBody getLoop(int id) {
+		return loops.get(id);
+	}
+	
+	private void compile(TieredMethod method) {
+		String className = className(method.symbol);
+		CompiledBody body = define(className, () -> compiler.compile(method.symbol, className));
+		if (body == null)
+			return;
+		try {
+			method.install(body);
+			compiledCount.incrementAndGet();
+		} catch (ReflectiveOperationException e) {
+			failedCount.incrementAndGet();
+		}
+	}
+	
+	private void compileLoop(TieredMethod method, While loop) {
+		String className = className(method.symbol) + "$loop" + loop.getNodeId();
+		CompiledBody body = define(className, () -> compiler.compileLoop(method.symbol, loop, className));
+		if (body != null) {
+			loops.set(loop.getNodeId(), body);
+			loopCount.incrementAndGet();
+		}
+	}
+	
+	private void compileTrace(TieredMethod method, While loop, TraceRecorder recorder) {
+		String className = className(method.symbol) + "$trace" + loop.getNodeId();
+		TraceCompiler traceCompiler = new TraceCompiler(table, checker, shapes, recorder);
+		CompiledBody body = define(className, () -> traceCompiler.compile(method.symbol, loop, className));
+		if (body != null) {
+			body.targets = traceCompiler.getTargets();
+			body.exits = traceCompiler.getExits();
+			loops.set(loop.getNodeId(), body);
+			traceCount.incrementAndGet();
+		}
+	}
+	
+	private String className(MethodSymbol symbol) {
+		return "$" + names.getName(symbol.getOwner().getNameId()) + "$" + names.getName(symbol.getNameId());
+	}
+	
+	// generates and loads a class and makes its instance, or returns null if that fails
+	private CompiledBody define(String className, Supplier<byte[]> generator) {
+		try {
+			Class<?> bodyClass = loader.define(className, generator.get());
+			return (CompiledBody) bodyClass.getConstructor(TieredEngine.class).newInstance(this);
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			failedCount.incrementAndGet(); // a bug here should not stop the program, which can stay interpreted
+			return null;
+		}
+	}
+	
+	// defines the classes of compiled bodies
+	private static class BodyLoader extends ClassLoader {
+		BodyLoader() {
+			super(TieredEngine.class.getClassLoader());
+		}
+		
+		synchronized Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
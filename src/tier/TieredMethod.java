@@ -0,0 +1,160 @@
+package tier;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+import ast.MethodDecl;
+import layout.Instance;
+import symbol.MethodSymbol;
+import symbol.SymbolTable;
+import symbol.Types;
+
+/*
+ * 
+ * One declared method and the tier it is in. It starts out interpreted,
+ * counting its invocations, and asks the engine to compile it the first
+ * time the count reaches its threshold, or one of its loops takes as many
+ * back-edges as the interpreter allows. In tracing mode only invocations
+ * made while the method is already active count, so that what gets
+ * compiled whole is recursive code no trace covers. Once the compiled body
+ * is installed every call runs it, from interpreted and compiled callers
+ * alike, while activations already under way in the interpreter carry on
+ * there, and move to compiled loops when their loops are hot.
+ * 
+ * Compiled callers reach the method through its entry, a call site taking
+ * the receiver and arguments as the compiled body's call() does. Until the
+ * body is installed the entry puts them in a frame and runs the method as
+ * an interpreted caller would; installing the body makes it the entry's
+ * target, so compiled code calls compiled code directly.
+ * 
+ * The counters are only touched by the thread running the program; the body
+ * may be installed by the compiler thread, hence volatile. A thread that
+ * still sees the entry's old target gets to the body through the frame.
+ * 
+ */
+
+final class TieredMethod {
+	private final static MethodHandle INTERPRET;
+	
+	static {
+		try {
+			INTERPRET = MethodHandles.lookup().findVirtual(TieredMethod.class, "interpret",
+					MethodType.methodType(Object.class, Object[].class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
+	final TieredEngine engine;
+	final MethodSymbol symbol;
+	final MethodDecl decl;
+	final int localCount;
+	final boolean[] refLocals;
+	final boolean hasRefLocals;
+	final int callLocals; // of the frame a call resolved to the method makes
+	final boolean callRefs;
+	final MutableCallSite entry;
+	final MethodHandle invoker; // of the entry
+	
+	int invocations;
+	int activations; // interpreted ones under way
+	boolean queued; // compilation was asked for
+	volatile CompiledBody body;
+	
+	TieredMethod(TieredEngine engine, SymbolTable table, MethodSymbol symbol) {
+		this.engine = engine;
+		this.symbol = symbol;
+		decl = symbol.getDecl();
+		localCount = symbol.getLocalCount();
+		refLocals = new boolean[localCount];
+		boolean refs = false;
+		for (int slot = 0; slot < localCount; slot++)
+			refs |= refLocals[slot] = isRef(symbol.getLocalType(slot));
+		hasRefLocals = refs;
+		callLocals = callLocals(table, symbol);
+		callRefs = callRefs(table, symbol);
+		MethodType type = MethodType.fromMethodDescriptorString(MethodCompiler.entryDescriptor(symbol),
+				TieredMethod.class.getClassLoader());
+		entry = new MutableCallSite(INTERPRET.bindTo(this).asCollector(Object[].class, type.parameterCount()).asType(type));
+		invoker = entry.dynamicInvoker();
+	}
+	
+	static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+	
+	// the locals of a frame that can hold those of any method a call resolved to the target dispatches to
+	static int callLocals(SymbolTable table, MethodSymbol target) {
+		int localCount = 0;
+		for (MethodSymbol method : table.getImplementations(target))
+			localCount = Math.max(localCount, method.getLocalCount());
+		return localCount;
+	}
+	
+	// true if any method a call resolved to the target dispatches to has a reference local
+	static boolean callRefs(SymbolTable table, MethodSymbol target) {
+		for (MethodSymbol method : table.getImplementations(target)) {
+			for (int slot = 0; slot < method.getLocalCount(); slot++) {
+				if (isRef(method.getLocalType(slot)))
+					return true;
+			}
+		}
+		return false;
+	}
+	
+	int invokeInt(Frame frame) {
+		CompiledBody compiled = body;
+		if (compiled != null)
+			return compiled.runInt(frame);
+		countInvocation();
+		activations++;
+		try {
+			return engine.interpreter.runInt(this, frame);
+		} finally {
+			activations--;
+		}
+	}
+	
+	Object invokeRef(Frame frame) {
+		CompiledBody compiled = body;
+		if (compiled != null)
+			return compiled.runRef(frame);
+		countInvocation();
+		activations++;
+		try {
+			return engine.interpreter.runRef(this, frame);
+		} finally {
+			activations--;
+		}
+	}
+	
+	// runs the method for a compiled caller, on a frame, while the entry has no body to go to
+	private Object interpret(Object[] args) {
+		Frame frame = new Frame((Instance) args[0], this);
+		for (int i = 1; i < args.length; i++) {
+			if (refLocals[i - 1])
+				frame.refs[i - 1] = args[i];
+			else
+				frame.ints[i - 1] = (Integer) args[i];
+		}
+		return isRef(symbol.getReturnType()) ? invokeRef(frame) : (Object) invokeInt(frame);
+	}
+	
+	// has calls run a compiled body, those from compiled code going straight to its entry
+	void install(CompiledBody compiled) throws ReflectiveOperationException {
+		MethodHandle call = MethodHandles.publicLookup().findVirtual(compiled.getClass(), MethodCompiler.ENTRY,
+				entry.type());
+		body = compiled;
+		entry.setTarget(call.bindTo(compiled));
+	}
+	
+	// in tracing mode only recursive invocations count, as the traces of loops inline the others
+	private void countInvocation() {
+		if (engine.tracing && activations == 0)
+			return;
+		if (++invocations == engine.invocationThreshold && !queued)
+			engine.requestCompilation(this);
+	}
+}
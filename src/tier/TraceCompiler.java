@@ -0,0 +1,264 @@
+package tier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ast.*;
+import jvm.ClassFile;
+import jvm.Code;
+import jvm.Label;
+import jvm.Opcodes;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+
+/*
+ * 
+ * Compiles a recorded loop to a trace: a runLoop() that, like a loop
+ * compiled for on-stack replacement, takes over an interpreted frame,
+ * runs the loop to its end and hands the frame back. Unlike one, it only
+ * contains what the recorded iterations did, as TraceRecorder saw it:
+ * 
+ *   - an If that always went one way is a guard on its condition, and the
+ *     other branch an exit to the interpreter
+ *   - an And whose right-hand side was never evaluated leaves that to the
+ *     interpreter
+ *   - a call that always dispatched to the same method is inlined behind a
+ *     guard that the receiver's class still has that method, with an
+ *     ordinary call when it does not
+ *   - inner loops are exits, and take their own traces when hot
+ * 
+ * An If that went both ways keeps both branches, so the trace is the
+ * union of the recorded paths rather than a single one, and a failed guard
+ * leaves the trace only for the code it guarded, after which execution
+ * rejoins it. To leave, the trace stores the locals of the activation it is
+ * in to a frame, the loop's own frame or one made for an inlined method,
+ * and has the interpreter run the exit's statement or expression in it,
+ * reloading the locals after a statement.
+ * 
+ * Each inlined activation takes JVM locals of its own after the loop
+ * method's: its receiver, a frame for exits and its locals, in that order.
+ * The arguments go straight to the callee's locals, and the guard is only
+ * checked once they are evaluated, so that a null receiver fails after
+ * them as in Java.
+ * 
+ */
+
+final class TraceCompiler {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final Shape[] shapes;
+	private final TraceRecorder recorder;
+	private final List<TieredMethod> targets = new ArrayList<TieredMethod>();
+	private final List<Node> exits = new ArrayList<Node>();
+	private ClassFile classFile;
+	private Code code;
+	private int nextLocal;
+	
+	TraceCompiler(SymbolTable table, TypeChecker checker, Shape[] shapes, TraceRecorder recorder) {
+		this.table = table;
+		this.checker = checker;
+		this.shapes = shapes;
+		this.recorder = recorder;
+	}
+	
+	// a class file for the trace of a loop of a method, of the given class name
+	byte[] compile(MethodSymbol method, While loop, String className) {
+		classFile = BodyCompiler.bodyClass(className);
+		nextLocal = BodyCompiler.FIRST_LOCAL + method.getLocalCount();
+		code = classFile.addMethod(Opcodes.ACC_PUBLIC, "runLoop", "(L" + MethodCompiler.FRAME + ";)V",
+				nextLocal + recorder.getInlinedLocals());
+		Activation root = new Activation(method, BodyCompiler.SELF_LOCAL, BodyCompiler.FIRST_LOCAL,
+				MethodCompiler.FRAME_LOCAL, 0, 0, -1);
+		root.loadSelf();
+		for (int local = 0; local < method.getLocalCount(); local++)
+			root.loadLocal(local, MethodCompiler.FRAME_LOCAL);
+		
+		Label top = new Label(), exit = new Label();
+		code.mark(top);
+		root.branch(loop.getCondExp(), exit, false);
+		root.statement(loop.getStm());
+		code.jump(Opcodes.GOTO, top);
+		code.mark(exit);
+		for (int local = 0; local < method.getLocalCount(); local++)
+			root.storeLocal(local, MethodCompiler.FRAME_LOCAL);
+		code.op(Opcodes.RETURN);
+		return classFile.toByteArray();
+	}
+	
+	// the methods inlined, which the trace's guards refer to by index
+	TieredMethod[] getTargets() {
+		return targets.toArray(new TieredMethod[targets.size()]);
+	}
+	
+	// the statements and expressions left to the interpreter, by index
+	Node[] getExits() {
+		return exits.toArray(new Node[exits.size()]);
+	}
+	
+	// compiles the parts of the trace in one method, the loop's or an inlined one
+	private class Activation extends MethodCompiler {
+		private final int frameLocal, context, depth;
+		private final int target; // index of the inlined method, or -1 for the loop's
+		
+		Activation(MethodSymbol method, int selfLocal, int firstLocal, int frameLocal, int context, int depth, int target) {
+			super(TraceCompiler.this.table, TraceCompiler.this.checker, shapes, method, TraceCompiler.this.classFile,
+					TraceCompiler.this.code, selfLocal, firstLocal);
+			this.frameLocal = frameLocal;
+			this.context = context;
+			this.depth = depth;
+			this.target = target;
+		}
+		
+		@Override
+		void statement(Statement stm) {
+			switch (stm.getKind()) {
+				
+				case NodeKind.IF:
+					If ifStm = (If) stm;
+					int seen = recorder.getBranch(context, ifStm);
+					if (seen == (TraceRecorder.TAKEN | TraceRecorder.NOT_TAKEN))
+						super.statement(stm);
+					else if (seen == 0)
+						exit(stm);
+					else {
+						// a guard, leaving the branch not seen to the interpreter
+						boolean taken = seen == TraceRecorder.TAKEN;
+						Label offTrace = new Label(), end = new Label();
+						branch(ifStm.getCondExp(), offTrace, !taken);
+						statement(taken ? ifStm.getTrueStm() : ifStm.getFalseStm());
+						code.jump(Opcodes.GOTO, end);
+						code.mark(offTrace);
+						exit(taken ? ifStm.getFalseStm() : ifStm.getTrueStm());
+						code.mark(end);
+					}
+					break;
+				
+				case NodeKind.WHILE:
+					exit(stm);
+					break;
+				
+				default:
+					super.statement(stm);
+			}
+		}
+		
+		@Override
+		void value(Exp exp) {
+			if (exp.getKind() != NodeKind.AND || rhsSeen((And) exp)) {
+				super.value(exp);
+				return;
+			}
+			And and = (And) exp;
+			Label isFalse = new Label(), end = new Label();
+			branch(and.getLHS(), isFalse, false);
+			exitInt(and.getRHS());
+			code.jump(Opcodes.GOTO, end);
+			code.mark(isFalse);
+			code.pushInt(0);
+			code.mark(end);
+		}
+		
+		@Override
+		void branch(Exp exp, Label target, boolean jumpIf) {
+			if (exp.getKind() != NodeKind.AND || rhsSeen((And) exp))
+				super.branch(exp, target, jumpIf);
+			else {
+				value(exp);
+				code.jump(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, target);
+			}
+		}
+		
+		private boolean rhsSeen(And and) {
+			return (recorder.getBranch(context, and) & TraceRecorder.TAKEN) != 0;
+		}
+		
+		// inlines the method a call always dispatched to, behind a guard
+		@Override
+		void call(Call call) {
+			TieredMethod inlined = depth < TraceRecorder.MAX_INLINE_DEPTH ? recorder.getTarget(context, call) : null;
+			if (inlined == null) {
+				super.call(call);
+				return;
+			}
+			MethodSymbol symbol = inlined.symbol, resolved = checker.getTarget(call);
+			int index = targets.size();
+			targets.add(inlined);
+			int base = nextLocal;
+			nextLocal += 2 + symbol.getLocalCount();
+			Activation callee = new Activation(symbol, base, base + 2, base + 1, recorder.context(context, call), depth + 1,
+					index);
+			code.declareLocal(base, "L" + INSTANCE + ";");
+			code.declareLocal(base + 1, "L" + FRAME + ";");
+			
+			// the receiver and the arguments, then the guard, which checks the receiver for null as dispatching does
+			value(call.getCallee());
+			code.local(Opcodes.ASTORE, base);
+			ExpList args = call.getArgs();
+			for (int i = 0; i < args.size(); i++) {
+				boolean ref = TieredMethod.isRef(symbol.getLocalType(i));
+				code.declareLocal(callee.firstLocal + i, descriptor(symbol.getLocalType(i)));
+				value(args.elementAt(i));
+				code.local(ref ? Opcodes.ASTORE : Opcodes.ISTORE, callee.firstLocal + i);
+			}
+			Label generic = new Label(), end = new Label();
+			code.local(Opcodes.ALOAD, BODY_LOCAL);
+			code.local(Opcodes.ALOAD, base);
+			code.pushInt(resolved.getSlot());
+			code.pushInt(index);
+			code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "dispatchesTo", "(L" + INSTANCE + ";II)Z");
+			code.jump(Opcodes.IFEQ, generic);
+			for (int local = symbol.getParamCount(); local < symbol.getLocalCount(); local++)
+				callee.initLocal(local);
+			MethodDecl decl = symbol.getDecl();
+			callee.statements(decl.getStms());
+			callee.value(decl.getReturnExp());
+			code.jump(Opcodes.GOTO, end);
+			
+			// another method, called as the method compiler calls
+			code.mark(generic);
+			code.local(Opcodes.ALOAD, base);
+			for (int i = 0; i < args.size(); i++)
+				code.local(TieredMethod.isRef(symbol.getLocalType(i)) ? Opcodes.ALOAD : Opcodes.ILOAD, callee.firstLocal + i);
+			dispatch(resolved);
+			code.mark(end);
+		}
+		
+		// leaves a statement to the interpreter
+		private void exit(Statement stm) {
+			int index = exits.size();
+			exits.add(stm);
+			materialize();
+			code.local(Opcodes.ALOAD, BODY_LOCAL);
+			code.local(Opcodes.ALOAD, frameLocal);
+			code.pushInt(index);
+			code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "interpret", "(L" + FRAME + ";I)V");
+			for (int local = 0; local < method.getLocalCount(); local++)
+				loadLocal(local, frameLocal);
+		}
+		
+		// leaves an int or boolean expression to the interpreter, which cannot assign locals in it
+		private void exitInt(Exp exp) {
+			int index = exits.size();
+			exits.add(exp);
+			materialize();
+			code.local(Opcodes.ALOAD, BODY_LOCAL);
+			code.local(Opcodes.ALOAD, frameLocal);
+			code.pushInt(index);
+			code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "interpretInt", "(L" + FRAME + ";I)I");
+		}
+		
+		// stores the activation's locals in its frame, made first for an inlined method
+		private void materialize() {
+			if (target >= 0) {
+				code.local(Opcodes.ALOAD, BODY_LOCAL);
+				code.local(Opcodes.ALOAD, selfLocal);
+				code.pushInt(target);
+				code.invoke(Opcodes.INVOKEVIRTUAL, BODY, "newFrame", "(L" + INSTANCE + ";I)L" + FRAME + ";");
+				code.local(Opcodes.ASTORE, frameLocal);
+			}
+			for (int local = 0; local < method.getLocalCount(); local++)
+				storeLocal(local, frameLocal);
+		}
+	}
+}
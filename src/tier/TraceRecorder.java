@@ -0,0 +1,121 @@
+package tier;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ast.Call;
+import ast.Node;
+
+/*
+ * 
+ * What the interpreter saw over the first ITERATIONS iterations of a hot
+ * loop after it became hot: which way each If went, whether the right-hand
+ * side of each And was evaluated, and which method each call dispatched to.
+ * Calls are followed into their callees, where what is seen is kept apart
+ * from what the same nodes do when called from elsewhere, as the trace
+ * will inline them: each call site inlined gets a context of its own, the
+ * loop's method being context 0, and every observation is keyed by its
+ * context and the node's id. Inner loops, and calls nested deeper than
+ * MAX_INLINE_DEPTH, are left to the interpreter and not recorded.
+ * 
+ * A recording with more than MAX_SIZE observations is abandoned, which
+ * stops it growing and keeps traces well under the JVM's method size limit.
+ * 
+ */
+
+final class TraceRecorder {
+	final static int ITERATIONS = 16, MAX_INLINE_DEPTH = 6, MAX_SIZE = 1000;
+	
+	// bits of a branch observation
+	final static int TAKEN = 1, NOT_TAKEN = 2;
+	
+	// a call site seen dispatching to more than one method
+	final static TieredMethod POLYMORPHIC = null;
+	
+	private final Map<Long, Integer> branches = new HashMap<Long, Integer>();
+	private final Map<Long, TieredMethod> targets = new HashMap<Long, TieredMethod>();
+	private final Map<Long, Integer> contexts = new HashMap<Long, Integer>();
+	private final int[] callers = new int[MAX_INLINE_DEPTH + 1]; // contexts of the calls under way
+	private int depth, context;
+	int iterations;
+	boolean abandoned;
+	
+	// starts recording an iteration of the loop, in its own method
+	void startIteration() {
+		depth = 0;
+		context = 0;
+	}
+	
+	// notes which way an If went, or whether an And evaluated its right-hand side
+	void branch(Node node, boolean taken) {
+		Long key = key(context, node.getNodeId());
+		Integer seen = branches.get(key);
+		branches.put(key, (seen == null ? 0 : seen) | (taken ? TAKEN : NOT_TAKEN));
+		if (seen == null)
+			grow();
+	}
+	
+	// notes the method a call dispatched to, once its arguments are evaluated
+	void call(Call call, TieredMethod target) {
+		Long key = key(context, call.getNodeId());
+		if (!targets.containsKey(key)) {
+			targets.put(key, target);
+			grow();
+		} else if (targets.get(key) != target)
+			targets.put(key, POLYMORPHIC);
+	}
+	
+	// moves into the context of a call's callee, returning false if it is too deep to record
+	boolean enterCall(Call call) {
+		callers[depth++] = context;
+		if (depth > MAX_INLINE_DEPTH)
+			return false;
+		context = context(context, call);
+		return true;
+	}
+	
+	void exitCall() {
+		context = callers[--depth];
+	}
+	
+	// observations for the trace compiler
+	int getBranch(int context, Node node) {
+		Integer seen = branches.get(key(context, node.getNodeId()));
+		return seen == null ? 0 : seen;
+	}
+	
+	// the one method a call site dispatched to, or null if it was not seen or dispatched to several
+	TieredMethod getTarget(int context, Call call) {
+		return targets.get(key(context, call.getNodeId()));
+	}
+	
+	// the context of a call site's callee
+	int context(int caller, Call call) {
+		Long key = key(caller, call.getNodeId());
+		Integer callee = contexts.get(key);
+		if (callee == null) {
+			callee = contexts.size() + 1;
+			contexts.put(key, callee);
+		}
+		return callee;
+	}
+	
+	// JVM locals the inlined activations of a trace could take, two each besides their locals
+	int getInlinedLocals() {
+		int count = 0;
+		for (TieredMethod target : targets.values()) {
+			if (target != POLYMORPHIC)
+				count += 2 + target.localCount;
+		}
+		return count;
+	}
+	
+	private void grow() {
+		if (branches.size() + targets.size() > MAX_SIZE)
+			abandoned = true;
+	}
+	
+	private static Long key(int context, int nodeId) {
+		return (long) context << 32 | nodeId;
+	}
+}
@@ -0,0 +1,244 @@
+package visitor;
+
+import ast.*;
+
+/*
+ * 
+ * Visits every node of an AST in depth-first order without doing anything
+ * else. Subclasses override only the visit methods for the nodes they care
+ * about and call the super method to keep descending. Null nodes left behind
+ * by syntax errors are skipped.
+ * 
+ */
+
+public class DepthFirstVisitor implements Visitor {
+
+	@Override
+	public void visit(Program prog) {
+		if (prog.getMainClass() != null) prog.getMainClass().accept(this);
+		if (prog.getClassDeclList() != null) {
+			for (int i = 0; i < prog.getClassDeclList().size(); i++) {
+				if (prog.getClassDeclList().elementAt(i) != null) prog.getClassDeclList().elementAt(i).accept(this);
+			}
+		}
+	}
+
+	@Override
+	public void visit(MainClass main) {
+		if (main.getClassId() != null) main.getClassId().accept(this);
+		if (main.getArgId() != null) main.getArgId().accept(this);
+		if (main.getStm() != null) main.getStm().accept(this);
+	}
+
+	@Override
+	public void visit(ClassDeclSimple simpleClass) {
+		if (simpleClass.getClassId() != null) simpleClass.getClassId().accept(this);
+		if (simpleClass.getFields() != null) {
+			for (int i = 0; i < simpleClass.getFields().size(); i++) {
+				if (simpleClass.getFields().elementAt(i) != null) simpleClass.getFields().elementAt(i).accept(this);
+			}
+		}
+		if (simpleClass.getMethods() != null) {
+			for (int i = 0; i < simpleClass.getMethods().size(); i++) {
+				if (simpleClass.getMethods().elementAt(i) != null) simpleClass.getMethods().elementAt(i).accept(this);
+			}
+		}
+	}
+
+	@Override
+	public void visit(ClassDeclExtends extendsClass) {
+		if (extendsClass.getClassId() != null) extendsClass.getClassId().accept(this);
+		if (extendsClass.getSuperId() != null) extendsClass.getSuperId().accept(this);
+		if (extendsClass.getFields() != null) {
+			for (int i = 0; i < extendsClass.getFields().size(); i++) {
+				if (extendsClass.getFields().elementAt(i) != null) extendsClass.getFields().elementAt(i).accept(this);
+			}
+		}
+		if (extendsClass.getMethods() != null) {
+			for (int i = 0; i < extendsClass.getMethods().size(); i++) {
+				if (extendsClass.getMethods().elementAt(i) != null) extendsClass.getMethods().elementAt(i).accept(this);
+			}
+		}
+	}
+
+	@Override
+	public void visit(VarDecl var) {
+		if (var.getType() != null) var.getType().accept(this);
+		if (var.getId() != null) var.getId().accept(this);
+	}
+
+	@Override
+	public void visit(MethodDecl method) {
+		if (method.getReturnType() != null) method.getReturnType().accept(this);
+		if (method.getId() != null) method.getId().accept(this);
+		if (method.getParams() != null) {
+			for (int i = 0; i < method.getParams().size(); i++) {
+				if (method.getParams().elementAt(i) != null) method.getParams().elementAt(i).accept(this);
+			}
+		}
+		if (method.getVars() != null) {
+			for (int i = 0; i < method.getVars().size(); i++) {
+				if (method.getVars().elementAt(i) != null) method.getVars().elementAt(i).accept(this);
+			}
+		}
+		if (method.getStms() != null) {
+			for (int i = 0; i < method.getStms().size(); i++) {
+				if (method.getStms().elementAt(i) != null) method.getStms().elementAt(i).accept(this);
+			}
+		}
+		if (method.getReturnExp() != null) method.getReturnExp().accept(this);
+	}
+
+	@Override
+	public void visit(Formal param) {
+		if (param.getType() != null) param.getType().accept(this);
+		if (param.getId() != null) param.getId().accept(this);
+	}
+
+	@Override
+	public void visit(IntArrayType intArrayT) {
+	}
+
+	@Override
+	public void visit(BooleanType boolT) {
+	}
+
+	@Override
+	public void visit(IntegerType intT) {
+	}
+
+	@Override
+	public void visit(IdentifierType idT) {
+	}
+
+	@Override
+	public void visit(Block blockStm) {
+		if (blockStm.getStms() != null) {
+			for (int i = 0; i < blockStm.getStms().size(); i++) {
+				if (blockStm.getStms().elementAt(i) != null) blockStm.getStms().elementAt(i).accept(this);
+			}
+		}
+	}
+
+	@Override
+	public void visit(If ifStm) {
+		if (ifStm.getCondExp() != null) ifStm.getCondExp().accept(this);
+		if (ifStm.getTrueStm() != null) ifStm.getTrueStm().accept(this);
+		if (ifStm.getFalseStm() != null) ifStm.getFalseStm().accept(this);
+	}
+
+	@Override
+	public void visit(While whileStm) {
+		if (whileStm.getCondExp() != null) whileStm.getCondExp().accept(this);
+		if (whileStm.getStm() != null) whileStm.getStm().accept(this);
+	}
+
+	@Override
+	public void visit(Print printStm) {
+		if (printStm.getExp() != null) printStm.getExp().accept(this);
+	}
+
+	@Override
+	public void visit(Assign assignStm) {
+		if (assignStm.getId() != null) assignStm.getId().accept(this);
+		if (assignStm.getValue() != null) assignStm.getValue().accept(this);
+	}
+
+	@Override
+	public void visit(ArrayAssign arrayAssignStm) {
+		if (arrayAssignStm.getId() != null) arrayAssignStm.getId().accept(this);
+		if (arrayAssignStm.getIndex() != null) arrayAssignStm.getIndex().accept(this);
+		if (arrayAssignStm.getValue() != null) arrayAssignStm.getValue().accept(this);
+	}
+
+	@Override
+	public void visit(And andExp) {
+		if (andExp.getLHS() != null) andExp.getLHS().accept(this);
+		if (andExp.getRHS() != null) andExp.getRHS().accept(this);
+	}
+
+	@Override
+	public void visit(LessThan lessThanExp) {
+		if (lessThanExp.getLHS() != null) lessThanExp.getLHS().accept(this);
+		if (lessThanExp.getRHS() != null) lessThanExp.getRHS().accept(this);
+	}
+
+	@Override
+	public void visit(Plus plusExp) {
+		if (plusExp.getLHS() != null) plusExp.getLHS().accept(this);
+		if (plusExp.getRHS() != null) plusExp.getRHS().accept(this);
+	}
+
+	@Override
+	public void visit(Minus minusExp) {
+		if (minusExp.getLHS() != null) minusExp.getLHS().accept(this);
+		if (minusExp.getRHS() != null) minusExp.getRHS().accept(this);
+	}
+
+	@Override
+	public void visit(Times timesExp) {
+		if (timesExp.getLHS() != null) timesExp.getLHS().accept(this);
+		if (timesExp.getRHS() != null) timesExp.getRHS().accept(this);
+	}
+
+	@Override
+	public void visit(ArrayLookup arrayLookup) {
+		if (arrayLookup.getArray() != null) arrayLookup.getArray().accept(this);
+		if (arrayLookup.getIndex() != null) arrayLookup.getIndex().accept(this);
+	}
+
+	@Override
+	public void visit(ArrayLength length) {
+		if (length.getArray() != null) length.getArray().accept(this);
+	}
+
+	@Override
+	public void visit(Call callExp) {
+		if (callExp.getCallee() != null) callExp.getCallee().accept(this);
+		if (callExp.getMethodName() != null) callExp.getMethodName().accept(this);
+		if (callExp.getArgs() != null) {
+			for (int i = 0; i < callExp.getArgs().size(); i++) {
+				if (callExp.getArgs().elementAt(i) != null) callExp.getArgs().elementAt(i).accept(this);
+			}
+		}
+	}
+
+	@Override
+	public void visit(IntegerLiteral intLiteral) {
+	}
+
+	@Override
+	public void visit(True trueLiteral) {
+	}
+
+	@Override
+	public void visit(False falseLiteral) {
+	}
+
+	@Override
+	public void visit(IdentifierExp identExp) {
+	}
+
+	@Override
+	public void visit(This thisLiteral) {
+	}
+
+	@Override
+	public void visit(NewArray array) {
+		if (array.getArraySize() != null) array.getArraySize().accept(this);
+	}
+
+	@Override
+	public void visit(NewObject object) {
+		if (object.getId() != null) object.getId().accept(this);
+	}
+
+	@Override
+	public void visit(Not notExp) {
+		if (notExp.getExp() != null) notExp.getExp().accept(this);
+	}
+
+	@Override
+	public void visit(Identifier id) {
+	}
+}
@@ -1,5 +1,14 @@
 package visitor;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import ast.*;
 
 /*
@@ -8,57 +17,178 @@ import ast.*;
  * trees for a program's syntax were properly constructed during the parsing 
  * stage. It is utilized by the TestParser class in MiniJava/test.
  * 
+ * Output is collected in a buffer and written to the target in large chunks,
+ * rather than one stream call per fragment. The buffer is flushed after a
+ * whole Program is printed; callers printing any other node should call
+ * flush() themselves. The static print() method can also render each class
+ * of a program on a separate worker, with the same output, which it only
+ * starts writing once every class is rendered.
+ * 
+ * A write to the target that fails throws an UncheckedIOException, as the
+ * visit methods cannot throw IOException, and keeps what was buffered, so
+ * a failing target never loses output silently. print() rethrows the
+ * IOException itself.
+ * 
  */
 
 public class PrettyPrintVisitor implements Visitor {
-
+	private final Appendable out;
+	private final StringBuilder buffer = new StringBuilder();
+	
+	private final static int FLUSH_SIZE = 8192; // chars buffered before a write
+	private final static String NEWLINE = System.lineSeparator();
+	
+	public PrettyPrintVisitor() {
+		this(System.out);
+	}
+	
+	public PrettyPrintVisitor(Appendable out) {
+		this.out = out;
+	}
+	
+	// renders every class of prog on a worker from pool, writing them in order once all are rendered;
+	// if interrupted while waiting it cancels the rest and rethrows, having written nothing
+	public static void print(Program prog, Appendable out, ExecutorService pool)
+			throws InterruptedException, IOException {
+		if (prog == null) return;
+		
+		List<Future<CharSequence>> classes = new ArrayList<Future<CharSequence>>();
+		if (prog.getClassDeclList() != null) {
+			for (int i = 0; i < prog.getClassDeclList().size(); i++) {
+				final ClassDecl classDecl = prog.getClassDeclList().elementAt(i);
+				if (classDecl == null)
+					continue;
+				
+				classes.add(pool.submit(() -> {
+					StringBuilder rendered = new StringBuilder();
+					PrettyPrintVisitor printer = new PrettyPrintVisitor(rendered);
+					classDecl.accept(printer);
+					printer.flush();
+					return rendered;
+				}));
+			}
+		}
+		
+		List<CharSequence> rendered = new ArrayList<CharSequence>();
+		try {
+			for (Future<CharSequence> future : classes)
+				rendered.add(future.get());
+		} catch (InterruptedException e) {
+			cancel(classes);
+			throw e;
+		} catch (ExecutionException e) {
+			cancel(classes);
+			throw new RuntimeException(e.getCause());
+		}
+		
+		// the main class, then the rendered classes in program order
+		PrettyPrintVisitor printer = new PrettyPrintVisitor(out);
+		try {
+			if (prog.getMainClass() != null) prog.getMainClass().accept(printer);
+			for (CharSequence classDecl : rendered) {
+				printer.println();
+				printer.buffer.append(classDecl);
+				if (printer.buffer.length() >= FLUSH_SIZE)
+					printer.flush();
+			}
+			
+			printer.flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private static void cancel(List<Future<CharSequence>> classes) {
+		for (Future<CharSequence> future : classes)
+			future.cancel(true);
+	}
+	
+	// writes out everything buffered so far, or throws with it all still buffered
+	public void flush() {
+		try {
+			out.append(buffer);
+			if (out instanceof Flushable)
+				((Flushable) out).flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		buffer.setLength(0);
+	}
+	
+	private void print(String text) {
+		buffer.append(text);
+		if (buffer.length() >= FLUSH_SIZE)
+			flush();
+	}
+	
+	private void print(int value) {
+		buffer.append(value);
+	}
+	
+	private void println(String text) {
+		buffer.append(text);
+		println();
+	}
+	
+	private void println() {
+		buffer.append(NEWLINE);
+		if (buffer.length() >= FLUSH_SIZE)
+			flush();
+	}
+	
 	@Override
 	public void visit(Program prog) {
 		if (prog == null) return;
 		
 		if (prog.getMainClass() != null) prog.getMainClass().accept(this);
 		
-		if (prog.getClassDeclList() == null) return;
+		if (prog.getClassDeclList() == null) {
+			flush();
+			return;
+		}
 		for (int i = 0; i < prog.getClassDeclList().size(); i++) {
 			if (prog.getClassDeclList().elementAt(i) == null)
 				continue;
 			
-			System.out.println();
+			println();
 			prog.getClassDeclList().elementAt(i).accept(this);
 		}
+		
+		flush();
 	}
-
+	
 	@Override
 	public void visit(MainClass main) {
-		System.out.print("class ");
+		print("class ");
 		if (main.getClassId() != null) main.getClassId().accept(this);
-		System.out.println(" {");
+		println(" {");
 		
-		System.out.print("\tpublic static void main(String[] ");
+		print("\tpublic static void main(String[] ");
 		if (main.getArgId() != null) main.getArgId().accept(this);
-		System.out.println(") {");
+		println(") {");
 		
-		System.out.print("\t\t");
+		print("\t\t");
 		if (main.getStm() != null) main.getStm().accept(this);
-		System.out.println();
-		System.out.println("\t}");
-		System.out.println("}");
+		println();
+		println("\t}");
+		println("}");
 	}
-
+	
 	@Override
 	public void visit(ClassDeclSimple simpleClass) {
-		System.out.print("class ");
+		print("class ");
 		if (simpleClass.getClassId() != null) simpleClass.getClassId().accept(this);
-		System.out.println(" {");
+		println(" {");
 		
 		if (simpleClass.getFields() != null) {
 			for (int i = 0; i < simpleClass.getFields().size(); i++) {
 				if (simpleClass.getFields().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t");
+				print("\t");
 				simpleClass.getFields().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
@@ -67,31 +197,31 @@ public class PrettyPrintVisitor implements Visitor {
 				if (simpleClass.getMethods().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t");
+				print("\t");
 				simpleClass.getMethods().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
-		System.out.println("}");
+		println("}");
 	}
-
+	
 	@Override
 	public void visit(ClassDeclExtends extendsClass) {
-		System.out.print("class ");
+		print("class ");
 		if (extendsClass.getClassId() != null) extendsClass.getClassId().accept(this);
-		System.out.print(" extends ");
+		print(" extends ");
 		if (extendsClass.getSuperId() != null) extendsClass.getSuperId().accept(this);
-		System.out.println(" {");
+		println(" {");
 		
 		if (extendsClass.getFields() != null) {
 			for (int i = 0; i < extendsClass.getFields().size(); i++) {
 				if (extendsClass.getFields().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t");
+				print("\t");
 				extendsClass.getFields().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
@@ -100,30 +230,30 @@ public class PrettyPrintVisitor implements Visitor {
 				if (extendsClass.getMethods().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t");
+				print("\t");
 				extendsClass.getMethods().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
-		System.out.println("}");
+		println("}");
 	}
-
+	
 	@Override
 	public void visit(VarDecl var) {
 		if (var.getType() != null) var.getType().accept(this);
-		System.out.print(" ");
+		print(" ");
 		if (var.getId() != null) var.getId().accept(this);
-		System.out.print(";");
+		print(";");
 	}
-
+	
 	@Override
 	public void visit(MethodDecl method) {
-		System.out.print("public ");
+		print("public ");
 		if (method.getReturnType() != null) method.getReturnType().accept(this);
-		System.out.print(" ");
+		print(" ");
 		if (method.getId() != null) method.getId().accept(this);
-		System.out.print(" (");
+		print(" (");
 		
 		if (method.getParams() != null) {
 			for (int i = 0; i < method.getParams().size(); i++) {
@@ -132,20 +262,20 @@ public class PrettyPrintVisitor implements Visitor {
 				
 				method.getParams().elementAt(i).accept(this);
 				if (i < method.getParams().size() - 1)
-					System.out.print(", ");
+					print(", ");
 			}
 		}
 		
-		System.out.println(") {");
+		println(") {");
 		
 		if (method.getVars() != null) {
 			for (int i = 0; i < method.getVars().size(); i++) {
 				if (method.getVars().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t\t");
+				print("\t\t");
 				method.getVars().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
@@ -154,176 +284,176 @@ public class PrettyPrintVisitor implements Visitor {
 				if (method.getStms().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t\t");
+				print("\t\t");
 				method.getStms().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
-		System.out.print("\t\treturn ");
+		print("\t\treturn ");
 		if (method.getReturnExp() != null) method.getReturnExp().accept(this);
-		System.out.println(";");
-		System.out.println("\t}");
+		println(";");
+		println("\t}");
 	}
-
+	
 	@Override
 	public void visit(Formal param) {
 		if (param.getType() != null) param.getType().accept(this);
-		System.out.print(" ");
+		print(" ");
 		if (param.getId() != null) param.getId().accept(this);
 	}
-
+	
 	@Override
 	public void visit(IntArrayType intArrayT) {
-		System.out.print("int[]");
+		print("int[]");
 	}
-
+	
 	@Override
 	public void visit(BooleanType boolT) {
-		System.out.print("boolean");
+		print("boolean");
 	}
-
+	
 	@Override
 	public void visit(IntegerType intT) {
-		System.out.print("int");
+		print("int");
 	}
-
+	
 	@Override
 	public void visit(IdentifierType idT) {
 		if (idT.getName() != null)
-			System.out.print(idT.getName());
+			print(idT.getName());
 	}
-
+	
 	@Override
 	public void visit(Block blockStm) {
-		System.out.println("{");
+		println("{");
 		
 		if (blockStm.getStms() != null) {
 			for (int i = 0; i < blockStm.getStms().size(); i++) {
 				if (blockStm.getStms().elementAt(i) == null)
 					continue;
 				
-				System.out.print("\t\t\t");
+				print("\t\t\t");
 				blockStm.getStms().elementAt(i).accept(this);
-				System.out.println();
+				println();
 			}
 		}
 		
-		System.out.println("\t\t}");
+		println("\t\t}");
 	}
-
+	
 	@Override
 	public void visit(If ifStm) {
-		System.out.print("if (");
+		print("if (");
 		if (ifStm.getCondExp() != null) ifStm.getCondExp().accept(this);
-		System.out.println(")");
+		println(")");
 		
-		System.out.print("\t\t\t");
+		print("\t\t\t");
 		if (ifStm.getTrueStm() != null) ifStm.getTrueStm().accept(this);
-		System.out.println();
+		println();
 		
-		System.out.println("\t\telse");
-		System.out.print("\t\t\t");
+		println("\t\telse");
+		print("\t\t\t");
 		if (ifStm.getFalseStm() != null) ifStm.getFalseStm().accept(this);
 	}
-
+	
 	@Override
 	public void visit(While whileStm) {
-		System.out.print("while (");
+		print("while (");
 		if (whileStm.getCondExp() != null) whileStm.getCondExp().accept(this);
-		System.out.print(")");
+		print(")");
 		if (whileStm.getStm() != null) whileStm.getStm().accept(this);
 	}
-
+	
 	@Override
 	public void visit(Print printStm) {
-		System.out.print("System.out.println(");
+		print("System.out.println(");
 		if (printStm.getExp() != null) printStm.getExp().accept(this);
-		System.out.print(");");
+		print(");");
 	}
-
+	
 	@Override
 	public void visit(Assign assignStm) {
 		if (assignStm.getId() != null) assignStm.getId().accept(this);
-		System.out.print(" = ");
+		print(" = ");
 		if (assignStm.getValue() != null) assignStm.getValue().accept(this);
-		System.out.print(";");
+		print(";");
 	}
-
+	
 	@Override
 	public void visit(ArrayAssign arrayAssignStm) {
 		if (arrayAssignStm.getId() != null) arrayAssignStm.getId().accept(this);
-		System.out.print("[");
+		print("[");
 		if (arrayAssignStm.getIndex() != null) arrayAssignStm.getIndex().accept(this);
-		System.out.print("] = ");
+		print("] = ");
 		if (arrayAssignStm.getValue() != null) arrayAssignStm.getValue().accept(this);
-		System.out.print(";");
+		print(";");
 	}
-
+	
 	@Override
 	public void visit(And andExp) {
-		System.out.print("(");
+		print("(");
 		if (andExp.getLHS() != null) andExp.getLHS().accept(this);
-		System.out.print(" && ");
+		print(" && ");
 		if (andExp.getRHS() != null) andExp.getRHS().accept(this);
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(LessThan lessThanExp) {
-		System.out.print("(");
+		print("(");
 		if (lessThanExp.getLHS() != null) lessThanExp.getLHS().accept(this);
-		System.out.print(" < ");
+		print(" < ");
 		if (lessThanExp.getRHS() != null) lessThanExp.getRHS().accept(this);
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(Plus plusExp) {
-		System.out.print("(");
+		print("(");
 		if (plusExp.getLHS() != null) plusExp.getLHS().accept(this);
-		System.out.print(" + ");
+		print(" + ");
 		if (plusExp.getRHS() != null) plusExp.getRHS().accept(this);
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(Minus minusExp) {
-		System.out.print("(");
+		print("(");
 		if (minusExp.getLHS() != null) minusExp.getLHS().accept(this);
-		System.out.print(" - ");
+		print(" - ");
 		if (minusExp.getRHS() != null) minusExp.getRHS().accept(this);
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(Times timesExp) {
-		System.out.print("(");
+		print("(");
 		if (timesExp.getLHS() != null) timesExp.getLHS().accept(this);
-		System.out.print(" * ");
+		print(" * ");
 		if (timesExp.getRHS() != null) timesExp.getRHS().accept(this);
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(ArrayLookup arrayLookup) {
 		if (arrayLookup.getArray() != null) arrayLookup.getArray().accept(this);
-		System.out.print("[");
+		print("[");
 		if (arrayLookup.getIndex() != null) arrayLookup.getIndex().accept(this);
 	}
-
+	
 	@Override
 	public void visit(ArrayLength length) {
 		if (length.getArray() != null) length.getArray().accept(this);
-		System.out.print(".length");
+		print(".length");
 	}
-
+	
 	@Override
 	public void visit(Call callExp) {
 		if (callExp.getCallee() != null) callExp.getCallee().accept(this);
-		System.out.print(".");
+		print(".");
 		if (callExp.getMethodName() != null) callExp.getMethodName().accept(this);
-		System.out.print("(");
+		print("(");
 		
 		if (callExp.getArgs() != null) {
 			for (int i = 0; i < callExp.getArgs().size(); i++) {
@@ -332,63 +462,63 @@ public class PrettyPrintVisitor implements Visitor {
 				
 				callExp.getArgs().elementAt(i).accept(this);
 				if (i < callExp.getArgs().size() - 1)
-					System.out.print(", ");
+					print(", ");
 			}
 		}
 		
-		System.out.print(")");
+		print(")");
 	}
-
+	
 	@Override
 	public void visit(IntegerLiteral intLiteral) {
-		System.out.print(intLiteral.getValue());
+		print(intLiteral.getValue());
 	}
-
+	
 	@Override
 	public void visit(True trueLiteral) {
-		System.out.print("true");
+		print("true");
 	}
-
+	
 	@Override
 	public void visit(False falseLiteral) {
-		System.out.print("false");
+		print("false");
 	}
-
+	
 	@Override
 	public void visit(IdentifierExp identExp) {
 		if (identExp.getName() != null)
-			System.out.print(identExp.getName());
+			print(identExp.getName());
 	}
-
+	
 	@Override
 	public void visit(This thisLiteral) {
-		System.out.print("this");
+		print("this");
 	}
-
+	
 	@Override
 	public void visit(NewArray array) {
-		System.out.print("new int [");
+		print("new int [");
 		if (array.getArraySize() != null) array.getArraySize().accept(this);
-		System.out.print("]");
+		print("]");
 	}
-
+	
 	@Override
 	public void visit(NewObject object) {
-		System.out.print("new ");
+		print("new ");
 		if (object.getId() != null) object.getId().accept(this);
-		System.out.print("()");
+		print("()");
 	}
-
+	
 	@Override
 	public void visit(Not notExp) {
-		System.out.print("!");
+		print("!");
 		if (notExp.getExp() != null) notExp.getExp().accept(this);
 	}
-
+	
 	@Override
 	public void visit(Identifier id) {
 		if (id.getName() != null)
-			System.out.print(id.getName());
+			print(id.getName());
 	}
 
 }
@@ -0,0 +1,258 @@
+package visitor;
+
+import java.util.Arrays;
+
+import ast.*;
+
+/*
+ * 
+ * A flattened, depth-first pre-order view of an AST for analyses that would
+ * rather switch on node kinds than implement a Visitor. The tree is walked
+ * once, recording each node with its kind tag and the index just past its
+ * subtree. A pass is then a plain loop over the arrays:
+ * 
+ *     for (int i = 0; i < index.size(); i++)
+ *         switch (index.getKind(i)) { ... }
+ * 
+ * which makes no virtual calls per node, however many different analyses
+ * share the index, and setting i to getEnd(i) - 1 skips a subtree. Null nodes
+ * left behind by syntax errors are skipped.
+ * 
+ */
+
+public final class TreeIndex {
+	private Node[] nodes = new Node[256];
+	private int[] kinds = new int[256];
+	private int[] ends = new int[256]; // index just past each node's subtree
+	private int size;
+	
+	public TreeIndex(Node root) {
+		add(root);
+	}
+	
+	// number of nodes in the tree
+	public int size() {
+		return size;
+	}
+	
+	public Node getNode(int index) {
+		return nodes[index];
+	}
+	
+	public int getKind(int index) {
+		return kinds[index];
+	}
+	
+	// index of the first node following the subtree rooted at index
+	public int getEnd(int index) {
+		return ends[index];
+	}
+	
+	private void add(Node node) {
+		if (node == null)
+			return;
+		
+		// grow the arrays when full
+		if (size == nodes.length) {
+			nodes = Arrays.copyOf(nodes, size * 2);
+			kinds = Arrays.copyOf(kinds, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+		}
+		
+		int index = size++;
+		nodes[index] = node;
+		kinds[index] = node.getKind();
+		addChildren(node);
+		ends[index] = size;
+	}
+	
+	// records the children of a node in source order
+	private void addChildren(Node node) {
+		switch (node.getKind()) {
+			
+			case NodeKind.PROGRAM:
+				Program prog = (Program) node;
+				add(prog.getMainClass());
+				add(prog.getClassDeclList());
+				break;
+			
+			case NodeKind.MAIN_CLASS:
+				MainClass main = (MainClass) node;
+				add(main.getClassId());
+				add(main.getArgId());
+				add(main.getStm());
+				break;
+			
+			case NodeKind.CLASS_DECL_SIMPLE:
+				ClassDeclSimple simpleClass = (ClassDeclSimple) node;
+				add(simpleClass.getClassId());
+				add(simpleClass.getFields());
+				add(simpleClass.getMethods());
+				break;
+			
+			case NodeKind.CLASS_DECL_EXTENDS:
+				ClassDeclExtends extendsClass = (ClassDeclExtends) node;
+				add(extendsClass.getClassId());
+				add(extendsClass.getSuperId());
+				add(extendsClass.getFields());
+				add(extendsClass.getMethods());
+				break;
+			
+			case NodeKind.VAR_DECL:
+				VarDecl var = (VarDecl) node;
+				add(var.getType());
+				add(var.getId());
+				break;
+			
+			case NodeKind.METHOD_DECL:
+				MethodDecl method = (MethodDecl) node;
+				add(method.getReturnType());
+				add(method.getId());
+				add(method.getParams());
+				add(method.getVars());
+				add(method.getStms());
+				add(method.getReturnExp());
+				break;
+			
+			case NodeKind.FORMAL:
+				Formal param = (Formal) node;
+				add(param.getType());
+				add(param.getId());
+				break;
+			
+			case NodeKind.BLOCK:
+				add(((Block) node).getStms());
+				break;
+			
+			case NodeKind.IF:
+				If ifStm = (If) node;
+				add(ifStm.getCondExp());
+				add(ifStm.getTrueStm());
+				add(ifStm.getFalseStm());
+				break;
+			
+			case NodeKind.WHILE:
+				While whileStm = (While) node;
+				add(whileStm.getCondExp());
+				add(whileStm.getStm());
+				break;
+			
+			case NodeKind.PRINT:
+				add(((Print) node).getExp());
+				break;
+			
+			case NodeKind.ASSIGN:
+				Assign assignStm = (Assign) node;
+				add(assignStm.getId());
+				add(assignStm.getValue());
+				break;
+			
+			case NodeKind.ARRAY_ASSIGN:
+				ArrayAssign arrayAssignStm = (ArrayAssign) node;
+				add(arrayAssignStm.getId());
+				add(arrayAssignStm.getIndex());
+				add(arrayAssignStm.getValue());
+				break;
+			
+			case NodeKind.AND:
+				And andExp = (And) node;
+				add(andExp.getLHS());
+				add(andExp.getRHS());
+				break;
+			
+			case NodeKind.LESS_THAN:
+				LessThan lessThanExp = (LessThan) node;
+				add(lessThanExp.getLHS());
+				add(lessThanExp.getRHS());
+				break;
+			
+			case NodeKind.PLUS:
+				Plus plusExp = (Plus) node;
+				add(plusExp.getLHS());
+				add(plusExp.getRHS());
+				break;
+			
+			case NodeKind.MINUS:
+				Minus minusExp = (Minus) node;
+				add(minusExp.getLHS());
+				add(minusExp.getRHS());
+				break;
+			
+			case NodeKind.TIMES:
+				Times timesExp = (Times) node;
+				add(timesExp.getLHS());
+				add(timesExp.getRHS());
+				break;
+			
+			case NodeKind.ARRAY_LOOKUP:
+				ArrayLookup arrayLookup = (ArrayLookup) node;
+				add(arrayLookup.getArray());
+				add(arrayLookup.getIndex());
+				break;
+			
+			case NodeKind.ARRAY_LENGTH:
+				add(((ArrayLength) node).getArray());
+				break;
+			
+			case NodeKind.CALL:
+				Call callExp = (Call) node;
+				add(callExp.getCallee());
+				add(callExp.getMethodName());
+				add(callExp.getArgs());
+				break;
+			
+			case NodeKind.NEW_ARRAY:
+				add(((NewArray) node).getArraySize());
+				break;
+			
+			case NodeKind.NEW_OBJECT:
+				add(((NewObject) node).getId());
+				break;
+			
+			case NodeKind.NOT:
+				add(((Not) node).getExp());
+				break;
+			
+			default:
+				// types, literals and identifiers have no children
+				break;
+				
+		}
+	}
+	
+	private void add(ClassDeclList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+	
+	private void add(VarDeclList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+	
+	private void add(MethodDeclList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+	
+	private void add(FormalList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+	
+	private void add(StatementList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+	
+	private void add(ExpList list) {
+		if (list == null) return;
+		for (int i = 0; i < list.size(); i++)
+			add(list.elementAt(i));
+	}
+}
@@ -0,0 +1,44 @@
+package vm;
+
+/*
+ * 
+ * The register code of one method. Its frame is intRegisters int registers
+ * and refRegisters ref registers. The parameters come first in each file, in
+ * the order they are declared, so a caller copies its arguments straight
+ * into them: int parameters to int registers 0 and up, and the others to ref
+ * registers 1 and up, after this. The other locals follow, up to intLocals
+ * and refLocals, and temporaries take the registers after those.
+ * 
+ */
+
+public final class MethodCode {
+	final String name;
+	final int[] code;
+	final int intRegisters, refRegisters;
+	final int intLocals, refLocals;
+	
+	MethodCode(String name, int[] code, int intRegisters, int refRegisters, int intLocals, int refLocals) {
+		this.name = name;
+		this.code = code;
+		this.intRegisters = intRegisters;
+		this.refRegisters = refRegisters;
+		this.intLocals = intLocals;
+		this.refLocals = refLocals;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int[] getCode() {
+		return code;
+	}
+	
+	public int getIntRegisters() {
+		return intRegisters;
+	}
+	
+	public int getRefRegisters() {
+		return refRegisters;
+	}
+}
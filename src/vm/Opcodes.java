@@ -0,0 +1,65 @@
+package vm;
+
+/*
+ * 
+ * The instruction set of the register VM. An instruction is an opcode
+ * followed by its operands, all ints in one int array per method. Operands
+ * named d, a and b are registers, i is an immediate value and t the index
+ * in the code of a jump target. Registers come in two files: int registers
+ * hold ints and booleans, and ref registers hold int arrays and objects.
+ * Ref register 0 always holds this.
+ * 
+ */
+
+public final class Opcodes {
+	// moves and constants
+	public final static int CONST = 0; // d i: int d = i
+	public final static int MOVE = 1; // d a: int d = a
+	public final static int MOVE_REF = 2; // d a: ref d = a
+	
+	// arithmetic, on int registers
+	public final static int ADD = 3; // d a b
+	public final static int SUB = 4; // d a b
+	public final static int MUL = 5; // d a b
+	public final static int ADD_IMM = 6; // d a i: d = a + i
+	public final static int LESS_THAN = 7; // d a b: d = a < b ? 1 : 0
+	public final static int NOT = 8; // d a: d = a ^ 1
+	
+	// jumps
+	public final static int JUMP = 9; // t
+	public final static int JUMP_LT = 10; // a b t: jump if a < b
+	public final static int JUMP_GE = 11; // a b t: jump if a >= b
+	public final static int JUMP_LT_IMM = 12; // a i t: jump if a < i
+	public final static int JUMP_GE_IMM = 13; // a i t: jump if a >= i
+	public final static int JUMP_GT_IMM = 14; // a i t: jump if a > i
+	public final static int JUMP_LE_IMM = 15; // a i t: jump if a <= i
+	public final static int JUMP_ZERO = 16; // a t
+	public final static int JUMP_NONZERO = 17; // a t
+	
+	// arrays: the array is a ref register, the rest int registers
+	public final static int ARRAY_LOAD = 18; // d a b: d = a[b]
+	public final static int ARRAY_STORE = 19; // a b d: a[b] = d
+	public final static int ARRAY_LENGTH = 20; // d a
+	public final static int NEW_ARRAY = 21; // d a: ref d = new int[a]
+	public final static int ARRAY_LOAD_FIELD = 22; // d i b: d = this.field[b], the field at index i
+	public final static int ARRAY_STORE_FIELD = 23; // i b d: this.field[b] = d
+	
+	// objects: fields are those of this, by their index in its int or Object array
+	public final static int GET_FIELD = 24; // d i
+	public final static int GET_FIELD_REF = 25; // d i
+	public final static int PUT_FIELD = 26; // i a
+	public final static int PUT_FIELD_REF = 27; // i a
+	public final static int NEW_OBJECT = 28; // d i: ref d = new instance of class index i
+	
+	// calls: d receiver vtableSlot argCount, then an operand per argument holding
+	// its register shifted left by one, with the low bit set for a ref register
+	public final static int CALL = 29;
+	public final static int CALL_REF = 30;
+	public final static int RETURN = 31; // a
+	public final static int RETURN_REF = 32; // a
+	
+	public final static int PRINT = 33; // a
+	public final static int HALT = 34; // ends the main class's statement
+	
+	private Opcodes() {}
+}
@@ -0,0 +1,529 @@
+package vm;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ast.*;
+import layout.LayoutEngine;
+import layout.RuntimeClass;
+import layout.Shape;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.DepthFirstVisitor;
+
+/*
+ * 
+ * Lowers a program that type checked without errors to register code. Every
+ * local lives in a register of its own for the whole method, so reading a
+ * local costs nothing, and an assignment to a local computes its value
+ * straight into the local's register. Temporaries are allocated like a stack
+ * above the locals and freed as soon as the instruction using them is
+ * emitted, so a method needs about as many registers as its deepest
+ * expression.
+ * 
+ * Conditions compile to jumps rather than to booleans, comparing against an
+ * immediate when either side of a < is an integer literal, and while loops
+ * test their condition at the bottom, so an iteration costs one jump. An
+ * array held in a field of this is indexed straight through the field,
+ * without first loading it into a register, unless a call in the index or
+ * the stored value could assign the field in between.
+ * 
+ */
+
+public class RegisterCompiler {
+	private final SymbolTable table;
+	private final TypeChecker checker;
+	private final Names names;
+	private final Shape[] shapes; // by class index
+	
+	public RegisterCompiler(SymbolTable table, TypeChecker checker) {
+		this.table = table;
+		this.checker = checker;
+		names = table.getNames();
+		shapes = new LayoutEngine(table).shapes();
+	}
+	
+	public RegisterProgram compile(Program prog) {
+		MethodCode main = new MethodCompiler(null).compileMain(prog.getMainClass());
+		int codeSize = main.code.length;
+		
+		// classes and their vtables, sharing one MethodCode per declared method
+		RuntimeClass[] classes = new RuntimeClass[table.getClassCount()];
+		Map<MethodSymbol, MethodCode> methods = new IdentityHashMap<MethodSymbol, MethodCode>();
+		for (ClassSymbol symbol : table.getClasses()) {
+			MethodCode[] vtable = new MethodCode[symbol.getMethodCount()];
+			for (int slot = 0; slot < vtable.length; slot++) {
+				MethodSymbol method = symbol.getMethod(slot);
+				MethodCode methodCode = methods.get(method);
+				if (methodCode == null) {
+					methodCode = new MethodCompiler(method).compileMethod();
+					methods.put(method, methodCode);
+					codeSize += methodCode.code.length;
+				}
+				vtable[slot] = methodCode;
+			}
+			classes[symbol.getIndex()] = new RuntimeClass(shapes[symbol.getIndex()], vtable);
+		}
+		return new RegisterProgram(main, classes, codeSize);
+	}
+	
+	// true if values of the type are kept in ref registers rather than int registers
+	private static boolean isRef(int type) {
+		return type != Types.INT && type != Types.BOOLEAN;
+	}
+	
+	// true if evaluating an expression may call a method
+	private static boolean hasCall(Exp exp) {
+		CallFinder finder = new CallFinder();
+		exp.accept(finder);
+		return finder.found;
+	}
+	
+	private static class CallFinder extends DepthFirstVisitor {
+		boolean found;
+		
+		@Override
+		public void visit(Call call) {
+			found = true;
+		}
+	}
+	
+	// a position in the code, and the jumps to it emitted before it was marked
+	private static class Label {
+		int position = -1;
+		int[] fixups = new int[2];
+		int fixupCount;
+	}
+	
+	/*
+	 * 
+	 * Lowers one method, or the main class's statement when method is null.
+	 * Each value() method returns the register holding the value of an
+	 * expression. Given a destination register, they put the value there;
+	 * given -1, they leave it wherever is cheapest, which for a local is its
+	 * own register.
+	 * 
+	 */
+	
+	private class MethodCompiler {
+		private final MethodSymbol method;
+		private final int[] registers; // by local slot, in the file its type belongs to
+		private int intLocals, refLocals = 1;
+		private int intTop, refTop, intMax, refMax;
+		private int[] code = new int[64];
+		private int length;
+		
+		MethodCompiler(MethodSymbol method) {
+			this.method = method;
+			int localCount = method == null ? 0 : method.getLocalCount();
+			registers = new int[localCount];
+			
+			// parameters are the first locals, so they get the first registers of each file
+			for (int slot = 0; slot < localCount; slot++) {
+				if (isRef(method.getLocalType(slot)))
+					registers[slot] = refLocals++;
+				else
+					registers[slot] = intLocals++;
+			}
+			intTop = intMax = intLocals;
+			refTop = refMax = refLocals;
+		}
+		
+		MethodCode compileMain(MainClass main) {
+			statement(main.getStm());
+			emit(Opcodes.HALT);
+			return finish(main.getClassId().getName() + ".main");
+		}
+		
+		MethodCode compileMethod() {
+			MethodDecl decl = method.getDecl();
+			statements(decl.getStms());
+			if (isRef(method.getReturnType()))
+				emit(Opcodes.RETURN_REF, refValue(decl.getReturnExp(), -1));
+			else
+				emit(Opcodes.RETURN, intValue(decl.getReturnExp(), -1));
+			return finish(names.getName(method.getOwner().getNameId()) + "." + names.getName(method.getNameId()));
+		}
+		
+		private MethodCode finish(String name) {
+			return new MethodCode(name, Arrays.copyOf(code, length), intMax, refMax, intLocals, refLocals);
+		}
+		
+		void statements(StatementList stms) {
+			for (int i = 0; i < stms.size(); i++)
+				statement(stms.elementAt(i));
+		}
+		
+		void statement(Statement stm) {
+			int ints = intTop, refs = refTop;
+			switch (stm.getKind()) {
+				
+				case NodeKind.BLOCK:
+					statements(((Block) stm).getStms());
+					break;
+				
+				case NodeKind.IF:
+					If ifStm = (If) stm;
+					Label elseLabel = new Label(), end = new Label();
+					branch(ifStm.getCondExp(), elseLabel, false);
+					statement(ifStm.getTrueStm());
+					jump(end);
+					mark(elseLabel);
+					statement(ifStm.getFalseStm());
+					mark(end);
+					break;
+				
+				case NodeKind.WHILE:
+					// the condition goes after the body, where it jumps back to the top
+					While whileStm = (While) stm;
+					Label top = new Label(), test = new Label();
+					jump(test);
+					mark(top);
+					statement(whileStm.getStm());
+					mark(test);
+					branch(whileStm.getCondExp(), top, true);
+					break;
+				
+				case NodeKind.PRINT:
+					emit(Opcodes.PRINT, intValue(((Print) stm).getExp(), -1));
+					break;
+				
+				case NodeKind.ASSIGN:
+					Exp value = ((Assign) stm).getValue();
+					int local = table.getLocalSlot(stm);
+					if (local >= 0) {
+						if (isRef(method.getLocalType(local)))
+							refValue(value, registers[local]);
+						else
+							intValue(value, registers[local]);
+					} else {
+						Shape shape = shapes[method.getOwner().getIndex()];
+						int field = table.getFieldSlot(stm);
+						if (shape.isRef(field))
+							emit(Opcodes.PUT_FIELD_REF, shape.getIndex(field), refValue(value, -1));
+						else
+							emit(Opcodes.PUT_FIELD, shape.getIndex(field), intValue(value, -1));
+					}
+					break;
+				
+				case NodeKind.ARRAY_ASSIGN:
+					ArrayAssign assign = (ArrayAssign) stm;
+					int field = arrayField(stm, assign.getIndex(), assign.getValue());
+					if (field >= 0) {
+						int index = intValue(assign.getIndex(), -1);
+						emit(Opcodes.ARRAY_STORE_FIELD, field, index, intValue(assign.getValue(), -1));
+					} else {
+						int array = variable(stm, -1);
+						int index = intValue(assign.getIndex(), -1);
+						emit(Opcodes.ARRAY_STORE, array, index, intValue(assign.getValue(), -1));
+					}
+					break;
+			}
+			
+			// temporaries only live within a statement
+			intTop = ints;
+			refTop = refs;
+		}
+		
+		// puts the value of an int or boolean expression in a register
+		int intValue(Exp exp, int dst) {
+			int ints = intTop, refs = refTop;
+			switch (exp.getKind()) {
+				
+				case NodeKind.AND:
+					Label isFalse = new Label(), end = new Label();
+					branch(exp, isFalse, false);
+					dst = intTarget(dst);
+					emit(Opcodes.CONST, dst, 1);
+					jump(end);
+					mark(isFalse);
+					emit(Opcodes.CONST, dst, 0);
+					mark(end);
+					return dst;
+				
+				case NodeKind.LESS_THAN:
+					LessThan lessThan = (LessThan) exp;
+					return binary(Opcodes.LESS_THAN, lessThan.getLHS(), lessThan.getRHS(), dst);
+				
+				case NodeKind.PLUS:
+					Plus plus = (Plus) exp;
+					if (plus.getRHS().getKind() == NodeKind.INTEGER_LITERAL)
+						return addImmediate(plus.getLHS(), literal(plus.getRHS()), dst);
+					if (plus.getLHS().getKind() == NodeKind.INTEGER_LITERAL)
+						return addImmediate(plus.getRHS(), literal(plus.getLHS()), dst);
+					return binary(Opcodes.ADD, plus.getLHS(), plus.getRHS(), dst);
+				
+				case NodeKind.MINUS:
+					Minus minus = (Minus) exp;
+					if (minus.getRHS().getKind() == NodeKind.INTEGER_LITERAL)
+						return addImmediate(minus.getLHS(), -literal(minus.getRHS()), dst);
+					return binary(Opcodes.SUB, minus.getLHS(), minus.getRHS(), dst);
+				
+				case NodeKind.TIMES:
+					Times times = (Times) exp;
+					return binary(Opcodes.MUL, times.getLHS(), times.getRHS(), dst);
+				
+				case NodeKind.ARRAY_LOOKUP:
+					ArrayLookup lookup = (ArrayLookup) exp;
+					int field = lookup.getArray().getKind() == NodeKind.IDENTIFIER_EXP
+							? arrayField(lookup.getArray(), lookup.getIndex(), null) : -1;
+					int array = field >= 0 ? field : refValue(lookup.getArray(), -1);
+					int index = intValue(lookup.getIndex(), -1);
+					intTop = ints;
+					refTop = refs;
+					dst = intTarget(dst);
+					emit(field >= 0 ? Opcodes.ARRAY_LOAD_FIELD : Opcodes.ARRAY_LOAD, dst, array, index);
+					return dst;
+				
+				case NodeKind.ARRAY_LENGTH:
+					array = refValue(((ArrayLength) exp).getArray(), -1);
+					refTop = refs;
+					dst = intTarget(dst);
+					emit(Opcodes.ARRAY_LENGTH, dst, array);
+					return dst;
+				
+				case NodeKind.CALL:
+					return call((Call) exp, dst, false);
+				
+				case NodeKind.INTEGER_LITERAL:
+				case NodeKind.TRUE:
+				case NodeKind.FALSE:
+					dst = intTarget(dst);
+					emit(Opcodes.CONST, dst, literal(exp));
+					return dst;
+				
+				case NodeKind.IDENTIFIER_EXP:
+					return variable(exp, dst);
+				
+				case NodeKind.NOT:
+					int operand = intValue(((Not) exp).getExp(), -1);
+					intTop = ints;
+					dst = intTarget(dst);
+					emit(Opcodes.NOT, dst, operand);
+					return dst;
+				
+				default:
+					throw new IllegalArgumentException("not an int or boolean expression: " + exp.getClass().getSimpleName());
+			}
+		}
+		
+		// puts the value of an int array or object expression in a register
+		int refValue(Exp exp, int dst) {
+			int ints = intTop;
+			switch (exp.getKind()) {
+				
+				case NodeKind.CALL:
+					return call((Call) exp, dst, true);
+				
+				case NodeKind.IDENTIFIER_EXP:
+					return variable(exp, dst);
+				
+				case NodeKind.THIS:
+					if (dst < 0)
+						return 0;
+					emit(Opcodes.MOVE_REF, dst, 0);
+					return dst;
+				
+				case NodeKind.NEW_ARRAY:
+					int size = intValue(((NewArray) exp).getArraySize(), -1);
+					intTop = ints;
+					dst = refTarget(dst);
+					emit(Opcodes.NEW_ARRAY, dst, size);
+					return dst;
+				
+				case NodeKind.NEW_OBJECT:
+					dst = refTarget(dst);
+					emit(Opcodes.NEW_OBJECT, dst, table.getNewClass((NewObject) exp).getIndex());
+					return dst;
+				
+				default:
+					throw new IllegalArgumentException("not an array or object expression: " + exp.getClass().getSimpleName());
+			}
+		}
+		
+		// jumps to target if a boolean expression is jumpIf, and falls through otherwise
+		void branch(Exp exp, Label target, boolean jumpIf) {
+			int ints = intTop, refs = refTop;
+			switch (exp.getKind()) {
+				
+				case NodeKind.AND:
+					And and = (And) exp;
+					if (jumpIf) {
+						Label skip = new Label();
+						branch(and.getLHS(), skip, false);
+						branch(and.getRHS(), target, true);
+						mark(skip);
+					} else {
+						branch(and.getLHS(), target, false);
+						branch(and.getRHS(), target, false);
+					}
+					break;
+				
+				case NodeKind.LESS_THAN:
+					LessThan lessThan = (LessThan) exp;
+					Exp lhs = lessThan.getLHS(), rhs = lessThan.getRHS();
+					if (rhs.getKind() == NodeKind.INTEGER_LITERAL)
+						jump(jumpIf ? Opcodes.JUMP_LT_IMM : Opcodes.JUMP_GE_IMM, intValue(lhs, -1), literal(rhs), target);
+					else if (lhs.getKind() == NodeKind.INTEGER_LITERAL)
+						jump(jumpIf ? Opcodes.JUMP_GT_IMM : Opcodes.JUMP_LE_IMM, intValue(rhs, -1), literal(lhs), target);
+					else {
+						int a = intValue(lhs, -1);
+						jump(jumpIf ? Opcodes.JUMP_LT : Opcodes.JUMP_GE, a, intValue(rhs, -1), target);
+					}
+					break;
+				
+				case NodeKind.NOT:
+					branch(((Not) exp).getExp(), target, !jumpIf);
+					break;
+				
+				case NodeKind.TRUE:
+				case NodeKind.FALSE:
+					if ((exp.getKind() == NodeKind.TRUE) == jumpIf)
+						jump(target);
+					break;
+				
+				default:
+					int value = intValue(exp, -1);
+					emit(jumpIf ? Opcodes.JUMP_NONZERO : Opcodes.JUMP_ZERO, value);
+					fixup(target);
+			}
+			intTop = ints;
+			refTop = refs;
+		}
+		
+		private int binary(int opcode, Exp lhs, Exp rhs, int dst) {
+			int ints = intTop, refs = refTop;
+			int a = intValue(lhs, -1);
+			int b = intValue(rhs, -1);
+			intTop = ints;
+			refTop = refs;
+			dst = intTarget(dst);
+			emit(opcode, dst, a, b);
+			return dst;
+		}
+		
+		private int addImmediate(Exp exp, int immediate, int dst) {
+			int ints = intTop, refs = refTop;
+			int a = intValue(exp, -1);
+			intTop = ints;
+			refTop = refs;
+			dst = intTarget(dst);
+			emit(Opcodes.ADD_IMM, dst, a, immediate);
+			return dst;
+		}
+		
+		private int call(Call call, int dst, boolean refResult) {
+			MethodSymbol target = checker.getTarget(call);
+			int ints = intTop, refs = refTop;
+			int receiver = refValue(call.getCallee(), -1);
+			ExpList args = call.getArgs();
+			int[] operands = new int[args.size()];
+			for (int i = 0; i < operands.length; i++) {
+				if (isRef(target.getParamType(i)))
+					operands[i] = refValue(args.elementAt(i), -1) << 1 | 1;
+				else
+					operands[i] = intValue(args.elementAt(i), -1) << 1;
+			}
+			intTop = ints;
+			refTop = refs;
+			
+			dst = refResult ? refTarget(dst) : intTarget(dst);
+			emit(refResult ? Opcodes.CALL_REF : Opcodes.CALL, dst, receiver, target.getSlot());
+			emit(operands.length);
+			for (int operand : operands)
+				emit(operand);
+			return dst;
+		}
+		
+		// the register of the variable a reference or array assignment resolved to
+		private int variable(Node ref, int dst) {
+			int local = table.getLocalSlot(ref);
+			if (local >= 0) {
+				int register = registers[local];
+				if (dst < 0 || dst == register)
+					return register;
+				emit(isRef(method.getLocalType(local)) ? Opcodes.MOVE_REF : Opcodes.MOVE, dst, register);
+				return dst;
+			}
+			Shape shape = shapes[method.getOwner().getIndex()];
+			int field = table.getFieldSlot(ref);
+			if (shape.isRef(field)) {
+				dst = refTarget(dst);
+				emit(Opcodes.GET_FIELD_REF, dst, shape.getIndex(field));
+			} else {
+				dst = intTarget(dst);
+				emit(Opcodes.GET_FIELD, dst, shape.getIndex(field));
+			}
+			return dst;
+		}
+		
+		// the field index of an array indexed by the given expressions, if the array can be
+		// read from the field after evaluating them because they call nothing that could assign it
+		private int arrayField(Node ref, Exp index, Exp value) {
+			int field = table.getFieldSlot(ref);
+			if (field < 0 || hasCall(index) || (value != null && hasCall(value)))
+				return -1;
+			return shapes[method.getOwner().getIndex()].getIndex(field);
+		}
+		
+		private int literal(Exp exp) {
+			switch (exp.getKind()) {
+				case NodeKind.TRUE:
+					return 1;
+				case NodeKind.FALSE:
+					return 0;
+				default:
+					return ((IntegerLiteral) exp).getValue();
+			}
+		}
+		
+		// the destination register if there is one, or a new int temporary
+		private int intTarget(int dst) {
+			if (dst >= 0)
+				return dst;
+			intMax = Math.max(intMax, intTop + 1);
+			return intTop++;
+		}
+		
+		private int refTarget(int dst) {
+			if (dst >= 0)
+				return dst;
+			refMax = Math.max(refMax, refTop + 1);
+			return refTop++;
+		}
+		
+		private void jump(Label target) {
+			emit(Opcodes.JUMP);
+			fixup(target);
+		}
+		
+		private void jump(int opcode, int a, int b, Label target) {
+			emit(opcode, a, b);
+			fixup(target);
+		}
+		
+		// emits the position of a label as the last operand of a jump
+		private void fixup(Label label) {
+			if (label.position < 0) {
+				if (label.fixupCount == label.fixups.length)
+					label.fixups = Arrays.copyOf(label.fixups, label.fixupCount * 2);
+				label.fixups[label.fixupCount++] = length;
+			}
+			emit(label.position);
+		}
+		
+		private void mark(Label label) {
+			label.position = length;
+			for (int i = 0; i < label.fixupCount; i++)
+				code[label.fixups[i]] = length;
+		}
+		
+		private void emit(int... words) {
+			if (length + words.length > code.length)
+				code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+			System.arraycopy(words, 0, code, length, words.length);
+			length += words.length;
+		}
+	}
+}
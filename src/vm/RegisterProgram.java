@@ -0,0 +1,33 @@
+package vm;
+
+import layout.RuntimeClass;
+
+/*
+ * 
+ * A program lowered to register code: the main class's statement, and for
+ * each class by class index its RuntimeClass, whose vtable of MethodCodes
+ * shares one MethodCode per declared method with the vtables of its
+ * subclasses.
+ * 
+ */
+
+public final class RegisterProgram {
+	final MethodCode main;
+	final RuntimeClass[] classes;
+	private final int codeSize;
+	
+	RegisterProgram(MethodCode main, RuntimeClass[] classes, int codeSize) {
+		this.main = main;
+		this.classes = classes;
+		this.codeSize = codeSize;
+	}
+	
+	public MethodCode getMain() {
+		return main;
+	}
+	
+	// ints of code in the program, counting each method once
+	public int getCodeSize() {
+		return codeSize;
+	}
+}
@@ -0,0 +1,265 @@
+package vm;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import interp.InterpreterError;
+import layout.Instance;
+
+/*
+ * 
+ * Runs register code. The registers of every active method live in two
+ * stacks shared by all frames, an int array and an Object array, and a
+ * frame is the window of each starting at its base. A call places the
+ * callee's frame right above the caller's, copies the arguments into its
+ * parameter registers, and runs it with a recursive call to execute(), so
+ * the JVM stack only grows by one Java frame per MiniJava call.
+ * 
+ * execute() is a single loop switching on the opcode of each instruction,
+ * with the code array, the register stacks and their bases in Java locals.
+ * Runtime errors surface as the JVM's own exceptions, and run() reports
+ * them as InterpreterErrors, as the tree-walking interpreter does.
+ * 
+ */
+
+public class RegisterVM {
+	private final RegisterProgram program;
+	private final PrintStream out;
+	private int[] ints = new int[256];
+	private Object[] refs = new Object[256];
+	private Object refResult; // value of the last RETURN_REF
+	
+	public RegisterVM(RegisterProgram program, PrintStream out) {
+		this.program = program;
+		this.out = out;
+	}
+	
+	// runs the main class's statement
+	public void run() {
+		try {
+			MethodCode main = program.main;
+			reserve(main.intRegisters, main.refRegisters);
+			execute(main, 0, 0);
+		} catch (NullPointerException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new InterpreterError(e.toString(), e);
+		} catch (StackOverflowError e) {
+			throw new InterpreterError(e.toString(), e);
+		} finally {
+			Arrays.fill(refs, null);
+			refResult = null;
+			out.flush();
+		}
+	}
+	
+	// runs a method whose registers start at the given bases, returning its int result
+	private int execute(MethodCode method, int intBase, int refBase) {
+		final int[] code = method.code;
+		int[] ints = this.ints;
+		Object[] refs = this.refs;
+		final Instance self = (Instance) refs[refBase];
+		int pc = 0;
+		while (true) {
+			switch (code[pc]) {
+				
+				case Opcodes.CONST:
+					ints[intBase + code[pc + 1]] = code[pc + 2];
+					pc += 3;
+					break;
+				
+				case Opcodes.MOVE:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.MOVE_REF:
+					refs[refBase + code[pc + 1]] = refs[refBase + code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.ADD:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] + ints[intBase + code[pc + 3]];
+					pc += 4;
+					break;
+				
+				case Opcodes.SUB:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] - ints[intBase + code[pc + 3]];
+					pc += 4;
+					break;
+				
+				case Opcodes.MUL:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] * ints[intBase + code[pc + 3]];
+					pc += 4;
+					break;
+				
+				case Opcodes.ADD_IMM:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] + code[pc + 3];
+					pc += 4;
+					break;
+				
+				case Opcodes.LESS_THAN:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] < ints[intBase + code[pc + 3]] ? 1 : 0;
+					pc += 4;
+					break;
+				
+				case Opcodes.NOT:
+					ints[intBase + code[pc + 1]] = ints[intBase + code[pc + 2]] ^ 1;
+					pc += 3;
+					break;
+				
+				case Opcodes.JUMP:
+					pc = code[pc + 1];
+					break;
+				
+				case Opcodes.JUMP_LT:
+					pc = ints[intBase + code[pc + 1]] < ints[intBase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_GE:
+					pc = ints[intBase + code[pc + 1]] >= ints[intBase + code[pc + 2]] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_LT_IMM:
+					pc = ints[intBase + code[pc + 1]] < code[pc + 2] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_GE_IMM:
+					pc = ints[intBase + code[pc + 1]] >= code[pc + 2] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_GT_IMM:
+					pc = ints[intBase + code[pc + 1]] > code[pc + 2] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_LE_IMM:
+					pc = ints[intBase + code[pc + 1]] <= code[pc + 2] ? code[pc + 3] : pc + 4;
+					break;
+				
+				case Opcodes.JUMP_ZERO:
+					pc = ints[intBase + code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+					break;
+				
+				case Opcodes.JUMP_NONZERO:
+					pc = ints[intBase + code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+					break;
+				
+				case Opcodes.ARRAY_LOAD:
+					ints[intBase + code[pc + 1]] = ((int[]) refs[refBase + code[pc + 2]])[ints[intBase + code[pc + 3]]];
+					pc += 4;
+					break;
+				
+				case Opcodes.ARRAY_STORE:
+					((int[]) refs[refBase + code[pc + 1]])[ints[intBase + code[pc + 2]]] = ints[intBase + code[pc + 3]];
+					pc += 4;
+					break;
+				
+				case Opcodes.ARRAY_LENGTH:
+					ints[intBase + code[pc + 1]] = ((int[]) refs[refBase + code[pc + 2]]).length;
+					pc += 3;
+					break;
+				
+				case Opcodes.NEW_ARRAY:
+					refs[refBase + code[pc + 1]] = new int[ints[intBase + code[pc + 2]]];
+					pc += 3;
+					break;
+				
+				case Opcodes.ARRAY_LOAD_FIELD:
+					ints[intBase + code[pc + 1]] = ((int[]) self.refs[code[pc + 2]])[ints[intBase + code[pc + 3]]];
+					pc += 4;
+					break;
+				
+				case Opcodes.ARRAY_STORE_FIELD:
+					((int[]) self.refs[code[pc + 1]])[ints[intBase + code[pc + 2]]] = ints[intBase + code[pc + 3]];
+					pc += 4;
+					break;
+				
+				case Opcodes.GET_FIELD:
+					ints[intBase + code[pc + 1]] = self.ints[code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.GET_FIELD_REF:
+					refs[refBase + code[pc + 1]] = self.refs[code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.PUT_FIELD:
+					self.ints[code[pc + 1]] = ints[intBase + code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.PUT_FIELD_REF:
+					self.refs[code[pc + 1]] = refs[refBase + code[pc + 2]];
+					pc += 3;
+					break;
+				
+				case Opcodes.NEW_OBJECT:
+					refs[refBase + code[pc + 1]] = new Instance(program.classes[code[pc + 2]]);
+					pc += 3;
+					break;
+				
+				case Opcodes.CALL:
+				case Opcodes.CALL_REF:
+					Instance receiver = (Instance) refs[refBase + code[pc + 2]];
+					MethodCode callee = (MethodCode) receiver.runtimeClass.vtable[code[pc + 3]];
+					int calleeInts = intBase + method.intRegisters, calleeRefs = refBase + method.refRegisters;
+					if (calleeInts + callee.intRegisters > ints.length || calleeRefs + callee.refRegisters > refs.length) {
+						reserve(calleeInts + callee.intRegisters, calleeRefs + callee.refRegisters);
+						ints = this.ints;
+						refs = this.refs;
+					}
+					
+					// arguments go to the parameters in order, and the other locals start out as 0 and null
+					refs[calleeRefs] = receiver;
+					int argCount = code[pc + 4];
+					int nextInt = calleeInts, nextRef = calleeRefs + 1;
+					for (int i = 0; i < argCount; i++) {
+						int arg = code[pc + 5 + i];
+						if ((arg & 1) != 0)
+							refs[nextRef++] = refs[refBase + (arg >> 1)];
+						else
+							ints[nextInt++] = ints[intBase + (arg >> 1)];
+					}
+					for (int end = calleeInts + callee.intLocals; nextInt < end; nextInt++)
+						ints[nextInt] = 0;
+					for (int end = calleeRefs + callee.refLocals; nextRef < end; nextRef++)
+						refs[nextRef] = null;
+					
+					int result = execute(callee, calleeInts, calleeRefs);
+					ints = this.ints;
+					refs = this.refs;
+					if (code[pc] == Opcodes.CALL)
+						ints[intBase + code[pc + 1]] = result;
+					else
+						refs[refBase + code[pc + 1]] = refResult;
+					pc += 5 + argCount;
+					break;
+				
+				case Opcodes.RETURN:
+					return ints[intBase + code[pc + 1]];
+				
+				case Opcodes.RETURN_REF:
+					refResult = refs[refBase + code[pc + 1]];
+					return 0;
+				
+				case Opcodes.PRINT:
+					out.println(ints[intBase + code[pc + 1]]);
+					pc += 2;
+					break;
+				
+				case Opcodes.HALT:
+					return 0;
+				
+				default:
+					throw new IllegalStateException("bad opcode " + code[pc] + " at " + pc + " in " + method.name);
+			}
+		}
+	}
+	
+	// grows the register stacks to hold at least the given numbers of registers
+	private void reserve(int intCount, int refCount) {
+		if (intCount > ints.length)
+			ints = Arrays.copyOf(ints, Math.max(ints.length * 2, intCount));
+		if (refCount > refs.length)
+			refs = Arrays.copyOf(refs, Math.max(refs.length * 2, refCount));
+	}
+}
@@ -0,0 +1,82 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import jvm.BytecodeCompiler;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestBytecodeCompiler {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			File outDir = new File(System.getProperty("java.io.tmpdir"), "minijava-classes");
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			
+			// compile and run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Compiling " + args[i] + "...");
+				
+				// only programs without errors can be compiled
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				// write the class files to a directory of their own, then run them in a new JVM
+				File dir = new File(outDir, args[i].replace(".java", ""));
+				String mainClass = table.getNames().getName(table.getClass(0).getNameId());
+				long startTime = System.nanoTime();
+				long midTime, endTime;
+				try {
+					new BytecodeCompiler(table, checker).write(prog, dir);
+					midTime = System.nanoTime();
+					Process process = new ProcessBuilder(java, "-cp", dir.getPath(), mainClass).inheritIO().start();
+					if (process.waitFor() != 0)
+						System.out.println("Exited with status " + process.exitValue());
+					endTime = System.nanoTime();
+				} catch (IOException e) {
+					System.err.println("Could not compile or run " + args[i] + ": " + e.getMessage());
+					continue;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Compiled " + table.getClassCount() + " classes to " + dir + " in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Ran in " + ((endTime - midTime) / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import ast.*;
+import closure.*;
+import interp.*;
+import jvm.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestClosureCompiler {
+	private final static int ROUNDS = 5;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// the program's output is buffered and flushed when it finishes, and dropped when warming up
+			PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+			PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+			
+			// run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + "...");
+				
+				// only programs without errors can run
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				long startTime = System.nanoTime();
+				ClosureProgram program = new ClosureCompiler(table, checker).compile(prog, out);
+				long midTime = System.nanoTime();
+				boolean failed = false;
+				try {
+					program.run();
+				} catch (InterpreterError e) {
+					System.out.println("Exception in thread \"main\" " + e.getMessage());
+					failed = true;
+				}
+				long endTime = System.nanoTime();
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Compiled in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Ran in " + ((endTime - midTime) / 1000) + "us");
+				if (!failed)
+					compare(prog, table, checker, parser.getNodeCount(), discard);
+				System.out.println();
+			}
+		}
+	}
+	
+	// times the first and the best warm run of the closures, the bytecode backend and the tree-walker,
+	// the first run counting the compiling or resolving it needs
+	private static void compare(Program prog, SymbolTable table, TypeChecker checker, int nodeCount, PrintStream discard) {
+		long[] first = new long[3], best = new long[3];
+		Arrays.fill(best, Long.MAX_VALUE);
+		String mainClass = table.getNames().getName(table.getClass(0).getNameId());
+		
+		long start = System.nanoTime();
+		ClosureProgram program = new ClosureCompiler(table, checker).compile(prog, discard);
+		program.run();
+		first[0] = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		Map<String, byte[]> classFiles = new BytecodeCompiler(table, checker, true).compile(prog);
+		Class<?> main = InMemoryRunner.load(classFiles).get(0);
+		InMemoryRunner.run(main);
+		first[1] = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		Interpreter walker = new Interpreter(prog, table, checker, nodeCount, discard);
+		walker.run();
+		first[2] = System.nanoTime() - start;
+		
+		for (int round = 0; round < ROUNDS; round++) {
+			long t0 = System.nanoTime();
+			program.run();
+			long t1 = System.nanoTime();
+			InMemoryRunner.run(main);
+			long t2 = System.nanoTime();
+			walker.run();
+			long t3 = System.nanoTime();
+			best[0] = Math.min(best[0], t1 - t0);
+			best[1] = Math.min(best[1], t2 - t1);
+			best[2] = Math.min(best[2], t3 - t2);
+		}
+		System.out.println("First run, compiling included: closures " + (first[0] / 1000) + "us, bytecode "
+				+ (first[1] / 1000) + "us, tree-walker " + (first[2] / 1000) + "us");
+		System.out.println("Best of " + ROUNDS + " warm runs: closures " + (best[0] / 1000) + "us, bytecode "
+				+ (best[1] / 1000) + "us, tree-walker " + (best[2] / 1000) + "us");
+	}
+}
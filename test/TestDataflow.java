@@ -0,0 +1,71 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.List;
+
+import analysis.*;
+import ast.*;
+import parser.Parser;
+import symbol.*;
+
+public class TestDataflow {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// analyze the methods of each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file and build the symbol table of the resulting AST
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTable table = new SymbolTableBuilder(parser.getNodeCount()).build(prog);
+				System.out.println("Analyzing " + args[i] + "...");
+				
+				// print out each method's uninitialized reads and dead stores
+				Names names = table.getNames();
+				int methodCount = 0, blockCount = 0, localCount = 0;
+				long totalTime = 0;
+				for (ClassSymbol symbol : table.getClasses()) {
+					for (int j = 0; j < symbol.getMethodCount(); j++) {
+						MethodSymbol method = symbol.getMethod(j);
+						if (method.getOwner() != symbol)
+							continue; // inherited
+						
+						long startTime = System.nanoTime();
+						ControlFlowGraph cfg = new ControlFlowGraph(table, method);
+						DefiniteAssignment assignment = new DefiniteAssignment(table, method, cfg);
+						Liveness liveness = new Liveness(cfg);
+						List<Diagnostic> diagnostics = assignment.check();
+						List<Node> deadStores = liveness.findDeadStores();
+						totalTime += System.nanoTime() - startTime;
+						
+						String methodName = names.getName(symbol.getNameId()) + "." + names.getName(method.getNameId());
+						for (Diagnostic diagnostic : diagnostics)
+							System.out.println(methodName + ": " + diagnostic.format(parser.getLineMap()));
+						for (Node store : deadStores)
+							System.out.println(methodName + ": dead store to "
+									+ names.getName(method.getLocalName(table.getLocalSlot(store)))
+									+ " at " + parser.getLineMap().describe(store.getPosition()));
+						methodCount++;
+						blockCount += cfg.getBlockCount();
+						localCount += cfg.getLocalCount();
+					}
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Analyzed " + methodCount + " methods with " + blockCount + " blocks and " + localCount + " locals in " + (totalTime / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.*;
+import closure.ClosureCompiler;
+import interp.*;
+import jvm.*;
+import nodes.NodeInterpreter;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+import tier.TieredEngine;
+import vm.*;
+
+public class TestEngines {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// run each file argument given on every engine
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + " on every engine...");
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					System.out.println("Not a valid program");
+					System.out.println();
+					continue;
+				}
+				
+				// the bytecode backend runs the program as Java would, which the others must match
+				String expected;
+				try {
+					Map<String, byte[]> classFiles = new BytecodeCompiler(table, checker, true).compile(prog);
+					expected = InMemoryRunner.run(classFiles, table.getNames().getName(table.getClass(0).getNameId()));
+				} catch (ProgramException e) {
+					expected = e.getOutput() + "<failed>\n";
+				}
+				
+				Map<String, Engine> engines = new LinkedHashMap<String, Engine>();
+				int nodeCount = parser.getNodeCount();
+				engines.put("Interpreter", out -> new Interpreter(prog, table, checker, nodeCount, out).run());
+				engines.put("RegisterVM", out -> new RegisterVM(new RegisterCompiler(table, checker).compile(prog), out).run());
+				engines.put("ClosureCompiler", out -> new ClosureCompiler(table, checker).compile(prog, out).run());
+				engines.put("NodeInterpreter", out -> new NodeInterpreter(prog, table, checker, out).run());
+				engines.put("TieredEngine", out -> tiered(prog, table, checker, nodeCount, out, false).run());
+				engines.put("TieredEngine (tracing)", out -> tiered(prog, table, checker, nodeCount, out, true).run());
+				int failures = 0;
+				for (Map.Entry<String, Engine> engine : engines.entrySet()) {
+					String output = run(engine.getValue());
+					if (!output.equals(expected)) {
+						System.out.println(engine.getKey() + " and Java differ");
+						failures++;
+					}
+				}
+				
+				// print out statistics
+				System.out.print(expected);
+				System.out.println("---");
+				System.out.println((engines.size() - failures) + " of " + engines.size() + " engines match Java");
+				System.out.println();
+			}
+		}
+	}
+	
+	// a tiered engine compiling everything at once, so that compiled calls are the ones tested
+	private static TieredEngine tiered(Program prog, SymbolTable table, TypeChecker checker, int nodeCount,
+			PrintStream out, boolean tracing) {
+		TieredEngine engine = new TieredEngine(prog, table, checker, nodeCount, out);
+		engine.setInvocationThreshold(1);
+		engine.setBackEdgeThreshold(1);
+		engine.setBackgroundCompilation(false);
+		engine.setTracing(tracing);
+		return engine;
+	}
+	
+	// what an engine printed, followed by a mark if the program failed
+	private static String run(Engine engine) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, false);
+		String failed = "";
+		try {
+			engine.run(out);
+		} catch (InterpreterError e) {
+			failed = "<failed>\n";
+		}
+		out.flush();
+		return bytes.toString() + failed;
+	}
+	
+	private interface Engine {
+		void run(PrintStream out);
+	}
+}
@@ -0,0 +1,94 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import analysis.StructuralHasher;
+import ast.*;
+import parser.Parser;
+
+public class TestHasher {
+	public static void main(String[] args) throws FileNotFoundException {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// hash each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file and hash the resulting AST
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				System.out.println("Hashing " + args[i] + "...");
+				
+				long startTime = System.nanoTime();
+				StructuralHasher hasher = new StructuralHasher(parser.getNodeCount());
+				hasher.hash(prog);
+				long endTime = System.nanoTime();
+				
+				// print out hashes of the program, its classes and their methods
+				System.out.println("program " + hex(hasher.getHash(prog)));
+				System.out.println("  class " + prog.getMainClass().getClassId().getName() + " " + hex(hasher.getHash(prog.getMainClass())));
+				
+				ClassDeclList classList = prog.getClassDeclList();
+				for (int j = 0; j < classList.size(); j++) {
+					ClassDecl classDecl = classList.elementAt(j);
+					Identifier classId;
+					MethodDeclList methods;
+					if (classDecl instanceof ClassDeclExtends) {
+						classId = ((ClassDeclExtends) classDecl).getClassId();
+						methods = ((ClassDeclExtends) classDecl).getMethods();
+					} else {
+						classId = ((ClassDeclSimple) classDecl).getClassId();
+						methods = ((ClassDeclSimple) classDecl).getMethods();
+					}
+					
+					System.out.println("  class " + classId.getName() + " " + hex(hasher.getHash(classDecl)));
+					for (int k = 0; k < methods.size(); k++)
+						System.out.println("    method " + methods.elementAt(k).getId().getName() + " " + hex(hasher.getHash(methods.elementAt(k))));
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Hashed " + parser.getNodeCount() + " nodes in " + ((endTime - startTime) / 1000) + "us");
+				System.out.println();
+			}
+			
+			// formatting and comments must not change a hash, while a change to the code must
+			compare("Factorial.java", "FactorialReformatted.java", true);
+			compare("Factorial.java", "FactorialChanged.java", false);
+		}
+	}
+	
+	// hashes two fixtures, checking whether their programs hash alike; their main classes always should
+	private static void compare(String first, String second, boolean alike) throws FileNotFoundException {
+		Program[] progs = new Program[2];
+		StructuralHasher[] hashers = new StructuralHasher[2];
+		String[] fileNames = { first, second };
+		for (int i = 0; i < 2; i++) {
+			Parser parser = new Parser(new FileReader("programs/" + fileNames[i]));
+			progs[i] = parser.parseProgram();
+			hashers[i] = new StructuralHasher(parser.getNodeCount());
+			hashers[i].hash(progs[i]);
+		}
+		
+		long firstHash = hashers[0].getHash(progs[0]), secondHash = hashers[1].getHash(progs[1]);
+		System.out.println(first + " " + hex(firstHash) + ", " + second + " " + hex(secondHash));
+		if (alike && firstHash != secondHash)
+			System.out.println("Hashes of " + first + " and " + second + " differ");
+		else if (!alike && firstHash == secondHash)
+			System.out.println("Hashes of " + first + " and " + second + " do not differ");
+		if (hashers[0].getHash(progs[0].getMainClass()) != hashers[1].getHash(progs[1].getMainClass()))
+			System.out.println("Hashes of the main classes of " + first + " and " + second + " differ");
+	}
+	
+	private static String hex(long hash) {
+		return String.format("%016x", hash);
+	}
+}
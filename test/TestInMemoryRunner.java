@@ -0,0 +1,95 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import ast.*;
+import jvm.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestInMemoryRunner {
+	// times each program is compiled and run after the first, to check that classes are unloaded
+	private final static int REPEATS = 200;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+			
+			// compile and run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + "...");
+				
+				// only programs without errors can be compiled
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				// compile and run once, printing the output
+				String mainClass = table.getNames().getName(table.getClass(0).getNameId());
+				long startTime = System.nanoTime();
+				Map<String, byte[]> classFiles = new BytecodeCompiler(table, checker, true).compile(prog);
+				long midTime = System.nanoTime();
+				String output;
+				try {
+					output = InMemoryRunner.run(classFiles, mainClass);
+				} catch (ProgramException e) {
+					output = e.getOutput() + "Exception in thread \"main\" " + e.getMessage() + "\n";
+				}
+				long endTime = System.nanoTime();
+				System.out.print(output);
+				
+				// then again and again, as a service would
+				long unloadedBefore = classLoading.getUnloadedClassCount();
+				long repeatStart = System.nanoTime();
+				for (int j = 0; j < REPEATS; j++) {
+					try {
+						InMemoryRunner.run(new BytecodeCompiler(table, checker, true).compile(prog), mainClass);
+					} catch (ProgramException e) {
+						// reported above
+					}
+				}
+				long repeatEnd = System.nanoTime();
+				System.gc();
+				long unloaded = classLoading.getUnloadedClassCount() - unloadedBefore;
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Compiled in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Ran in " + ((endTime - midTime) / 1000) + "us");
+				System.out.println("Compiled and ran " + REPEATS + " more times in " + ((repeatEnd - repeatStart) / REPEATS / 1000) + "us each");
+				System.out.println("Loaded " + (REPEATS * table.getClassCount()) + " classes and unloaded " + unloaded + ", with " + classLoading.getLoadedClassCount() + " classes loaded now");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,102 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import parser.Parser;
+import semant.IncrementalChecker;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestIncrementalChecker {
+	public static void main(String[] args) throws FileNotFoundException {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// check the file arguments as successive versions of one program
+			IncrementalChecker incremental = new IncrementalChecker();
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				System.out.println("Checking " + args[i] + "...");
+				
+				long startTime = System.nanoTime();
+				List<Diagnostic> diagnostics = incremental.check(prog, parser.getNodeCount(), parser.getTokenHashes());
+				long midTime = System.nanoTime();
+				
+				// check from scratch for comparison
+				List<Diagnostic> expected = fullCheck(prog, parser);
+				long endTime = System.nanoTime();
+				
+				for (Diagnostic diagnostic : diagnostics)
+					System.out.println(diagnostic.format(parser.getLineMap()));
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Re-checked " + incremental.getCheckedCount() + " of " + incremental.getBodyCount() + " bodies in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Full check: " + ((endTime - midTime) / 1000) + "us");
+				if (!format(diagnostics, parser).equals(format(expected, parser)))
+					System.out.println("Incremental and full diagnostics differ");
+				System.out.println();
+			}
+			
+			// each edit must re-check just the bodies it reaches, and so must undoing it
+			edit("LinkedList.java", "LinkedListBodyEdit.java", 1);
+			edit("LinkedList.java", "LinkedListSignatureEdit.java", 3);
+			edit("LinkedList.java", "LinkedListFieldEdit.java", 6);
+			edit("FactorialTypeError.java", "FactorialTypeErrorLayoutEdit.java", 1);
+		}
+	}
+	
+	// checks a fixture, an edited copy of it and the fixture again, comparing each with a full check, with
+	// bodies fingerprinted by the parser and then by the checker itself
+	private static void edit(String original, String edited, int expectedCount) throws FileNotFoundException {
+		for (boolean tokenHashes : new boolean[] { true, false }) {
+			IncrementalChecker incremental = new IncrementalChecker();
+			String[] versions = { original, edited, original };
+			for (int i = 0; i < versions.length; i++) {
+				Parser parser = new Parser(new FileReader("programs/" + versions[i]));
+				Program prog = parser.parseProgram();
+				List<Diagnostic> diagnostics = tokenHashes
+						? incremental.check(prog, parser.getNodeCount(), parser.getTokenHashes())
+						: incremental.check(prog, parser.getNodeCount());
+				if (!format(diagnostics, parser).equals(format(fullCheck(prog, parser), parser)))
+					System.out.println("Incremental and full diagnostics of " + versions[i] + " differ");
+				if (i > 0 && tokenHashes)
+					System.out.println("Edited " + versions[i - 1] + " to " + versions[i] + ": re-checked "
+							+ incremental.getCheckedCount() + " of " + incremental.getBodyCount() + " bodies");
+				if (i > 0 && incremental.getCheckedCount() != expectedCount)
+					System.out.println("Expected " + expectedCount + " re-checked bodies, not "
+							+ incremental.getCheckedCount() + (tokenHashes ? "" : " with structural hashes"));
+			}
+		}
+	}
+	
+	private static List<Diagnostic> fullCheck(Program prog, Parser parser) {
+		SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+		SymbolTable table = builder.build(prog);
+		List<Diagnostic> expected = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		expected.addAll(new TypeChecker(table, parser.getNodeCount()).check(prog));
+		Collections.sort(expected);
+		return expected;
+	}
+	
+	private static List<String> format(List<Diagnostic> diagnostics, Parser parser) {
+		List<String> messages = new ArrayList<String>();
+		for (Diagnostic diagnostic : diagnostics)
+			messages.add(diagnostic.format(parser.getLineMap()));
+		return messages;
+	}
+}
@@ -0,0 +1,81 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import ast.*;
+import jvm.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestInlineCaches {
+	// times each program is run in each mode, after as many runs to warm up
+	private final static int ROUNDS = 2000;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// compile each file argument given with invokevirtual and with invokedynamic
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				checker.check(prog);
+				System.out.println("Running " + args[i] + "...");
+				if (parser.getErrorCount() > 0 || !builder.getDiagnostics().isEmpty() || !checker.getDiagnostics().isEmpty()) {
+					System.out.println("Program has errors");
+					System.out.println();
+					continue;
+				}
+				
+				// the main class comes first in both
+				BytecodeCompiler compiler = new BytecodeCompiler(table, checker, true);
+				Class<?> virtualMain = InMemoryRunner.load(compiler.compile(prog)).get(0);
+				compiler.setInvokeDynamic(true);
+				Class<?> dynamicMain = InMemoryRunner.load(compiler.compile(prog)).get(0);
+				
+				String output = InMemoryRunner.run(virtualMain);
+				System.out.print(output);
+				if (!InMemoryRunner.run(dynamicMain).equals(output))
+					System.out.println("Outputs of invokevirtual and invokedynamic differ");
+				
+				// warm up both, then alternate between them
+				for (int round = 0; round < ROUNDS; round++) {
+					InMemoryRunner.run(virtualMain);
+					InMemoryRunner.run(dynamicMain);
+				}
+				long bestVirtual = Long.MAX_VALUE, bestDynamic = Long.MAX_VALUE, totalVirtual = 0, totalDynamic = 0;
+				for (int round = 0; round < ROUNDS; round++) {
+					long startTime = System.nanoTime();
+					InMemoryRunner.run(virtualMain);
+					long midTime = System.nanoTime();
+					InMemoryRunner.run(dynamicMain);
+					long endTime = System.nanoTime();
+					bestVirtual = Math.min(bestVirtual, midTime - startTime);
+					bestDynamic = Math.min(bestDynamic, endTime - midTime);
+					totalVirtual += midTime - startTime;
+					totalDynamic += endTime - midTime;
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("invokevirtual: best " + (bestVirtual / 1000) + "us, mean " + (totalVirtual / ROUNDS / 1000) + "us");
+				System.out.println("invokedynamic: best " + (bestDynamic / 1000) + "us, mean " + (totalDynamic / ROUNDS / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import ast.*;
+import layout.*;
+import parser.Parser;
+import symbol.*;
+
+public class TestLayout {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// lay out the classes of each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file and build the symbol table of the resulting AST
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTable table = new SymbolTableBuilder(parser.getNodeCount()).build(prog);
+				System.out.println("Laying out " + args[i] + "...");
+				
+				long startTime = System.nanoTime();
+				LayoutEngine engine = new LayoutEngine(table);
+				ClassLayout[] layouts = engine.layOut();
+				long endTime = System.nanoTime();
+				Shape[] shapes = engine.shapes();
+				
+				// print out each class's fields by offset, its shape and its vtable
+				Names names = table.getNames();
+				for (ClassLayout layout : layouts) {
+					ClassSymbol symbol = layout.getSymbol();
+					System.out.println("class " + names.getName(symbol.getNameId()) + " (" + layout.getInstanceSize() + " bytes)");
+					for (int j = 0; j < layout.getFieldCount(); j++)
+						System.out.println("  +" + layout.getFieldOffset(j) + " " + table.typeName(symbol.getFieldType(j)) + " " + names.getName(symbol.getFieldName(j)));
+					Shape shape = shapes[symbol.getIndex()];
+					System.out.println("  shape: " + shape.getIntFieldCount() + " ints, " + shape.getRefFieldCount() + " refs");
+					for (int j = 0; j < layout.getVtableLength(); j++) {
+						MethodSymbol method = layout.getVtableEntry(j);
+						System.out.println("  [" + j + "] " + names.getName(method.getOwner().getNameId()) + "." + names.getName(method.getNameId()));
+					}
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Laid out " + layouts.length + " classes in " + ((endTime - startTime) / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 
 import parser.Lexer;
+import parser.LineMap;
 import parser.Token;
 import parser.TokenType;
 
@@ -28,7 +29,7 @@ public class TestLexer {
 				// start tokenizing file
 				System.out.println("Tokenizing " + args[i] + "...");
 				long startTime = System.currentTimeMillis();
-				int numTokens = 0;
+				int numTokens = 0, mismatches = 0;
 				Token token;
 				do {
 					token = lexer.getToken();
@@ -46,6 +47,12 @@ public class TestLexer {
 					else
 						System.out.println();
 					
+					// the line map must place the token's offset where the lexer did
+					LineMap lineMap = lexer.getLineMap();
+					if (lineMap.getLineNum(token.getOffset()) != token.getLineNum()
+							|| lineMap.getColNum(token.getOffset()) != token.getColNum())
+						mismatches++;
+					
 				} while (token.getType() != TokenType.EOF);
 				
 				long endTime = System.currentTimeMillis();
@@ -54,6 +61,8 @@ public class TestLexer {
 				System.out.println("---");
 				System.out.println("Number of tokens: " + numTokens);
 				System.out.println("Execution time: " + (endTime - startTime) + "ms");
+				if (mismatches > 0)
+					System.out.println("LineMap and lexer positions differ for " + mismatches + " tokens");
 				System.out.println();
 			}
 		}
@@ -0,0 +1,98 @@
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import interp.*;
+import nodes.NodeInterpreter;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestNodeInterpreter {
+	private final static int ROUNDS = 5;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// the program's output is buffered and flushed when it finishes, and dropped when warming up
+			PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+			PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+			
+			// run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + "...");
+				
+				// only programs without errors can run
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				long startTime = System.nanoTime();
+				NodeInterpreter interpreter = new NodeInterpreter(prog, table, checker, out);
+				long midTime = System.nanoTime();
+				boolean failed = false;
+				try {
+					interpreter.run();
+				} catch (InterpreterError e) {
+					System.out.println("Exception in thread \"main\" " + e.getMessage());
+					failed = true;
+				}
+				long endTime = System.nanoTime();
+				
+				// run a second tree repeatedly, each run keeping what the runs before specialized,
+				// and the tree-walker for comparison
+				NodeInterpreter warmNodes = new NodeInterpreter(prog, table, checker, discard);
+				Interpreter walker = new Interpreter(prog, table, checker, parser.getNodeCount(), discard);
+				long bestNodes = Long.MAX_VALUE, bestWalker = Long.MAX_VALUE;
+				for (int round = 0; round < ROUNDS && !failed; round++) {
+					long roundStart = System.nanoTime();
+					warmNodes.run();
+					long roundMid = System.nanoTime();
+					walker.run();
+					long roundEnd = System.nanoTime();
+					bestNodes = Math.min(bestNodes, roundMid - roundStart);
+					bestWalker = Math.min(bestWalker, roundEnd - roundMid);
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Built in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Ran in " + ((endTime - midTime) / 1000) + "us");
+				if (!failed) {
+					System.out.println("Best of " + ROUNDS + " warm runs in " + (bestNodes / 1000) + "us");
+					System.out.println("Tree-walker best of " + ROUNDS + " in " + (bestWalker / 1000) + "us");
+				}
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import ast.*;
+import parser.Parser;
+import visitor.TreeIndex;
+
+public class TestNodeTables {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// number and annotate the nodes of each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				TreeIndex index = new TreeIndex(prog);
+				int nodeCount = parser.getNodeCount();
+				System.out.println("Numbering " + args[i] + "...");
+				
+				// every node must have its own id below the node count, and a larger one than its children
+				boolean[] seen = new boolean[nodeCount];
+				int outOfRange = 0, duplicates = 0, unordered = 0;
+				for (int j = 0; j < index.size(); j++) {
+					int id = index.getNode(j).getNodeId();
+					if (id < 0 || id >= nodeCount)
+						outOfRange++;
+					else if (seen[id])
+						duplicates++;
+					else
+						seen[id] = true;
+					for (int child = j + 1; child < index.getEnd(j); child = index.getEnd(child)) {
+						if (index.getNode(child).getNodeId() >= id)
+							unordered++;
+					}
+				}
+				int unused = 0;
+				for (boolean used : seen) {
+					if (!used)
+						unused++;
+				}
+				
+				// each table must give back what was put, growing from the smallest size
+				NodeTable<String> names = new NodeTable<String>(1);
+				IntNodeTable ints = new IntNodeTable(1, -1);
+				LongNodeTable longs = new LongNodeTable(1, Long.MIN_VALUE);
+				for (int j = 0; j < index.size(); j += 2) {
+					Node node = index.getNode(j);
+					names.put(node, "node " + node.getNodeId());
+					ints.put(node, node.getNodeId() * 3);
+					longs.put(node, (long) node.getNodeId() << 40);
+				}
+				int wrong = 0;
+				for (int j = 0; j < index.size(); j++) {
+					Node node = index.getNode(j);
+					int id = node.getNodeId();
+					boolean put = j % 2 == 0;
+					if (put ? !("node " + id).equals(names.get(node)) : names.contains(node))
+						wrong++;
+					if (ints.get(node) != (put ? id * 3 : -1))
+						wrong++;
+					if (longs.get(node) != (put ? (long) id << 40 : Long.MIN_VALUE))
+						wrong++;
+				}
+				for (int j = 0; j < index.size(); j += 2) {
+					Node node = index.getNode(j);
+					names.remove(node);
+					ints.add(node, 1);
+					longs.add(node, 1);
+					if (names.contains(node) || ints.get(node) != node.getNodeId() * 3 + 1
+							|| longs.get(node) != ((long) node.getNodeId() << 40) + 1)
+						wrong++;
+				}
+				
+				// a node the parser did not build has no id to look it up by
+				boolean rejected;
+				try {
+					ints.get(new True());
+					rejected = false;
+				} catch (IllegalArgumentException e) {
+					rejected = true;
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Numbered " + index.size() + " nodes with " + nodeCount + " ids");
+				if (outOfRange > 0 || duplicates > 0 || unused > 0)
+					System.out.println("Ids are not dense: " + outOfRange + " out of range, " + duplicates
+							+ " duplicated, " + unused + " unused");
+				if (unordered > 0)
+					System.out.println(unordered + " children do not precede their parents");
+				if (wrong > 0)
+					System.out.println("Node tables gave back " + wrong + " wrong values");
+				if (!rejected)
+					System.out.println("Node tables accepted a node without an id");
+				System.out.println();
+			}
+		}
+	}
+}
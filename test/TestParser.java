@@ -1,15 +1,22 @@
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import ast.Program;
 import parser.Parser;
 import visitor.PrettyPrintVisitor;
 
 public class TestParser {
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException, InterruptedException {
 		if (args.length == 0)
 			System.err.println("No file arguments givens");
 		else {
+			ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+			
 			// parse each file argument given
 			for (int i = 0; i < args.length; i++) {
 				FileReader file;
@@ -41,7 +48,50 @@ public class TestParser {
 				PrettyPrintVisitor printer = new PrettyPrintVisitor();
 				printer.visit(prog);
 				System.out.println();
+				
+				// printing the classes in parallel must give exactly the same text
+				StringBuilder sequential = new StringBuilder(), parallel = new StringBuilder();
+				new PrettyPrintVisitor(sequential).visit(prog);
+				PrettyPrintVisitor.print(prog, parallel, pool);
+				if (!sequential.toString().equals(parallel.toString()))
+					System.out.println("Sequential and parallel printing differ");
+				
+				// a target that fails to write must fail the printing too
+				if (!failsToPrint(prog, pool))
+					System.out.println("Printing to a failing target did not fail");
+			}
+			pool.shutdown();
+		}
+	}
+	
+	// true if printing to a writer that throws on every write throws, both sequentially and in parallel
+	private static boolean failsToPrint(Program prog, ExecutorService pool) throws InterruptedException {
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] chars, int offset, int length) throws IOException {
+				throw new IOException("write failed");
+			}
+			
+			@Override
+			public void flush() {
 			}
+			
+			@Override
+			public void close() {
+			}
+		};
+		
+		boolean sequentialFailed = false, parallelFailed = false;
+		try {
+			new PrettyPrintVisitor(failing).visit(prog);
+		} catch (UncheckedIOException e) {
+			sequentialFailed = true;
+		}
+		try {
+			PrettyPrintVisitor.print(prog, failing, pool);
+		} catch (IOException e) {
+			parallelFailed = true;
 		}
+		return sequentialFailed && parallelFailed;
 	}
 }
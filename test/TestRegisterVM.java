@@ -0,0 +1,73 @@
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import interp.InterpreterError;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+import vm.*;
+
+public class TestRegisterVM {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// the program's output is buffered and flushed when it finishes
+			PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 1 << 16), false);
+			
+			// run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + "...");
+				
+				// only programs without errors can run
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				long startTime = System.nanoTime();
+				RegisterProgram code = new RegisterCompiler(table, checker).compile(prog);
+				long midTime = System.nanoTime();
+				try {
+					new RegisterVM(code, out).run();
+				} catch (InterpreterError e) {
+					System.out.println("Exception in thread \"main\" " + e.getMessage());
+				}
+				long endTime = System.nanoTime();
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Compiled to " + code.getCodeSize() + " ints in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Ran in " + ((endTime - midTime) / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
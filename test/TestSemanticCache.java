@@ -0,0 +1,102 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ast.*;
+import parser.Parser;
+import semant.SemanticCache;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestSemanticCache {
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// check the file arguments as successive builds sharing one cache,
+			// which is kept between runs of this test
+			File cacheFile = new File(System.getProperty("java.io.tmpdir"), "minijava-semantic.cache");
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				System.out.println("Checking " + args[i] + "...");
+				
+				// a new cache object per build, as in a new process
+				SemanticCache cache = new SemanticCache(cacheFile);
+				long startTime = System.nanoTime();
+				List<Diagnostic> diagnostics = cache.check(prog, parser.getNodeCount(), parser.getClassHashes());
+				long midTime = System.nanoTime();
+				
+				// check from scratch for comparison
+				List<Diagnostic> expected = fullCheck(prog, parser);
+				long endTime = System.nanoTime();
+				
+				for (Diagnostic diagnostic : diagnostics)
+					System.out.println(diagnostic.format(parser.getLineMap()));
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Loaded " + cache.getLoadedCount() + " and checked " + cache.getCheckedCount() + " classes in " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Full check: " + ((endTime - midTime) / 1000) + "us");
+				if (!format(diagnostics, parser).equals(format(expected, parser)))
+					System.out.println("Cached and full diagnostics differ");
+				System.out.println();
+			}
+			
+			// a damaged cache must count as empty, not fail the build or give other results
+			damage(cacheFile, args[args.length - 1], true);
+			damage(cacheFile, args[args.length - 1], false);
+		}
+	}
+	
+	// truncates the cache file or flips a bit in its middle, then checks a file with it
+	private static void damage(File cacheFile, String fileName, boolean truncate) throws IOException {
+		byte[] bytes = Files.readAllBytes(cacheFile.toPath());
+		if (truncate)
+			bytes = Arrays.copyOf(bytes, bytes.length / 2);
+		else
+			bytes[bytes.length / 2] ^= 0x10;
+		Files.write(cacheFile.toPath(), bytes);
+		
+		Parser parser = new Parser(new FileReader("programs/" + fileName));
+		Program prog = parser.parseProgram();
+		SemanticCache cache = new SemanticCache(cacheFile);
+		List<Diagnostic> diagnostics = cache.check(prog, parser.getNodeCount(), parser.getClassHashes());
+		System.out.println((truncate ? "Truncated" : "Flipped a bit of") + " the cache: loaded " + cache.getLoadedCount()
+				+ " and checked " + cache.getCheckedCount() + " classes");
+		if (!format(diagnostics, parser).equals(format(fullCheck(prog, parser), parser)))
+			System.out.println("Cached and full diagnostics differ");
+	}
+	
+	private static List<Diagnostic> fullCheck(Program prog, Parser parser) {
+		SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+		SymbolTable table = builder.build(prog);
+		List<Diagnostic> expected = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		expected.addAll(new TypeChecker(table, parser.getNodeCount()).check(prog));
+		Collections.sort(expected);
+		return expected;
+	}
+	
+	private static List<String> format(List<Diagnostic> diagnostics, Parser parser) {
+		List<String> messages = new ArrayList<String>();
+		for (Diagnostic diagnostic : diagnostics)
+			messages.add(diagnostic.format(parser.getLineMap()));
+		return messages;
+	}
+}
@@ -0,0 +1,79 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.Map;
+
+import ast.*;
+import jvm.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestStackMaps {
+	// times the classes of each program are defined, alternating between the two kinds of class file
+	private final static int ROUNDS = 500;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// compile each file argument given with and without stack maps
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				checker.check(prog);
+				System.out.println("Defining the classes of " + args[i] + "...");
+				if (parser.getErrorCount() > 0 || !builder.getDiagnostics().isEmpty() || !checker.getDiagnostics().isEmpty()) {
+					System.out.println("Program has errors");
+					System.out.println();
+					continue;
+				}
+				
+				BytecodeCompiler compiler = new BytecodeCompiler(table, checker, true);
+				Map<String, byte[]> withMaps = compiler.compile(prog);
+				compiler.setStackMaps(false);
+				Map<String, byte[]> withoutMaps = compiler.compile(prog);
+				
+				// define, verify and initialize all classes in a new loader each round
+				long bestWith = Long.MAX_VALUE, bestWithout = Long.MAX_VALUE, totalWith = 0, totalWithout = 0;
+				for (int round = 0; round < ROUNDS; round++) {
+					long startTime = System.nanoTime();
+					InMemoryRunner.load(withMaps);
+					long midTime = System.nanoTime();
+					InMemoryRunner.load(withoutMaps);
+					long endTime = System.nanoTime();
+					bestWith = Math.min(bestWith, midTime - startTime);
+					bestWithout = Math.min(bestWithout, endTime - midTime);
+					totalWith += midTime - startTime;
+					totalWithout += endTime - midTime;
+				}
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("With stack maps (version " + ClassFile.MAJOR_VERSION + "): " + size(withMaps) + " bytes, best " + (bestWith / 1000) + "us, mean " + (totalWith / ROUNDS / 1000) + "us");
+				System.out.println("Without (version " + ClassFile.INFERENCE_MAJOR_VERSION + "): " + size(withoutMaps) + " bytes, best " + (bestWithout / 1000) + "us, mean " + (totalWithout / ROUNDS / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+	
+	private static int size(Map<String, byte[]> classFiles) {
+		int size = 0;
+		for (byte[] classFile : classFiles.values())
+			size += classFile.length;
+		return size;
+	}
+}
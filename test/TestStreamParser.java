@@ -0,0 +1,107 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+import ast.ClassDecl;
+import parser.ClassDeclStream;
+import parser.Parser;
+import visitor.PrettyPrintVisitor;
+
+/*
+ * 
+ * Parses files through a ClassDeclStream, printing each class into a buffer
+ * and dropping it as soon as it arrives. The heap still in use after each
+ * garbage collection is sampled as classes arrive, so peak live memory can
+ * be compared with parsing the whole file as a Program. Each file is then
+ * streamed again through a queue of one class and abandoned after its
+ * first class, which must stop the parser thread.
+ * 
+ */
+
+public class TestStreamParser {
+	private final static int QUEUE_SIZE = 16;
+	
+	public static void main(String[] args) throws InterruptedException, FileNotFoundException {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// parse each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// create parser and stream its classes
+				Parser parser = new Parser(file);
+				System.out.println("Streaming " + args[i] + "...");
+				
+				long startTime = System.currentTimeMillis();
+				long peakHeap = 0, chars = 0;
+				int numClasses = 0;
+				
+				try (ClassDeclStream stream = new ClassDeclStream(parser, QUEUE_SIZE)) {
+					ClassDecl classDecl;
+					while ((classDecl = stream.next()) != null) {
+						StringWriter out = new StringWriter();
+						PrettyPrintVisitor printer = new PrettyPrintVisitor(out);
+						classDecl.accept(printer);
+						printer.flush();
+						chars += out.getBuffer().length();
+						numClasses++;
+						
+						peakHeap = Math.max(peakHeap, liveHeap());
+					}
+				}
+				
+				long endTime = System.currentTimeMillis();
+				
+				// print out statistics
+				System.out.println("Number of classes: " + numClasses + " (" + chars + " chars printed)");
+				System.out.println("Execution time: " + (endTime - startTime) + "ms");
+				System.out.println("Peak live heap: " + (peakHeap / 1024 / 1024) + "MB");
+				System.out.println(parser.getErrorCount() + " errors reported");
+				System.out.println("Abandoned after one class: " + (abandon(args[i]) ? "parser stopped" : "parser still running"));
+				System.out.println();
+			}
+		}
+	}
+	
+	// streams a file, closes the stream after its first class and waits for the parser thread to end
+	private static boolean abandon(String fileName) throws InterruptedException, FileNotFoundException {
+		ClassDeclStream stream = new ClassDeclStream(new Parser(new FileReader("programs/" + fileName)), 1);
+		stream.next();
+		stream.close();
+		for (int wait = 0; wait < 100 && parserRunning(); wait++)
+			Thread.sleep(10);
+		return !parserRunning() && stream.next() == null;
+	}
+	
+	private static boolean parserRunning() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals("ClassDeclStream"))
+				return true;
+		}
+		return false;
+	}
+	
+	// heap in use right after the last collection of each heap pool
+	private static long liveHeap() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (pool.getType() == MemoryType.HEAP && usage != null)
+				used += usage.getUsed();
+		}
+		return used;
+	}
+}
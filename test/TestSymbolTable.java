@@ -0,0 +1,65 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import ast.*;
+import parser.Parser;
+import symbol.*;
+
+public class TestSymbolTable {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// build the symbol table of each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file and build the symbol table of the resulting AST
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				System.out.println("Building symbol table of " + args[i] + "...");
+				
+				long startTime = System.nanoTime();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				long endTime = System.nanoTime();
+				
+				// print out each class with its flattened fields and methods
+				Names names = table.getNames();
+				for (ClassSymbol symbol : table.getClasses()) {
+					System.out.print("class " + names.getName(symbol.getNameId()));
+					if (symbol.getSuperClass() != null)
+						System.out.print(" extends " + names.getName(symbol.getSuperClass().getNameId()));
+					System.out.println();
+					
+					for (int j = 0; j < symbol.getFieldCount(); j++)
+						System.out.println("  field " + j + ": " + table.typeName(symbol.getFieldType(j)) + " " + names.getName(symbol.getFieldName(j)));
+					
+					for (int j = 0; j < symbol.getMethodCount(); j++) {
+						MethodSymbol method = symbol.getMethod(j);
+						System.out.print("  method " + j + ": " + table.typeName(method.getReturnType()) + " "
+								+ names.getName(method.getOwner().getNameId()) + "." + names.getName(method.getNameId()) + "(");
+						for (int k = 0; k < method.getParamCount(); k++)
+							System.out.print((k > 0 ? ", " : "") + table.typeName(method.getParamType(k)));
+						System.out.println(") locals " + method.getLocalCount());
+					}
+				}
+				
+				// print out errors and statistics
+				for (Diagnostic diagnostic : builder.getDiagnostics())
+					System.out.println(diagnostic.format(parser.getLineMap()));
+				System.out.println("---");
+				System.out.println("Built " + table.getClassCount() + " classes and " + names.size() + " names in " + ((endTime - startTime) / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import ast.*;
+import interp.*;
+import jvm.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+import tier.TieredEngine;
+
+public class TestTieredEngine {
+	private final static int ROUNDS = 5;
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// the program's output is buffered and flushed when it finishes
+			TimedStream out = new TimedStream(new BufferedOutputStream(System.out, 1 << 16));
+			
+			// run each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file, build the symbol table of the resulting AST and type check it
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(checker.check(prog));
+				System.out.println("Running " + args[i] + "...");
+				
+				// only programs without errors can run
+				if (parser.getErrorCount() > 0 || !diagnostics.isEmpty()) {
+					Collections.sort(diagnostics);
+					for (Diagnostic diagnostic : diagnostics)
+						System.out.println(diagnostic.format(parser.getLineMap()));
+					System.out.println();
+					continue;
+				}
+				
+				out.reset();
+				long startTime = System.nanoTime();
+				TieredEngine engine = new TieredEngine(prog, table, checker, parser.getNodeCount(), out);
+				boolean failed = false;
+				try {
+					engine.run();
+				} catch (InterpreterError e) {
+					System.out.println("Exception in thread \"main\" " + e.getMessage());
+					failed = true;
+				}
+				long endTime = System.nanoTime();
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Ran in " + ((endTime - startTime) / 1000) + "us, first output after "
+						+ (out.firstOutput(startTime) / 1000) + "us");
+				System.out.println("Compiled " + engine.getCompiledCount() + " methods and " + engine.getLoopCount()
+						+ " loops, " + engine.getFailedCount() + " failed");
+				if (!failed)
+					compare(prog, table, checker, parser.getNodeCount());
+				System.out.println();
+			}
+		}
+	}
+	
+	// times fresh runs, each with its setup, of the tiered engine with and without on-stack replacement,
+	// of its interpreter alone, of tracing and of the bytecode backend, taking the best of several so that
+	// they do not count warming up this JVM
+	private static void compare(Program prog, SymbolTable table, TypeChecker checker, int nodeCount) {
+		TimedStream discard = new TimedStream(OutputStream.nullOutputStream());
+		long[] first = new long[4], total = new long[5];
+		Arrays.fill(first, Long.MAX_VALUE);
+		Arrays.fill(total, Long.MAX_VALUE);
+		long compiled = Long.MAX_VALUE;
+		
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int i = 0; i < 4; i++) {
+				discard.reset();
+				long start = System.nanoTime();
+				TieredEngine engine = new TieredEngine(prog, table, checker, nodeCount, discard);
+				if (i == 1)
+					engine.setOnStackReplacement(false);
+				else if (i == 2) {
+					engine.setInvocationThreshold(Integer.MAX_VALUE);
+					engine.setBackEdgeThreshold(Integer.MAX_VALUE);
+				} else if (i == 3)
+					engine.setTracing(true);
+				engine.run();
+				total[i] = Math.min(total[i], System.nanoTime() - start);
+				first[i] = Math.min(first[i], discard.firstOutput(start));
+			}
+			
+			long start = System.nanoTime();
+			Map<String, byte[]> classFiles = new BytecodeCompiler(table, checker, true).compile(prog);
+			Class<?> main = InMemoryRunner.load(classFiles).get(0);
+			long loaded = System.nanoTime();
+			InMemoryRunner.run(main);
+			compiled = Math.min(compiled, loaded - start);
+			total[4] = Math.min(total[4], System.nanoTime() - start);
+		}
+		System.out.println("Best of " + ROUNDS + " fresh runs: tiered " + (total[0] / 1000) + "us, first output after "
+				+ (first[0] / 1000) + "us");
+		System.out.println("Without on-stack replacement " + (total[1] / 1000) + "us, first output after "
+				+ (first[1] / 1000) + "us");
+		System.out.println("Interpreter only " + (total[2] / 1000) + "us, first output after " + (first[2] / 1000) + "us");
+		System.out.println("Tracing " + (total[3] / 1000) + "us, first output after " + (first[3] / 1000) + "us");
+		System.out.println("Bytecode " + (total[4] / 1000) + "us, compiled and loaded in " + (compiled / 1000) + "us");
+	}
+	
+	// a stream noting when the first int is printed to it
+	private static class TimedStream extends PrintStream {
+		private long firstTime;
+		
+		TimedStream(OutputStream out) {
+			super(out, false);
+		}
+		
+		void reset() {
+			firstTime = 0;
+		}
+		
+		// time from start to the first output, or to now if there was none
+		long firstOutput(long start) {
+			return (firstTime == 0 ? System.nanoTime() : firstTime) - start;
+		}
+		
+		@Override
+		public void println(int x) {
+			if (firstTime == 0)
+				firstTime = System.nanoTime();
+			super.println(x);
+		}
+	}
+}
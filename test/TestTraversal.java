@@ -0,0 +1,201 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import ast.*;
+import parser.Parser;
+import visitor.DepthFirstVisitor;
+import visitor.TreeIndex;
+
+/*
+ * 
+ * Compares full traversals through accept(Visitor) with loops over a
+ * TreeIndex that switch on node kinds. Each file argument is parsed
+ * repeatedly and its classes are concatenated into one large program. Every
+ * run then makes three different passes over it each way, the second way
+ * including the cost of building the index. Runs are timed after a warm-up
+ * so the JIT has compiled both paths.
+ * 
+ */
+
+public class TestTraversal {
+	private final static int COPIES = 2000; // copies of each file's classes
+	private final static int WARMUP = 20, RUNS = 20;
+	
+	// sums integer literals and counts identifiers through accept(Visitor)
+	private static class LiteralVisitor extends DepthFirstVisitor {
+		long sum;
+		
+		@Override
+		public void visit(IntegerLiteral intLiteral) {
+			sum += intLiteral.getValue();
+		}
+		
+		@Override
+		public void visit(IdentifierExp identExp) {
+			sum++;
+		}
+		
+		@Override
+		public void visit(Identifier id) {
+			sum++;
+		}
+	}
+	
+	// counts calls and additions through accept(Visitor)
+	private static class CallVisitor extends DepthFirstVisitor {
+		long sum;
+		
+		@Override
+		public void visit(Call callExp) {
+			sum++;
+			super.visit(callExp);
+		}
+		
+		@Override
+		public void visit(Plus plusExp) {
+			sum += 2;
+			super.visit(plusExp);
+		}
+	}
+	
+	// counts assignments and loops through accept(Visitor)
+	private static class StatementVisitor extends DepthFirstVisitor {
+		long sum;
+		
+		@Override
+		public void visit(Assign assignStm) {
+			sum++;
+			super.visit(assignStm);
+		}
+		
+		@Override
+		public void visit(While whileStm) {
+			sum += 3;
+			super.visit(whileStm);
+		}
+	}
+	
+	// the same three computations dispatched on node kinds
+	private static long sumLiterals(TreeIndex index) {
+		long sum = 0;
+		for (int i = 0; i < index.size(); i++) {
+			switch (index.getKind(i)) {
+				case NodeKind.INTEGER_LITERAL:
+					sum += ((IntegerLiteral) index.getNode(i)).getValue();
+					break;
+				case NodeKind.IDENTIFIER_EXP:
+				case NodeKind.IDENTIFIER:
+					sum++;
+					break;
+				default:
+					break;
+			}
+		}
+		return sum;
+	}
+	
+	private static long countCalls(TreeIndex index) {
+		long sum = 0;
+		for (int i = 0; i < index.size(); i++) {
+			switch (index.getKind(i)) {
+				case NodeKind.CALL:
+					sum++;
+					break;
+				case NodeKind.PLUS:
+					sum += 2;
+					break;
+				default:
+					break;
+			}
+		}
+		return sum;
+	}
+	
+	private static long countStatements(TreeIndex index) {
+		long sum = 0;
+		for (int i = 0; i < index.size(); i++) {
+			switch (index.getKind(i)) {
+				case NodeKind.ASSIGN:
+					sum++;
+					break;
+				case NodeKind.WHILE:
+					sum += 3;
+					break;
+				default:
+					break;
+			}
+		}
+		return sum;
+	}
+	
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// parse each file argument given
+			for (int i = 0; i < args.length; i++) {
+				Program prog;
+				
+				// attempt to parse the file the given number of times
+				try {
+					prog = replicate(args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				System.out.println("Traversing " + COPIES + " copies of " + args[i] + "...");
+				
+				long visitorSum = 0, indexSum = 0;
+				long visitorTime = 0, buildTime = 0, indexTime = 0;
+				for (int run = 0; run < WARMUP + RUNS; run++) {
+					// several passes per run so the accept() call sites see more
+					// than one visitor, as they do in a whole-program pipeline
+					LiteralVisitor literalVisitor = new LiteralVisitor();
+					CallVisitor callVisitor = new CallVisitor();
+					StatementVisitor stmVisitor = new StatementVisitor();
+					long startTime = System.nanoTime();
+					prog.accept(literalVisitor);
+					prog.accept(callVisitor);
+					prog.accept(stmVisitor);
+					long visitedTime = System.nanoTime();
+					
+					TreeIndex index = new TreeIndex(prog);
+					long builtTime = System.nanoTime();
+					long sum = sumLiterals(index) + countCalls(index) + countStatements(index);
+					long endTime = System.nanoTime();
+					
+					// only count timed runs after warm-up
+					if (run >= WARMUP) {
+						visitorTime += visitedTime - startTime;
+						buildTime += builtTime - visitedTime;
+						indexTime += endTime - builtTime;
+					}
+					visitorSum = literalVisitor.sum + callVisitor.sum + stmVisitor.sum;
+					indexSum = sum;
+				}
+				
+				// print out statistics
+				System.out.println("accept(Visitor): " + (visitorTime / RUNS / 3000) + "us per pass (sum " + visitorSum + ")");
+				System.out.println("TreeIndex: " + (indexTime / RUNS / 3000) + "us per pass (sum " + indexSum + ")");
+				System.out.println("TreeIndex build: " + (buildTime / RUNS / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+	
+	// parses a file COPIES times and gathers all of its classes in one program
+	private static Program replicate(String fileName) throws FileNotFoundException {
+		MainClass main = null;
+		ClassDeclList classList = new ClassDeclList();
+		
+		for (int copy = 0; copy < COPIES; copy++) {
+			Program prog = new Parser(new FileReader("programs/" + fileName)).parseProgram();
+			main = prog.getMainClass();
+			for (int i = 0; i < prog.getClassDeclList().size(); i++)
+				classList.addElement(prog.getClassDeclList().elementAt(i));
+		}
+		
+		return new Program(main, classList);
+	}
+}
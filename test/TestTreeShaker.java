@@ -0,0 +1,81 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+
+import analysis.RapidTypeAnalysis;
+import analysis.TreeShaker;
+import ast.*;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+import visitor.PrettyPrintVisitor;
+
+public class TestTreeShaker {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			// shake each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse and check file
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTable table = new SymbolTableBuilder(parser.getNodeCount()).build(prog);
+				TypeChecker checker = new TypeChecker(table, parser.getNodeCount());
+				checker.check(prog);
+				System.out.println("Shaking " + args[i] + "...");
+				
+				// find what is reachable and remove the rest
+				long startTime = System.nanoTime();
+				RapidTypeAnalysis rta = new RapidTypeAnalysis(table, checker);
+				rta.analyze(prog);
+				TreeShaker shaker = new TreeShaker(table, rta, parser.getNodeCount());
+				Program shaken = shaker.shake(prog);
+				long endTime = System.nanoTime();
+				
+				// print out what was removed and what it saves later phases
+				System.out.println("Instantiated classes: " + rta.getInstantiatedCount() + " of " + table.getClassCount());
+				System.out.println("Reachable methods: " + rta.getReachableCount());
+				System.out.println("Removed " + shaker.getRemovedClassCount() + " classes and " + shaker.getRemovedMethodCount() + " more methods, and stubbed " + shaker.getStubbedMethodCount());
+				System.out.println("Printed size: " + printedSize(prog) + " -> " + printedSize(shaken) + " chars");
+				SymbolTableBuilder builder = new SymbolTableBuilder(shaker.getNodeCount());
+				SymbolTable shakenTable = builder.build(shaken);
+				int errors = builder.getDiagnostics().size() + new TypeChecker(shakenTable, shaker.getNodeCount()).check(shaken).size();
+				if (errors > 0)
+					System.out.println("Shaken program has " + errors + " errors");
+				System.out.println("Check time: " + checkTime(prog, parser.getNodeCount()) + "us -> " + checkTime(shaken, shaker.getNodeCount()) + "us");
+				System.out.println("---");
+				System.out.println("Analyzed and shaken in " + ((endTime - startTime) / 1000) + "us");
+				System.out.println();
+			}
+		}
+	}
+	
+	private static int printedSize(Program prog) {
+		StringBuilder out = new StringBuilder();
+		PrettyPrintVisitor printer = new PrettyPrintVisitor(out);
+		prog.accept(printer);
+		return out.length();
+	}
+	
+	// best of a few runs of building the symbol table and checking
+	private static long checkTime(Program prog, int nodeCount) {
+		long best = Long.MAX_VALUE;
+		for (int run = 0; run < 5; run++) {
+			long startTime = System.nanoTime();
+			SymbolTable table = new SymbolTableBuilder(nodeCount).build(prog);
+			new TypeChecker(table, nodeCount).check(prog);
+			best = Math.min(best, System.nanoTime() - startTime);
+		}
+		return best / 1000;
+	}
+}
@@ -0,0 +1,115 @@
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import ast.*;
+import parser.LineMap;
+import parser.Parser;
+import semant.TypeChecker;
+import symbol.*;
+
+public class TestTypeChecker {
+	public static void main(String[] args) {
+		if (args.length == 0)
+			System.err.println("No file arguments given");
+		else {
+			ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+			
+			// type check each file argument given
+			for (int i = 0; i < args.length; i++) {
+				FileReader file;
+				
+				// attempt to open file
+				try {
+					file = new FileReader("programs/" + args[i]);
+				} catch (FileNotFoundException e) {
+					System.err.println(args[i] + " was not found in MiniJava/programs");
+					continue; // try next file
+				}
+				
+				// parse file and build the symbol table of the resulting AST
+				Parser parser = new Parser(file);
+				Program prog = parser.parseProgram();
+				SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+				SymbolTable table = builder.build(prog);
+				System.out.println("Type checking " + args[i] + "...");
+				
+				// check sequentially, then in parallel
+				long startTime = System.nanoTime();
+				List<Diagnostic> sequential = new TypeChecker(table, parser.getNodeCount()).check(prog);
+				long midTime = System.nanoTime();
+				List<Diagnostic> parallel = new TypeChecker(table, parser.getNodeCount()).check(prog, pool);
+				long endTime = System.nanoTime();
+				
+				// print out the errors of both phases in source order
+				List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(builder.getDiagnostics());
+				diagnostics.addAll(parallel);
+				Collections.sort(diagnostics);
+				for (Diagnostic diagnostic : diagnostics)
+					System.out.println(diagnostic.format(parser.getLineMap()));
+				
+				// print out statistics
+				System.out.println("---");
+				System.out.println("Sequential check: " + ((midTime - startTime) / 1000) + "us");
+				System.out.println("Parallel check: " + ((endTime - midTime) / 1000) + "us on " + pool.getParallelism() + " threads");
+				if (!formatAll(sequential, parser.getLineMap()).equals(formatAll(parallel, parser.getLineMap())))
+					System.out.println("Sequential and parallel diagnostics differ");
+				System.out.println();
+			}
+			
+			pool.shutdown();
+			
+			// a program with every kind of semantic error must report each of them, the same from either run
+			invalid("TypeErrors.java");
+		}
+	}
+	
+	// checks a semantically invalid program sequentially and on a pool with several workers
+	private static void invalid(String fileName) {
+		FileReader file;
+		try {
+			file = new FileReader("programs/" + fileName);
+		} catch (FileNotFoundException e) {
+			System.err.println(fileName + " was not found in MiniJava/programs");
+			return;
+		}
+		
+		Parser parser = new Parser(file);
+		Program prog = parser.parseProgram();
+		SymbolTableBuilder builder = new SymbolTableBuilder(parser.getNodeCount());
+		SymbolTable table = builder.build(prog);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		List<Diagnostic> sequential = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		sequential.addAll(new TypeChecker(table, parser.getNodeCount()).check(prog));
+		List<Diagnostic> parallel = new ArrayList<Diagnostic>(builder.getDiagnostics());
+		parallel.addAll(new TypeChecker(table, parser.getNodeCount()).check(prog, pool));
+		pool.shutdown();
+		
+		List<String> messages = formatAll(sequential, parser.getLineMap());
+		if (!messages.equals(formatAll(parallel, parser.getLineMap())))
+			System.out.println("Sequential and parallel diagnostics of " + fileName + " differ");
+		for (String expected : EXPECTED_ERRORS) {
+			boolean found = false;
+			for (String message : messages)
+				found |= message.startsWith("ERROR: " + expected);
+			if (!found)
+				System.out.println(fileName + " did not report: " + expected);
+		}
+	}
+	
+	private final static String[] EXPECTED_ERRORS = { "Incompatible types", "Undeclared method",
+			"Undeclared variable", "Undeclared class", "Method Draw overrides", "Cyclic inheritance" };
+	
+	// the diagnostics with their line and column, in source order
+	private static List<String> formatAll(List<Diagnostic> diagnostics, LineMap lineMap) {
+		List<Diagnostic> sorted = new ArrayList<Diagnostic>(diagnostics);
+		Collections.sort(sorted);
+		List<String> messages = new ArrayList<String>();
+		for (Diagnostic diagnostic : sorted)
+			messages.add(diagnostic.format(lineMap));
+		return messages;
+	}
+}